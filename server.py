@@ -2,10 +2,8 @@
 import os
 import requests
 import json
-import re
 from fastmcp import FastMCP
 from typing import Annotated
-from xml.etree import ElementTree as ET
 
 
 mcp = FastMCP("jadx-daemon-mcp")
@@ -18,6 +16,29 @@ METHOD_ANNOTATED_STR = "The method name must be a Java signature with the parent
 FIELD_ANNOTATED_STR = "The field name must be a Java signature with the parent class's Java FQN, be careful the blank." \
 "e.g. `com.example.abc.AClass.testField :java.util.List<java.lang.String>`."
 MAX_INSTANCE_COUNT_ANNOTATED_STR = "The new max instance count must be at least 1."
+CURSOR_ANNOTATED_STR = "The `nextCursor` returned by the previous page, leave empty to get the first page."
+LIMIT_ANNOTATED_STR = "Max result count of one page."
+COMPONENT_TYPE_ANNOTATED_STR = "One of `activity`, `activity-alias`, `service`, `receiver` and `provider`, " \
+"leave empty for all types."
+CALL_PATH_METHODS_ANNOTATED_STR = "JSON array of method signatures, e.g. " \
+"`[\"com.example.MainActivity.onCreate(android.os.Bundle):void\"]`. A signature without arguments " \
+"like `java.lang.Runtime.exec` matches all overloads. Framework methods can be used as sinks."
+INSN_PATTERN_ANNOTATED_STR = "JSON array of steps matched in order, other instructions may lie between them. " \
+"Each step is an object with any of: `opcode` (jadx instruction type, e.g. `INVOKE`, `CONST_STR`, `IF`, `SGET`), " \
+"`invoke` (`method` or `full.Class.method`), `field` (`field` or `full.Class.field`), `type` (class of " \
+"`NEW_INSTANCE`, `CHECK_CAST`, `INSTANCE_OF`, `CONST_CLASS`), `string` (constant string contains), `stringRegex`, " \
+"`literal` (number), `constArg` (true: an argument comes from a constant) and `within` (max instructions after " \
+"the previous step). Example: `[{\"string\": \"AES\"}, {\"invoke\": \"javax.crypto.Cipher.getInstance\", \"within\": 5}]`."
+WARM_UP_ANNOTATED_STR = "Decompile classes in the background after loading, " \
+"entry point classes and app packages first. Leave empty to use the daemon default."
+WARM_UP_CLASSES_ANNOTATED_STR = "Max class count to warm up, 0 for all classes. " \
+"Leave empty to use the daemon default."
+CODE_ONLY_ANNOTATED_STR = "Only load code and decode resources on the first manifest or resource query. " \
+"Leave empty to use the daemon default."
+DISABLED_PASSES_ANNOTATED_STR = "Comma-separated optional jadx passes to disable: inlineAnonymousClasses, inlineMethods, " \
+"inlineKotlinLambda, moveInnerClasses, extractFinally, restoreSwitchOverString, replaceConsts, debugInfo. " \
+"Leave empty to use the daemon default."
+DEFAULT_PAGE_LIMIT = 50
 
 
 def get_jadx_url() -> str:
@@ -26,42 +47,6 @@ def get_jadx_url() -> str:
     return f"http://{host}:{port}"
 
 
-def preprocess_manifest(manifest_text):
-    """
-    一个健壮的 Manifest 预处理函数。
-    它会清理非法字符，并强行移除所有 <meta-data> 标签以避免解析错误。
-    """
-    # 1. 确保输入是字符串类型
-    if isinstance(manifest_text, bytes):
-        try:
-            manifest_text = manifest_text.decode('utf-8')
-        except UnicodeDecodeError:
-            manifest_text = manifest_text.decode('utf-8', 'ignore')
-    elif not isinstance(manifest_text, str):
-        # 如果既不是 bytes 也不是 str，转换为字符串
-        manifest_text = str(manifest_text)
-
-    # 2. 清理基本的非法 XML 字符
-    cleaned_chars = []
-    for char in manifest_text:
-        codepoint = ord(char)
-        if (codepoint == 0x9 or codepoint == 0xA or codepoint == 0xD or
-                (codepoint >= 0x20 and codepoint <= 0xD7FF) or
-                (codepoint >= 0xE000 and codepoint <= 0xFFFD) or
-                (codepoint >= 0x10000 and codepoint <= 0x10FFFF)):
-            cleaned_chars.append(char)
-    text_no_illegal_chars = "".join(cleaned_chars)  # 移除 u 前缀
-
-    # 3. 使用正则表达式，强行移除所有 <meta-data ... /> 标签
-    text_no_metadata = re.sub(
-        r'<\s*meta-data[^>]*?/>',  # 修正正则表达式，避免贪婪匹配问题
-        '',  # 替换为空字符串，即直接删除
-        text_no_illegal_chars,
-        flags=re.DOTALL | re.IGNORECASE
-    )
-
-    return text_no_metadata
-
 @mcp.tool(
     name="health",
     description="Health check."
@@ -77,11 +62,19 @@ def health() -> dict:
     description="Load a single apk or dex file to jadx decomplier."
 )
 def load(
-    filePath: Annotated[str, FILEPATH_ANNOTATED_STR]
+    filePath: Annotated[str, FILEPATH_ANNOTATED_STR],
+    warmUp: Annotated[bool | None, WARM_UP_ANNOTATED_STR] = None,
+    warmUpClasses: Annotated[int | None, WARM_UP_CLASSES_ANNOTATED_STR] = None,
+    codeOnly: Annotated[bool | None, CODE_ONLY_ANNOTATED_STR] = None,
+    disabledPasses: Annotated[str | None, DISABLED_PASSES_ANNOTATED_STR] = None,
 ) -> dict:
     url = get_jadx_url()
     query = {
-        "filePath": filePath
+        "filePath": filePath,
+        "warmUp": warmUp,
+        "warmUpClasses": warmUpClasses,
+        "codeOnly": codeOnly,
+        "disabledPasses": disabledPasses,
     }
     response = requests.get(url + "/load", params=query)
     return json.loads(response.text)
@@ -92,11 +85,19 @@ def load(
     description="Load a dir which contains many apks and dexs to jadx decomplier."
 )
 def load_dir(
-    dirPath: Annotated[str, FILEPATH_ANNOTATED_STR]
+    dirPath: Annotated[str, FILEPATH_ANNOTATED_STR],
+    warmUp: Annotated[bool | None, WARM_UP_ANNOTATED_STR] = None,
+    warmUpClasses: Annotated[int | None, WARM_UP_CLASSES_ANNOTATED_STR] = None,
+    codeOnly: Annotated[bool | None, CODE_ONLY_ANNOTATED_STR] = None,
+    disabledPasses: Annotated[str | None, DISABLED_PASSES_ANNOTATED_STR] = None,
 ) -> dict:
     url = get_jadx_url()
     query = {
-        "dirPath": dirPath
+        "dirPath": dirPath,
+        "warmUp": warmUp,
+        "warmUpClasses": warmUpClasses,
+        "codeOnly": codeOnly,
+        "disabledPasses": disabledPasses,
     }
     response = requests.get(url + "/load_dir", params=query)
     return json.loads(response.text)
@@ -140,6 +141,21 @@ def unload_all() -> dict:
     return json.loads(response.text)
 
 
+@mcp.tool(
+    name="reload",
+    description="Reload an instance after its input files changed, classes whose bytecode did not change keep their decompiled code."
+)
+def reload(
+    instanceId: Annotated[str, INSTANCE_ID_ANNOTATED_STR], 
+) -> dict:
+    url = get_jadx_url()
+    query = {
+        "instanceId": instanceId,
+    }
+    response = requests.get(url + "/reload", params=query)
+    return json.loads(response.text)
+
+
 @mcp.tool(
     name="get_manifest",
     description="Get the AndroidManifest.xml file content."
@@ -154,68 +170,117 @@ def get_manifest(
     response = requests.get(url + "/get_manifest", params=query)
     return json.loads(response.text)
 
-# @mcp.tool(
-#     name="get_all_classes",
-#     description="Get all class names from the APK."
-# )
-# def get_all_classes(
-#     instanceId: Annotated[str, INSTANCE_ID_ANNOTATED_STR],
-# ) -> dict:
-#     url = get_jadx_url()
-#     query = {
-#         "instanceId": instanceId,
-#     }
-#     response = requests.get(url + "/get_all_classes", params=query)
-#     return json.loads(response.text)
+@mcp.tool(
+    name="get_all_classes",
+    description="Get all class names from the APK page by page, use `nextCursor` to get the next page."
+)
+def get_all_classes(
+    instanceId: Annotated[str, INSTANCE_ID_ANNOTATED_STR],
+    cursor: Annotated[str, CURSOR_ANNOTATED_STR] = "",
+    limit: Annotated[int, LIMIT_ANNOTATED_STR] = DEFAULT_PAGE_LIMIT,
+) -> dict:
+    url = get_jadx_url()
+    query = {
+        "instanceId": instanceId,
+        "cursor": cursor,
+        "limit": limit,
+    }
+    response = requests.get(url + "/get_all_classes", params=query)
+    return json.loads(response.text)
+
+
+@mcp.tool(
+    name="search_names",
+    description="Search class, method and field names by prefix, substring, camel humps (`gPN` for " \
+    "`getPackageName`) or edit distance, return the best `limit` matches. A query containing `.` " \
+    "matches full class names."
+)
+def search_names(
+    instanceId: Annotated[str, INSTANCE_ID_ANNOTATED_STR],
+    query: Annotated[str, "The name or part of the name to search for."],
+    mode: Annotated[str, "One of `prefix`, `substring`, `camel`, `fuzzy`."] = "prefix",
+    kind: Annotated[str | None, "Only return `class`, `method` or `field` names."] = None,
+    limit: Annotated[int, "The maximum number of names to return."] = 20,
+    maxDistance: Annotated[int | None, "The maximum edit distance of `fuzzy` matches, " \
+        "chosen by query length if not set."] = None,
+) -> dict:
+    url = get_jadx_url()
+    params = {
+        "instanceId": instanceId,
+        "query": query,
+        "mode": mode,
+        "limit": limit,
+    }
+    if kind is not None:
+        params["kind"] = kind
+    if maxDistance is not None:
+        params["maxDistance"] = maxDistance
+    response = requests.get(url + "/search_names", params=params)
+    return json.loads(response.text)
 
 @mcp.tool(
     name="search_string_from_all_classes",
-    description="Search for a string in all classes, ignore case, return method full name."
+    description="Search for a string in all classes, ignore case, return method full name. " \
+    "Use `nextCursor` to get more results."
 )
 
 def search_string_from_all_classes(
     instanceId: Annotated[str, INSTANCE_ID_ANNOTATED_STR],
-    searchString: Annotated[str, "The string to search for."]
+    searchString: Annotated[str, "The string to search for."],
+    cursor: Annotated[str, CURSOR_ANNOTATED_STR] = "",
+    limit: Annotated[int, LIMIT_ANNOTATED_STR] = DEFAULT_PAGE_LIMIT,
 ) -> dict:
     url = get_jadx_url()
     query = {
         "instanceId": instanceId,
-        "searchString": searchString
+        "searchString": searchString,
+        "cursor": cursor,
+        "limit": limit,
     }
     response = requests.get(url + "/search_string_from_all_classes", params=query)
-    result = json.loads(response.text).get("result", [])
-    if len(result) > 50:
-        result = result[:50]
-        return {
-            "result": result,
-            "note": "The search result is too much, only return the 50 results"
-        }
     return json.loads(response.text)
 
 @mcp.tool(
     name="search_regex_from_all_classes",
-    description="Search for a regex string in all classes, return method full name."
+    description="Search for a regex string in all classes, return method full name. " \
+    "Use `nextCursor` to get more results."
 )
 
 def search_regex_from_all_classes(
         instanceId: Annotated[str, INSTANCE_ID_ANNOTATED_STR],
-        searchRegex: Annotated[str, "The regex string to search for."]
+        searchRegex: Annotated[str, "The regex string to search for."],
+        cursor: Annotated[str, CURSOR_ANNOTATED_STR] = "",
+        limit: Annotated[int, LIMIT_ANNOTATED_STR] = DEFAULT_PAGE_LIMIT,
 ) -> dict:
     url = get_jadx_url()
     query = {
         "instanceId": instanceId,
-        "searchRegex": searchRegex
+        "searchRegex": searchRegex,
+        "cursor": cursor,
+        "limit": limit,
     }
     response = requests.get(url + "/search_regex_from_all_classes", params=query)
-    result = json.loads(response.text).get("result", [])
-    if len(result) > 50:
-        result = result[:50]
-
-        return {
-            "result": result,
-            "note": "The search result is too much, only return the 50 results"
-        }
+    return json.loads(response.text)
 
+@mcp.tool(
+    name="search_instructions",
+    description="Search methods whose bytecode instructions match a pattern, without decompiling. " \
+    "Return method full names with the matched instructions. Use `nextCursor` to get more results."
+)
+def search_instructions(
+    instanceId: Annotated[str, INSTANCE_ID_ANNOTATED_STR],
+    pattern: Annotated[str, INSN_PATTERN_ANNOTATED_STR],
+    cursor: Annotated[str, CURSOR_ANNOTATED_STR] = "",
+    limit: Annotated[int, LIMIT_ANNOTATED_STR] = DEFAULT_PAGE_LIMIT,
+) -> dict:
+    url = get_jadx_url()
+    query = {
+        "instanceId": instanceId,
+        "pattern": pattern,
+        "cursor": cursor,
+        "limit": limit,
+    }
+    response = requests.get(url + "/search_instructions", params=query)
     return json.loads(response.text)
 
 @mcp.tool(
@@ -229,58 +294,8 @@ def get_all_exported_activities(
     query = {
         "instanceId": instanceId,
     }
-    response = requests.get(url + "/get_manifest", params=query)
-    json_response = json.loads(response.text)
-
-    if "error" in json_response:
-        return json_response
-    
-    manifest_text = preprocess_manifest(json_response["result"])
-
-    try:
-        root = ET.fromstring(manifest_text.encode('utf-8'))
-    except Exception as e:
-        return {
-            "error": e
-        }
-
-    ANDROID_NS = 'http://schemas.android.com/apk/res/android'
-    exported_activities = []
-
-    # 获取包名
-    package_name = root.attrib.get('package', '').strip()
-
-    # 查找 <application> 节点
-    app_node = root.find('application')
-    if app_node is None:
-        return {
-            "error": "Cannot find application node."
-        }
-
-    for activity in app_node.findall('activity'):
-        name = activity.attrib.get('{' + ANDROID_NS + '}name')
-        exported = activity.attrib.get('{' + ANDROID_NS + '}exported')
-        has_intent_filter = len(activity.findall('intent-filter')) > 0
-
-        if not name:
-            continue
-
-        if exported == "true" or (exported is None and has_intent_filter):
-            normalized = set()
-
-            if name.startswith('.'):
-                normalized.add(package_name + name)
-            elif '.' not in name:
-                normalized.add(name)
-                normalized.add(package_name + '.' + name)
-            else:
-                normalized.add(name)
-
-            exported_activities.extend(normalized)
-
-    return {
-        "result": exported_activities
-    }
+    response = requests.get(url + "/get_all_exported_activities", params=query)
+    return json.loads(response.text)
 
 
 @mcp.tool(
@@ -294,58 +309,170 @@ def get_all_exported_services(
     query = {
         "instanceId": instanceId,
     }
-    response = requests.get(url + "/get_manifest", params=query)
-    json_response = json.loads(response.text)
+    response = requests.get(url + "/get_all_exported_services", params=query)
+    return json.loads(response.text)
 
-    if "error" in json_response:
-        return json_response
-    
-    manifest_text = preprocess_manifest(json_response["result"])
 
-    try:
-        root = ET.fromstring(manifest_text.encode('utf-8'))
-    except Exception as e:
-        return {
-            "error": e
-        }
+@mcp.tool(
+    name="get_entry_points",
+    description="Get the attack surface entry points: lifecycle methods of exported components, " \
+        "dynamically registered broadcast receivers, AIDL Stub `onTransact` and AIDL implementation " \
+        "methods. Computed once in the background after loading."
+)
+def get_entry_points(
+    instanceId: Annotated[str, INSTANCE_ID_ANNOTATED_STR],
+    kind: Annotated[str, "One of `activity`, `service`, `receiver`, `provider`, `dynamic-receiver`, " \
+        "`aidl-stub` and `aidl-impl`, leave empty for all kinds."] = "",
+    cursor: Annotated[str, CURSOR_ANNOTATED_STR] = "",
+    limit: Annotated[int, LIMIT_ANNOTATED_STR] = DEFAULT_PAGE_LIMIT,
+) -> dict:
+    url = get_jadx_url()
+    query = {
+        "instanceId": instanceId,
+        "kind": kind,
+        "cursor": cursor,
+        "limit": limit,
+    }
+    response = requests.get(url + "/get_entry_points", params=query)
+    return json.loads(response.text)
 
-    ANDROID_NS = 'http://schemas.android.com/apk/res/android'
-    exported_services = []
+@mcp.tool(
+    name="get_manifest_info",
+    description="Get the package name, application attributes, permissions and component counts from the APK manifest."
+)
+def get_manifest_info(
+    instanceId: Annotated[str, INSTANCE_ID_ANNOTATED_STR],
+) -> dict:
+    url = get_jadx_url()
+    query = {
+        "instanceId": instanceId,
+    }
+    response = requests.get(url + "/get_manifest_info", params=query)
+    return json.loads(response.text)
 
-    # 获取包名
-    package_name = root.attrib.get('package', '').strip()
 
-    # 查找 <application> 节点
-    app_node = root.find('application')
-    if app_node is None:
-        return {
-            "error": "Cannot find application node."
-        }
+@mcp.tool(
+    name="get_manifest_components",
+    description="Get the components declared in the APK manifest with their intent filters, " \
+    "optionally filtered by type, exported flag and intent action."
+)
+def get_manifest_components(
+    instanceId: Annotated[str, INSTANCE_ID_ANNOTATED_STR],
+    type: Annotated[str | None, COMPONENT_TYPE_ANNOTATED_STR] = None,
+    exported: Annotated[bool | None, "Only return exported or not exported components."] = None,
+    action: Annotated[str | None, "Only return components with this action in an intent filter."] = None,
+) -> dict:
+    url = get_jadx_url()
+    query = {
+        "instanceId": instanceId,
+    }
+    if type:
+        query["type"] = type
+    if exported is not None:
+        query["exported"] = "true" if exported else "false"
+    if action:
+        query["action"] = action
+    response = requests.get(url + "/get_manifest_components", params=query)
+    return json.loads(response.text)
 
-    for activity in app_node.findall('service'):
-        name = activity.attrib.get('{' + ANDROID_NS + '}name')
-        exported = activity.attrib.get('{' + ANDROID_NS + '}exported')
-        has_intent_filter = len(activity.findall('intent-filter')) > 0
 
-        if not name:
-            continue
+@mcp.tool(
+    name="get_manifest_component",
+    description="Get a component declared in the APK manifest with its intent filters."
+)
+def get_manifest_component(
+    instanceId: Annotated[str, INSTANCE_ID_ANNOTATED_STR],
+    name: Annotated[str, "The component class name, full or as declared in the manifest."],
+) -> dict:
+    url = get_jadx_url()
+    query = {
+        "instanceId": instanceId,
+        "name": name,
+    }
+    response = requests.get(url + "/get_manifest_component", params=query)
+    return json.loads(response.text)
 
-        if exported == "true" or (exported is None and has_intent_filter):
-            normalized = set()
 
-            if name.startswith('.'):
-                normalized.add(package_name + name)
-            elif '.' not in name:
-                normalized.add(name)
-                normalized.add(package_name + '.' + name)
-            else:
-                normalized.add(name)
+@mcp.tool(
+    name="search_resources",
+    description="Search resource names, values, file names and the content of text resources, " \
+    "ignore case unless `regex` is set. Use `nextCursor` to get more results."
+)
+def search_resources(
+    instanceId: Annotated[str, INSTANCE_ID_ANNOTATED_STR],
+    query: Annotated[str, "The string or regex to search for."],
+    regex: Annotated[bool, "Treat the query as a regex."] = False,
+    type: Annotated[str | None, "Only search this resource type, e.g. `string`, `layout`."] = None,
+    cursor: Annotated[str, CURSOR_ANNOTATED_STR] = "",
+    limit: Annotated[int, LIMIT_ANNOTATED_STR] = DEFAULT_PAGE_LIMIT,
+) -> dict:
+    url = get_jadx_url()
+    params = {
+        "instanceId": instanceId,
+        "query": query,
+        "regex": str(regex).lower(),
+        "cursor": cursor,
+        "limit": limit,
+    }
+    if type is not None:
+        params["type"] = type
+    response = requests.get(url + "/search_resources", params=params)
+    return json.loads(response.text)
 
-            exported_services.extend(normalized)
 
-    return {
-        "result": exported_services
+@mcp.tool(
+    name="get_resource_files",
+    description="Get all resource file names from the APK page by page, use `nextCursor` to get the next page."
+)
+def get_resource_files(
+    instanceId: Annotated[str, INSTANCE_ID_ANNOTATED_STR],
+    cursor: Annotated[str, CURSOR_ANNOTATED_STR] = "",
+    limit: Annotated[int, LIMIT_ANNOTATED_STR] = DEFAULT_PAGE_LIMIT,
+) -> dict:
+    url = get_jadx_url()
+    query = {
+        "instanceId": instanceId,
+        "cursor": cursor,
+        "limit": limit,
     }
+    response = requests.get(url + "/get_resource_files", params=query)
+    return json.loads(response.text)
+
+
+@mcp.tool(
+    name="get_resource_file",
+    description="Get the decoded content of a text or XML resource file."
+)
+def get_resource_file(
+    instanceId: Annotated[str, INSTANCE_ID_ANNOTATED_STR],
+    file: Annotated[str, "The resource file name, e.g. `res/layout/main.xml`."],
+) -> dict:
+    url = get_jadx_url()
+    query = {
+        "instanceId": instanceId,
+        "file": file,
+    }
+    response = requests.get(url + "/get_resource_file", params=query)
+    return json.loads(response.text)
+
+
+@mcp.tool(
+    name="get_resource",
+    description="Get a resource by id or `type/name` with its values and the methods referencing it."
+)
+def get_resource(
+    instanceId: Annotated[str, INSTANCE_ID_ANNOTATED_STR],
+    id: Annotated[str | None, "The resource id, hex (`0x7f010000`) or decimal."] = None,
+    name: Annotated[str | None, "The resource name, e.g. `string/app_name`."] = None,
+) -> dict:
+    url = get_jadx_url()
+    query = {"instanceId": instanceId}
+    if id is not None:
+        query["id"] = id
+    if name is not None:
+        query["name"] = name
+    response = requests.get(url + "/get_resource", params=query)
+    return json.loads(response.text)
 
 
 @mcp.tool(
@@ -499,6 +626,113 @@ def get_field_callers(
     return json.loads(response.text)
 
 
+@mcp.tool(
+    name="get_field_readers",
+    description="Get the methods that read the given java field, with instruction offsets. Answered from an index built at load time, without decompiling."
+)
+def get_field_readers(
+    instanceId: Annotated[str, INSTANCE_ID_ANNOTATED_STR],
+    fieldName: Annotated[str, FIELD_ANNOTATED_STR],
+    cursor: Annotated[str, CURSOR_ANNOTATED_STR] = "",
+    limit: Annotated[int, LIMIT_ANNOTATED_STR] = DEFAULT_PAGE_LIMIT,
+) -> dict:
+    url = get_jadx_url()
+    query = {
+        "instanceId": instanceId,
+        "fieldName": fieldName,
+        "cursor": cursor,
+        "limit": limit,
+    }
+    response = requests.get(url + "/get_field_readers", params=query)
+    return json.loads(response.text)
+
+
+@mcp.tool(
+    name="get_field_writers",
+    description="Get the methods that write the given java field, with instruction offsets. Answered from an index built at load time, without decompiling."
+)
+def get_field_writers(
+    instanceId: Annotated[str, INSTANCE_ID_ANNOTATED_STR],
+    fieldName: Annotated[str, FIELD_ANNOTATED_STR],
+    cursor: Annotated[str, CURSOR_ANNOTATED_STR] = "",
+    limit: Annotated[int, LIMIT_ANNOTATED_STR] = DEFAULT_PAGE_LIMIT,
+) -> dict:
+    url = get_jadx_url()
+    query = {
+        "instanceId": instanceId,
+        "fieldName": fieldName,
+        "cursor": cursor,
+        "limit": limit,
+    }
+    response = requests.get(url + "/get_field_writers", params=query)
+    return json.loads(response.text)
+
+
+@mcp.tool(
+    name="get_method_fields",
+    description="Get the fields read and written by the given java method."
+)
+def get_method_fields(
+    instanceId: Annotated[str, INSTANCE_ID_ANNOTATED_STR],
+    methodName: Annotated[str, METHOD_ANNOTATED_STR],
+) -> dict:
+    url = get_jadx_url()
+    query = {
+        "instanceId": instanceId,
+        "methodName": methodName,
+    }
+    response = requests.get(url + "/get_method_fields", params=query)
+    return json.loads(response.text)
+
+
+@mcp.tool(
+    name="find_call_paths",
+    description="Find the shortest call paths from source methods to sink methods, including " \
+        "virtual dispatch to overriding methods. Each step is a method and the `call` or `override` " \
+        "edge that reached it."
+)
+def find_call_paths(
+    instanceId: Annotated[str, INSTANCE_ID_ANNOTATED_STR],
+    sinks: Annotated[str, CALL_PATH_METHODS_ANNOTATED_STR],
+    sources: Annotated[str, CALL_PATH_METHODS_ANNOTATED_STR + \
+        " Leave empty to start from all entry points of `get_entry_points`."] = "",
+    maxDepth: Annotated[int, "The maximum number of calls in a path."] = 12,
+    limit: Annotated[int, "The maximum number of paths to return."] = 10,
+) -> dict:
+    url = get_jadx_url()
+    query = {
+        "instanceId": instanceId,
+        "sources": sources,
+        "sinks": sinks,
+        "maxDepth": maxDepth,
+        "limit": limit,
+    }
+    response = requests.get(url + "/find_call_paths", params=query)
+    return json.loads(response.text)
+
+
+@mcp.tool(
+    name="diff_instances",
+    description="Compare two loaded instances, e.g. two versions of an app or a framework, " \
+        "by bytecode hashes. Reports added, removed and changed classes, the added, removed and " \
+        "changed methods of changed classes in smali signatures, and a unified diff of the decompiled " \
+        "code of the first changed methods. Only the changed methods are decompiled."
+)
+def diff_instances(
+    baseInstanceId: Annotated[str, "The instance id of the old version."],
+    targetInstanceId: Annotated[str, "The instance id of the new version."],
+    maxCodeDiffs: Annotated[int, "Max count of changed methods to decompile and diff, 0 to compare hashes only."] = 20,
+) -> dict:
+    url = get_jadx_url()
+    query = {
+        "baseInstanceId": baseInstanceId,
+        "targetInstanceId": targetInstanceId,
+        "maxCodeDiffs": maxCodeDiffs,
+    }
+    response = requests.get(url + "/diff_instances", params=query)
+    return json.loads(response.text)
+
+
 @mcp.tool(
     name="get_method_overrides",
     description="Get the override list of the given java method."
@@ -0,0 +1,36 @@
+package com.wrlus.jadx;
+
+import io.javalin.validation.Validator;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 处理器使用的请求和响应接口，HTTP 请求和 MCP 工具调用各有一个实现，处理器不依赖具体的传输方式。
+ * 方法与 Javalin 的 Context 同名同义。
+ */
+public interface ApiContext {
+    String path();
+
+    String queryParam(String key);
+
+    Map<String, List<String>> queryParamMap();
+
+    <T> Validator<T> queryParamAsClass(String key, Class<T> clazz);
+
+    String header(String name);
+
+    String ip();
+
+    ApiContext header(String name, String value);
+
+    ApiContext status(int status);
+
+    void json(Object obj);
+
+    /**
+     * 开始流式输出，之后不能再调用 {@link #json(Object)}。
+     */
+    OutputStream openStream(String contentType);
+}
@@ -0,0 +1,79 @@
+package com.wrlus.jadx;
+
+import io.javalin.http.Context;
+import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.io.SocketChannelEndPoint;
+import org.eclipse.jetty.server.Request;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 检测处理中的请求的客户端是否已经断开。
+ * Jetty 11 在处理请求期间不会读取连接，关闭事件要等到写响应时才会发现，因此这里把连接注册到一个
+ * 单独的 Selector 上探测可读事件。连接可读时可能是收到了 FIN，也可能是 keep-alive 客户端提前发送（pipelining）的下一个请求，
+ * 再用 FIONREAD（{@link InputStream#available()}）区分：可读但没有可读取的字节才是 FIN。
+ * 探测不会读取任何数据，不影响 Jetty 之后对该连接的处理；发送了下一个请求后才断开的客户端要等到写响应时才会发现。
+ */
+class ClientDisconnectProbe implements BooleanSupplier, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ClientDisconnectProbe.class);
+
+    private final Selector selector;
+    private final SelectionKey key;
+    private final InputStream input;
+    private boolean disconnected = false;
+
+    private ClientDisconnectProbe(Selector selector, SelectionKey key, InputStream input) {
+        this.selector = selector;
+        this.key = key;
+        this.input = input;
+    }
+
+    static ClientDisconnectProbe open(Context ctx) {
+        try {
+            Request baseRequest = Request.getBaseRequest(ctx.req());
+            EndPoint endPoint = baseRequest != null ? baseRequest.getHttpChannel().getEndPoint() : null;
+            if (endPoint instanceof SocketChannelEndPoint socketEndPoint) {
+                SocketChannel channel = socketEndPoint.getChannel();
+                InputStream input = channel.socket().getInputStream();
+                Selector selector = Selector.open();
+                return new ClientDisconnectProbe(selector, channel.register(selector, SelectionKey.OP_READ), input);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Cannot probe client connection", e);
+        }
+        return new ClientDisconnectProbe(null, null, null);
+    }
+
+    @Override
+    public synchronized boolean getAsBoolean() {
+        if (disconnected || selector == null) return disconnected;
+        try {
+            selector.selectNow();
+            boolean readable = !selector.selectedKeys().isEmpty();
+            selector.selectedKeys().clear();
+            // 非阻塞连接的 available() 不会阻塞，对端关闭后返回 0
+            disconnected = !key.isValid() || readable && input.available() == 0;
+        } catch (IOException | RuntimeException e) {
+            disconnected = true;
+        }
+        return disconnected;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (selector == null) return;
+        try {
+            key.cancel();
+            selector.close();
+        } catch (IOException e) {
+            logger.debug("Failed to close client connection probe", e);
+        }
+    }
+}
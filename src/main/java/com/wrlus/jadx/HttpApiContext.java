@@ -0,0 +1,73 @@
+package com.wrlus.jadx;
+
+import io.javalin.http.Context;
+import io.javalin.validation.Validator;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HTTP 请求的 {@link ApiContext}，直接委托给 Javalin 的 Context。
+ */
+class HttpApiContext implements ApiContext {
+    private final Context ctx;
+
+    HttpApiContext(Context ctx) {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public String path() {
+        return ctx.path();
+    }
+
+    @Override
+    public String queryParam(String key) {
+        return ctx.queryParam(key);
+    }
+
+    @Override
+    public Map<String, List<String>> queryParamMap() {
+        return ctx.queryParamMap();
+    }
+
+    @Override
+    public <T> Validator<T> queryParamAsClass(String key, Class<T> clazz) {
+        return ctx.queryParamAsClass(key, clazz);
+    }
+
+    @Override
+    public String header(String name) {
+        return ctx.header(name);
+    }
+
+    @Override
+    public String ip() {
+        return ctx.ip();
+    }
+
+    @Override
+    public ApiContext header(String name, String value) {
+        ctx.header(name, value);
+        return this;
+    }
+
+    @Override
+    public ApiContext status(int status) {
+        ctx.status(status);
+        return this;
+    }
+
+    @Override
+    public void json(Object obj) {
+        ctx.json(obj);
+    }
+
+    @Override
+    public OutputStream openStream(String contentType) {
+        ctx.disableCompression();
+        ctx.contentType(contentType);
+        return ctx.outputStream();
+    }
+}
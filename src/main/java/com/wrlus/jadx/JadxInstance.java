@@ -2,34 +2,133 @@ package com.wrlus.jadx;
 
 import com.wrlus.jadx.aidl.AidlClass;
 import com.wrlus.jadx.aidl.ClassSearch;
+import com.wrlus.jadx.cache.DetachedCode;
+import com.wrlus.jadx.cache.MethodCodeRanges;
+import com.wrlus.jadx.cache.QueryCache;
+import com.wrlus.jadx.cache.ScanCodeBudget;
+import com.wrlus.jadx.cache.SharedCodeCache;
+import com.wrlus.jadx.cache.SharedCodeStore;
+import com.wrlus.jadx.diff.BytecodeDiff;
+import com.wrlus.jadx.diff.ClassHashes;
+import com.wrlus.jadx.index.CallGraph;
+import com.wrlus.jadx.index.EntryPoints;
+import com.wrlus.jadx.index.IndexingException;
+import com.wrlus.jadx.index.NameIndex;
+import com.wrlus.jadx.index.XrefIndex;
+import com.wrlus.jadx.insn.InsnPattern;
+import com.wrlus.jadx.load.LazyResources;
+import com.wrlus.jadx.load.LoadOptions;
+import com.wrlus.jadx.manifest.ManifestModel;
+import com.wrlus.jadx.memory.LoadEstimate;
+import com.wrlus.jadx.paging.ResultSink;
+import com.wrlus.jadx.paging.ScanCursor;
+import com.wrlus.jadx.reload.ClassHasher;
+import com.wrlus.jadx.reload.InputFingerprint;
+import com.wrlus.jadx.resource.ResourceIndex;
+import com.wrlus.jadx.scheduler.Cancellation;
+import com.wrlus.jadx.scheduler.Priority;
+import com.wrlus.jadx.scheduler.SchedulerBusyException;
+import com.wrlus.jadx.scheduler.WorkScheduler;
+import com.wrlus.jadx.warmup.WarmUp;
+import com.wrlus.jadx.watchdog.BlockedClassException;
+import com.wrlus.jadx.watchdog.BytecodeStrings;
+import com.wrlus.jadx.watchdog.DecompileWatchdog;
+import com.wrlus.jadx.watchdog.Quarantine;
+import com.wrlus.jadx.watchdog.QuarantinedClassException;
 import jadx.api.*;
+import jadx.api.plugins.CustomResourcesLoader;
+import jadx.api.plugins.input.data.annotations.EncodedValue;
+import jadx.api.plugins.input.data.attributes.JadxAttrType;
 import jadx.core.dex.instructions.args.ArgType;
+import jadx.core.dex.attributes.AFlag;
+import jadx.core.dex.info.FieldInfo;
+import jadx.core.dex.instructions.IndexInsnNode;
+import jadx.core.dex.instructions.InsnType;
 import jadx.core.dex.instructions.InvokeNode;
+import jadx.core.dex.instructions.args.InsnArg;
+import jadx.core.dex.instructions.args.LiteralArg;
+import jadx.core.dex.nodes.ClassNode;
+import jadx.core.dex.nodes.FieldNode;
 import jadx.core.dex.nodes.InsnNode;
 import jadx.core.dex.nodes.MethodNode;
+import jadx.core.dex.nodes.ProcessState;
+import jadx.core.dex.nodes.RootNode;
 import jadx.core.utils.android.AndroidManifestParser;
+import jadx.core.utils.android.AppAttribute;
+import jadx.core.utils.android.ApplicationParams;
 import jadx.core.xmlgen.ResContainer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.regex.*;
 
 public class JadxInstance {
 	private static final Logger logger = LoggerFactory.getLogger(JadxInstance.class);
-	private JadxDecompiler decompiler;
+    private static final int SCAN_FIRST_CHUNK_SIZE = 32;
+    private static final int SCAN_MAX_CHUNK_SIZE = 1024;
+    private static final int INDEXING_RETRY_AFTER_SECONDS = 2;
     private final String filePath;
-    private final Map<String, AidlClass> aidlCacheMap = new ConcurrentHashMap<>();
-
-    public JadxInstance(String path) {
+    private final WorkScheduler scheduler;
+    private final SharedCodeStore sharedCodeStore;
+    /* 是否只加载代码和关闭的 jadx 处理，重新加载时保持不变 */
+    private final LoadOptions loadOptions;
+    /* 反编译的时间预算和失败、超时的类，卸载时清除，重新加载时保留字节码没有变化的类 */
+    private final DecompileWatchdog decompileWatchdog;
+    private volatile long lastAccessTime = System.currentTimeMillis();
+    private volatile LoadEstimate loadEstimate;
+    private volatile long heapFootprint = 0;
+    private volatile long loadMs = 0;
+    /* 每次加载和重新加载加一，分页游标中记录，见 {@link ScanCursor} */
+    private long loadCount = 0;
+    /* 当前加载的快照，没有加载时为 null；加载、重新加载和卸载时整体替换 */
+    private volatile Snapshot snapshot;
+    /* 加载后的后台预热，没有启用时为 null */
+    private volatile WarmUp warmUp;
+    private volatile WarmUp.Options warmUpOptions;
+    /* 加载、重新加载和关闭互斥执行 */
+    private final Object reloadLock = new Object();
+    /* 每个快照正在执行的请求和后台任务数，重新加载和关闭替换的快照在计数归零后才关闭 decompiler */
+    private final Map<Snapshot, Integer> snapshotUses = new IdentityHashMap<>();
+    private final Set<Snapshot> retiredSnapshots = Collections.newSetFromMap(new IdentityHashMap<>());
+    private int activeRequests = 0;
+    /* 当前线程正在执行的请求固定的快照 */
+    private final ThreadLocal<Use> pinnedUse = new ThreadLocal<>();
+
+    /**
+     * @param sharedCodeStore 进程内共用的反编译代码，没有启用时类只使用实例自己的代码缓存。
+     * @param loadOptions     是否只加载代码（资源在第一次查询时解码）和关闭的 jadx 处理。
+     */
+    public JadxInstance(String path, WorkScheduler scheduler, SharedCodeStore sharedCodeStore,
+                        LoadOptions loadOptions) {
         this.filePath = path;
+        this.scheduler = scheduler;
+        this.sharedCodeStore = sharedCodeStore;
+        this.loadOptions = loadOptions;
+        this.decompileWatchdog = DecompileWatchdog.fromEnv(scheduler.getWorkerThreads());
     }
 
 	public void load() {
-		if (isLoaded()) close();
+		synchronized (reloadLock) {
+			loadFile();
+		}
+	}
+
+	private void loadFile() {
+		if (snapshot != null) close();
 
 		File file = new File(filePath);
 		if (!file.exists()) {
@@ -40,14 +139,24 @@ public class JadxInstance {
 			logger.error("Not a file: {}", file.getAbsolutePath());
 			return;
 		}
+		long start = System.currentTimeMillis();
 		JadxArgs jadxArgs = new JadxArgs();
 		jadxArgs.setInputFile(file);
-		decompiler = new JadxDecompiler(jadxArgs);
-		decompiler.load();
+		Snapshot loaded = openSnapshot(jadxArgs);
+		loadMs = System.currentTimeMillis() - start;
+		computeIndexes(loaded);
+		computeEntryPoints(loaded);
+		snapshot = loaded;
 	}
 
 	public void loadDir() {
-		if (isLoaded()) close();
+		synchronized (reloadLock) {
+			loadFiles();
+		}
+	}
+
+	private void loadFiles() {
+		if (snapshot != null) close();
 
 		File dir = new File(filePath);
 		if (!dir.exists()) {
@@ -59,60 +168,668 @@ public class JadxInstance {
 			return;
 		}
 
-		File[] dirFiles = dir.listFiles();
-		if (dirFiles == null) {
+		List<File> dexFiles = listDirInputFiles(dir);
+		if (dexFiles == null) {
 			logger.error("Permission denied: {}", dir.getAbsolutePath());
 			return;
 		}
 
-		List<File> dexFiles = new ArrayList<>();
-		for (File dirFile : dirFiles) {
-			if (isAndroidFile(dirFile.getPath())) {
-				dexFiles.add(dirFile);
-			}
+		long start = System.currentTimeMillis();
+		JadxArgs jadxArgs = new JadxArgs();
+		jadxArgs.setInputFiles(dexFiles);
+		Snapshot loaded = openSnapshot(jadxArgs);
+		loadMs = System.currentTimeMillis() - start;
+		computeIndexes(loaded);
+		computeEntryPoints(loaded);
+		snapshot = loaded;
+	}
+
+	/**
+	 * 加载输入文件，同时记录输入文件的状态，供重新加载时判断哪些输入发生了变化。
+	 * 启用共用代码时使用 {@link SharedCodeCache}，加载完成后才开始按内容哈希查找。
+	 * 只加载代码时注册 {@link LazyResources}，jadx 加载时跳过资源。
+	 * @return 还没有发布的快照。
+	 */
+	private Snapshot openSnapshot(JadxArgs jadxArgs) {
+		List<InputFingerprint> fingerprints = jadxArgs.getInputFiles().stream().map(InputFingerprint::of).toList();
+		loadOptions.apply(jadxArgs);
+		SharedCodeCache codeCache = sharedCodeStore.isEnabled() ?
+				new SharedCodeCache(sharedCodeStore, loadOptions.codeHash()) : null;
+		if (codeCache != null) jadxArgs.setCodeCache(codeCache);
+		JadxDecompiler loaded = new JadxDecompiler(jadxArgs);
+		if (loadOptions.codeOnly()) loaded.addCustomResourcesLoader(new LazyResources());
+		loaded.load();
+		if (codeCache != null) codeCache.bind(loaded.getRoot());
+		return new Snapshot(loaded, fingerprints, ++loadCount);
+	}
+
+	/**
+	 * 输入文件变化后重新加载。先比较输入文件的大小、修改时间和内容哈希，都没有变化时直接返回。
+	 * jadx 不能替换 RootNode 中的单个输入，有变化时重新加载全部输入并重建索引；
+	 * 字节码哈希和依赖的类都没有变化的顶层类，已经反编译的代码转移到新的代码缓存中，不需要重新反编译。
+	 * 新的快照在转移代码和开始创建索引后才替换旧的快照，正在执行的请求和后台任务继续使用旧的快照，
+	 * 全部结束后旧的 decompiler 才关闭。
+	 * @return 变化的输入数和类数，以及转移了代码的类数。
+	 * @throws IllegalArgumentException 输入文件已经不存在。
+	 */
+	public Map<String, Object> reload() {
+		synchronized (reloadLock) {
+			return reloadFiles();
 		}
+	}
 
+	private Map<String, Object> reloadFiles() {
+		long start = System.currentTimeMillis();
+		List<File> inputFiles = getInputFiles();
+		if (inputFiles.isEmpty()) {
+			throw new IllegalArgumentException("Input files no longer exist: " + filePath);
+		}
+		Map<String, Object> stats = new LinkedHashMap<>();
+		Snapshot old = snapshot;
+		int changedInputs = old != null ? countChangedInputs(old.inputFingerprints, inputFiles) : inputFiles.size();
+		stats.put("changedInputs", changedInputs);
+		stats.put("reloaded", changedInputs > 0);
+		if (changedInputs == 0) return stats;
+
+		stopWarmUp();
+		Map<String, Long> oldHashes = old != null ? hashClasses(old.decompiler) : null;
 		JadxArgs jadxArgs = new JadxArgs();
-		jadxArgs.setInputFiles(dexFiles);
-		decompiler = new JadxDecompiler(jadxArgs);
-		decompiler.load();
+		jadxArgs.setInputFiles(inputFiles);
+		Snapshot loaded = openSnapshot(jadxArgs);
+		computeIndexes(loaded);
+		if (old != null) {
+			Map<String, Long> newHashes = hashClasses(loaded.decompiler);
+			if (loaded.decompiler.getRoot().getCodeCache() instanceof SharedCodeCache codeCache) {
+				codeCache.putTreeHashes(newHashes);
+			}
+			stats.putAll(transferCode(old.decompiler.getRoot(), loaded.decompiler, oldHashes, newHashes));
+			// 字节码变化和删除的类重新尝试反编译
+			stats.put("releasedQuarantinedClasses", decompileWatchdog.getQuarantine().removeIf(name -> {
+				Long hash = newHashes.get(name);
+				return hash == null || !hash.equals(oldHashes.get(name));
+			}));
+		}
+		computeEntryPoints(loaded);
+		snapshot = loaded;
+		if (old != null) retire(old);
+		loadMs = System.currentTimeMillis() - start;
+		stats.put("elapsedMs", loadMs);
+		logger.info("Reloaded {}: {}", filePath, stats);
+
+		WarmUp.Options options = warmUpOptions;
+		if (options != null) startWarmUp(options);
+		return stats;
+	}
+
+	/**
+	 * @return 内容变化、新增和删除的输入文件数。
+	 */
+	private static int countChangedInputs(List<InputFingerprint> fingerprints, List<File> inputFiles) {
+		Map<String, InputFingerprint> previous = new HashMap<>();
+		for (InputFingerprint fingerprint : fingerprints) {
+			previous.put(fingerprint.path(), fingerprint);
+		}
+		int changed = 0;
+		for (File file : inputFiles) {
+			InputFingerprint fingerprint = previous.remove(file.getAbsolutePath());
+			if (fingerprint == null || !fingerprint.matches(file)) changed++;
+		}
+		return changed + previous.size();
+	}
+
+	/**
+	 * 把旧 RootNode 代码缓存中的代码转移到新加载的代码缓存。顶层类（包括内部类）的字节码哈希变化，
+	 * 或者类在重新加载前后依赖的类有变化、新增或删除时，代码中内联的常量和引用的声明可能不同，需要重新反编译。
+	 */
+	private Map<String, Object> transferCode(RootNode oldRoot, JadxDecompiler loaded, Map<String, Long> oldHashes,
+											  Map<String, Long> newHashes) {
+		Set<String> changed = new HashSet<>();
+		int added = 0;
+		int modified = 0;
+		for (Map.Entry<String, Long> entry : newHashes.entrySet()) {
+			Long oldHash = oldHashes.get(entry.getKey());
+			if (!oldHashes.containsKey(entry.getKey())) {
+				added++;
+			} else if (oldHash == null || !oldHash.equals(entry.getValue())) {
+				modified++;
+			} else {
+				continue;
+			}
+			changed.add(entry.getKey());
+		}
+		int removed = 0;
+		for (String name : oldHashes.keySet()) {
+			if (!newHashes.containsKey(name)) {
+				changed.add(name);
+				removed++;
+			}
+		}
+
+		RootNode root = loaded.getRoot();
+		ICodeCache oldCache = oldRoot.getCodeCache();
+		int transferred = 0;
+		int invalidated = 0;
+		for (JavaClass cls : loaded.getClasses()) {
+			String name = cls.getRawName();
+			ICodeInfo code = oldCache.get(name);
+			if (code == null || code == ICodeInfo.EMPTY || changed.contains(name)) continue;
+			ClassNode oldCls = oldRoot.resolveRawClass(name);
+			DetachedCode detached = oldCls == null || dependsOnChanged(cls.getClassNode(), changed) ||
+					dependsOnChanged(oldCls, changed) ? null : DetachedCode.detach(oldCls, code);
+			ICodeInfo transferredCode = detached != null ? detached.attach(root) : null;
+			if (transferredCode != null) {
+				root.getCodeCache().add(name, transferredCode);
+				transferred++;
+			} else {
+				invalidated++;
+			}
+		}
+
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("modifiedClasses", modified);
+		stats.put("addedClasses", added);
+		stats.put("removedClasses", removed);
+		stats.put("keptCodeClasses", transferred);
+		stats.put("invalidatedCodeClasses", invalidated);
+		return stats;
+	}
+
+	/**
+	 * 在工作线程池中按块并行计算每个顶层类（包括内部类）的字节码哈希。
+	 * @return 顶层类的原始类名到哈希的映射，哈希计算失败的类对应 null，按有变化处理。
+	 */
+	private Map<String, Long> hashClasses(JadxDecompiler loaded) {
+		List<JavaClass> classes = loaded.getClasses();
+		Map<String, Long> hashes = new HashMap<>();
+		for (int index = 0; index < classes.size(); index += SCAN_MAX_CHUNK_SIZE) {
+			List<JavaClass> chunk = classes.subList(index, Math.min(index + SCAN_MAX_CHUNK_SIZE, classes.size()));
+			List<Callable<Long>> tasks = new ArrayList<>();
+			for (JavaClass cls : chunk) {
+				tasks.add(() -> {
+					try {
+						return ClassHasher.hashTree(cls.getClassNode());
+					} catch (RuntimeException e) {
+						logger.debug("Failed to hash class {}: {}", cls.getRawName(), e.getMessage());
+						return null;
+					}
+				});
+			}
+			List<Long> results = scheduler.callAll(Priority.NORMAL, tasks);
+			for (int i = 0; i < chunk.size(); i++) {
+				hashes.put(chunk.get(i).getRawName(), results.get(i));
+			}
+		}
+		return hashes;
+	}
+
+	private static boolean dependsOnChanged(ClassNode cls, Set<String> changed) {
+		for (ClassNode dependency : cls.getDependencies()) {
+			if (changed.contains(dependency.getTopParentClass().getRawName())) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * 名称索引、字段读写索引和调用图。
+	 */
+	private record Indexes(NameIndex names, XrefIndex xrefs, CallGraph callGraph) {
+	}
+
+	/**
+	 * 在后台线程中创建索引，加载完成后即可处理请求，读取指令仍然在工作线程池中执行。
+	 * 只加载代码时创建索引需要读取所有方法的指令，推迟到第一次查询索引时。
+	 */
+	private void computeIndexes(Snapshot loaded) {
+		if (!loadOptions.codeOnly()) startIndexes(loaded);
+	}
+
+	private CompletableFuture<Indexes> startIndexes(Snapshot loaded) {
+		synchronized (loaded) {
+			if (loaded.indexes != null) return loaded.indexes;
+			Use use = use(loaded, false);
+			loaded.indexes = CompletableFuture.supplyAsync(() -> {
+				try {
+					return buildIndexes(loaded.decompiler);
+				} finally {
+					use.close();
+				}
+			}, runnable -> Thread.ofVirtual().name("jadx-indexes").start(runnable));
+			return loaded.indexes;
+		}
+	}
+
+	private Indexes buildIndexes(JadxDecompiler loaded) {
+		long start = System.currentTimeMillis();
+		NameIndex names = NameIndex.build(loaded.getClassesWithInners());
+		logger.info("Indexed {} names in {} ms", names.size(), System.currentTimeMillis() - start);
+
+		start = System.currentTimeMillis();
+		Indexes result = buildCodeIndexes(loaded, names);
+		logger.info("Indexed field accesses of {} and call graph of {} in {} ms",
+				result.xrefs().getStats(), result.callGraph().getStats(), System.currentTimeMillis() - start);
+		return result;
+	}
+
+	private static String getIndexesState(Snapshot loaded) {
+		CompletableFuture<Indexes> future = loaded != null ? loaded.indexes : null;
+		if (future == null) return "notStarted";
+		if (!future.isDone()) return "building";
+		return future.isCompletedExceptionally() ? "failed" : "ready";
+	}
+
+	/**
+	 * @return 实例的索引，实例未加载时返回 null。
+	 * @throws IndexingException 索引还在后台创建。
+	 * @throws IllegalStateException 创建索引失败。
+	 */
+	private Indexes getIndexes(Snapshot loaded) {
+		if (loaded == null) return null;
+		CompletableFuture<Indexes> future = loaded.indexes;
+		if (future == null) future = startIndexes(loaded);
+		if (!future.isDone()) {
+			throw new IndexingException("Indexes of `" + filePath + "` are still being built, please retry later.",
+					INDEXING_RETRY_AFTER_SECONDS);
+		}
+		try {
+			return future.join();
+		} catch (CompletionException | CancellationException e) {
+			throw new IllegalStateException("Failed to build indexes: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * 在后台线程中计算入口集合，不占用工作线程，Manifest 的解码仍然在工作线程池中执行。
+	 * 只加载代码时计算入口需要解码资源，推迟到第一次查询入口时。
+	 */
+	private void computeEntryPoints(Snapshot loaded) {
+		if (!loadOptions.codeOnly()) startEntryPoints(loaded);
+	}
+
+	private CompletableFuture<EntryPoints> startEntryPoints(Snapshot loaded) {
+		synchronized (loaded) {
+			if (loaded.entryPoints != null) return loaded.entryPoints;
+			Use use = use(loaded, false);
+			JadxDecompiler decompiler = loaded.decompiler;
+			loaded.entryPoints = CompletableFuture.supplyAsync(() -> {
+				try {
+					long start = System.currentTimeMillis();
+					ManifestModel manifest = null;
+					try {
+						manifest = getManifestModel(loaded);
+					} catch (RuntimeException e) {
+						logger.warn("Failed to parse manifest for entry points: {}", e.getMessage());
+					}
+					EntryPoints result = EntryPoints.build(decompiler.getRoot(), decompiler.getClassesWithInners(),
+							manifest);
+					logger.info("Found entry points {} in {} ms", result.getCounts(),
+							System.currentTimeMillis() - start);
+					return result;
+				} finally {
+					use.close();
+				}
+			}, runnable -> Thread.ofVirtual().name("jadx-entry-points").start(runnable));
+			return loaded.entryPoints;
+		}
+	}
+
+	/**
+	 * 加载完成后在后台反编译类，填充 jadx 的代码缓存。预热线程按批次提交最低优先级的任务，
+	 * 工作线程总是先执行请求的任务；实例关闭或重新加载时停止。
+	 */
+	public void startWarmUp(WarmUp.Options options) {
+		stopWarmUp();
+		warmUpOptions = options;
+		if (!options.enabled()) return;
+		Use use = useCurrent(false);
+		if (use.used == null) {
+			use.close();
+			return;
+		}
+		WarmUp progress = new WarmUp();
+		warmUp = progress;
+		Thread.ofVirtual().name("jadx-warm-up").start(() -> {
+			try {
+				runWarmUp(use.used, progress, options.maxClasses());
+			} finally {
+				use.close();
+			}
+		});
+	}
+
+	private void stopWarmUp() {
+		WarmUp progress = warmUp;
+		if (progress != null) progress.stop();
+	}
+
+	/**
+	 * @return 预热进度，没有启用预热时返回 null。
+	 */
+	public Map<String, Object> getWarmUpStats() {
+		WarmUp progress = warmUp;
+		return progress != null ? progress.getStats() : null;
+	}
+
+	private void runWarmUp(Snapshot loaded, WarmUp progress, int maxClasses) {
+		try {
+			List<List<JavaClass>> units = getWarmUpUnits(loaded, maxClasses);
+			int total = units.stream().mapToInt(List::size).sum();
+			progress.setTotal(total);
+			logger.info("Warming up {} classes in {} batches", total, units.size());
+
+			int index = 0;
+			while (index < units.size()) {
+				if (progress.isStopRequested() || snapshot != loaded) {
+					progress.finish(WarmUp.STATE_STOPPED, null);
+					return;
+				}
+				List<Callable<Integer>> tasks = new ArrayList<>();
+				for (int size = 0; index < units.size() && size < SCAN_MAX_CHUNK_SIZE; index++) {
+					List<JavaClass> unit = units.get(index);
+					tasks.add(() -> warmUpUnit(unit, progress));
+					size += unit.size();
+				}
+				scheduler.callAll(Priority.BACKGROUND, tasks);
+			}
+			// 最后一批执行时停止的，任务已经跳过剩余的类
+			progress.finish(progress.isStopRequested() ? WarmUp.STATE_STOPPED : WarmUp.STATE_DONE, null);
+			logger.info("Warm-up finished: {}", progress.getStats());
+		} catch (RuntimeException e) {
+			boolean stopped = progress.isStopRequested() || snapshot != loaded;
+			progress.finish(stopped ? WarmUp.STATE_STOPPED : WarmUp.STATE_FAILED, stopped ? null : e.getMessage());
+			if (!stopped) logger.error("Warm-up failed", e);
+		}
+	}
+
+	/**
+	 * 预热顺序：先是入口方法所在的类，然后是应用包名下的类，最后是第三方库。每一组内部保持反编译批次的顺序。
+	 * @param maxClasses 最多预热的类数，0 表示不限制，按批次截断。
+	 */
+	private List<List<JavaClass>> getWarmUpUnits(Snapshot loaded, int maxClasses) {
+		Set<String> entryClasses = Collections.emptySet();
+		try {
+			CompletableFuture<EntryPoints> future = loaded.entryPoints;
+			if (future != null) entryClasses = future.join().getClassNames();
+		} catch (CompletionException | CancellationException e) {
+			logger.warn("Warm-up without entry points: {}", e.getMessage());
+		}
+		String appPackage = null;
+		try {
+			// 只加载代码时预热不触发资源的解码
+			LazyResources lazy = getLazyResources(loaded.decompiler);
+			ManifestModel manifest = lazy == null || lazy.isLoaded() ? getManifestModel(loaded) : null;
+			if (manifest != null) appPackage = manifest.getPackageName();
+		} catch (RuntimeException e) {
+			logger.debug("Warm-up without manifest: {}", e.getMessage());
+		}
+		if (appPackage == null || appPackage.isEmpty()) appPackage = loaded.decompiler.getRoot().getAppPackage();
+		String appPrefix = appPackage != null && !appPackage.isEmpty() ? appPackage + "." : null;
+
+		List<List<List<JavaClass>>> groups = List.of(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+		for (List<JavaClass> unit : getDecompilePlan(loaded).units()) {
+			int rank = 2;
+			for (JavaClass cls : unit) {
+				String name = cls.getClassNode().getTopParentClass().getFullName();
+				if (entryClasses.contains(name)) {
+					rank = 0;
+					break;
+				}
+				if (appPrefix != null && name.startsWith(appPrefix)) rank = 1;
+			}
+			groups.get(rank).add(unit);
+		}
+
+		List<List<JavaClass>> units = new ArrayList<>();
+		int count = 0;
+		for (List<List<JavaClass>> group : groups) {
+			for (List<JavaClass> unit : group) {
+				if (maxClasses > 0 && count >= maxClasses) return units;
+				units.add(unit);
+				count += unit.size();
+			}
+		}
+		return units;
+	}
+
+	/**
+	 * 在工作线程中按顺序反编译一段类，内部类随外部类一起反编译。
+	 * @return 处理的类数。
+	 */
+	private int warmUpUnit(List<JavaClass> unit, WarmUp progress) {
+		int count = 0;
+		for (JavaClass cls : unit) {
+			if (progress.isStopRequested()) break;
+			if (!cls.getClassNode().isInner()) {
+				try {
+					decompileWatchdog.getCode(cls.getClassNode());
+				} catch (RuntimeException e) {
+					logger.debug("Warm-up failed to decompile {}: {}", cls.getFullName(), e.getMessage());
+				}
+			}
+			progress.addDecompiled(1);
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * 一个方法的字段读写和调用。
+	 */
+	private record MethodScan(XrefIndex.MethodXrefs xrefs, CallGraph.MethodCalls calls) {
+	}
+
+	/**
+	 * 按块在工作线程池中并行读取所有方法的指令，不反编译，同时创建字段读写索引和调用图，结果按类的顺序合并。
+	 */
+	private Indexes buildCodeIndexes(JadxDecompiler loaded, NameIndex names) {
+		RootNode root = loaded.getRoot();
+		List<JavaClass> classes = loaded.getClassesWithInners();
+		XrefIndex.Builder xrefBuilder = new XrefIndex.Builder();
+		CallGraph.Builder callGraphBuilder = new CallGraph.Builder();
+		for (int index = 0; index < classes.size(); index += SCAN_MAX_CHUNK_SIZE) {
+			List<Callable<List<MethodScan>>> tasks = new ArrayList<>();
+			for (JavaClass cls : classes.subList(index, Math.min(index + SCAN_MAX_CHUNK_SIZE, classes.size()))) {
+				tasks.add(() -> {
+					List<MethodScan> classScans = new ArrayList<>();
+					forEachMethodInstructions(cls.getClassNode(), (mthNode, instructions) ->
+							classScans.add(new MethodScan(XrefIndex.scanMethod(root, mthNode, instructions),
+									CallGraph.scanMethod(root, mthNode, instructions))));
+					return classScans;
+				});
+			}
+			for (List<MethodScan> classScans : scheduler.callAll(Priority.NORMAL, tasks)) {
+				for (MethodScan scan : classScans) {
+					xrefBuilder.add(scan.xrefs());
+					callGraphBuilder.add(scan.calls());
+				}
+			}
+		}
+		return new Indexes(names, xrefBuilder.build(), callGraphBuilder.build());
 	}
 
+	/**
+	 * 解码 AndroidManifest.xml，结果缓存在快照上。
+	 */
 	public String getManifest() {
-		if (!isLoaded()) return null;
+		Snapshot loaded = pinnedSnapshot();
+		return loaded != null ? getManifest(loaded) : null;
+	}
 
-		List<ResourceFile> resources = decompiler.getResources();
-		ResourceFile manifest = AndroidManifestParser.getAndroidManifest(resources);
+	private String getManifest(Snapshot loaded) {
+		synchronized (loaded) {
+			if (loaded.manifestText != null) return loaded.manifestText;
+
+			List<ResourceFile> resources = getResources(loaded.decompiler);
+			ResourceFile manifest = AndroidManifestParser.getAndroidManifest(resources);
+
+			if (manifest == null) {
+				logger.error("AndroidManifest.xml not found.");
+				return null;
+			}
+
+			loaded.manifestText = scheduler.call(Priority.INTERACTIVE, () -> {
+				ResContainer container = manifest.loadContent();
+				try {
+					loaded.manifestParams = new AndroidManifestParser(manifest, container,
+							EnumSet.allOf(AppAttribute.class), loaded.decompiler.getArgs().getSecurity()).parse();
+				} catch (RuntimeException e) {
+					logger.warn("Failed to parse application params: {}", e.getMessage());
+				}
+				return container.getText().getCodeStr();
+			});
+			return loaded.manifestText;
+		}
+	}
+
+	/**
+	 * @return 输入文件中的资源，只加载代码时第一次调用时列出资源并解码资源表。
+	 */
+	private static List<ResourceFile> getResources(JadxDecompiler loaded) {
+		LazyResources lazy = getLazyResources(loaded);
+		return lazy != null ? lazy.get(loaded) : loaded.getResources();
+	}
 
-		if (manifest == null) {
-			logger.error("AndroidManifest.xml not found.");
-			return null;
+	private static LazyResources getLazyResources(JadxDecompiler loaded) {
+		for (CustomResourcesLoader loader : loaded.getCustomResourcesLoaders()) {
+			if (loader instanceof LazyResources lazy) return lazy;
 		}
+		return null;
+	}
+
+	/**
+	 * 解析 AndroidManifest.xml 得到的组件、权限等信息，结果缓存在快照上。
+	 * @return Manifest 不存在或实例未加载时返回 null。
+	 * @throws IllegalStateException Manifest 无法解析。
+	 */
+	public ManifestModel getManifestModel() {
+		Snapshot loaded = pinnedSnapshot();
+		return loaded != null ? getManifestModel(loaded) : null;
+	}
 
-		ResContainer container = manifest.loadContent();
-		return container.getText().getCodeStr();
+	private ManifestModel getManifestModel(Snapshot loaded) {
+		synchronized (loaded) {
+			if (loaded.manifestModel != null) return loaded.manifestModel;
+			String text = getManifest(loaded);
+			if (text == null) return null;
+			loaded.manifestModel = ManifestModel.parse(text, loaded.manifestParams);
+			return loaded.manifestModel;
+		}
 	}
 
 	public String getMethodDecompiledCode(String className, String methodName) {
-		if (!isLoaded()) return null;
+		Snapshot loaded = pinnedSnapshot();
+		if (loaded == null) return null;
+
+        JavaMethod method = findJavaMethod(loaded, className, methodName);
 
-        JavaMethod method = findJavaMethod(className, methodName);
+		return method != null ?
+				scheduler.call(Priority.INTERACTIVE, () -> getMethodCode(loaded, method.getMethodNode())) : null;
+	}
+
+	/**
+	 * 从顶层类的代码（通常已经在代码缓存中）中按缓存的方法范围截取，与 {@link JavaMethod#getCodeStr()} 的结果相同。
+	 * @throws QuarantinedClassException 类在隔离中。
+	 */
+	private String getMethodCode(Snapshot loaded, MethodNode mthNode) {
+		ClassNode topClass = mthNode.getParentClass().getTopParentClass();
+		ICodeInfo codeInfo = decompileWatchdog.getCode(topClass);
+		CharSequence code = loaded.methodCodeRanges.get(topClass, codeInfo).slice(codeInfo.getCodeStr(), mthNode);
+		return code != null ? code.toString() : "";
+	}
+
+	/**
+	 * 每个类（包括内部类）和其中每个方法的字节码哈希，在工作线程池中按块并行计算，不需要反编译。
+	 * 结果保存在快照上。
+	 * @return 原始类名到哈希的映射，没有加载时返回 null。
+	 */
+	public Map<String, ClassHashes> getBytecodeHashes() {
+		Snapshot loaded = pinnedSnapshot();
+		if (loaded == null) return null;
+		Map<String, ClassHashes> hashes = loaded.bytecodeHashes;
+		if (hashes != null) return hashes;
+
+		long start = System.currentTimeMillis();
+		Cancellation cancellation = Cancellation.current();
+		List<JavaClass> classes = loaded.decompiler.getClassesWithInners();
+		hashes = new HashMap<>();
+		for (int index = 0; index < classes.size(); index += SCAN_MAX_CHUNK_SIZE) {
+			if (cancellation.isCancelled()) throw new CancellationException(cancellation.getReason());
+			List<JavaClass> chunk = classes.subList(index, Math.min(index + SCAN_MAX_CHUNK_SIZE, classes.size()));
+			List<Callable<ClassHashes>> tasks = new ArrayList<>();
+			for (JavaClass cls : chunk) {
+				tasks.add(() -> {
+					Map<String, Long> methods = new HashMap<>();
+					try {
+						long hash = ClassHasher.hash(cls.getClassNode(), methods);
+						return new ClassHashes(cls.getFullName(), hash, methods);
+					} catch (RuntimeException e) {
+						logger.debug("Failed to hash class {}: {}", cls.getRawName(), e.getMessage());
+						return new ClassHashes(cls.getFullName(), null, Collections.emptyMap());
+					}
+				});
+			}
+			List<ClassHashes> results = scheduler.callAll(Priority.NORMAL, tasks);
+			for (int i = 0; i < chunk.size(); i++) {
+				hashes.put(chunk.get(i).getRawName(), results.get(i));
+			}
+		}
+		logger.info("Hashed {} classes in {} ms", hashes.size(), System.currentTimeMillis() - start);
+		loaded.bytecodeHashes = hashes;
+		return hashes;
+	}
 
-		return method != null ? method.getCodeStr() : null;
+	/**
+	 * 并行反编译一组方法，每个方法的代码从所在顶层类的代码中截取。
+	 * @param methodIds smali 格式的方法签名，见 {@link BytecodeDiff#methodId}。
+	 * @return 方法签名到反编译代码，找不到的方法和隔离的类中的方法对应 null；没有加载时返回 null。
+	 */
+	public Map<String, String> getMethodsCode(List<String> methodIds) {
+		Snapshot loaded = pinnedSnapshot();
+		if (loaded == null) return null;
+		RootNode root = loaded.decompiler.getRoot();
+		Cancellation cancellation = Cancellation.current();
+		List<Callable<String>> tasks = new ArrayList<>();
+		for (String methodId : methodIds) {
+			tasks.add(() -> {
+				if (cancellation.isCancelled()) return null;
+				String[] parts = BytecodeDiff.parseMethodId(methodId);
+				ClassNode cls = parts != null ? root.resolveRawClass(parts[0]) : null;
+				MethodNode mth = cls != null ? cls.searchMethodByShortId(parts[1]) : null;
+				if (mth == null) return null;
+				try {
+					return getMethodCode(loaded, mth);
+				} catch (QuarantinedClassException e) {
+					return null;
+				}
+			});
+		}
+		List<String> codes = scheduler.callAll(Priority.NORMAL, tasks);
+		Map<String, String> result = new LinkedHashMap<>();
+		for (int i = 0; i < methodIds.size(); i++) {
+			result.put(methodIds.get(i), codes.get(i));
+		}
+		return result;
 	}
 
+    /**
+     * @throws QuarantinedClassException 类在隔离中。
+     */
     public String getClassDecompiledCode(String className) {
-        if (!isLoaded()) return null;
+        Snapshot loaded = pinnedSnapshot();
+        if (loaded == null) return null;
 
-        JavaClass cls = findJavaClass(className);
+        JavaClass cls = findJavaClass(loaded, className);
 
-        return cls != null ? cls.getCode() : null;
+        if (cls == null) return null;
+        // 内部类没有自己的代码，与 JavaClass.getCode() 相同返回空字符串
+        return scheduler.call(Priority.INTERACTIVE, () -> cls.getClassNode().isInner() ? cls.getCode() :
+                decompileWatchdog.getCode(cls.getClassNode()).getCodeStr());
     }
 
 	public String getSuperClass(String className) {
-		if (!isLoaded()) return null;
+		Snapshot loaded = pinnedSnapshot();
+		if (loaded == null) return null;
 
-        JavaClass cls = findJavaClass(className);
+        JavaClass cls = findJavaClass(loaded, className);
 
         if (cls != null) {
             ArgType superClassType = cls.getClassNode().getSuperClass();
@@ -123,9 +840,10 @@ public class JadxInstance {
 	}
 
 	public List<String> getInterfaces(String className) {
-		if (!isLoaded()) return null;
+		Snapshot loaded = pinnedSnapshot();
+		if (loaded == null) return null;
 
-        JavaClass cls = findJavaClass(className);
+        JavaClass cls = findJavaClass(loaded, className);
 
         if (cls != null) {
             return Optional.ofNullable(cls.getClassNode().getInterfaces())
@@ -139,9 +857,10 @@ public class JadxInstance {
 	}
 
 	public List<String> getClassMethods(String className) {
-		if (!isLoaded()) return null;
+		Snapshot loaded = pinnedSnapshot();
+		if (loaded == null) return null;
 
-        JavaClass cls = findJavaClass(className);
+        JavaClass cls = findJavaClass(loaded, className);
 
         if (cls != null) {
             return Optional.ofNullable(cls.getMethods())
@@ -155,9 +874,10 @@ public class JadxInstance {
 	}
 
 	public List<String> getClassFields(String className) {
-		if (!isLoaded()) return null;
+		Snapshot loaded = pinnedSnapshot();
+		if (loaded == null) return null;
 
-        JavaClass cls = findJavaClass(className);
+        JavaClass cls = findJavaClass(loaded, className);
 
         if (cls != null) {
             return Optional.ofNullable(cls.getFields())
@@ -171,9 +891,10 @@ public class JadxInstance {
 	}
 
     public List<String> getMethodCallers(String className, String methodName) {
-        if (!isLoaded()) return null;
+        Snapshot loaded = pinnedSnapshot();
+        if (loaded == null) return null;
 
-        JavaMethod method = findJavaMethod(className, methodName);
+        JavaMethod method = findJavaMethod(loaded, className, methodName);
 
         if (method != null) {
             return Optional.ofNullable(method.getUseIn())
@@ -187,9 +908,10 @@ public class JadxInstance {
     }
 
     public List<String> getClassCallers(String className) {
-        if (!isLoaded()) return null;
+        Snapshot loaded = pinnedSnapshot();
+        if (loaded == null) return null;
 
-        JavaClass cls = findJavaClass(className);
+        JavaClass cls = findJavaClass(loaded, className);
 
         if (cls != null) {
             return Optional.ofNullable(cls.getUseIn())
@@ -202,9 +924,10 @@ public class JadxInstance {
     }
 
     public List<String> getFieldCallers(String className, String fieldName) {
-        if (!isLoaded()) return null;
+        Snapshot loaded = pinnedSnapshot();
+        if (loaded == null) return null;
 
-        JavaField field = findJavaField(className, fieldName);
+        JavaField field = findJavaField(loaded, className, fieldName);
 
         if (field != null) {
             return Optional.ofNullable(field.getUseIn())
@@ -217,10 +940,97 @@ public class JadxInstance {
         return null;
     }
 
+    /**
+     * @param write true 返回写字段的方法，false 返回读字段的方法。
+     * @return 访问字段的方法和指令偏移，字段没有被访问时返回空列表，实例未加载时返回 null。
+     */
+    public List<Map<String, Object>> getFieldAccesses(String className, String fieldName, boolean write) {
+        Indexes loadedIndexes = getIndexes(pinnedSnapshot());
+        if (loadedIndexes == null) return null;
+        XrefIndex index = loadedIndexes.xrefs();
+
+        FieldInfo field = index.findField(className, fieldName);
+        if (field == null) return Collections.emptyList();
+        List<XrefIndex.Site> sites = write ? index.getWriters(field) : index.getReaders(field);
+        return sites.stream().map(XrefIndex.Site::toMap).toList();
+    }
+
+    /**
+     * @return 方法读写的字段 `{"reads": [...], "writes": [...]}`，找不到方法时返回 null。
+     */
+    public Map<String, List<String>> getMethodFieldAccesses(String className, String methodName) {
+        Snapshot loaded = pinnedSnapshot();
+        Indexes loadedIndexes = getIndexes(loaded);
+        if (loadedIndexes == null) return null;
+        XrefIndex index = loadedIndexes.xrefs();
+
+        JavaMethod method = findJavaMethod(loaded, className, methodName);
+        if (method == null) return null;
+
+        XrefIndex.MethodXrefs xrefs = index.getMethodXrefs(method.getMethodNode());
+        RootNode root = loaded.decompiler.getRoot();
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        result.put("reads", xrefs != null ? xrefs.reads().keySet().stream()
+                .map(field -> XrefIndex.formatField(root, field)).toList() : Collections.emptyList());
+        result.put("writes", xrefs != null ? xrefs.writes().keySet().stream()
+                .map(field -> XrefIndex.formatField(root, field)).toList() : Collections.emptyList());
+        return result;
+    }
+
+    /**
+     * @return 攻击面入口，后台计算还没有完成时等待，实例未加载时返回 null。
+     * @throws CancellationException 等待时请求被取消。
+     */
+    public EntryPoints getEntryPoints() {
+        Snapshot loaded = pinnedSnapshot();
+        if (loaded == null) return null;
+        CompletableFuture<EntryPoints> future = loaded.entryPoints;
+        if (future == null) future = startEntryPoints(loaded);
+        Cancellation cancellation = Cancellation.current();
+        while (true) {
+            try {
+                return future.get(200, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (cancellation.isCancelled()) {
+                    throw new CancellationException("Request cancelled: " + cancellation.getReason());
+                }
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Failed to compute entry points: " + e.getCause().getMessage(),
+                        e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while waiting for entry points.");
+            }
+        }
+    }
+
+    /**
+     * 在调用图中查找从源方法到汇方法的最短调用路径，包括覆盖方法的虚分派。
+     * @param sources 源方法，为 null 时使用所有攻击面入口。
+     * @return 实例未加载时返回 null。
+     * @throws IllegalArgumentException 调用图中找不到源方法或汇方法。
+     */
+    public CallGraph.Paths findCallPaths(List<String> sources, List<String> sinks, int maxDepth, int limit) {
+        Indexes loadedIndexes = getIndexes(pinnedSnapshot());
+        if (loadedIndexes == null) return null;
+        CallGraph graph = loadedIndexes.callGraph();
+        if (sources == null) {
+            EntryPoints entries = getEntryPoints();
+            if (entries == null) return null;
+            // 没有代码的入口方法（例如 native 方法）不在调用图中
+            sources = entries.getMethods().stream().filter(graph::hasMethod).toList();
+            if (sources.isEmpty()) {
+                throw new IllegalArgumentException("No entry points found, please provide sources.");
+            }
+        }
+        return graph.findPaths(sources, sinks, maxDepth, limit);
+    }
+
     public List<String> getMethodOverrides(String className, String methodName) {
-        if (!isLoaded()) return null;
+        Snapshot loaded = pinnedSnapshot();
+        if (loaded == null) return null;
 
-        JavaMethod method = findJavaMethod(className, methodName);
+        JavaMethod method = findJavaMethod(loaded, className, methodName);
 
         if (method != null) {
             List<JavaMethod> overrideRelatedMethods = method.getOverrideRelatedMethods();
@@ -236,26 +1046,37 @@ public class JadxInstance {
     }
 
     public List<String> searchAidlClasses() {
-        if (!isLoaded()) return null;
+        Snapshot loaded = pinnedSnapshot();
+        if (loaded == null) return null;
 
-        for (JavaClass cls : decompiler.getClassesWithInners()) {
+        for (JavaClass cls : loaded.decompiler.getClassesWithInners()) {
             AidlClass aidlClass = AidlClass.fromInterface(cls);
             if (aidlClass != null) {
-                aidlCacheMap.put(aidlClass.interfaceClassName, aidlClass);
+                loaded.aidlCacheMap.put(aidlClass.interfaceClassName, aidlClass);
             }
         }
-        return aidlCacheMap.keySet().stream().toList();
+        return loaded.aidlCacheMap.keySet().stream().toList();
     }
 
     public List<String> searchAllClasses() {
-        if (!isLoaded()) return null;
+        if (pinnedSnapshot() == null) return null;
         List<String> allClassNames = new ArrayList<>();
-        for (JavaClass cls : decompiler.getClassesWithInners()) {
-            allClassNames.add(cls.getFullName());
-        }
+        searchAllClasses(ScanCursor.START, allClassNames::add);
         return allClassNames;
     }
 
+    public ScanCursor searchAllClasses(ScanCursor start, ResultSink<String> sink) {
+        Snapshot loaded = pinnedSnapshot();
+        if (loaded == null) return null;
+        List<JavaClass> classes = loaded.decompiler.getClassesWithInners();
+        for (int i = start.getIndex(); i < classes.size(); i++) {
+            if (!sink.accept(classes.get(i).getFullName())) {
+                return i + 1 < classes.size() ? new ScanCursor(i + 1, 0) : null;
+            }
+        }
+        return null;
+    }
+
     public List<String> searchStringFromClasses(String searchString, boolean regex) {
         Map<String, List<String>> results = searchStringsFromClasses(Collections.singletonList(searchString), regex);
         return new ArrayList<>(results.keySet());
@@ -266,9 +1087,34 @@ public class JadxInstance {
     }
 
     public Map<String, List<String>> searchStringsFromClasses(List<String> searchStrings, boolean regex) {
-        if (!isLoaded()) return Collections.emptyMap();
+        Map<String, List<String>> results = new LinkedHashMap<>();
+        searchStringsFromClasses(searchStrings, regex, ScanCursor.START, entry -> {
+            results.putIfAbsent(entry.getKey(), entry.getValue());
+            return true;
+        });
+        return results;
+    }
+
+    public ScanCursor searchStringsFromClasses(List<String> searchStrings, boolean regex,
+                                               ScanCursor start, ResultSink<Map.Entry<String, List<String>>> sink) {
+        return scanClasses(searchStrings, regex, start, null, sink);
+    }
+
+    /**
+     * 反编译每个类并在代码中搜索字符串，扫描方式见 {@link #scanClassChunks}。
+     * 反编译失败或超时的类进入隔离（见 {@link DecompileWatchdog}），之后的扫描不再反编译，只在字节码中查找。
+     *
+     * @param refiner 在并行阶段对每个方法的命中结果做二次过滤，返回空列表表示丢弃；为 null 时不过滤。
+     *                二次过滤需要方法的中间表示，隔离的类跳过。
+     * @return 下一页的游标，扫描完所有类时返回 null。
+     */
+    private ScanCursor scanClasses(List<String> searchStrings, boolean regex, ScanCursor start,
+                                   BiFunction<JavaMethod, List<String>, List<String>> refiner,
+                                   ResultSink<Map.Entry<String, List<String>>> sink) {
+        Snapshot loaded = pinnedSnapshot();
+        if (loaded == null) return null;
         if (searchStrings == null || searchStrings.isEmpty()) {
-            return Collections.emptyMap();
+            return null;
         }
 
         // Distinct search strings
@@ -276,78 +1122,368 @@ public class JadxInstance {
                 .filter(s -> s != null && !s.isEmpty())
                 .distinct()
                 .collect(Collectors.toList());
+        if (targets.isEmpty()) return null;
 
-        // 使用并行流 (Parallel Stream) 来利用多核 CPU 加速搜索和反编译过程
-        return decompiler.getClassesWithInners()
-                .parallelStream() // 开启并行处理
-                .flatMap(cls -> {
-                    try {
-                        String code = cls.getCode();
-                        if (code == null) return java.util.stream.Stream.empty();
-                        String codeLower = regex ? null : code.toLowerCase();
-
-                        // Optimization: Check if class contains any of the strings first
-                        List<String> classPositives = new ArrayList<>();
-                        for (String target : targets) {
-                            boolean matched;
-                            if (regex) {
-                                matched = Pattern.matches(target, code);
-                            } else {
-                                matched = codeLower.contains(target.toLowerCase());
+        Map<String, Pattern> patterns = new HashMap<>();
+        if (regex) {
+            for (String target : targets) {
+                patterns.put(target, Pattern.compile(target));
+            }
+        }
+
+        return scanClassChunks(loaded, getDecompilePlan(loaded), start,
+                cls -> searchInClass(loaded, cls, targets, patterns, refiner), sink);
+    }
+
+    /**
+     * 扫描顺序和任务划分：classes 是所有类（包括内部类）的扫描顺序，游标中的位置是其中的下标。
+     * units 把 classes 分成连续的段，每一段在一个任务中按顺序扫描，unitStarts 是每一段的起始下标。
+     * decompiles 表示扫描会反编译类，每一段扫描完后按 {@link ScanCodeBudget} 释放代码。
+     */
+    private record ScanPlan(List<JavaClass> classes, List<List<JavaClass>> units, int[] unitStarts,
+                            boolean decompiles) {
+        static ScanPlan of(List<List<JavaClass>> units, boolean decompiles) {
+            List<JavaClass> classes = new ArrayList<>();
+            int[] unitStarts = new int[units.size()];
+            for (int i = 0; i < units.size(); i++) {
+                unitStarts[i] = classes.size();
+                classes.addAll(units.get(i));
+            }
+            return new ScanPlan(classes, units, unitStarts, decompiles);
+        }
+
+        /**
+         * @return 包含第 index 个类的段。
+         */
+        int unitAt(int index) {
+            int found = Arrays.binarySearch(unitStarts, index);
+            return found >= 0 ? found : -found - 2;
+        }
+
+        int unitEnd(int unit) {
+            return unit + 1 < unitStarts.length ? unitStarts[unit + 1] : classes.size();
+        }
+    }
+
+    /**
+     * 不需要反编译的扫描按 getClassesWithInners() 的顺序，每个类一个任务。
+     */
+    private static ScanPlan getClassPlan(Snapshot loaded) {
+        ScanPlan plan = loaded.classPlan;
+        if (plan == null) {
+            plan = ScanPlan.of(loaded.decompiler.getClassesWithInners().stream().map(List::of).toList(), false);
+            loaded.classPlan = plan;
+        }
+        return plan;
+    }
+
+    /**
+     * 需要反编译的扫描使用 jadx 导出源码时相同的批次：顶层类按依赖关系分组，同一批次在一个任务中按依赖顺序反编译，
+     * 被依赖的类先进入缓存，相互依赖的类也不会在不同线程中同时或重复反编译。内部类排在外部类之后。
+     */
+    private static ScanPlan getDecompilePlan(Snapshot loaded) {
+        ScanPlan plan = loaded.decompilePlan;
+        if (plan != null) return plan;
+
+        JadxDecompiler decompiler = loaded.decompiler;
+        long start = System.currentTimeMillis();
+        Map<ClassNode, JavaClass> classesByNode = new HashMap<>();
+        for (JavaClass cls : decompiler.getClassesWithInners()) {
+            classesByNode.put(cls.getClassNode(), cls);
+        }
+        Set<JavaClass> added = new HashSet<>();
+        List<List<JavaClass>> units = new ArrayList<>();
+        for (List<JavaClass> batch : decompiler.getDecompileScheduler().buildBatches(decompiler.getClasses())) {
+            List<JavaClass> unit = new ArrayList<>();
+            for (JavaClass cls : batch) {
+                addWithInners(cls.getClassNode(), classesByNode, added, unit);
+            }
+            if (!unit.isEmpty()) units.add(unit);
+        }
+        // 批次中没有的类单独扫描，保证每个类都被扫描
+        for (JavaClass cls : decompiler.getClassesWithInners()) {
+            if (added.add(cls)) units.add(List.of(cls));
+        }
+        plan = ScanPlan.of(units, true);
+        loaded.decompilePlan = plan;
+        logger.info("Planned {} decompile batches for {} classes in {} ms",
+                units.size(), plan.classes().size(), System.currentTimeMillis() - start);
+        return plan;
+    }
+
+    private static void addWithInners(ClassNode cls, Map<ClassNode, JavaClass> classesByNode, Set<JavaClass> added,
+                                      List<JavaClass> unit) {
+        JavaClass javaClass = classesByNode.get(cls);
+        if (javaClass != null && added.add(javaClass)) unit.add(javaClass);
+        for (ClassNode innerClass : cls.getInnerClasses()) {
+            addWithInners(innerClass, classesByNode, added, unit);
+        }
+    }
+
+    /**
+     * 按扫描计划的顺序分块在工作线程池中并行扫描，结果按计划中类的顺序以流的方式交给 sink。
+     * 分块从小到大增长，第一页结果可以尽快返回，sink 返回 false 后不再扫描剩余的类。
+     * 当前请求被取消（超时或客户端断开）时停止扫描，返回从未扫描的类继续的游标。
+     *
+     * @param classScanner 在工作线程中扫描一个类，返回该类的全部结果。
+     * @return 下一页的游标，扫描完所有类时返回 null。
+     */
+    private <R> ScanCursor scanClassChunks(Snapshot loaded, ScanPlan plan, ScanCursor start,
+                                           Function<JavaClass, List<R>> classScanner, ResultSink<R> sink) {
+        Cancellation cancellation = Cancellation.current();
+        List<JavaClass> classes = plan.classes();
+        int index = start.getIndex();
+        int skip = start.getSkip();
+        int chunkSize = SCAN_FIRST_CHUNK_SIZE;
+
+        while (index < classes.size()) {
+            if (cancellation.isCancelled()) {
+                return new ScanCursor(index, skip);
+            }
+            // 每一段一个低优先级任务，交互式查询可以在段与段之间插队，取消后任务在类与类之间停止
+            // 游标可能停在一段的中间，块中的第一个任务从游标处开始
+            List<Callable<List<List<R>>>> tasks = new ArrayList<>();
+            List<Integer> taskSizes = new ArrayList<>();
+            Set<ClassNode> processed = plan.decompiles() && !loaded.scanCodeBudget.isUnlimited() ?
+                    ConcurrentHashMap.newKeySet() : null;
+            int unit = plan.unitAt(index);
+            int chunkEnd = index;
+            while (chunkEnd < classes.size() && (tasks.isEmpty() || chunkEnd - index < chunkSize)) {
+                int unitEnd = plan.unitEnd(unit++);
+                List<JavaClass> unitClasses = classes.subList(chunkEnd, unitEnd);
+                tasks.add(() -> scanUnit(loaded, unitClasses, plan.decompiles(), classScanner, cancellation,
+                        processed));
+                taskSizes.add(unitClasses.size());
+                chunkEnd = unitEnd;
+            }
+            List<List<List<R>>> chunkResults = scheduler.callAll(Priority.BULK, tasks);
+            if (processed != null) unloadProcessedClasses(processed);
+
+            int classIndex = index;
+            for (int i = 0; i < chunkResults.size(); i++) {
+                List<List<R>> unitResults = chunkResults.get(i);
+                for (List<R> classResults : unitResults) {
+                    for (int j = skip; j < classResults.size(); j++) {
+                        if (!sink.accept(classResults.get(j))) {
+                            if (j + 1 < classResults.size()) {
+                                return new ScanCursor(classIndex, j + 1);
                             }
-                            if (matched) classPositives.add(target);
+                            return classIndex + 1 < classes.size() ? new ScanCursor(classIndex + 1, 0) : null;
                         }
+                    }
+                    skip = 0;
+                    classIndex++;
+                }
+                if (unitResults.size() < taskSizes.get(i)) {
+                    return new ScanCursor(classIndex, skip);
+                }
+            }
+            index = chunkEnd;
+            chunkSize = Math.min(chunkSize * 2, SCAN_MAX_CHUNK_SIZE);
+        }
+        return null;
+    }
 
-                        if (classPositives.isEmpty() && ! cls.getFullName().contains("AnonymousClass")) {
-                            return java.util.stream.Stream.empty();
-                        }
+    /**
+     * 在一个任务中按顺序扫描一段类，请求取消后停止，返回已经扫描的类的结果。
+     * 反编译的扫描在整段扫描完后（内部类使用外部类的代码，所以不能逐个类释放）按 {@link ScanCodeBudget}
+     * 保留或释放本次反编译的代码：预算内的类保留代码，之后的查询不需要重新反编译，超出预算后从代码缓存中移除。
+     * @param processed 不限制预算时为 null，否则收集这次反编译处理的依赖（反编译前还没有处理的），扫描完一块后卸载。
+     */
+    private <R> List<List<R>> scanUnit(Snapshot loaded, List<JavaClass> classes, boolean decompiles,
+                                       Function<JavaClass, List<R>> classScanner, Cancellation cancellation,
+                                       Set<ClassNode> processed) {
+        List<List<R>> results = new ArrayList<>(classes.size());
+        List<ClassNode> decompiled = new ArrayList<>();
+        for (JavaClass cls : classes) {
+            if (cancellation.isCancelled()) break;
+            ClassNode clsNode = cls.getClassNode();
+            if (decompiles && !clsNode.isInner() && !clsNode.root().getCodeCache().contains(clsNode.getRawName())) {
+                decompiled.add(clsNode);
+                if (processed != null) addUnprocessedDependencies(clsNode, processed);
+            }
+            results.add(classScanner.apply(cls));
+        }
+        ScanCodeBudget budget = loaded.scanCodeBudget;
+        if (budget.isUnlimited()) return results;
+        for (ClassNode clsNode : decompiled) {
+            ICodeInfo code = clsNode.getCodeFromCache();
+            if (code != null && code != ICodeInfo.EMPTY && !budget.retain(ScanCodeBudget.estimateBytes(code))) {
+                clsNode.unloadFromCache();
+                loaded.methodCodeRanges.remove(clsNode);
+            }
+        }
+        return results;
+    }
+
+    private static void addUnprocessedDependencies(ClassNode cls, Set<ClassNode> processed) {
+        for (ClassNode dependency : cls.getDependencies()) {
+            ClassNode topClass = dependency.getTopParentClass();
+            if (topClass.getState() != ProcessState.PROCESS_COMPLETE) processed.add(topClass);
+        }
+        for (ClassNode dependency : cls.getCodegenDeps()) {
+            ClassNode topClass = dependency.getTopParentClass();
+            if (topClass.getState() != ProcessState.PROCESS_COMPLETE) processed.add(topClass);
+        }
+    }
+
+    /**
+     * jadx 生成代码后会卸载类的中间表示，但作为其他类的依赖处理（不生成代码）的类会一直保留中间表示。
+     * 每一块扫描完后卸载这一块反编译时才处理的依赖，之后再被依赖时重新处理；块内不卸载，依赖在同一块中只处理一次。
+     * 卸载时持有 jadx 处理类时使用的锁，正在反编译的类和它们的依赖（其他请求、预热或另一个扫描正在使用）跳过，
+     * 标记为 DONT_UNLOAD_CLASS 的类（其他类生成代码时还需要）保持加载。
+     */
+    private void unloadProcessedClasses(Set<ClassNode> processed) {
+        for (ClassNode clsNode : processed) {
+            // 超时仍在后台反编译的类一直持有锁，先检查，不等待锁
+            if (decompileWatchdog.isInUse(clsNode)) continue;
+            synchronized (clsNode.getClassInfo()) {
+                if (clsNode.getState() == ProcessState.PROCESS_COMPLETE && !clsNode.contains(AFlag.DONT_UNLOAD_CLASS)
+                        && !decompileWatchdog.isInUse(clsNode)) {
+                    clsNode.unload();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return 扫描保留的代码，实例未加载时返回 null。
+     */
+    public Map<String, Object> getScanCodeStats() {
+        Snapshot loaded = pinnedSnapshot();
+        return loaded != null ? loaded.scanCodeBudget.getStats() : null;
+    }
+
+    public Map<String, Object> getQuarantineStats() {
+        return decompileWatchdog.getStats();
+    }
 
+    /**
+     * 在顶层类的代码中查找，方法的代码是类代码按 {@link MethodCodeRanges} 划分的区间，不复制字符串。
+     * 顶层类先检查整个类的代码（包括内部类），没有匹配的类不再检查方法；内部类直接检查自己的方法。
+     */
+    private List<Map.Entry<String, List<String>>> searchInClass(Snapshot loaded, JavaClass cls, List<String> targets,
+                                                                Map<String, Pattern> patterns,
+                                                                BiFunction<JavaMethod, List<String>, List<String>> refiner) {
+        try {
+            ClassNode clsNode = cls.getClassNode();
+            ClassNode topClass = clsNode.getTopParentClass();
+            ICodeInfo codeInfo;
+            try {
+                codeInfo = decompileWatchdog.getCode(topClass);
+            } catch (QuarantinedClassException | BlockedClassException e) {
+                return refiner == null ? searchInBytecode(clsNode, targets, patterns) : Collections.emptyList();
+            }
+            String code = codeInfo.getCodeStr();
+            if (code.isEmpty()) return Collections.emptyList();
+
+            List<String> classPositives = targets;
+            if (!clsNode.isInner()) {
+                classPositives = new ArrayList<>();
+                for (String target : targets) {
+                    if (matches(target, code, 0, code.length(), patterns)) classPositives.add(target);
+                }
+                if (classPositives.isEmpty()) return Collections.emptyList();
+            }
+
+            // Check methods
+            MethodCodeRanges ranges = loaded.methodCodeRanges.get(topClass, codeInfo);
+            List<Map.Entry<String, List<String>>> results = new ArrayList<>();
+            for (JavaMethod mth : Optional.ofNullable(cls.getMethods()).orElseGet(Collections::emptyList)) {
+                int index = ranges.indexOf(mth.getMethodNode());
+                if (index < 0) continue;
+                int mthStart = ranges.getStart(index);
+                int mthEnd = ranges.getEnd(index);
+
+                List<String> validMatches = new ArrayList<>();
+                for (String target : classPositives) {
+                    if (matches(target, code, mthStart, mthEnd, patterns)) validMatches.add(target);
+                }
+                if (validMatches.isEmpty()) continue;
+
+                List<String> refined = refiner != null ? refiner.apply(mth, validMatches) : validMatches;
+                if (refined != null && !refined.isEmpty()) {
+                    results.add(new AbstractMap.SimpleEntry<>(mth.toString(), refined));
+                }
+            }
+            return results;
+        } catch (CancellationException | SchedulerBusyException e) {
+            throw e;
+        } catch (Exception e) {
+            // 防止单个类失败导致整个搜索崩溃；反编译的失败已经在 getCode 中隔离，这里的异常不隔离类
+            logger.warn("Failed to search in class {}: {}", cls.getFullName(), e.toString());
+            return Collections.emptyList();
+        }
+    }
 
-                        // Check methods
-                        return Optional.ofNullable(cls.getMethods())
-                                .orElseGet(Collections::emptyList)
-                                .stream()
-                                .map(mth -> {
-                                    String mthCode = mth.getCodeStr();
-                                    if (mthCode == null) return null;
-                                    String mthCodeLower = regex ? null : mthCode.toLowerCase();
-
-                                    List<String> validMatches = new ArrayList<>();
-                                    if (classPositives.isEmpty()){
-                                        classPositives.addAll(targets);
-                                    }
-                                    for (String target : classPositives) {
-                                        boolean matched;
-                                        if (regex) {
-                                            matched = Pattern.matches(target, mthCode);
-                                        } else {
-                                            matched = mthCodeLower.contains(target.toLowerCase());
-                                        }
-                                        if (matched) validMatches.add(target);
-                                    }
-
-                                    if (validMatches.isEmpty()) return null;
-                                    return new AbstractMap.SimpleEntry<>(mth.toString(), validMatches);
-                                })
-                                .filter(Objects::nonNull);
-                    } catch (Exception e) {
-                        // 防止单个类反编译失败导致整个搜索崩溃
-                        logger.error("Failed to search in class: {}", cls.getFullName(), e);
-                        return java.util.stream.Stream.empty();
+    /**
+     * 隔离的类不反编译，在每个方法的字节码字符串（见 {@link BytecodeStrings}）中查找，任意一个字符串匹配即命中。
+     */
+    private static List<Map.Entry<String, List<String>>> searchInBytecode(ClassNode clsNode, List<String> targets,
+                                                                          Map<String, Pattern> patterns) {
+        Map<String, List<String>> methodStrings;
+        try {
+            methodStrings = BytecodeStrings.collect(clsNode);
+        } catch (RuntimeException e) {
+            logger.debug("Failed to read bytecode of {}: {}", clsNode, e.getMessage());
+            return Collections.emptyList();
+        }
+        List<Map.Entry<String, List<String>>> results = new ArrayList<>();
+        for (Map.Entry<String, List<String>> method : methodStrings.entrySet()) {
+            List<String> validMatches = new ArrayList<>();
+            for (String target : targets) {
+                for (String str : method.getValue()) {
+                    if (matches(target, str, 0, str.length(), patterns)) {
+                        validMatches.add(target);
+                        break;
                     }
-                })
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        Map.Entry::getValue,
-                        (e1, e2) -> e1
-                ));
+                }
+            }
+            if (validMatches.isEmpty()) continue;
+            MethodNode mthNode = clsNode.searchMethodByShortId(method.getKey());
+            if (mthNode != null) results.add(new AbstractMap.SimpleEntry<>(mthNode.toString(), validMatches));
+        }
+        return results;
+    }
+
+    /**
+     * 正则表达式匹配整个区间，字符串忽略大小写包含在区间中，都不复制代码。
+     */
+    private static boolean matches(String target, String code, int start, int end, Map<String, Pattern> patterns) {
+        Pattern pattern = patterns.get(target);
+        if (pattern != null) {
+            return pattern.matcher(code).region(start, end).matches();
+        }
+        return containsIgnoreCase(code, start, end, target);
+    }
+
+    private static boolean containsIgnoreCase(String code, int start, int end, String target) {
+        int length = target.length();
+        if (length == 0) return true;
+        char firstLower = Character.toLowerCase(target.charAt(0));
+        char firstUpper = Character.toUpperCase(target.charAt(0));
+        for (int i = start, last = end - length; i <= last; i++) {
+            char c = code.charAt(i);
+            if ((c == firstLower || c == firstUpper) && code.regionMatches(true, i, target, 0, length)) return true;
+        }
+        return false;
     }
 
     public Map<String, List<String>> searchMethodCalls(List<Map<String, String>> criteria) {
-        if (!isLoaded()) return Collections.emptyMap();
-        if (criteria == null || criteria.isEmpty()) return Collections.emptyMap();
+        Map<String, List<String>> results = new LinkedHashMap<>();
+        searchMethodCalls(criteria, ScanCursor.START, entry -> {
+            results.putIfAbsent(entry.getKey(), entry.getValue());
+            return true;
+        });
+        return results;
+    }
+
+    public ScanCursor searchMethodCalls(List<Map<String, String>> criteria, ScanCursor start,
+                                        ResultSink<Map.Entry<String, List<String>>> sink) {
+        if (pinnedSnapshot() == null) return null;
+        if (criteria == null || criteria.isEmpty()) return null;
 
-        // 1. Prepare inputs for searchStringsFromClasses
+        // 1. Prepare inputs for the string scan
         Map<String, String> strToClassMap = new HashMap<>();
         List<String> searchStrings = new ArrayList<>();
 
@@ -362,127 +1498,152 @@ public class JadxInstance {
             }
         }
 
-        if (searchStrings.isEmpty()) return Collections.emptyMap();
-
-        // 2. Call existing searchStringsFromClasses to get candidates
-        Map<String, List<String>> rawResults = searchStringsFromClasses(searchStrings);
-        if (rawResults.isEmpty()) return Collections.emptyMap();
-
-        // 3. Filter candidates by checking types in instructions
-        Map<String, List<String>> finalResults = new ConcurrentHashMap<>();
-
-        // Use parallel stream for filtering
-        rawResults.entrySet().parallelStream().forEach(entry -> {
-            String methodSig = entry.getKey();
-            List<String> candidates = entry.getValue(); // Potential matched strings in this method
-
-            // Retrieve MethodNode. methodSig is expected to be compatible with SignatureConverter or findJavaMethod
-            String className = SignatureConverter.extractJavaClassFQN(methodSig);
-            JavaMethod javaMethod = findJavaMethod(className, methodSig);
+        if (searchStrings.isEmpty()) return null;
 
-            if (javaMethod == null) return;
+        // 2. Scan string candidates, then filter them by checking types in instructions
+        return scanClasses(searchStrings, false, start,
+                (javaMethod, candidates) -> verifyMethodCalls(javaMethod, candidates, strToClassMap), sink);
+    }
 
-            MethodNode mthNode = javaMethod.getMethodNode();
-            if (mthNode == null) return;
+    private List<String> verifyMethodCalls(JavaMethod javaMethod, List<String> candidates,
+                                           Map<String, String> strToClassMap) {
+        MethodNode mthNode = javaMethod.getMethodNode();
+        if (mthNode == null) return null;
 
-            try {
-                if (mthNode.getInstructions() == null) {
+        try {
+            if (mthNode.getInstructions() == null) {
+                mthNode.load();
+                if (mthNode.getInstructions() == null && !mthNode.isNoCode()) {
+                    mthNode.unload();
                     mthNode.load();
-                    if (mthNode.getInstructions() == null && !mthNode.isNoCode()) {
-                        mthNode.unload();
-                        mthNode.load();
-                    }
                 }
-            } catch (Exception e) {
-                logger.error("Failed to load instructions for method: {}", methodSig, e);
-                return;
             }
+        } catch (Exception e) {
+            logger.error("Failed to load instructions for method: {}", javaMethod, e);
+            return null;
+        }
 
-            InsnNode[] instructions = mthNode.getInstructions();
-            if (instructions == null) return;
+        InsnNode[] instructions = mthNode.getInstructions();
+        if (instructions == null) return null;
 
-            Set<String> verifiedMatches = new HashSet<>();
+        Set<String> verifiedMatches = new LinkedHashSet<>();
 
-            // Check each candidate string against instructions
-            for (String candidateStr : candidates) {
-                String targetClass = strToClassMap.get(candidateStr);
-                if (targetClass == null) {
-                    verifiedMatches.add(candidateStr);
-                    continue;
-                }
+        // Check each candidate string against instructions
+        for (String candidateStr : candidates) {
+            String targetClass = strToClassMap.get(candidateStr);
+            if (targetClass == null) {
+                verifiedMatches.add(candidateStr);
+                continue;
+            }
 
-                int parenIdx = candidateStr.indexOf('(');
-                String beforeParams = parenIdx >= 0 ? candidateStr.substring(0, parenIdx) : candidateStr;
-                int lastDotIdx = beforeParams.lastIndexOf('.');
-                String cleanMethodName = (lastDotIdx >= 0 ? beforeParams.substring(lastDotIdx + 1) : beforeParams).trim();
-
-                boolean matchFound = false;
-                for (InsnNode insn : instructions) {
-                    if (insn instanceof InvokeNode) {
-                        InvokeNode invoke = (InvokeNode) insn;
-                        if (invoke.getCallMth().getName().equals(cleanMethodName)) {
-                            // Check method's declaring class directly
-                            boolean typeMatch = false;
-                            if (invoke.getCallMth().getDeclClass() != null) {
-                                String declTypeStr = invoke.getCallMth().getDeclClass().toString();
-                                String declFullName = invoke.getCallMth().getDeclClass().getFullName();
-                                if (targetClass.equals(declTypeStr) || targetClass.equals(declFullName)) {
-                                    typeMatch = true;
-                                }
+            int parenIdx = candidateStr.indexOf('(');
+            String beforeParams = parenIdx >= 0 ? candidateStr.substring(0, parenIdx) : candidateStr;
+            int lastDotIdx = beforeParams.lastIndexOf('.');
+            String cleanMethodName = (lastDotIdx >= 0 ? beforeParams.substring(lastDotIdx + 1) : beforeParams).trim();
+
+            boolean matchFound = false;
+            for (InsnNode insn : instructions) {
+                if (insn instanceof InvokeNode) {
+                    InvokeNode invoke = (InvokeNode) insn;
+                    if (invoke.getCallMth().getName().equals(cleanMethodName)) {
+                        // Check method's declaring class directly
+                        boolean typeMatch = false;
+                        if (invoke.getCallMth().getDeclClass() != null) {
+                            String declTypeStr = invoke.getCallMth().getDeclClass().toString();
+                            String declFullName = invoke.getCallMth().getDeclClass().getFullName();
+                            if (targetClass.equals(declTypeStr) || targetClass.equals(declFullName)) {
+                                typeMatch = true;
                             }
+                        }
 
-                            if (typeMatch) {
-                                matchFound = true;
-                                break;
-                            }
+                        if (typeMatch) {
+                            matchFound = true;
+                            break;
                         }
                     }
                 }
-
-                if (matchFound) {
-                    verifiedMatches.add(candidateStr);
-                }
             }
 
-            if (!verifiedMatches.isEmpty()) {
-                finalResults.put(methodSig, new ArrayList<>(verifiedMatches));
+            if (matchFound) {
+                verifiedMatches.add(candidateStr);
             }
-        });
+        }
+
+        return new ArrayList<>(verifiedMatches);
+    }
 
-        return finalResults;
+    public ScanCursor searchInstructions(InsnPattern pattern, ScanCursor start,
+                                         ResultSink<Map.Entry<String, List<String>>> sink) {
+        Snapshot loaded = pinnedSnapshot();
+        if (loaded == null) return null;
+        return scanClassChunks(loaded, getClassPlan(loaded), start, cls -> {
+            List<Map.Entry<String, List<String>>> results = new ArrayList<>();
+            forEachMethodInstructions(cls.getClassNode(), (mthNode, instructions) -> {
+                List<String> matched = pattern.match(instructions);
+                if (matched != null) results.add(new AbstractMap.SimpleEntry<>(mthNode.toString(), matched));
+            });
+            return results;
+        }, sink);
     }
 
-    private AidlClass findAidlClass(String aidlClassName) {
-        AidlClass cachedAidl = aidlCacheMap.get(aidlClassName);
+    /**
+     * 依次读取类中每个方法的原始指令，不反编译。本来没有加载的方法在处理后立即卸载，扫描大量类时内存不会增长。
+     * 持有 jadx 反编译时使用的顶层类锁，卸载指令不会影响同时进行的反编译；反编译超时仍在后台进行的类跳过，不等待锁。
+     */
+    private void forEachMethodInstructions(ClassNode cls, BiConsumer<MethodNode, InsnNode[]> consumer) {
+        if (decompileWatchdog.isAbandoned(cls)) {
+            logger.debug("Skipped instructions of {}: decompilation timed out and is still running", cls);
+            return;
+        }
+        synchronized (cls.getTopParentClass().getClassInfo()) {
+            for (MethodNode mthNode : cls.getMethods()) {
+                boolean loaded = mthNode.isLoaded();
+                try {
+                    if (!loaded) mthNode.load();
+                    InsnNode[] instructions = mthNode.getInstructions();
+                    if (instructions != null) consumer.accept(mthNode, instructions);
+                } catch (Exception e) {
+                    logger.debug("Failed to load instructions for method: {}", mthNode, e);
+                } finally {
+                    if (!loaded) mthNode.unload();
+                }
+            }
+        }
+    }
+
+    private static AidlClass findAidlClass(Snapshot loaded, String aidlClassName) {
+        AidlClass cachedAidl = loaded.aidlCacheMap.get(aidlClassName);
         if (cachedAidl != null) {
             return cachedAidl;
         }
 
-        AidlClass foundAidlClass = Optional.ofNullable(findJavaClass(aidlClassName))
+        AidlClass foundAidlClass = Optional.ofNullable(findJavaClass(loaded, aidlClassName))
                 .flatMap(javaClass -> Optional.ofNullable(AidlClass.fromInterface(javaClass)))
                 .orElse(null);
 
         if (foundAidlClass != null) {
-            aidlCacheMap.put(aidlClassName, foundAidlClass);
+            loaded.aidlCacheMap.put(aidlClassName, foundAidlClass);
         }
 
         return foundAidlClass;
     }
 
     public List<String> getAidlMethods(String aidlClassName) {
-        if (!isLoaded()) return null;
+        Snapshot loaded = pinnedSnapshot();
+        if (loaded == null) return null;
 
-        AidlClass aidlClass = findAidlClass(aidlClassName);
+        AidlClass aidlClass = findAidlClass(loaded, aidlClassName);
 
         return aidlClass != null ? aidlClass.getAidlMethods() : null;
     }
 
     public String getAidlImplClass(String aidlClassName) {
-        if (!isLoaded()) return null;
+        Snapshot loaded = pinnedSnapshot();
+        if (loaded == null) return null;
 
-        ClassSearch classSearcher = new ClassSearch(decompiler.getClassesWithInners());
+        ClassSearch classSearcher = new ClassSearch(loaded.decompiler.getClassesWithInners());
 
-        AidlClass aidlClass = findAidlClass(aidlClassName);
+        AidlClass aidlClass = findAidlClass(loaded, aidlClassName);
 
         return Optional.ofNullable(aidlClass)
                 .flatMap(ac -> Optional.ofNullable(ac.findImpl(classSearcher, false)))
@@ -490,8 +1651,110 @@ public class JadxInstance {
                 .orElse(null);
     }
 
-    private JavaClass findJavaClass(String className) {
-        for (JavaClass cls : decompiler.getClassesWithInners()) {
+    /**
+     * @return 实例的资源索引，第一次调用时并行解码所有资源。
+     * @throws CancellationException 创建索引时请求被取消。
+     */
+    public ResourceIndex getResourceIndex() {
+        Snapshot loaded = pinnedSnapshot();
+        return loaded != null ? getResourceIndex(loaded) : null;
+    }
+
+    private ResourceIndex getResourceIndex(Snapshot loaded) {
+        synchronized (loaded.resourceLock) {
+            if (loaded.resourceIndex == null) {
+                loaded.resourceIndex = ResourceIndex.build(getResources(loaded.decompiler),
+                        loaded.decompiler.getRoot().getConstValues().getResourcesNames(), scheduler);
+            }
+            return loaded.resourceIndex;
+        }
+    }
+
+    /**
+     * @return 引用该资源 ID 的方法，第一次调用时扫描所有方法的指令，建立所有资源 ID 的引用表。
+     * @throws CancellationException 扫描时请求被取消。
+     */
+    public List<String> getResourceReferences(int id) {
+        Snapshot loaded = pinnedSnapshot();
+        if (loaded == null) return null;
+        synchronized (loaded.resourceLock) {
+            if (loaded.resourceReferences == null) {
+                loaded.resourceReferences = scanResourceReferences(loaded.decompiler,
+                        getResourceIndex(loaded).getIds());
+            }
+            return loaded.resourceReferences.getOrDefault(id, Collections.emptyList());
+        }
+    }
+
+    private Map<Integer, List<String>> scanResourceReferences(JadxDecompiler decompiler, Set<Integer> ids) {
+        Map<Integer, List<String>> references = new HashMap<>();
+        if (ids.isEmpty()) return references;
+
+        Cancellation cancellation = Cancellation.current();
+        RootNode root = decompiler.getRoot();
+        List<JavaClass> classes = decompiler.getClassesWithInners();
+        for (int index = 0; index < classes.size(); index += SCAN_MAX_CHUNK_SIZE) {
+            List<Callable<Map<Integer, Set<String>>>> tasks = new ArrayList<>();
+            for (JavaClass cls : classes.subList(index, Math.min(index + SCAN_MAX_CHUNK_SIZE, classes.size()))) {
+                tasks.add(() -> cancellation.isCancelled() ? null : findResourceReferences(root, cls, ids));
+            }
+            for (Map<Integer, Set<String>> classReferences : scheduler.callAll(Priority.BULK, tasks)) {
+                if (classReferences == null) {
+                    throw new CancellationException("Request cancelled: " + cancellation.getReason());
+                }
+                classReferences.forEach((id, methods) ->
+                        references.computeIfAbsent(id, k -> new ArrayList<>()).addAll(methods));
+            }
+        }
+        return references;
+    }
+
+    /**
+     * 资源 ID 在应用代码中通常是常量，在库代码中是对 R 类静态字段的读取，两种引用都记录。
+     */
+    private Map<Integer, Set<String>> findResourceReferences(RootNode root, JavaClass cls, Set<Integer> ids) {
+        Map<Integer, Set<String>> references = new HashMap<>();
+        forEachMethodInstructions(cls.getClassNode(), (mthNode, instructions) -> {
+            for (InsnNode insn : instructions) {
+                if (insn == null) continue;
+                Integer id = getResourceId(root, insn, ids);
+                if (id != null) {
+                    references.computeIfAbsent(id, k -> new LinkedHashSet<>()).add(mthNode.toString());
+                }
+                for (InsnArg arg : insn.getArguments()) {
+                    if (arg instanceof LiteralArg literal && isResourceId(literal.getLiteral(), ids)) {
+                        references.computeIfAbsent((int) literal.getLiteral(), k -> new LinkedHashSet<>())
+                                .add(mthNode.toString());
+                    }
+                }
+            }
+        });
+        return references;
+    }
+
+    private static Integer getResourceId(RootNode root, InsnNode insn, Set<Integer> ids) {
+        if (insn.getType() == InsnType.CONST && insn.getArgsCount() == 1 &&
+                insn.getArg(0) instanceof LiteralArg literal && isResourceId(literal.getLiteral(), ids)) {
+            return (int) literal.getLiteral();
+        }
+        if (insn.getType() == InsnType.SGET && insn instanceof IndexInsnNode indexInsn &&
+                indexInsn.getIndex() instanceof FieldInfo fieldInfo) {
+            FieldNode field = root.resolveField(fieldInfo);
+            EncodedValue constValue = field != null ? field.get(JadxAttrType.CONSTANT_VALUE) : null;
+            Object value = constValue != null ? constValue.getValue() : null;
+            if (value instanceof Integer intValue && ids.contains(intValue)) {
+                return intValue;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isResourceId(long literal, Set<Integer> ids) {
+        return literal == (int) literal && ids.contains((int) literal);
+    }
+
+    private static JavaClass findJavaClass(Snapshot loaded, String className) {
+        for (JavaClass cls : loaded.decompiler.getClassesWithInners()) {
             if (cls.getFullName().equals(className)) {
                 return cls;
             }
@@ -499,10 +1762,10 @@ public class JadxInstance {
         return null;
     }
 
-    private JavaMethod findJavaMethod(String className, String methodName) {
-        JavaClass cls = findJavaClass(className);
+    private static JavaMethod findJavaMethod(Snapshot loaded, String className, String methodName) {
+        JavaClass cls = findJavaClass(loaded, className);
         if (cls == null){
-            for (JavaClass clss : decompiler.getClassesWithInners()) {
+            for (JavaClass clss : loaded.decompiler.getClassesWithInners()) {
                 if (clss.getFullName().replace("AnonymousClass", "").equals(className)) {
                    cls = clss;
                 }
@@ -518,8 +1781,8 @@ public class JadxInstance {
         return null;
     }
 
-    private JavaField findJavaField(String className, String fieldName) {
-        JavaClass cls = findJavaClass(className);
+    private static JavaField findJavaField(Snapshot loaded, String className, String fieldName) {
+        JavaClass cls = findJavaClass(loaded, className);
         if (cls != null) {
             for (JavaField field : cls.getFields()) {
                 if (fieldName.equals(field.toString())) {
@@ -531,16 +1794,253 @@ public class JadxInstance {
     }
 
 	public boolean isLoaded() {
-		return decompiler != null;
+		return pinnedSnapshot() != null;
 	}
 
     public String getFilePath() {
         return filePath;
     }
 
+    /**
+     * @return 请求使用的快照的加载代数，实例未加载时返回 0。
+     */
+    public long getLoadGeneration() {
+        Snapshot loaded = pinnedSnapshot();
+        return loaded != null ? loaded.generation : 0;
+    }
+
+    /**
+     * @return 快照的查询缓存，实例未加载时返回不保存结果的空缓存。
+     */
+    public QueryCache getQueryCache() {
+        Snapshot loaded = pinnedSnapshot();
+        return loaded != null ? loaded.queryCache : new QueryCache(0);
+    }
+
+    /**
+     * @return 名称索引，实例未加载时返回 null。
+     * @throws IndexingException 索引还在后台创建。
+     */
+    public NameIndex getNameIndex() {
+        Indexes loadedIndexes = getIndexes(pinnedSnapshot());
+        return loadedIndexes != null ? loadedIndexes.names() : null;
+    }
+
+	/**
+	 * 卸载输入，正在执行的请求和后台任务结束后才关闭 decompiler。
+	 */
 	public void close() {
-		decompiler.close();
-		decompiler = null;
+		synchronized (reloadLock) {
+			stopWarmUp();
+			Snapshot old = snapshot;
+			snapshot = null;
+			if (old != null) retire(old);
+			decompileWatchdog.getQuarantine().clear();
+		}
+	}
+
+	/**
+	 * 一次加载得到的 decompiler、输入文件的状态，以及从中得到的索引、扫描计划、缓存和解析结果。
+	 * 加载、重新加载和卸载时整体替换，不修改已经发布的快照；延迟计算的部分第一次使用时保存在快照上，
+	 * 只引用这个快照中的节点，不会与其他快照混用。
+	 */
+	private static final class Snapshot {
+		final JadxDecompiler decompiler;
+		/* 加载时输入文件的状态，重新加载时比较 */
+		final List<InputFingerprint> inputFingerprints;
+		/* 实例的第几次加载，从 1 开始 */
+		final long generation;
+		final QueryCache queryCache = QueryCache.fromEnv();
+		final ScanCodeBudget scanCodeBudget = ScanCodeBudget.fromEnv();
+		final MethodCodeRanges.Cache methodCodeRanges = new MethodCodeRanges.Cache();
+		final Map<String, AidlClass> aidlCacheMap = new ConcurrentHashMap<>();
+		/* 类、方法和字段名称索引、字段读写索引和调用图，发布前在后台开始创建；只加载代码时第一次查询时创建 */
+		volatile CompletableFuture<Indexes> indexes;
+		/* 攻击面入口，发布前在后台开始计算；只加载代码时第一次查询时计算 */
+		volatile CompletableFuture<EntryPoints> entryPoints;
+		/* 全量扫描的顺序和任务划分，第一次扫描时创建 */
+		volatile ScanPlan classPlan;
+		volatile ScanPlan decompilePlan;
+		/* 每个类和方法的字节码哈希，第一次比较实例时计算 */
+		volatile Map<String, ClassHashes> bytecodeHashes;
+		/* 第一次查询时解码和解析，持有快照的锁 */
+		String manifestText;
+		ApplicationParams manifestParams;
+		ManifestModel manifestModel;
+		/* 资源索引和资源 ID 的代码引用，第一次查询时创建 */
+		final Object resourceLock = new Object();
+		ResourceIndex resourceIndex;
+		Map<Integer, List<String>> resourceReferences;
+
+		Snapshot(JadxDecompiler decompiler, List<InputFingerprint> inputFingerprints, long generation) {
+			this.decompiler = decompiler;
+			this.inputFingerprints = inputFingerprints;
+			this.generation = generation;
+		}
+	}
+
+	/**
+	 * 当前线程的请求通过 {@link #use()} 固定了快照时返回固定的快照（实例已卸载时为 null），
+	 * 否则（后台任务、加载和管理接口）返回当前加载的快照。调用者只读取一次，之后都使用同一个快照。
+	 */
+	private Snapshot pinnedSnapshot() {
+		Use pinned = pinnedUse.get();
+		return pinned != null ? pinned.used : snapshot;
+	}
+
+	/**
+	 * 请求开始使用当前加载的快照，关闭返回值时结束。请求中对实例的调用都使用这个快照，
+	 * 使用期间重新加载或卸载不会关闭它的 decompiler，堆内存不足时也不淘汰这个实例。
+	 * 同一线程中已经固定了快照时（例如比较同一个实例）使用相同的快照。返回值需要在同一线程中关闭。
+	 */
+	public Use use() {
+		Use outer = pinnedUse.get();
+		Use use = outer != null ? use(outer.used, true) : useCurrent(true);
+		if (outer == null) {
+			use.pinned = true;
+			pinnedUse.set(use);
+		}
+		return use;
+	}
+
+	/**
+	 * 在计数的锁内读取当前快照，与重新加载和卸载后的 {@link #retire} 互斥，不会使用已经关闭的快照。
+	 */
+	private Use useCurrent(boolean request) {
+		synchronized (snapshotUses) {
+			return use(snapshot, request);
+		}
+	}
+
+	/**
+	 * @param used 已经在使用中或者还没有替换下来的快照。
+	 */
+	private Use use(Snapshot used, boolean request) {
+		synchronized (snapshotUses) {
+			if (used != null) snapshotUses.merge(used, 1, Integer::sum);
+			if (request) activeRequests++;
+			return new Use(used, request);
+		}
+	}
+
+	/**
+	 * @return 有正在执行的请求，不包括预热和入口计算等后台任务。
+	 */
+	public boolean hasActiveRequests() {
+		synchronized (snapshotUses) {
+			return activeRequests > 0;
+		}
+	}
+
+	/**
+	 * 替换下来的快照没有使用者时立即关闭 decompiler，否则在最后一个使用者结束时关闭。
+	 */
+	private void retire(Snapshot old) {
+		synchronized (snapshotUses) {
+			if (snapshotUses.containsKey(old)) {
+				retiredSnapshots.add(old);
+				return;
+			}
+		}
+		old.decompiler.close();
+	}
+
+	private void release(Snapshot used, boolean request) {
+		synchronized (snapshotUses) {
+			if (request) activeRequests--;
+			if (used == null || snapshotUses.merge(used, -1, Integer::sum) > 0) return;
+			snapshotUses.remove(used);
+			if (!retiredSnapshots.remove(used)) return;
+		}
+		used.decompiler.close();
+		logger.info("Closed replaced decompiler of {}", filePath);
+	}
+
+	/**
+	 * 一次对快照的使用，只能关闭一次。
+	 */
+	public class Use implements AutoCloseable {
+		private final Snapshot used;
+		private final boolean request;
+		/* 请求在当前线程中固定了快照，关闭时解除 */
+		private boolean pinned = false;
+		private boolean closed = false;
+
+		private Use(Snapshot used, boolean request) {
+			this.used = used;
+			this.request = request;
+		}
+
+		@Override
+		public void close() {
+			if (closed) return;
+			closed = true;
+			if (pinned) pinnedUse.remove();
+			release(used, request);
+		}
+	}
+
+	/**
+	 * @return 加载时读取的输入文件，目录只包含其中的 apk/dex/jar 文件，用于加载前估算堆占用。
+	 */
+	public List<File> getInputFiles() {
+		File file = new File(filePath);
+		if (file.isDirectory()) {
+			List<File> dirFiles = listDirInputFiles(file);
+			return dirFiles != null ? dirFiles : Collections.emptyList();
+		}
+		return file.isFile() ? Collections.singletonList(file) : Collections.emptyList();
+	}
+
+	private static List<File> listDirInputFiles(File dir) {
+		File[] dirFiles = dir.listFiles();
+		if (dirFiles == null) return null;
+
+		List<File> dexFiles = new ArrayList<>();
+		for (File dirFile : dirFiles) {
+			if (isAndroidFile(dirFile.getPath())) {
+				dexFiles.add(dirFile);
+			}
+		}
+		return dexFiles;
+	}
+
+	public void touch() {
+		lastAccessTime = System.currentTimeMillis();
+	}
+
+	public long getLastAccessTime() {
+		return lastAccessTime;
+	}
+
+	public void setHeapUsage(LoadEstimate loadEstimate, long heapFootprint) {
+		this.loadEstimate = loadEstimate;
+		this.heapFootprint = heapFootprint;
+	}
+
+	/**
+	 * @return 加载后测量的堆占用，没有测量时使用估算值。
+	 */
+	public long getHeapFootprint() {
+		if (heapFootprint > 0) return heapFootprint;
+		LoadEstimate estimate = loadEstimate;
+		return estimate != null ? estimate.getEstimatedBytes() : 0;
+	}
+
+	public Map<String, Object> getLoadStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		LoadEstimate estimate = loadEstimate;
+		if (estimate != null) stats.putAll(estimate.toMap());
+		stats.put("actualBytes", heapFootprint);
+		stats.putAll(loadOptions.toMap());
+		stats.put("loadMs", loadMs);
+		Snapshot loaded = pinnedSnapshot();
+		stats.put("indexes", getIndexesState(loaded));
+		LazyResources lazy = loaded != null ? getLazyResources(loaded.decompiler) : null;
+		stats.put("resourcesLoaded", loaded != null && (lazy == null || lazy.isLoaded()));
+		if (lazy != null) stats.put("resourceLoadMs", lazy.getLoadMs());
+		stats.put("lastAccessTime", lastAccessTime);
+		return stats;
 	}
 
 	private static boolean isAndroidFile(String path) {
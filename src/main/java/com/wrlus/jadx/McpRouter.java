@@ -0,0 +1,363 @@
+package com.wrlus.jadx;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.wrlus.jadx.diff.ClassHashes;
+import com.wrlus.jadx.diff.InstanceDiff;
+import com.wrlus.jadx.remote.ConsistentHashRing;
+import com.wrlus.jadx.remote.HttpProxy;
+import com.wrlus.jadx.remote.WorkerException;
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+import io.javalin.json.JsonMapper;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.net.URLEncoder;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 路由模式：对外提供与 {@link McpServer} 相同的 HTTP API，按输入路径的一致性哈希把实例放到多个后端守护进程上，
+ * 查询转发给实例所在的后端，`unload_all`、健康检查和统计等请求汇总所有后端的结果。
+ */
+public class McpRouter {
+    private static final Logger logger = LoggerFactory.getLogger(McpRouter.class);
+
+    private Javalin app;
+    private final Gson gson = new GsonBuilder().create();
+    private final String host;
+    private final int port;
+    private final ConsistentHashRing ring;
+    private final HttpProxy proxy = new HttpProxy();
+
+    /* 实例 ID 到所在后端的映射，路由重启后按需向后端查询重建 */
+    private final Map<String, String> instanceBackendMap = new ConcurrentHashMap<>();
+
+    public McpRouter(String host, int port, List<String> backends) {
+        this.host = host;
+        this.port = port;
+        this.ring = new ConsistentHashRing(backends);
+    }
+
+    public void start() {
+        stop();
+
+        JsonMapper gsonMapper = new JsonMapper() {
+            @NotNull
+            @Override
+            public String toJsonString(@NotNull Object obj, @NotNull Type type) {
+                return gson.toJson(obj, type);
+            }
+
+            @NotNull
+            @Override
+            public <T> T fromJsonString(@NotNull String json, @NotNull Type targetType) {
+                return gson.fromJson(json, targetType);
+            }
+        };
+        app = Javalin.create(config -> {
+            config.useVirtualThreads = true;
+            config.jsonMapper(gsonMapper);
+            config.jetty.modifyHttpConfiguration(httpConfig ->
+                httpConfig.setRequestHeaderSize(McpServer.MAX_REQUEST_HEADER_SIZE_BYTES)
+            );
+        }).start(host, port);
+
+        app.exception(IllegalArgumentException.class, (e, ctx) -> {
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", e.getMessage());
+            ctx.status(400).json(response);
+        });
+        app.exception(WorkerException.class, (e, ctx) -> {
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", e.getMessage());
+            ctx.status(WorkerException.STATUS_BAD_GATEWAY).json(response);
+        });
+
+        app.get("/health", this::handleHealth);
+
+        app.get("/load", ctx -> handleLoad(ctx, "filePath"));
+        app.get("/load_dir", ctx -> handleLoad(ctx, "dirPath"));
+        app.get("/lookup_instance_id", ctx -> handleLoad(ctx, "path"));
+        app.get("/unload", this::handleUnload);
+        app.get("/unload_all", this::handleUnloadAll);
+
+        app.get("/update_max_instance_count", this::handleBroadcast);
+        app.get("/get_scheduler_stats", this::handleBroadcast);
+        app.get("/get_memory_stats", this::handleBroadcast);
+
+        app.get("/diff_instances", this::handleDiffInstances);
+
+        /* 其他请求按 instanceId 转发 */
+        app.get("/*", this::handleRoute);
+        app.post("/*", this::handleRoute);
+
+        logger.info("Jadx daemon MCP router started at http://{}:{}, backends: {}", host, port, ring.getNodes());
+    }
+
+    public void stop() {
+        if (app != null) {
+            app.stop();
+        }
+    }
+
+    public void handleHealth(Context ctx) {
+        Map<String, Object> response = new HashMap<>();
+        Map<String, Object> backends = new LinkedHashMap<>();
+        for (String backend : ring.getNodes()) {
+            try {
+                backends.put(backend, proxy.get(backend + "/health").statusCode() == 200 ? "ok" : "error");
+            } catch (IOException e) {
+                backends.put(backend, "unreachable");
+            }
+        }
+        response.put("result", "http://" + host + ":" + port);
+        response.put("backends", backends);
+        ctx.json(response);
+    }
+
+    /**
+     * 加载和按路径查找都转发给路径在哈希环上的归属后端，归属后端不可用时依次尝试环上的下一个后端。
+     */
+    public void handleLoad(Context ctx, String pathParam) {
+        String path = ctx.queryParam(pathParam);
+        if (path == null || path.isBlank()) {
+            throw new IllegalArgumentException("Parameter `" + pathParam + "` is required.");
+        }
+
+        IOException lastError = null;
+        for (String backend : ring.locate(path)) {
+            HttpResponse<InputStream> response;
+            try {
+                response = proxy.open(ctx, backend, Collections.emptyMap(), getForwardHeaders(ctx));
+            } catch (IOException e) {
+                logger.warn("Backend {} is unreachable for {}: {}", backend, path, e.getMessage());
+                lastError = e;
+                continue;
+            }
+            try {
+                String instanceId = getResult(proxy.relayBuffered(ctx, response));
+                if (response.statusCode() == 200 && instanceId != null) {
+                    instanceBackendMap.put(instanceId, backend);
+                }
+            } catch (IOException e) {
+                throw new WorkerException("Backend " + backend + " failed while loading `" + path + "`", e);
+            }
+            return;
+        }
+        throw new WorkerException("No backend is reachable for `" + path + "`", lastError);
+    }
+
+    public void handleUnload(Context ctx) {
+        String instanceId = ctx.queryParam("instanceId");
+        String backend = findBackend(instanceId);
+        if (backend == null) {
+            respondInstanceNotFound(ctx, instanceId);
+            return;
+        }
+        forward(ctx, backend);
+        instanceBackendMap.remove(instanceId);
+    }
+
+    public void handleUnloadAll(Context ctx) {
+        Map<String, Object> response = new HashMap<>();
+        int size = 0;
+        for (Map.Entry<String, JsonElement> entry : broadcast(ctx).entrySet()) {
+            JsonElement result = entry.getValue();
+            if (result != null && result.isJsonPrimitive()) {
+                size += result.getAsInt();
+            }
+        }
+        instanceBackendMap.clear();
+
+        response.put("result", size);
+        ctx.json(response);
+    }
+
+    /**
+     * 发送给所有后端，结果按后端地址汇总。
+     */
+    public void handleBroadcast(Context ctx) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("result", broadcast(ctx));
+        ctx.json(response);
+    }
+
+    public void handleRoute(Context ctx) {
+        String instanceId = ctx.queryParam("instanceId");
+        if (instanceId == null || instanceId.isBlank()) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", "Endpoint " + ctx.method() + " " + ctx.path() + " needs `instanceId` in router mode.");
+            ctx.status(404).json(response);
+            return;
+        }
+
+        String backend = findBackend(instanceId);
+        if (backend != null) {
+            forward(ctx, backend);
+        } else {
+            respondInstanceNotFound(ctx, instanceId);
+        }
+    }
+
+    /**
+     * 两个实例在同一个后端时直接转发；在不同后端时分别获取字节码哈希和方法代码，在路由中比较。
+     */
+    public void handleDiffInstances(Context ctx) {
+        String baseId = ctx.queryParam("baseInstanceId");
+        String targetId = ctx.queryParam("targetInstanceId");
+        int maxCodeDiffs = ctx.queryParamAsClass("maxCodeDiffs", Integer.class)
+                .check(it -> it >= 0 && it <= InstanceDiff.MAX_CODE_DIFFS,
+                        "Max code diffs must be between 0 and " + InstanceDiff.MAX_CODE_DIFFS)
+                .getOrDefault(InstanceDiff.DEFAULT_CODE_DIFFS);
+        String baseBackend = findBackend(baseId);
+        String targetBackend = baseBackend != null ? findBackend(targetId) : null;
+        if (targetBackend == null) {
+            respondInstanceNotFound(ctx, baseBackend == null ? baseId : targetId);
+            return;
+        }
+        if (baseBackend.equals(targetBackend)) {
+            forward(ctx, baseBackend);
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        Map<String, ClassHashes> base = getBytecodeHashes(ctx, baseBackend, baseId);
+        Map<String, ClassHashes> target = getBytecodeHashes(ctx, targetBackend, targetId);
+        ctx.json(InstanceDiff.compare(base, target, System.currentTimeMillis() - start, maxCodeDiffs,
+                methods -> getMethodsCode(ctx, baseBackend, baseId, methods),
+                methods -> getMethodsCode(ctx, targetBackend, targetId, methods)));
+    }
+
+    private Map<String, ClassHashes> getBytecodeHashes(Context ctx, String backend, String instanceId) {
+        JsonElement result = callBackend(ctx, backend, "/get_bytecode_hashes",
+                Map.of("instanceId", List.of(instanceId)));
+        Map<String, ClassHashes> hashes = new HashMap<>();
+        for (Map.Entry<String, JsonElement> entry : result.getAsJsonObject().entrySet()) {
+            hashes.put(entry.getKey(), ClassHashes.fromJson(entry.getValue().getAsJsonObject()));
+        }
+        return hashes;
+    }
+
+    private Map<String, String> getMethodsCode(Context ctx, String backend, String instanceId, List<String> methods) {
+        Map<String, String> codes = new HashMap<>();
+        for (int index = 0; index < methods.size(); index += InstanceDiff.CODE_BATCH_SIZE) {
+            List<String> batch = methods.subList(index, Math.min(index + InstanceDiff.CODE_BATCH_SIZE, methods.size()));
+            JsonElement result = callBackend(ctx, backend, "/get_methods_code",
+                    Map.of("instanceId", List.of(instanceId), "methods", List.of(gson.toJson(batch))));
+            for (Map.Entry<String, JsonElement> entry : result.getAsJsonObject().entrySet()) {
+                codes.put(entry.getKey(), entry.getValue().isJsonNull() ? null : entry.getValue().getAsString());
+            }
+        }
+        return codes;
+    }
+
+    /**
+     * 调用后端的接口，返回响应中的 `result`。
+     * @throws WorkerException 后端无法连接或者返回了错误。
+     */
+    private JsonElement callBackend(Context ctx, String backend, String path, Map<String, List<String>> params) {
+        HttpResponse<String> response;
+        try {
+            response = proxy.get(backend + path + HttpProxy.toQuery(params), getForwardHeaders(ctx));
+        } catch (IOException e) {
+            throw new WorkerException("Backend " + backend + " is unreachable: " + e.getMessage(), e);
+        }
+        JsonElement body;
+        try {
+            body = JsonParser.parseString(response.body());
+        } catch (RuntimeException e) {
+            body = null;
+        }
+        if (response.statusCode() != 200 || body == null || !body.isJsonObject() ||
+                !body.getAsJsonObject().has("result")) {
+            throw new WorkerException("Backend " + backend + " failed on `" + path + "` with status " +
+                    response.statusCode() + ": " + response.body());
+        }
+        return body.getAsJsonObject().get("result");
+    }
+
+    private void forward(Context ctx, String backend) {
+        HttpResponse<InputStream> response;
+        try {
+            response = proxy.open(ctx, backend, Collections.emptyMap(), getForwardHeaders(ctx));
+        } catch (IOException e) {
+            throw new WorkerException("Backend " + backend + " is unreachable: " + e.getMessage(), e);
+        }
+        try {
+            proxy.relay(ctx, response);
+        } catch (IOException e) {
+            logger.debug("Relay from backend {} stopped: {}", backend, e.getMessage());
+        }
+    }
+
+    private Map<String, JsonElement> broadcast(Context ctx) {
+        String query = ctx.queryString() != null ? "?" + ctx.queryString() : "";
+        Map<String, String> headers = getForwardHeaders(ctx);
+        Map<String, JsonElement> results = new LinkedHashMap<>();
+        for (String backend : ring.getNodes()) {
+            try {
+                HttpResponse<String> response = proxy.get(backend + ctx.path() + query, headers);
+                JsonObject json = JsonParser.parseString(response.body()).getAsJsonObject();
+                results.put(backend, json.has("result") ? json.get("result") : json);
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Backend {} failed for {}: {}", backend, ctx.path(), e.getMessage());
+                JsonObject error = new JsonObject();
+                error.addProperty("error", "Backend is unreachable: " + e.getMessage());
+                results.put(backend, error);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 查找实例所在的后端，路由没有记录时（例如路由重启后）逐个询问后端。
+     */
+    private String findBackend(String instanceId) {
+        if (instanceId == null) return null;
+        String backend = instanceBackendMap.get(instanceId);
+        if (backend != null) return backend;
+
+        String encodedId = URLEncoder.encode(instanceId, StandardCharsets.UTF_8);
+        for (String candidate : ring.getNodes()) {
+            try {
+                if (proxy.get(candidate + "/get_instance_stats?instanceId=" + encodedId).statusCode() == 200) {
+                    instanceBackendMap.put(instanceId, candidate);
+                    return candidate;
+                }
+            } catch (IOException e) {
+                logger.debug("Backend {} is unreachable: {}", candidate, e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    private static Map<String, String> getForwardHeaders(Context ctx) {
+        return Map.of(McpServer.CLIENT_ID_HEADER, McpServer.getClientId(new HttpApiContext(ctx)));
+    }
+
+    private static String getResult(String body) {
+        try {
+            JsonElement result = JsonParser.parseString(body).getAsJsonObject().get("result");
+            return result != null && result.isJsonPrimitive() ? result.getAsString() : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void respondInstanceNotFound(Context ctx, String instanceId) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", "Cannot find instance by provided instance id: " + instanceId);
+        ctx.status(404).json(response);
+    }
+}
@@ -2,36 +2,117 @@ package com.wrlus.jadx;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.wrlus.jadx.cache.QueryCache;
+import com.wrlus.jadx.cache.SharedCodeStore;
+import com.wrlus.jadx.diff.ClassHashes;
+import com.wrlus.jadx.diff.InstanceDiff;
+import com.wrlus.jadx.index.CallGraph;
+import com.wrlus.jadx.index.EntryPoints;
+import com.wrlus.jadx.index.NameIndex;
+import com.wrlus.jadx.insn.InsnPattern;
+import com.wrlus.jadx.load.LoadOptions;
+import com.wrlus.jadx.manifest.ManifestComponent;
+import com.wrlus.jadx.manifest.ManifestModel;
+import com.wrlus.jadx.mcp.McpProtocol;
+import com.wrlus.jadx.mcp.StdioTransport;
+import com.wrlus.jadx.mcp.ToolCallContext;
+import com.wrlus.jadx.memory.HeapBudget;
+import com.wrlus.jadx.memory.HeapLimitException;
+import com.wrlus.jadx.memory.LoadEstimate;
+import com.wrlus.jadx.paging.NdjsonWriter;
+import com.wrlus.jadx.paging.PageRequest;
+import com.wrlus.jadx.paging.ResultSink;
+import com.wrlus.jadx.paging.ScanCursor;
+import com.wrlus.jadx.paging.ScanPage;
+import com.wrlus.jadx.remote.WorkerException;
+import com.wrlus.jadx.remote.WorkerLauncher;
+import com.wrlus.jadx.remote.WorkerProcess;
+import com.wrlus.jadx.resource.ResourceEntry;
+import com.wrlus.jadx.resource.ResourceIndex;
+import com.wrlus.jadx.scheduler.Cancellation;
+import com.wrlus.jadx.scheduler.Job;
+import com.wrlus.jadx.scheduler.Priority;
+import com.wrlus.jadx.scheduler.SchedulerBusyException;
+import com.wrlus.jadx.scheduler.WorkScheduler;
+import com.wrlus.jadx.warmup.WarmUp;
+import com.wrlus.jadx.watchdog.QuarantinedClassException;
 import io.javalin.Javalin;
 import io.javalin.http.Context;
 import io.javalin.json.JsonMapper;
+import io.javalin.validation.ValidationException;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpResponse;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class McpServer {
 	private static final Logger logger = LoggerFactory.getLogger(McpServer.class);
 	private static final int DEFAULT_MAX_JADX_INSTANCE_COUNT = 1;
-	private static final int MAX_REQUEST_HEADER_SIZE_BYTES = 10 * 1024 * 1024;
+	static final int MAX_REQUEST_HEADER_SIZE_BYTES = 10 * 1024 * 1024;
+	static final String CLIENT_ID_HEADER = "X-Client-Id";
+	private static final String MCP_SESSION_ID_HEADER = "Mcp-Session-Id";
+	private static final Set<String> LOCAL_HOSTS = Set.of("localhost", "127.0.0.1", "[::1]", "::1");
+	private static final int STATUS_GATEWAY_TIMEOUT = 504;
+	/* 请求中指定实例的参数，比较实例时有两个 */
+	private static final List<String> INSTANCE_ID_PARAMS = List.of("instanceId", "baseInstanceId", "targetInstanceId");
+	private static final Set<String> NON_KEY_PARAMS = Set.of("stream", "timeoutMs", "clientId");
+	private static final Set<String> NON_LIST_KEY_PARAMS = Set.of("stream", "timeoutMs", "clientId", "cursor", "limit");
 	private Javalin app;
+	private final Gson gson = new GsonBuilder().create();
 	private final String host;
 	private final int port;
-
-	private final Map<String, JadxInstance> jadxInstanceMap = new HashMap<>();
+	private final WorkScheduler scheduler;
+	private final HeapBudget heapBudget;
+	private final WorkerLauncher workerLauncher;
+	private final WarmUp.Options warmUpDefaults = WarmUp.Options.fromEnv();
+	private final LoadOptions loadDefaults = LoadOptions.fromEnv();
+	/* 本进程所有实例共用的反编译代码 */
+	private final SharedCodeStore sharedCodeStore = SharedCodeStore.fromEnv();
+
+	private final Map<String, JadxInstance> jadxInstanceMap = new ConcurrentHashMap<>();
+	/* 在子进程中加载的实例，请求转发给对应的 worker */
+	private final Map<String, WorkerProcess> workerMap = new ConcurrentHashMap<>();
 	private int maxInstanceCount = DEFAULT_MAX_JADX_INSTANCE_COUNT;
+	/* HTTP 接口和 MCP 工具共用的路由表 */
+	private final Map<String, Route> routes = new LinkedHashMap<>();
+	private McpProtocol mcpProtocol;
 
-	public McpServer(String host, int port) {
+	private McpServer(String host, int port, WorkScheduler scheduler, HeapBudget heapBudget,
+					  WorkerLauncher workerLauncher) {
 		this.host = host;
 		this.port = port;
+		this.scheduler = scheduler;
+		this.heapBudget = heapBudget;
+		this.workerLauncher = workerLauncher;
+	}
+
+	/**
+	 * 路由表和 MCP 工具调用引用服务器的处理方法，在构造完成后注册。
+	 */
+	public static McpServer create(String host, int port, WorkScheduler scheduler, HeapBudget heapBudget,
+								   WorkerLauncher workerLauncher) {
+		McpServer server = new McpServer(host, port, scheduler, heapBudget, workerLauncher);
+		server.registerRoutes();
+		server.mcpProtocol = new McpProtocol(server::invokeTool);
+		return server;
 	}
 
 	public void start() {
         stop();
 
-        Gson gson = new GsonBuilder().create();
 		JsonMapper gsonMapper = new JsonMapper() {
 			@NotNull
 			@Override
@@ -46,73 +127,303 @@ public class McpServer {
 			}
 		};
 		app = Javalin.create(config -> {
+			// 请求处理使用虚拟线程，反编译和扫描交给 WorkScheduler 的专用线程池
+			config.useVirtualThreads = true;
 			config.jsonMapper(gsonMapper);
 			config.jetty.modifyHttpConfiguration(httpConfig ->
 				httpConfig.setRequestHeaderSize(MAX_REQUEST_HEADER_SIZE_BYTES)
 			);
 		}).start(host, port);
 
+		app.exception(IllegalArgumentException.class, (e, ctx) -> respondError(new HttpApiContext(ctx), e));
+		app.exception(SchedulerBusyException.class, (e, ctx) -> respondError(new HttpApiContext(ctx), e));
+		app.exception(WorkerException.class, (e, ctx) -> respondError(new HttpApiContext(ctx), e));
+		app.exception(CancellationException.class, (e, ctx) -> respondError(new HttpApiContext(ctx), e));
+		app.exception(QuarantinedClassException.class, (e, ctx) -> respondError(new HttpApiContext(ctx), e));
+
+		app.before(this::forwardToWorker);
+		routes.forEach((path, route) -> app.get(path, ctx -> handleHttpRoute(route, ctx)));
+
+		/* MCP streamable HTTP transport */
+		app.post("/mcp", this::handleMcp);
+		app.get("/mcp", this::handleMcpNotAllowed);
+		app.delete("/mcp", this::handleMcpNotAllowed);
+
+        logger.info("Jadx daemon MCP HTTP server started at http://{}:{}", host, port);
+	}
+
+    /**
+     * HTTP 接口和 MCP 工具共用的路由表，重量级请求标记优先级，执行前需要通过 WorkScheduler 准入。
+     */
+    private void registerRoutes() {
 		/* Health checker API */
-		app.get("/health", this::handleHealth);
+		route("/health", this::handleHealth);
 
 		/* Android binary loader API */
-		app.get("/load", this::handleLoad);
-		app.get("/load_dir", this::handleLoadDir);
-        app.get("/lookup_instance_id", this::handleLookupInstanceId);
-		app.get("/unload", this::handleUnload);
-		app.get("/unload_all", this::handleUnloadAll);
+		route("/load", this::handleLoad);
+		route("/load_dir", this::handleLoadDir);
+        route("/lookup_instance_id", this::handleLookupInstanceId);
+		route("/unload", this::handleUnload);
+		route("/unload_all", this::handleUnloadAll);
+		route("/reload", Priority.BULK, this::handleReload);
 
 		/* AndroidManifest API */
-		app.get("/get_manifest", this::handleGetManifest);
-        app.get("/get_all_classes", this::handleGetAllClasses);
-
-        app.get("/search_string_from_all_classes", this::handleSearchStringFromClasses);
-        app.get("/search_strings_from_all_classes", this::handleSearchStringsFromClasses);
-        app.get("/search_regex_from_all_classes", this::handleSearchRegexFromClasses);
-        app.get("/search_method_calls", this::handleSearchMethodCalls);
+		route("/get_manifest", Priority.INTERACTIVE, this::handleGetManifest);
+		route("/get_all_exported_activities", Priority.INTERACTIVE, this::handleGetAllExportedActivities);
+		route("/get_all_exported_services", Priority.INTERACTIVE, this::handleGetAllExportedServices);
+		route("/get_manifest_info", Priority.INTERACTIVE, this::handleGetManifestInfo);
+		route("/get_manifest_components", Priority.INTERACTIVE, this::handleGetManifestComponents);
+		route("/get_manifest_component", Priority.INTERACTIVE, this::handleGetManifestComponent);
+		route("/get_entry_points", Priority.NORMAL, this::handleGetEntryPoints);
+        route("/get_all_classes", this::handleGetAllClasses);
+        route("/search_names", Priority.INTERACTIVE, this::handleSearchNames);
+
+        /* Resources API */
+        route("/search_resources", Priority.NORMAL, this::handleSearchResources);
+        route("/get_resource_files", Priority.NORMAL, this::handleGetResourceFiles);
+        route("/get_resource_file", Priority.NORMAL, this::handleGetResourceFile);
+        route("/get_resource", Priority.NORMAL, this::handleGetResource);
+
+        route("/search_string_from_all_classes", Priority.BULK, this::handleSearchStringFromClasses);
+        route("/search_strings_from_all_classes", Priority.BULK, this::handleSearchStringsFromClasses);
+        route("/search_regex_from_all_classes", Priority.BULK, this::handleSearchRegexFromClasses);
+        route("/search_method_calls", Priority.BULK, this::handleSearchMethodCalls);
+        route("/search_instructions", Priority.BULK, this::handleSearchInstructions);
 
 		/* Code browser API */
-		app.get("/get_method_decompiled_code", this::handleGetMethodDecompiledCode);
-        app.get("/get_class_decompiled_code", this::handleGetClassDecompiledCode);
+		route("/get_method_decompiled_code", Priority.INTERACTIVE, this::handleGetMethodDecompiledCode);
+        route("/get_class_decompiled_code", Priority.INTERACTIVE, this::handleGetClassDecompiledCode);
 
 		/* Class structure API */
-		app.get("/get_superclass", this::handleGetSuperClass);
-		app.get("/get_interfaces", this::handleGetInterfaces);
-		app.get("/get_class_methods", this::handleGetClassMethods);
-		app.get("/get_class_fields", this::handleGetClassFields);
+		route("/get_superclass", this::handleGetSuperClass);
+		route("/get_interfaces", this::handleGetInterfaces);
+		route("/get_class_methods", this::handleGetClassMethods);
+		route("/get_class_fields", this::handleGetClassFields);
 
         /* Callers and overrides API */
-        app.get("/get_method_callers", this::handleGetMethodCallers);
-        app.get("/get_class_callers", this::handleGetClassCallers);
-        app.get("/get_field_callers", this::handleGetFieldCallers);
-        app.get("/get_method_overrides", this::handleGetMethodOverrides);
-
-        app.get("/get_multi_method_callers_tree", this::handleGetMultiMethodCallersTree);
+        route("/get_method_callers", this::handleGetMethodCallers);
+        route("/get_class_callers", this::handleGetClassCallers);
+        route("/get_field_callers", this::handleGetFieldCallers);
+        route("/get_field_readers", this::handleGetFieldReaders);
+        route("/get_field_writers", this::handleGetFieldWriters);
+        route("/get_method_fields", this::handleGetMethodFields);
+        route("/get_method_overrides", this::handleGetMethodOverrides);
+
+        route("/get_multi_method_callers_tree", Priority.NORMAL, this::handleGetMultiMethodCallersTree);
+        route("/find_call_paths", Priority.NORMAL, this::handleFindCallPaths);
+
+        /* Diff API */
+        route("/diff_instances", Priority.BULK, this::handleDiffInstances);
+        route("/get_bytecode_hashes", Priority.NORMAL, this::handleGetBytecodeHashes);
+        route("/get_methods_code", Priority.NORMAL, this::handleGetMethodsCode);
 
         /* AIDL API */
-        app.get("/search_aidl_classes", this::handleSearchAidlClasses);
-        app.get("/get_aidl_methods", this::handleGetAidlMethods);
-        app.get("/get_aidl_impl_class", this::handleGetAidlImplClass);
+        route("/search_aidl_classes", Priority.NORMAL, this::handleSearchAidlClasses);
+        route("/get_aidl_methods", this::handleGetAidlMethods);
+        route("/get_aidl_impl_class", Priority.NORMAL, this::handleGetAidlImplClass);
 
 		/* Management API */
-		app.get("/update_max_instance_count", this::handleUpdateMaxInstanceCount);
+		route("/update_max_instance_count", this::handleUpdateMaxInstanceCount);
+		route("/get_scheduler_stats", this::handleGetSchedulerStats);
+		route("/get_instance_stats", this::handleGetInstanceStats);
+		route("/get_memory_stats", this::handleGetMemoryStats);
+    }
 
-        logger.info("Jadx daemon MCP HTTP server started at http://{}:{}", host, port);
-	}
+    private void route(String path, ApiHandler handler) {
+        routes.put(path, new Route(null, handler));
+    }
+
+    private void route(String path, Priority priority, ApiHandler handler) {
+        routes.put(path, new Route(priority, handler));
+    }
 
     public void stop() {
         if (app != null) {
             app.stop();
         }
+        workerMap.forEach((s, worker) -> worker.close());
+        workerMap.clear();
+    }
+
+    /**
+     * 重量级请求需要先从 WorkScheduler 获取对应优先级的作业许可，调度器饱和时快速返回 429/503。
+     * 客户端通过 `X-Client-Id` 请求头或 `clientId` 参数区分，未提供时使用来源 IP。
+     * `timeoutMs` 参数设置请求的截止时间，超时或客户端断开后扫描停止并返回部分结果。
+     */
+    private void handleRoute(Route route, ApiContext ctx, BooleanSupplier cancelProbe) throws Exception {
+        List<JadxInstance.Use> uses = useInstances(ctx);
+        try {
+            handleAdmitted(route, ctx, cancelProbe);
+        } finally {
+            uses.forEach(JadxInstance.Use::close);
+        }
+    }
+
+    /**
+     * 请求结束前固定请求的实例当前加载的快照，请求中对实例的调用都使用这个快照，
+     * 实例重新加载或卸载时不关闭请求正在使用的 decompiler。
+     */
+    private List<JadxInstance.Use> useInstances(ApiContext ctx) {
+        List<JadxInstance.Use> uses = new ArrayList<>();
+        for (String param : INSTANCE_ID_PARAMS) {
+            String instanceId = ctx.queryParam(param);
+            JadxInstance instance = instanceId != null ? jadxInstanceMap.get(instanceId) : null;
+            if (instance != null) uses.add(instance.use());
+        }
+        return uses;
+    }
+
+    private void handleAdmitted(Route route, ApiContext ctx, BooleanSupplier cancelProbe) throws Exception {
+        if (route.priority() == null) {
+            route.handler().handle(ctx);
+            return;
+        }
+        Long timeoutMs = ctx.queryParamAsClass("timeoutMs", Long.class)
+                .allowNullable()
+                .check(it -> it == null || it > 0, "Timeout must be positive")
+                .get();
+        Job job = scheduler.admit(route.priority(), getClientId(ctx), Cancellation.create(timeoutMs, cancelProbe));
+        try {
+            route.handler().handle(ctx);
+        } finally {
+            job.close();
+        }
+    }
+
+    private void handleHttpRoute(Route route, Context ctx) throws Exception {
+        if (route.priority() == null) {
+            handleRoute(route, new HttpApiContext(ctx), () -> false);
+            return;
+        }
+        try (ClientDisconnectProbe probe = ClientDisconnectProbe.open(ctx)) {
+            handleRoute(route, new HttpApiContext(ctx), probe);
+        }
+    }
+
+    /**
+     * HTTP 接口和 MCP 工具调用共用的异常到状态码的转换。
+     */
+    private static void respondError(ApiContext ctx, RuntimeException e) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", e.getMessage());
+        if (e instanceof SchedulerBusyException busy) {
+            ctx.header("Retry-After", String.valueOf(busy.getRetryAfterSeconds()));
+            ctx.status(busy.getStatus()).json(response);
+        } else if (e instanceof WorkerException) {
+            ctx.status(WorkerException.STATUS_BAD_GATEWAY).json(response);
+        } else if (e instanceof CancellationException) {
+            ctx.status(STATUS_GATEWAY_TIMEOUT).json(response);
+        } else if (e instanceof QuarantinedClassException) {
+            ctx.status(QuarantinedClassException.STATUS_UNPROCESSABLE).json(response);
+        } else if (e instanceof ValidationException validation) {
+            List<String> errors = new ArrayList<>();
+            validation.getErrors().forEach((key, keyErrors) ->
+                    keyErrors.forEach(error -> errors.add(key + ": " + error.getMessage())));
+            response.put("error", String.join(", ", errors));
+            ctx.status(400).json(response);
+        } else {
+            ctx.status(400).json(response);
+        }
+    }
+
+    static String getClientId(ApiContext ctx) {
+        String clientId = ctx.header(CLIENT_ID_HEADER);
+        if (clientId == null || clientId.isBlank()) {
+            clientId = ctx.queryParam("clientId");
+        }
+        return clientId != null && !clientId.isBlank() ? clientId : ctx.ip();
+    }
+
+    /**
+     * 使用 stdio 传输提供 MCP 服务，不启动 HTTP 服务，直到标准输入关闭。
+     */
+    public void runStdio() throws IOException {
+        // 子进程的标准输出会混入协议消息
+        workerLauncher.discardWorkerStdout();
+        new StdioTransport(mcpProtocol).run();
+    }
+
+    /**
+     * MCP streamable HTTP 传输，每个 POST 请求携带一条（或一批）JSON-RPC 消息，结果作为单个 JSON 响应返回。
+     * 不建立服务端会话，客户端 ID 依次取 `X-Client-Id`、`Mcp-Session-Id` 请求头和来源 IP。
+     */
+    public void handleMcp(Context ctx) {
+        if (!isAllowedOrigin(ctx.header("Origin"))) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", "Origin is not allowed: " + ctx.header("Origin"));
+            ctx.status(403).json(response);
+            return;
+        }
+        String clientId = ctx.header(CLIENT_ID_HEADER);
+        if (clientId == null || clientId.isBlank()) clientId = ctx.header(MCP_SESSION_ID_HEADER);
+        if (clientId == null || clientId.isBlank()) clientId = ctx.ip();
+
+        JsonElement response = mcpProtocol.handle(ctx.body(), clientId);
+        if (response == null) {
+            ctx.status(202);
+            return;
+        }
+        ctx.contentType("application/json").result(response.toString());
+    }
+
+    /**
+     * 不提供服务端主动推送的 SSE 流，也没有可以终止的会话。
+     */
+    public void handleMcpNotAllowed(Context ctx) {
+        ctx.header("Allow", "POST").status(405);
+    }
+
+    /**
+     * 浏览器发起的请求只允许来自本机页面，防止 DNS 重绑定攻击。
+     */
+    private boolean isAllowedOrigin(String origin) {
+        if (origin == null || origin.isBlank()) return true;
+        try {
+            String originHost = URI.create(origin).getHost();
+            return originHost != null && (LOCAL_HOSTS.contains(originHost) || originHost.equals(host));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
     }
 
-	public void handleHealth(Context ctx) {
+    /**
+     * 执行 MCP 工具对应的处理器，与 HTTP 请求经过相同的调度准入和异常转换，实例在子进程中时转发给 worker。
+     */
+    public ToolCallContext invokeTool(String path, Map<String, List<String>> params, String clientId,
+                                      BooleanSupplier cancelled) {
+        ToolCallContext ctx = new ToolCallContext(path, params, clientId, gson);
+        Route route = routes.get(path);
+        try {
+            if (route == null) {
+                throw new IllegalArgumentException("Endpoint " + path + " is not found.");
+            }
+            String instanceId = ctx.queryParam("instanceId");
+            WorkerProcess worker = instanceId != null ? workerMap.get(instanceId) : null;
+            if (worker != null && !path.equals("/unload")) {
+                HttpResponse<String> response = worker.call(path, params, clientId);
+                ctx.setRawResult(response.statusCode(), response.body());
+            } else {
+                handleRoute(route, ctx, cancelled);
+            }
+        } catch (IllegalArgumentException | SchedulerBusyException | WorkerException | CancellationException |
+                 QuarantinedClassException | ValidationException e) {
+            respondError(ctx, e);
+        } catch (Exception e) {
+            logger.error("Tool call {} failed", path, e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", e.toString());
+            ctx.status(500).json(response);
+        }
+        return ctx;
+    }
+
+	public void handleHealth(ApiContext ctx) {
 		Map<String, Object> response = new HashMap<>();
 		response.put("result", "http://" + host + ":" + port);
 		ctx.json(response);
 	}
 
-	public void handleLoad(Context ctx) {
+	public void handleLoad(ApiContext ctx) {
 		Map<String, Object> response = new HashMap<>();
 		String filePath = ctx.queryParam("filePath");
 
@@ -123,12 +434,10 @@ public class McpServer {
 			ctx.json(response);
 			return;
 		}
-		if (jadxInstanceMap.size() < maxInstanceCount) {
+		if (getInstanceCount() < maxInstanceCount) {
             instanceId = UUID.randomUUID().toString();
 
-			JadxInstance instance = new JadxInstance(filePath);
-			instance.load();
-			jadxInstanceMap.put(instanceId, instance);
+			loadInstance(ctx, instanceId, filePath, false);
 
 			response.put("result", instanceId);
 			ctx.json(response);
@@ -139,7 +448,7 @@ public class McpServer {
 		}
 	}
 
-    public void handleLoadDir(Context ctx) {
+    public void handleLoadDir(ApiContext ctx) {
         Map<String, Object> response = new HashMap<>();
         String dirPath = ctx.queryParam("dirPath");
 
@@ -150,12 +459,10 @@ public class McpServer {
             ctx.json(response);
             return;
         }
-        if (jadxInstanceMap.size() < maxInstanceCount) {
+        if (getInstanceCount() < maxInstanceCount) {
             instanceId = UUID.randomUUID().toString();
 
-            JadxInstance instance = new JadxInstance(dirPath);
-            instance.loadDir();
-            jadxInstanceMap.put(instanceId, instance);
+            loadInstance(ctx, instanceId, dirPath, true);
 
             response.put("result", instanceId);
             ctx.json(response);
@@ -166,7 +473,96 @@ public class McpServer {
         }
     }
 
-    public void handleLookupInstanceId(Context ctx) {
+    /**
+     * 加载前估算堆占用，需要隔离的实例交给 {@link WorkerLauncher} 在子进程中加载（`isolate`/`heapMb` 参数），
+     * 其余实例通过 {@link HeapBudget} 准入，内存不足时抛出 {@link HeapLimitException}，加载后记录实际占用。
+     * `warmUp`/`warmUpClasses` 参数覆盖加载后后台预热的默认设置，`codeOnly`/`disabledPasses` 参数覆盖加载方式。
+     */
+    private void loadInstance(ApiContext ctx, String instanceId, String path, boolean isDir) {
+        LoadOptions loadOptions = loadDefaults.override(
+                ctx.queryParamAsClass("codeOnly", Boolean.class).allowNullable().get(),
+                ctx.queryParam("disabledPasses"));
+        JadxInstance instance = new JadxInstance(path, scheduler, sharedCodeStore, loadOptions);
+        LoadEstimate estimate = heapBudget.estimate(instance.getInputFiles());
+        WarmUp.Options warmUp = warmUpDefaults.override(
+                ctx.queryParamAsClass("warmUp", Boolean.class).allowNullable().get(),
+                ctx.queryParamAsClass("warmUpClasses", Integer.class)
+                        .allowNullable()
+                        .check(it -> it == null || it >= 0, "Warm-up class count must not be negative")
+                        .get());
+
+        Boolean isolate = ctx.queryParamAsClass("isolate", Boolean.class).allowNullable().get();
+        if (workerLauncher.shouldIsolate(estimate, isolate)) {
+            Integer heapMb = ctx.queryParamAsClass("heapMb", Integer.class)
+                    .allowNullable()
+                    .check(it -> it == null || it > 0, "Heap size must be positive")
+                    .get();
+            workerMap.put(instanceId, workerLauncher.launch(path, isDir, estimate, heapMb, warmUp, loadOptions));
+            return;
+        }
+
+        try (HeapBudget.Reservation reservation = heapBudget.reserve(path, estimate, instanceEvictor)) {
+            if (isDir) {
+                instance.loadDir();
+            } else {
+                instance.load();
+            }
+            instance.setHeapUsage(estimate, 0);
+            if (instance.isLoaded()) reservation.finish(actual -> instance.setHeapUsage(estimate, actual));
+        }
+        jadxInstanceMap.put(instanceId, instance);
+        instance.startWarmUp(warmUp);
+    }
+
+    /**
+     * 实例在子进程中时，除卸载外的请求都转发给对应的 worker，不再执行本进程的处理器。
+     */
+    private void forwardToWorker(Context ctx) {
+        String instanceId = ctx.queryParam("instanceId");
+        WorkerProcess worker = instanceId != null ? workerMap.get(instanceId) : null;
+        if (worker == null || ctx.path().equals("/unload")) return;
+
+        ctx.skipRemainingHandlers();
+        worker.forward(ctx, getClientId(new HttpApiContext(ctx)));
+    }
+
+    private int getInstanceCount() {
+        return jadxInstanceMap.size() + workerMap.size();
+    }
+
+    private final HeapBudget.Evictor instanceEvictor = new HeapBudget.Evictor() {
+        @Override
+        public long getEvictableBytes() {
+            long bytes = 0;
+            for (JadxInstance instance : jadxInstanceMap.values()) {
+                bytes += instance.getHeapFootprint();
+            }
+            return bytes;
+        }
+
+        @Override
+        public long evictOne() {
+            Map.Entry<String, JadxInstance> eldest = null;
+            for (Map.Entry<String, JadxInstance> entry : jadxInstanceMap.entrySet()) {
+                // 正在执行请求的实例不淘汰
+                if (entry.getValue().hasActiveRequests()) continue;
+                if (eldest == null || entry.getValue().getLastAccessTime() < eldest.getValue().getLastAccessTime()) {
+                    eldest = entry;
+                }
+            }
+            if (eldest == null || !jadxInstanceMap.remove(eldest.getKey(), eldest.getValue())) {
+                return -1;
+            }
+            logger.info("Evict instance {} ({}) to free heap", eldest.getKey(), eldest.getValue().getFilePath());
+            long footprint = eldest.getValue().getHeapFootprint();
+            if (eldest.getValue().isLoaded()) {
+                eldest.getValue().close();
+            }
+            return footprint;
+        }
+    };
+
+    public void handleLookupInstanceId(ApiContext ctx) {
         Map<String, Object> response = new HashMap<>();
         String path = ctx.queryParam("path");
 
@@ -181,10 +577,18 @@ public class McpServer {
         }
     }
 
-	public void handleUnload(Context ctx) {
+	public void handleUnload(ApiContext ctx) {
 		Map<String, Object> response = new HashMap<>();
 		String instanceId = ctx.queryParam("instanceId");
 
+		WorkerProcess worker = instanceId != null ? workerMap.remove(instanceId) : null;
+		if (worker != null) {
+			worker.close();
+			response.put("result", instanceId);
+			ctx.json(response);
+			return;
+		}
+
 		JadxInstance instance = getJadx(instanceId);
 		if (instance != null) {
 			instance.close();
@@ -198,18 +602,43 @@ public class McpServer {
 		}
 	}
 
-	public void handleUnloadAll(Context ctx) {
+	public void handleUnloadAll(ApiContext ctx) {
 		Map<String, Object> response = new HashMap<>();
-		int size = jadxInstanceMap.size();
+		int size = getInstanceCount();
 
 		jadxInstanceMap.forEach((s, instance) -> instance.close());
 		jadxInstanceMap.clear();
+		workerMap.forEach((s, worker) -> worker.close());
+		workerMap.clear();
 
 		response.put("result", size);
 		ctx.json(response);
 	}
 
-	public void handleGetManifest(Context ctx) {
+    /**
+     * 输入文件变化后重新加载实例，实例 ID 不变；没有变化的类保留反编译的代码。
+     * 重新加载时新旧两份输入同时在堆中，不经过 {@link HeapBudget} 准入，完成后堆占用按新的输入重新估算。
+     * 与扫描相同经过 WorkScheduler 准入；正在执行的请求继续使用旧的输入，全部结束后再释放。
+     */
+    public void handleReload(ApiContext ctx) {
+        Map<String, Object> response = new HashMap<>();
+        String instanceId = ctx.queryParam("instanceId");
+
+        JadxInstance instance = getJadx(instanceId);
+        if (instance != null) {
+            Map<String, Object> stats = instance.reload();
+            if (Boolean.TRUE.equals(stats.get("reloaded"))) {
+                instance.setHeapUsage(heapBudget.estimate(instance.getInputFiles()), 0);
+            }
+            response.put("result", stats);
+            ctx.json(response);
+        } else {
+            response.put("error", "Cannot find instance by provided instance id: " + instanceId);
+            ctx.status(404).json(response);
+        }
+    }
+
+	public void handleGetManifest(ApiContext ctx) {
 		Map<String, Object> response = new HashMap<>();
 		String instanceId = ctx.queryParam("instanceId");
 
@@ -229,16 +658,237 @@ public class McpServer {
 		}
 	}
 
-    public void handleGetAllClasses(Context ctx) {
+    public void handleGetAllExportedActivities(ApiContext ctx) {
+        Map<String, Object> response = new HashMap<>();
+        ManifestModel model = getManifestModel(ctx, response);
+        if (model == null) return;
+
+        response.put("result", model.getExportedNames("activity"));
+        ctx.json(response);
+    }
+
+    public void handleGetAllExportedServices(ApiContext ctx) {
+        Map<String, Object> response = new HashMap<>();
+        ManifestModel model = getManifestModel(ctx, response);
+        if (model == null) return;
+
+        response.put("result", model.getExportedNames("service"));
+        ctx.json(response);
+    }
+
+    public void handleGetEntryPoints(ApiContext ctx) {
+        Map<String, Object> response = new HashMap<>();
+        String instanceId = ctx.queryParam("instanceId");
+        String kind = ctx.queryParam("kind");
+
+        JadxInstance instance = getJadx(instanceId);
+        EntryPoints entryPoints = instance != null ? instance.getEntryPoints() : null;
+        if (entryPoints != null) {
+            response.put("counts", entryPoints.getCounts());
+            respondList(ctx, response, entryPoints.getEntries(kind).stream().map(EntryPoints.Entry::toMap).toList());
+        } else {
+            response.put("error", "Cannot find instance by provided instance id: " + instanceId);
+            ctx.status(404).json(response);
+        }
+    }
+
+    public void handleGetManifestInfo(ApiContext ctx) {
+        Map<String, Object> response = new HashMap<>();
+        ManifestModel model = getManifestModel(ctx, response);
+        if (model == null) return;
+
+        response.put("result", model.getInfo());
+        ctx.json(response);
+    }
+
+    /**
+     * 按类型、是否导出和 intent-filter 中的 action 筛选组件，参数都是可选的。
+     */
+    public void handleGetManifestComponents(ApiContext ctx) {
+        Map<String, Object> response = new HashMap<>();
+        String type = ctx.queryParam("type");
+        Boolean exported = ctx.queryParamAsClass("exported", Boolean.class).allowNullable().get();
+        String action = ctx.queryParam("action");
+
+        if (type != null && !ManifestModel.COMPONENT_TYPES.contains(type)) {
+            response.put("error", "Unknown component type `" + type + "`, must be one of " + ManifestModel.COMPONENT_TYPES);
+            ctx.status(400).json(response);
+            return;
+        }
+        ManifestModel model = getManifestModel(ctx, response);
+        if (model == null) return;
+
+        List<Map<String, Object>> components = new ArrayList<>();
+        for (ManifestComponent component : model.getComponents()) {
+            if (type != null && !component.type().equals(type)) continue;
+            if (exported != null && component.exported() != exported) continue;
+            if (action != null && !component.hasAction(action)) continue;
+            components.add(component.toMap());
+        }
+        response.put("result", components);
+        ctx.json(response);
+    }
+
+    public void handleGetManifestComponent(ApiContext ctx) {
+        Map<String, Object> response = new HashMap<>();
+        String name = ctx.queryParam("name");
+        ManifestModel model = getManifestModel(ctx, response);
+        if (model == null) return;
+
+        ManifestComponent component = name != null ? model.findComponent(name) : null;
+        if (component != null) {
+            response.put("result", component.toMap());
+            ctx.json(response);
+        } else {
+            response.put("error", "Cannot find component " + name + " in AndroidManifest.xml.");
+            ctx.status(404).json(response);
+        }
+    }
+
+    /**
+     * 获取实例缓存的 Manifest 模型，找不到实例或 Manifest 时写入错误响应并返回 null。
+     */
+    private ManifestModel getManifestModel(ApiContext ctx, Map<String, Object> response) {
+        String instanceId = ctx.queryParam("instanceId");
+
+        JadxInstance instance = getJadx(instanceId);
+        if (instance == null) {
+            response.put("error", "Cannot find instance by provided instance id: " + instanceId);
+            ctx.status(404).json(response);
+            return null;
+        }
+        ManifestModel model;
+        try {
+            model = instance.getManifestModel();
+        } catch (IllegalStateException e) {
+            response.put("error", e.getMessage());
+            ctx.status(500).json(response);
+            return null;
+        }
+        if (model == null) {
+            response.put("error", "AndroidManifest.xml not found or failed to load.");
+            ctx.status(404).json(response);
+        }
+        return model;
+    }
+
+    /**
+     * 在资源名称、值、文件名和文本资源内容中搜索，默认忽略大小写，`regex=true` 时按正则表达式匹配。
+     */
+    public void handleSearchResources(ApiContext ctx) {
+        Map<String, Object> response = new HashMap<>();
+        String query = ctx.queryParam("query");
+        boolean regex = Boolean.TRUE.equals(ctx.queryParamAsClass("regex", Boolean.class).allowNullable().get());
+        String type = ctx.queryParam("type");
+
+        if (query == null || query.isEmpty()) {
+            response.put("error", "Parameter `query` is required.");
+            ctx.status(400).json(response);
+            return;
+        }
+        JadxInstance instance = getJadx(ctx.queryParam("instanceId"));
+        ResourceIndex index = getResourceIndex(ctx, instance, response);
+        if (index == null) return;
+
+        this.<Map<String, Object>>respondScan(ctx, instance.getQueryCache(), response,
+                (start, sink) -> index.search(query, regex, type, start, sink),
+                (items, result) -> result.put("result", items),
+                item -> Collections.singletonMap("result", item));
+    }
+
+    public void handleGetResourceFiles(ApiContext ctx) {
+        Map<String, Object> response = new HashMap<>();
+        JadxInstance instance = getJadx(ctx.queryParam("instanceId"));
+        ResourceIndex index = getResourceIndex(ctx, instance, response);
+        if (index == null) return;
+
+        respondList(ctx, response, new ArrayList<>(index.getFiles()));
+    }
+
+    public void handleGetResourceFile(ApiContext ctx) {
+        Map<String, Object> response = new HashMap<>();
+        String file = ctx.queryParam("file");
+        JadxInstance instance = getJadx(ctx.queryParam("instanceId"));
+        ResourceIndex index = getResourceIndex(ctx, instance, response);
+        if (index == null) return;
+
+        String text = file != null ? index.getText(file) : null;
+        if (text != null) {
+            response.put("result", text);
+            ctx.json(response);
+        } else if (file != null && index.hasFile(file)) {
+            response.put("error", "Resource file " + file + " is binary or too large to decode.");
+            ctx.status(400).json(response);
+        } else {
+            response.put("error", "Cannot find resource file: " + file);
+            ctx.status(404).json(response);
+        }
+    }
+
+    /**
+     * 按 `id`（十六进制或十进制）或 `name`（`type/name`）查找资源，返回名称、各配置下的值和引用它的方法。
+     */
+    public void handleGetResource(ApiContext ctx) {
+        Map<String, Object> response = new HashMap<>();
+        String idParam = ctx.queryParam("id");
+        String name = ctx.queryParam("name");
+        JadxInstance instance = getJadx(ctx.queryParam("instanceId"));
+        ResourceIndex index = getResourceIndex(ctx, instance, response);
+        if (index == null) return;
+
+        Integer id;
+        if (idParam != null) {
+            try {
+                id = idParam.startsWith("0x") || idParam.startsWith("0X") ?
+                        Integer.parseUnsignedInt(idParam.substring(2), 16) : Integer.parseInt(idParam);
+            } catch (NumberFormatException e) {
+                response.put("error", "Invalid resource id: " + idParam);
+                ctx.status(400).json(response);
+                return;
+            }
+            name = index.getName(id);
+        } else {
+            id = name != null ? index.getId(name) : null;
+        }
+        if (id == null || name == null) {
+            response.put("error", "Cannot find resource " + (idParam != null ? idParam : name));
+            ctx.status(404).json(response);
+            return;
+        }
+
+        List<Map<String, Object>> values = new ArrayList<>();
+        for (ResourceEntry entry : index.getValues(name)) {
+            values.add(entry.toMap());
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("id", ResourceIndex.formatId(id));
+        result.put("name", name);
+        result.put("values", values);
+        result.put("references", instance.getResourceReferences(id));
+        response.put("result", result);
+        ctx.json(response);
+    }
+
+    /**
+     * 获取实例的资源索引，找不到实例时写入错误响应并返回 null。
+     */
+    private ResourceIndex getResourceIndex(ApiContext ctx, JadxInstance instance, Map<String, Object> response) {
+        ResourceIndex index = instance != null ? instance.getResourceIndex() : null;
+        if (index == null) {
+            response.put("error", "Cannot find instance by provided instance id: " + ctx.queryParam("instanceId"));
+            ctx.status(404).json(response);
+        }
+        return index;
+    }
+
+    public void handleGetAllClasses(ApiContext ctx) {
         Map<String, Object> response = new HashMap<>();
         String instanceId = ctx.queryParam("instanceId");
 
         JadxInstance instance = getJadx(instanceId);
         if (instance != null) {
-            List<String> Classes = instance.searchAllClasses();
-            if (Classes != null) {
-                response.put("result", Classes);
-                ctx.json(response);
+            if (instance.isLoaded()) {
+                respondListScan(ctx, null, response, instance::searchAllClasses);
             } else {
                 response.put("error", "Failed to retrieve classes." );
                 ctx.status(404).json(response);
@@ -249,17 +899,49 @@ public class McpServer {
         }
     }
 
-    public void handleSearchStringFromClasses(Context ctx) {
+    /**
+     * 在名称索引中查询类、方法和字段名称，只返回得分最好的 limit 个结果，不分页。
+     */
+    public void handleSearchNames(ApiContext ctx) {
+        Map<String, Object> response = new HashMap<>();
+        String instanceId = ctx.queryParam("instanceId");
+        String query = ctx.queryParam("query");
+        NameIndex.Mode mode = NameIndex.Mode.parse(ctx.queryParam("mode"));
+        NameIndex.Kind kind = NameIndex.Kind.parse(ctx.queryParam("kind"));
+        int limit = ctx.queryParamAsClass("limit", Integer.class)
+                .check(it -> it > 0 && it <= NameIndex.MAX_LIMIT, "Limit must be between 1 and " + NameIndex.MAX_LIMIT)
+                .getOrDefault(NameIndex.DEFAULT_LIMIT);
+        int maxDistance = ctx.queryParamAsClass("maxDistance", Integer.class)
+                .check(it -> it >= 0, "Max distance must not be negative")
+                .getOrDefault(-1);
+
+        if (query == null || query.isEmpty()) {
+            response.put("error", "Query must not be empty.");
+            ctx.status(400).json(response);
+            return;
+        }
+        JadxInstance instance = getJadx(instanceId);
+        NameIndex nameIndex = instance != null ? instance.getNameIndex() : null;
+        if (nameIndex != null) {
+            response.put("result", nameIndex.search(query, mode, kind, limit, maxDistance));
+            ctx.json(response);
+        } else {
+            response.put("error", "Cannot find instance by provided instance id: " + instanceId);
+            ctx.status(404).json(response);
+        }
+    }
+
+    public void handleSearchStringFromClasses(ApiContext ctx) {
         Map<String, Object> response = new HashMap<>();
         String instanceId = ctx.queryParam("instanceId");
         String searchString = ctx.queryParam("searchString");
 
         JadxInstance instance = getJadx(instanceId);
         if (instance != null) {
-            List<String> classes = instance.searchStringFromClasses(searchString, false);
-            if (classes != null) {
-                response.put("result", classes);
-                ctx.json(response);
+            if (instance.isLoaded()) {
+                respondListScan(ctx, instance.getQueryCache(), response, (start, sink) -> instance.searchStringsFromClasses(
+                        Collections.singletonList(searchString), false, start,
+                        entry -> sink.accept(entry.getKey())));
             } else {
                 response.put("error", "Cannot find classes with keyword: " + searchString );
                 ctx.status(404).json(response);
@@ -270,17 +952,17 @@ public class McpServer {
         }
     }
 
-    public void handleSearchRegexFromClasses(Context ctx) {
+    public void handleSearchRegexFromClasses(ApiContext ctx) {
         Map<String, Object> response = new HashMap<>();
         String instanceId = ctx.queryParam("instanceId");
         String searchRegex = ctx.queryParam("searchRegex");
 
         JadxInstance instance = getJadx(instanceId);
         if (instance != null) {
-            List<String> classes = instance.searchStringFromClasses(searchRegex, true);
-            if (classes != null) {
-                response.put("result", classes);
-                ctx.json(response);
+            if (instance.isLoaded()) {
+                respondListScan(ctx, instance.getQueryCache(), response, (start, sink) -> instance.searchStringsFromClasses(
+                        Collections.singletonList(searchRegex), true, start,
+                        entry -> sink.accept(entry.getKey())));
             } else {
                 response.put("error", "Cannot find classes with regex: " + searchRegex );
                 ctx.status(404).json(response);
@@ -291,7 +973,7 @@ public class McpServer {
         }
     }
 
-    public void handleSearchMethodCalls(Context ctx) {
+    public void handleSearchMethodCalls(ApiContext ctx) {
         Map<String, Object> response = new HashMap<>();
         String instanceId = ctx.queryParam("instanceId");
         String methodCallsJson = ctx.queryParam("methodCalls");
@@ -310,9 +992,7 @@ public class McpServer {
             }
 
             if (methodCalls != null && !methodCalls.isEmpty()) {
-                Map<String, List<String>> results = instance.searchMethodCalls(methodCalls);
-                response.put("result", results);
-                ctx.json(response);
+                respondMapScan(ctx, instance.getQueryCache(), response, (start, sink) -> instance.searchMethodCalls(methodCalls, start, sink));
             } else {
                 response.put("error", "methodCalls list is empty or null");
                 ctx.status(400).json(response);
@@ -323,8 +1003,27 @@ public class McpServer {
         }
     }
 
+    /**
+     * 在方法的原始指令上匹配指令模式，不反编译，格式见 {@link InsnPattern#parse}。
+     */
+    public void handleSearchInstructions(ApiContext ctx) {
+        Map<String, Object> response = new HashMap<>();
+        String instanceId = ctx.queryParam("instanceId");
+        String patternJson = ctx.queryParam("pattern");
+
+        JadxInstance instance = getJadx(instanceId);
+        if (instance != null) {
+            InsnPattern pattern = InsnPattern.parse(patternJson);
+            respondMapScan(ctx, instance.getQueryCache(), response,
+                    (start, sink) -> instance.searchInstructions(pattern, start, sink));
+        } else {
+            response.put("error", "Cannot find instance by provided instance id: " + instanceId);
+            ctx.status(404).json(response);
+        }
+    }
+
     // 处理同时输入多个字符串
-    public void handleSearchStringsFromClasses(Context ctx) {
+    public void handleSearchStringsFromClasses(ApiContext ctx) {
         Map<String, Object> response = new HashMap<>();
         String instanceId = ctx.queryParam("instanceId");
         String searchStringsJson = ctx.queryParam("searchStrings");
@@ -343,7 +1042,7 @@ public class McpServer {
             }
 
             if (searchStrings != null && !searchStrings.isEmpty()) {
-                Map<String, List<String>> rawResults = instance.searchStringsFromClasses(searchStrings);
+                List<String> targets = searchStrings;
                 
                 // 返回格式："searchString": ["方法1", "方法2", ...]
 //                Map<String, List<String>> invertedResults = new HashMap<>();
@@ -356,8 +1055,7 @@ public class McpServer {
 //                    }
 //                }
 
-                response.put("result", rawResults);
-                ctx.json(response);
+                respondMapScan(ctx, instance.getQueryCache(), response, (start, sink) -> instance.searchStringsFromClasses(targets, false, start, sink));
             } else {
                 response.put("error", "searchStrings list is empty or null");
                 ctx.status(400).json(response);
@@ -368,7 +1066,7 @@ public class McpServer {
         }
     }
 
-	public void handleGetMethodDecompiledCode(Context ctx) {
+	public void handleGetMethodDecompiledCode(ApiContext ctx) {
 		Map<String, Object> response = new HashMap<>();
 		String instanceId = ctx.queryParam("instanceId");
 		String methodName = ctx.queryParam("methodName");
@@ -394,7 +1092,7 @@ public class McpServer {
 		}
 	}
 
-    public void handleGetClassDecompiledCode(Context ctx) {
+    public void handleGetClassDecompiledCode(ApiContext ctx) {
         Map<String, Object> response = new HashMap<>();
         String instanceId = ctx.queryParam("instanceId");
         String className = ctx.queryParam("className");
@@ -418,7 +1116,7 @@ public class McpServer {
         }
     }
 
-	public void handleGetSuperClass(Context ctx) {
+	public void handleGetSuperClass(ApiContext ctx) {
 		Map<String, Object> response = new HashMap<>();
 		String instanceId = ctx.queryParam("instanceId");
 		String className = ctx.queryParam("className");
@@ -443,7 +1141,7 @@ public class McpServer {
 		}
 	}
 
-	public void handleGetInterfaces(Context ctx) {
+	public void handleGetInterfaces(ApiContext ctx) {
 		Map<String, Object> response = new HashMap<>();
 		String instanceId = ctx.queryParam("instanceId");
 		String className = ctx.queryParam("className");
@@ -468,7 +1166,7 @@ public class McpServer {
 		}
 	}
 
-	public void handleGetClassMethods(Context ctx) {
+	public void handleGetClassMethods(ApiContext ctx) {
 		Map<String, Object> response = new HashMap<>();
 		String instanceId = ctx.queryParam("instanceId");
 		String className = ctx.queryParam("className");
@@ -493,7 +1191,7 @@ public class McpServer {
 		}
 	}
 
-	public void handleGetClassFields(Context ctx) {
+	public void handleGetClassFields(ApiContext ctx) {
 		Map<String, Object> response = new HashMap<>();
 		String instanceId = ctx.queryParam("instanceId");
 		String className = ctx.queryParam("className");
@@ -518,7 +1216,7 @@ public class McpServer {
 		}
 	}
 
-    public void handleGetMethodCallers(Context ctx) {
+    public void handleGetMethodCallers(ApiContext ctx) {
         Map<String, Object> response = new HashMap<>();
         String instanceId = ctx.queryParam("instanceId");
         String methodName = ctx.queryParam("methodName");
@@ -527,14 +1225,13 @@ public class McpServer {
         if (instance != null) {
             boolean isJVMSignature = SignatureConverter.isJVMSignature(methodName);
 
-            List<String> callers = instance.getMethodCallers(
+            List<String> callers = cached(ctx, instance, () -> instance.getMethodCallers(
                     SignatureConverter.extractJavaClassFQN(methodName),
                     isJVMSignature ? SignatureConverter.toJavaMethodSignature(methodName) :
                             methodName
-            );
+            ));
             if (callers != null) {
-                response.put("result", callers);
-                ctx.json(response);
+                respondList(ctx, response, callers);
             } else {
                 response.put("error", "Cannot find caller for method `" + methodName + "` because not find this method." );
                 ctx.status(404).json(response);
@@ -545,7 +1242,7 @@ public class McpServer {
         }
     }
 
-    public void handleGetClassCallers(Context ctx) {
+    public void handleGetClassCallers(ApiContext ctx) {
         Map<String, Object> response = new HashMap<>();
         String instanceId = ctx.queryParam("instanceId");
         String className = ctx.queryParam("className");
@@ -554,12 +1251,11 @@ public class McpServer {
         if (instance != null) {
             boolean isJVMSignature = SignatureConverter.isJVMSignature(className);
 
-            List<String> callers = instance.getClassCallers(
+            List<String> callers = cached(ctx, instance, () -> instance.getClassCallers(
                     isJVMSignature ? SignatureConverter.toJavaClassSignature(className) : className
-            );
+            ));
             if (callers != null) {
-                response.put("result", callers);
-                ctx.json(response);
+                respondList(ctx, response, callers);
             } else {
                 response.put("error", "Cannot find caller for class `" + className + "`." );
                 ctx.status(404).json(response);
@@ -570,7 +1266,7 @@ public class McpServer {
         }
     }
 
-    public void handleGetFieldCallers(Context ctx) {
+    public void handleGetFieldCallers(ApiContext ctx) {
         Map<String, Object> response = new HashMap<>();
         String instanceId = ctx.queryParam("instanceId");
         String fieldName = ctx.queryParam("fieldName");
@@ -579,13 +1275,12 @@ public class McpServer {
         if (instance != null) {
             boolean isJVMSignature = SignatureConverter.isJVMSignature(fieldName);
 
-            List<String> callers = instance.getFieldCallers(
+            List<String> callers = cached(ctx, instance, () -> instance.getFieldCallers(
                     SignatureConverter.extractJavaClassFQN(fieldName),
                     isJVMSignature ? SignatureConverter.toJavaFieldSignature(fieldName) : fieldName
-            );
+            ));
             if (callers != null) {
-                response.put("result", callers);
-                ctx.json(response);
+                respondList(ctx, response, callers);
             } else {
                 response.put("error", "Cannot find caller for field `" + fieldName + "`." );
                 ctx.status(404).json(response);
@@ -596,7 +1291,71 @@ public class McpServer {
         }
     }
 
-    public void handleGetMethodOverrides(Context ctx) {
+    public void handleGetFieldReaders(ApiContext ctx) {
+        respondFieldAccesses(ctx, false);
+    }
+
+    public void handleGetFieldWriters(ApiContext ctx) {
+        respondFieldAccesses(ctx, true);
+    }
+
+    /**
+     * 读写字段的方法来自加载时创建的字段读写索引，不需要反编译。
+     */
+    private void respondFieldAccesses(ApiContext ctx, boolean write) {
+        Map<String, Object> response = new HashMap<>();
+        String instanceId = ctx.queryParam("instanceId");
+        String fieldName = ctx.queryParam("fieldName");
+
+        JadxInstance instance = getJadx(instanceId);
+        if (instance != null) {
+            String javaField = SignatureConverter.isJVMSignature(fieldName) ?
+                    SignatureConverter.toJavaFieldSignature(fieldName) : fieldName;
+            // 类型中也有 `.`，先去掉类型再取类名
+            int typeStart = javaField != null ? javaField.indexOf(" :") : -1;
+            String className = SignatureConverter.extractJavaClassFQN(
+                    typeStart >= 0 ? javaField.substring(0, typeStart) : javaField);
+
+            List<Map<String, Object>> sites = className != null ?
+                    instance.getFieldAccesses(className, javaField, write) : null;
+            if (sites != null) {
+                respondList(ctx, response, sites);
+            } else {
+                response.put("error", "Cannot find field accesses of `" + fieldName + "`.");
+                ctx.status(404).json(response);
+            }
+        } else {
+            response.put("error", "Cannot find instance by provided instance id: " + instanceId);
+            ctx.status(404).json(response);
+        }
+    }
+
+    public void handleGetMethodFields(ApiContext ctx) {
+        Map<String, Object> response = new HashMap<>();
+        String instanceId = ctx.queryParam("instanceId");
+        String methodName = ctx.queryParam("methodName");
+
+        JadxInstance instance = getJadx(instanceId);
+        if (instance != null) {
+            boolean isJVMSignature = SignatureConverter.isJVMSignature(methodName);
+
+            Map<String, List<String>> fields = instance.getMethodFieldAccesses(
+                    SignatureConverter.extractJavaClassFQN(methodName),
+                    isJVMSignature ? SignatureConverter.toJavaMethodSignature(methodName) : methodName);
+            if (fields != null) {
+                response.put("result", fields);
+                ctx.json(response);
+            } else {
+                response.put("error", "Cannot find method `" + methodName + "`.");
+                ctx.status(404).json(response);
+            }
+        } else {
+            response.put("error", "Cannot find instance by provided instance id: " + instanceId);
+            ctx.status(404).json(response);
+        }
+    }
+
+    public void handleGetMethodOverrides(ApiContext ctx) {
         Map<String, Object> response = new HashMap<>();
         String instanceId = ctx.queryParam("instanceId");
         String methodName = ctx.queryParam("methodName");
@@ -622,7 +1381,175 @@ public class McpServer {
         }
     }
 
-    public void handleGetMultiMethodCallersTree(Context ctx) {
+    public void handleFindCallPaths(ApiContext ctx) {
+        Map<String, Object> response = new HashMap<>();
+        String instanceId = ctx.queryParam("instanceId");
+        String sourcesJson = ctx.queryParam("sources");
+        // 不指定源方法时从所有攻击面入口开始
+        List<String> sources = sourcesJson != null && !sourcesJson.isBlank() ?
+                parseMethodList(sourcesJson, "sources") : null;
+        List<String> sinks = parseMethodList(ctx.queryParam("sinks"), "sinks");
+        int maxDepth = ctx.queryParamAsClass("maxDepth", Integer.class)
+                .check(it -> it > 0 && it <= CallGraph.MAX_DEPTH, "Max depth must be between 1 and " + CallGraph.MAX_DEPTH)
+                .getOrDefault(CallGraph.DEFAULT_MAX_DEPTH);
+        int limit = ctx.queryParamAsClass("limit", Integer.class)
+                .check(it -> it > 0 && it <= CallGraph.MAX_LIMIT, "Limit must be between 1 and " + CallGraph.MAX_LIMIT)
+                .getOrDefault(CallGraph.DEFAULT_LIMIT);
+
+        JadxInstance instance = getJadx(instanceId);
+        CallGraph.Paths paths = instance != null ? instance.findCallPaths(sources, sinks, maxDepth, limit) : null;
+        if (paths != null) {
+            response.put("result", paths.paths());
+            response.put("visited", paths.visited());
+            if (paths.truncated()) response.put("truncated", true);
+            ctx.json(response);
+        } else {
+            response.put("error", "Cannot find instance by provided instance id: " + instanceId);
+            ctx.status(404).json(response);
+        }
+    }
+
+    /**
+     * 解析方法签名的 JSON 数组，JVM 格式的签名转换为 Java 格式。
+     * @throws IllegalArgumentException 格式无效或者数组为空。
+     */
+    private static List<String> parseMethodList(String json, String name) {
+        return parseStringList(json, name).stream()
+                .map(method -> SignatureConverter.isJVMSignature(method) ?
+                        SignatureConverter.toJavaMethodSignature(method) : method)
+                .toList();
+    }
+
+    /**
+     * 按字节码哈希比较两个实例，只反编译有变化的方法（最多 `maxCodeDiffs` 个）并输出代码差异。
+     * 两个实例可以分别在本进程或子进程中，子进程中的实例通过 `/get_bytecode_hashes` 和 `/get_methods_code` 获取数据。
+     */
+    public void handleDiffInstances(ApiContext ctx) {
+        Map<String, Object> response = new HashMap<>();
+        String baseId = ctx.queryParam("baseInstanceId");
+        String targetId = ctx.queryParam("targetInstanceId");
+        int maxCodeDiffs = ctx.queryParamAsClass("maxCodeDiffs", Integer.class)
+                .check(it -> it >= 0 && it <= InstanceDiff.MAX_CODE_DIFFS,
+                        "Max code diffs must be between 0 and " + InstanceDiff.MAX_CODE_DIFFS)
+                .getOrDefault(InstanceDiff.DEFAULT_CODE_DIFFS);
+
+        long start = System.currentTimeMillis();
+        Map<String, ClassHashes> base = getBytecodeHashes(baseId, ctx);
+        Map<String, ClassHashes> target = base != null ? getBytecodeHashes(targetId, ctx) : null;
+        if (target == null) {
+            response.put("error", "Cannot find instance by provided instance id: " + (base == null ? baseId : targetId));
+            ctx.status(404).json(response);
+            return;
+        }
+        ctx.json(InstanceDiff.compare(base, target, System.currentTimeMillis() - start, maxCodeDiffs,
+                methods -> getMethodsCode(baseId, methods, ctx), methods -> getMethodsCode(targetId, methods, ctx)));
+    }
+
+    public void handleGetBytecodeHashes(ApiContext ctx) {
+        Map<String, Object> response = new HashMap<>();
+        String instanceId = ctx.queryParam("instanceId");
+
+        JadxInstance instance = getJadx(instanceId);
+        Map<String, ClassHashes> hashes = instance != null ? instance.getBytecodeHashes() : null;
+        if (hashes != null) {
+            Map<String, Object> result = new HashMap<>();
+            hashes.forEach((name, classHashes) -> result.put(name, classHashes.toJson()));
+            response.put("result", result);
+            ctx.json(response);
+        } else {
+            response.put("error", "Cannot find instance by provided instance id: " + instanceId);
+            ctx.status(404).json(response);
+        }
+    }
+
+    public void handleGetMethodsCode(ApiContext ctx) {
+        Map<String, Object> response = new HashMap<>();
+        String instanceId = ctx.queryParam("instanceId");
+        List<String> methods = parseStringList(ctx.queryParam("methods"), "methods");
+
+        JadxInstance instance = getJadx(instanceId);
+        Map<String, String> codes = instance != null ? instance.getMethodsCode(methods) : null;
+        if (codes != null) {
+            response.put("result", codes);
+            ctx.json(response);
+        } else {
+            response.put("error", "Cannot find instance by provided instance id: " + instanceId);
+            ctx.status(404).json(response);
+        }
+    }
+
+    /**
+     * @return 实例的字节码哈希，实例在子进程中时从子进程获取；实例不存在时返回 null。
+     */
+    private Map<String, ClassHashes> getBytecodeHashes(String instanceId, ApiContext ctx) {
+        WorkerProcess worker = instanceId != null ? workerMap.get(instanceId) : null;
+        if (worker != null) {
+            JsonElement result = callWorker(worker, "/get_bytecode_hashes", Map.of(), ctx);
+            Map<String, ClassHashes> hashes = new HashMap<>();
+            for (Map.Entry<String, JsonElement> entry : result.getAsJsonObject().entrySet()) {
+                hashes.put(entry.getKey(), ClassHashes.fromJson(entry.getValue().getAsJsonObject()));
+            }
+            return hashes;
+        }
+        JadxInstance instance = getJadx(instanceId);
+        return instance != null ? instance.getBytecodeHashes() : null;
+    }
+
+    /**
+     * @return 方法签名到反编译代码，实例在子进程中时分批从子进程获取。
+     */
+    private Map<String, String> getMethodsCode(String instanceId, List<String> methods, ApiContext ctx) {
+        if (methods.isEmpty()) return Collections.emptyMap();
+        WorkerProcess worker = workerMap.get(instanceId);
+        if (worker == null) {
+            JadxInstance instance = getJadx(instanceId);
+            return instance != null ? instance.getMethodsCode(methods) : Collections.emptyMap();
+        }
+        Map<String, String> codes = new HashMap<>();
+        for (int index = 0; index < methods.size(); index += InstanceDiff.CODE_BATCH_SIZE) {
+            List<String> batch = methods.subList(index, Math.min(index + InstanceDiff.CODE_BATCH_SIZE, methods.size()));
+            JsonElement result = callWorker(worker, "/get_methods_code", Map.of("methods", List.of(gson.toJson(batch))), ctx);
+            for (Map.Entry<String, JsonElement> entry : result.getAsJsonObject().entrySet()) {
+                codes.put(entry.getKey(), entry.getValue().isJsonNull() ? null : entry.getValue().getAsString());
+            }
+        }
+        return codes;
+    }
+
+    /**
+     * 调用子进程中实例的接口，返回响应中的 `result`。
+     * @throws WorkerException 子进程无法连接或者返回了错误。
+     */
+    private JsonElement callWorker(WorkerProcess worker, String path, Map<String, List<String>> params, ApiContext ctx) {
+        HttpResponse<String> response = worker.call(path, params, getClientId(ctx));
+        JsonElement body = JsonParser.parseString(response.body());
+        if (response.statusCode() != 200 || !body.isJsonObject() || !body.getAsJsonObject().has("result")) {
+            throw new WorkerException("Worker failed on `" + path + "` with status " + response.statusCode() +
+                    ": " + response.body());
+        }
+        return body.getAsJsonObject().get("result");
+    }
+
+    /**
+     * 解析字符串的 JSON 数组。
+     * @throws IllegalArgumentException 格式无效或者数组为空。
+     */
+    private static List<String> parseStringList(String json, String name) {
+        List<String> values;
+        try {
+            Type listType = new com.google.gson.reflect.TypeToken<List<String>>(){}.getType();
+            values = new Gson().fromJson(json, listType);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid " + name + " format. Expected JSON array of strings: " +
+                    e.getMessage());
+        }
+        if (values == null || values.isEmpty()) {
+            throw new IllegalArgumentException(name + " list is empty or null");
+        }
+        return values;
+    }
+
+    public void handleGetMultiMethodCallersTree(ApiContext ctx) {
         Map<String, Object> response = new HashMap<>();
         String instanceId = ctx.queryParam("instanceId");
         String methodsJson = ctx.queryParam("methods");
@@ -651,10 +1578,36 @@ public class McpServer {
             return;
         }
 
-        Map<String, Set<String>> callersMap = new LinkedHashMap<>();
-        Set<String> topMethods = new LinkedHashSet<>();
+        this.<Map.Entry<String, List<String>>>respondScan(ctx, instance.getQueryCache(), response,
+                (start, sink) -> scanCallersTree(instance, methods, start, sink),
+                (items, result) -> {
+                    Map<String, List<String>> callersMapResult = new LinkedHashMap<>();
+                    List<String> topMethods = new ArrayList<>();
+                    for (Map.Entry<String, List<String>> entry : items) {
+                        if (entry.getValue().isEmpty()) {
+                            topMethods.add(entry.getKey());
+                        } else {
+                            callersMapResult.put(entry.getKey(), entry.getValue());
+                        }
+                    }
+                    result.put("result", callersMapResult);
+                    result.put("topMethods", topMethods);
+                },
+                item -> item.getValue().isEmpty() ?
+                        Collections.singletonMap("topMethod", item.getKey()) :
+                        Collections.singletonMap("result", entryToMap(item)));
+    }
+
+    /**
+     * 按 BFS 顺序展开调用者，每展开一个方法产生一个 (方法, 调用者列表) 结果，没有调用者的是顶层方法。
+     * BFS 的顺序是确定的，分页时重新执行 BFS 并跳过游标之前已经返回的方法。
+     */
+    private static ScanCursor scanCallersTree(JadxInstance instance, List<String> methods, ScanCursor start,
+                                              ResultSink<Map.Entry<String, List<String>>> sink) {
         Deque<String> queue = new ArrayDeque<>();
         Set<String> visited = new HashSet<>();
+        Cancellation cancellation = Cancellation.current();
+        int expanded = 0;
 
         for (String method : methods) {
             if (method != null && !method.isBlank()) {
@@ -664,9 +1617,14 @@ public class McpServer {
 
         while (!queue.isEmpty()) {
             String methodSig = queue.poll();
-            if (!visited.add(methodSig)) {
+            if (visited.contains(methodSig)) {
                 continue;
             }
+            if (cancellation.isCancelled()) {
+                return new ScanCursor(expanded, 0);
+            }
+            visited.add(methodSig);
+            expanded++;
 
             boolean isJVMSignature = SignatureConverter.isJVMSignature(methodSig);
             String className = SignatureConverter.extractJavaClassFQN(methodSig);
@@ -676,33 +1634,22 @@ public class McpServer {
             if (callers == null) {
                 callers = Collections.emptyList();
             }
+            List<String> distinctCallers = new ArrayList<>(new LinkedHashSet<>(callers));
 
-            if (callers.isEmpty()) {
-                topMethods.add(methodSig);
-            }
-
-            callersMap.computeIfAbsent(methodSig, key -> new LinkedHashSet<>()).addAll(callers);
-
-            for (String caller : callers) {
+            for (String caller : distinctCallers) {
                 if (caller != null && !caller.isBlank()) {
                     queue.add(caller);
                 }
             }
-        }
 
-        Map<String, List<String>> callersMapResult = new LinkedHashMap<>();
-        for (Map.Entry<String, Set<String>> entry : callersMap.entrySet()) {
-            if(!entry.getValue().isEmpty()) {
-                callersMapResult.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+            if (expanded > start.getIndex() && !sink.accept(new AbstractMap.SimpleEntry<>(methodSig, distinctCallers))) {
+                return queue.isEmpty() ? null : new ScanCursor(expanded, 0);
             }
         }
-
-        response.put("result", callersMapResult);
-        response.put("topMethods", new ArrayList<>(topMethods));
-        ctx.json(response);
+        return null;
     }
 
-    public void handleSearchAidlClasses(Context ctx) {
+    public void handleSearchAidlClasses(ApiContext ctx) {
         Map<String, Object> response = new HashMap<>();
         String instanceId = ctx.queryParam("instanceId");
 
@@ -722,7 +1669,7 @@ public class McpServer {
         }
     }
 
-    public void handleGetAidlMethods(Context ctx) {
+    public void handleGetAidlMethods(ApiContext ctx) {
         Map<String, Object> response = new HashMap<>();
         String instanceId = ctx.queryParam("instanceId");
         String className = ctx.queryParam("className");
@@ -747,7 +1694,7 @@ public class McpServer {
         }
     }
 
-    public void handleGetAidlImplClass(Context ctx) {
+    public void handleGetAidlImplClass(ApiContext ctx) {
         Map<String, Object> response = new HashMap<>();
         String instanceId = ctx.queryParam("instanceId");
         String className = ctx.queryParam("className");
@@ -773,7 +1720,7 @@ public class McpServer {
         }
     }
 
-    public void handleUpdateMaxInstanceCount(Context ctx) {
+    public void handleUpdateMaxInstanceCount(ApiContext ctx) {
 		Map<String, Object> response = new HashMap<>();
 		maxInstanceCount = ctx.queryParamAsClass("count", Integer.class)
 				.check(it -> it == null || it > 0, "Count must be positive")
@@ -781,8 +1728,232 @@ public class McpServer {
 		ctx.json(response);
 	}
 
+    private interface Scan<T> {
+        ScanCursor run(ScanCursor start, ResultSink<T> sink);
+    }
+
+    /**
+     * 按 `cursor`/`limit`/`stream` 参数返回扫描结果。
+     * 未指定这些参数时与原来一样一次返回全部结果，指定 `limit` 后额外返回 `nextCursor`，
+     * `stream=true` 时以 NDJSON 逐条输出，最后一行包含 `nextCursor`。
+     * 指定 cache 时完整计算出的一页结果会被缓存，相同的查询直接返回或重放缓存。
+     * 游标中记录实例的加载代数，实例重新加载后旧的游标返回 400。
+     */
+    private <T> void respondScan(ApiContext ctx, QueryCache cache, Map<String, Object> response, Scan<T> scan,
+                                 BiConsumer<List<T>, Map<String, Object>> putResult, Function<T, Object> toLine) {
+        PageRequest pageRequest = getPageRequest(ctx);
+        JadxInstance instance = getJadx(ctx.queryParam("instanceId"));
+        long generation = instance != null ? instance.getLoadGeneration() : 0;
+        long cursorGeneration = pageRequest.getCursor().getGeneration();
+        if (cursorGeneration != 0 && generation != 0 && cursorGeneration != generation) {
+            throw new IllegalArgumentException("The instance was reloaded after the cursor was returned, " +
+                    "please start again without `cursor`.");
+        }
+        int limit = pageRequest.getLimit();
+        NdjsonWriter writer = isStream(ctx) ? openStream(ctx) : null;
+        boolean[] streamed = {false};
+
+        Supplier<QueryCache.Result<ScanPage<T>>> loader = () -> {
+            List<T> items = new ArrayList<>();
+            ScanCursor nextCursor = scan.run(pageRequest.getCursor(), item -> {
+                items.add(item);
+                if (writer != null && !writer.write(toLine.apply(item))) return false;
+                return items.size() < limit;
+            });
+            streamed[0] = true;
+            boolean complete = Cancellation.current().getReason() == null && (writer == null || !writer.isClosed());
+            return new QueryCache.Result<>(new ScanPage<>(items, nextCursor), complete);
+        };
+        ScanPage<T> page = cache != null ? cache.get(getQueryKey(ctx), loader) : loader.get().value;
+        String nextCursor = page.getNextCursor() != null ?
+                page.getNextCursor().withGeneration(generation).toString() : null;
+
+        if (writer != null) {
+            if (!streamed[0]) {
+                for (T item : page.getItems()) {
+                    if (!writer.write(toLine.apply(item))) return;
+                }
+            }
+            if (!writer.isClosed()) {
+                Map<String, Object> line = new HashMap<>();
+                putCancellation(line);
+                line.put("done", nextCursor == null);
+                line.put("nextCursor", nextCursor);
+                writer.write(line);
+            }
+            return;
+        }
+
+        putResult.accept(page.getItems(), response);
+        if (isPaged(ctx) || putCancellation(response)) {
+            response.put("nextCursor", nextCursor);
+        }
+        ctx.json(response);
+    }
+
+    /**
+     * 请求在完成前被取消时标记结果为部分结果。
+     *
+     * @return 是否被取消。
+     */
+    private static boolean putCancellation(Map<String, Object> response) {
+        String reason = Cancellation.current().getReason();
+        if (reason == null) return false;
+        response.put("partial", true);
+        response.put("note", "Request cancelled (" + reason + "), only partial results are returned, " +
+                "use `nextCursor` to continue.");
+        return true;
+    }
+
+    private void respondListScan(ApiContext ctx, QueryCache cache, Map<String, Object> response, Scan<String> scan) {
+        respondScan(ctx, cache, response, scan,
+                (items, result) -> result.put("result", items),
+                item -> Collections.singletonMap("result", item));
+    }
+
+    private void respondMapScan(ApiContext ctx, QueryCache cache, Map<String, Object> response,
+                                Scan<Map.Entry<String, List<String>>> scan) {
+        respondScan(ctx, cache, response, scan,
+                (items, result) -> result.put("result", entriesToMap(items)),
+                item -> Collections.singletonMap("result", entryToMap(item)));
+    }
+
+    private <T> void respondList(ApiContext ctx, Map<String, Object> response, List<T> list) {
+        this.<T>respondScan(ctx, null, response, (start, sink) -> {
+            for (int i = start.getIndex(); i < list.size(); i++) {
+                if (!sink.accept(list.get(i))) {
+                    return i + 1 < list.size() ? new ScanCursor(i + 1, 0) : null;
+                }
+            }
+            return null;
+        }, (items, result) -> result.put("result", items), item -> Collections.singletonMap("result", item));
+    }
+
+    private NdjsonWriter openStream(ApiContext ctx) {
+        return new NdjsonWriter(ctx.openStream(NdjsonWriter.CONTENT_TYPE), gson);
+    }
+
+    /**
+     * 查询缓存的 key：请求路径加上排序后的参数，不包含只影响传输方式的参数，JSON 参数统一格式。
+     */
+    private String getQueryKey(ApiContext ctx) {
+        return getQueryKey(ctx, NON_KEY_PARAMS);
+    }
+
+    private String getQueryKey(ApiContext ctx, Set<String> excludedParams) {
+        StringBuilder key = new StringBuilder(ctx.path());
+        new TreeMap<>(ctx.queryParamMap()).forEach((name, values) -> {
+            if (excludedParams.contains(name)) return;
+            for (String value : values) {
+                key.append('&').append(name).append('=').append(normalizeParam(value));
+            }
+        });
+        return key.toString();
+    }
+
+    private String normalizeParam(String value) {
+        String trimmed = value.trim();
+        if (trimmed.startsWith("[") || trimmed.startsWith("{")) {
+            try {
+                return gson.toJson(JsonParser.parseString(trimmed));
+            } catch (RuntimeException ignored) {
+                // 不是合法 JSON，按原样使用
+            }
+        }
+        return trimmed;
+    }
+
+    /**
+     * 缓存完整的结果列表，key 不包含分页参数，不同的分页请求共享同一份结果。
+     */
+    private <T> T cached(ApiContext ctx, JadxInstance instance, Supplier<T> loader) {
+        return instance.getQueryCache().get(getQueryKey(ctx, NON_LIST_KEY_PARAMS),
+                () -> new QueryCache.Result<>(loader.get(), true));
+    }
+
+    private PageRequest getPageRequest(ApiContext ctx) {
+        Integer limit = ctx.queryParamAsClass("limit", Integer.class)
+                .allowNullable()
+                .check(it -> it == null || it > 0, "Limit must be positive")
+                .get();
+        return PageRequest.of(ctx.queryParam("cursor"), limit);
+    }
+
+    private static boolean isPaged(ApiContext ctx) {
+        return ctx.queryParam("limit") != null || ctx.queryParam("cursor") != null;
+    }
+
+    private static boolean isStream(ApiContext ctx) {
+        return Boolean.parseBoolean(ctx.queryParam("stream"));
+    }
+
+    private static Map<String, List<String>> entriesToMap(List<Map.Entry<String, List<String>>> entries) {
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> entry : entries) {
+            result.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    private static Map<String, List<String>> entryToMap(Map.Entry<String, List<String>> entry) {
+        return Collections.singletonMap(entry.getKey(), entry.getValue());
+    }
+
+    public void handleGetSchedulerStats(ApiContext ctx) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("result", scheduler.getStats());
+        ctx.json(response);
+    }
+
+    public void handleGetInstanceStats(ApiContext ctx) {
+        Map<String, Object> response = new HashMap<>();
+        String instanceId = ctx.queryParam("instanceId");
+
+        JadxInstance instance = getJadx(instanceId);
+        if (instance != null) {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("cache", instance.getQueryCache().getStats());
+            stats.put("load", instance.getLoadStats());
+            stats.put("scanCache", instance.getScanCodeStats());
+            stats.put("quarantine", instance.getQuarantineStats());
+            Map<String, Object> warmUpStats = instance.getWarmUpStats();
+            if (warmUpStats != null) stats.put("warmUp", warmUpStats);
+            response.put("result", stats);
+            ctx.json(response);
+        } else {
+            response.put("error", "Cannot find instance by provided instance id: " + instanceId);
+            ctx.status(404).json(response);
+        }
+    }
+
+    public void handleGetMemoryStats(ApiContext ctx) {
+        Map<String, Object> response = new HashMap<>();
+        Map<String, Object> stats = heapBudget.getStats();
+
+        Map<String, Object> instances = new LinkedHashMap<>();
+        jadxInstanceMap.forEach((instanceId, instance) -> {
+            Map<String, Object> instanceStats = new LinkedHashMap<>();
+            instanceStats.put("path", instance.getFilePath());
+            instanceStats.put("heapBytes", instance.getHeapFootprint());
+            instances.put(instanceId, instanceStats);
+        });
+        stats.put("instances", instances);
+        stats.put("sharedCode", sharedCodeStore.getStats());
+
+        Map<String, Object> workers = new LinkedHashMap<>();
+        workerMap.forEach((instanceId, worker) -> workers.put(instanceId, worker.getStats()));
+        stats.put("workerMode", workerLauncher.getMode().name().toLowerCase());
+        stats.put("workers", workers);
+
+        response.put("result", stats);
+        ctx.json(response);
+    }
+
 	private JadxInstance getJadx(String instanceId) {
-		return jadxInstanceMap.get(instanceId);
+		if (instanceId == null) return null;
+		JadxInstance instance = jadxInstanceMap.get(instanceId);
+		if (instance != null) instance.touch();
+		return instance;
 	}
 
     private String findJadxByPath(String path) {
@@ -792,6 +1963,25 @@ public class McpServer {
                 return instanceId;
             }
         }
+        for (Map.Entry<String, WorkerProcess> entry : workerMap.entrySet()) {
+            if (path.equals(entry.getValue().getPath())) {
+                return entry.getKey();
+            }
+        }
         return null;
     }
+
+    /**
+     * 与传输方式无关的请求处理器。
+     */
+    @FunctionalInterface
+    interface ApiHandler {
+        void handle(ApiContext ctx) throws Exception;
+    }
+
+    /**
+     * @param priority 需要调度准入的优先级，null 表示直接执行。
+     */
+    private record Route(Priority priority, ApiHandler handler) {
+    }
 }
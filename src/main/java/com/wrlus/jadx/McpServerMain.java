@@ -1,8 +1,20 @@
 package com.wrlus.jadx;
 
+import com.wrlus.jadx.memory.HeapBudget;
+import com.wrlus.jadx.remote.WorkerLauncher;
+import com.wrlus.jadx.scheduler.WorkScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
 public class McpServerMain {
+	private static final Logger logger = LoggerFactory.getLogger(McpServerMain.class);
 	public static final String DEFAULT_HOST = "localhost";
 	public static final int DEFAULT_PORT = 8651;
+	public static final String ENV_TRANSPORT = "JADX_DAEMON_MCP_TRANSPORT";
 
 	public static void main(String[] args) {
 		String host = System.getenv("JADX_DAEMON_MCP_HOST");
@@ -12,7 +24,33 @@ public class McpServerMain {
 		if (host == null) host = DEFAULT_HOST;
 		if (portString != null) port = Integer.parseInt(portString);
 
-		McpServer server = new McpServer(host, port);
+		if ("router".equalsIgnoreCase(System.getenv("JADX_DAEMON_MCP_MODE"))) {
+			// 路由模式，实例分布到 JADX_DAEMON_MCP_BACKENDS 列出的后端守护进程
+			String backends = System.getenv("JADX_DAEMON_MCP_BACKENDS");
+			if (backends == null || backends.isBlank()) {
+				throw new IllegalArgumentException("JADX_DAEMON_MCP_BACKENDS is required in router mode.");
+			}
+			List<String> backendList = new ArrayList<>();
+			for (String backend : backends.split(",")) {
+				if (!backend.isBlank()) backendList.add(backend.trim().replaceAll("/+$", ""));
+			}
+			new McpRouter(host, port, backendList).start();
+			return;
+		}
+
+		McpServer server = McpServer.create(host, port, WorkScheduler.fromEnv(), HeapBudget.fromEnv(),
+				WorkerLauncher.fromEnv());
+		if ("stdio".equalsIgnoreCase(System.getenv(ENV_TRANSPORT))) {
+			// MCP 客户端直接启动守护进程，通过标准输入输出通信，不启动 HTTP 服务
+			try {
+				server.runStdio();
+			} catch (IOException e) {
+				logger.error("MCP stdio transport failed", e);
+			} finally {
+				server.stop();
+			}
+			System.exit(0);
+		}
 		try {
             server.start();
         } catch (Exception e) {
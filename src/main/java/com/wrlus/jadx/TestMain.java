@@ -1,5 +1,9 @@
 package com.wrlus.jadx;
 
+import com.wrlus.jadx.cache.SharedCodeStore;
+import com.wrlus.jadx.load.LoadOptions;
+import com.wrlus.jadx.scheduler.WorkScheduler;
+
 import java.util.List;
 
 public class TestMain {
@@ -7,7 +11,8 @@ public class TestMain {
     public static void testAIDL() {
         String aidlClass = "android.app.IActivityManager";
         String path = "/home/xiaolu/Firmware/Android/Google/shiba_16_BP3A.251105.015/packages/android/";
-        JadxInstance instance = new JadxInstance(path);
+        JadxInstance instance = new JadxInstance(path, WorkScheduler.fromEnv(), SharedCodeStore.fromEnv(),
+                LoadOptions.fromEnv());
         instance.loadDir();
 
         String aidlImplClass = instance.getAidlImplClass(aidlClass);
@@ -3,10 +3,13 @@ package com.wrlus.jadx.aidl;
 import jadx.api.JavaClass;
 import jadx.api.JavaMethod;
 import jadx.core.dex.instructions.args.ArgType;
+import jadx.core.dex.nodes.ClassNode;
+import jadx.core.dex.nodes.MethodNode;
 
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public class AidlClass {
@@ -36,35 +39,21 @@ public class AidlClass {
      * @return 如果是AIDL，返回一个AidlClass，否则返回null。
      */
     public static AidlClass fromInterface(JavaClass interfaceClass) {
-        JavaClass innerClassDefault = null;
-        JavaClass innerClassStub = null;
-        JavaClass innerClassStubProxy = null;
-
-        List<JavaClass> innerClasses = interfaceClass.getInnerClasses();
-
-        for (JavaClass innerClass : innerClasses) {
-            if (innerClass.getName().equals(AIDL_DEFAULT)) {
-                innerClassDefault = innerClass;
-            } else if (innerClass.getName().equals(AIDL_STUB)) {
-                innerClassStub = innerClass;
-            }
-            if (innerClassDefault != null && innerClassStub != null)
-                break;
-        }
-        if (innerClassDefault != null && innerClassStub != null) {
-            List<JavaClass> stubInnerClasses = innerClassStub.getInnerClasses();
-            for (JavaClass innerClass : stubInnerClasses) {
-                if (innerClass.getName().equals(AIDL_STUB_PROXY)) {
-                    innerClassStubProxy = innerClass;
-                    break;
-                }
-            }
+        // 使用 ClassNode 的内部类列表，JavaClass.getInnerClasses 会反编译整个类
+        ClassNode innerClassStub = findInner(interfaceClass.getClassNode(), AIDL_STUB);
+        if (innerClassStub != null &&
+                findInner(interfaceClass.getClassNode(), AIDL_DEFAULT) != null &&
+                findInner(innerClassStub, AIDL_STUB_PROXY) != null) {
+            return new AidlClass(interfaceClass);
         }
+        return null;
+    }
 
-        if (innerClassDefault != null &&
-                innerClassStub != null &&
-                innerClassStubProxy != null) {
-            return new AidlClass(interfaceClass);
+    private static ClassNode findInner(ClassNode cls, String name) {
+        for (ClassNode innerClass : cls.getInnerClasses()) {
+            if (innerClass.getClassInfo().getAliasShortName().equals(name)) {
+                return innerClass;
+            }
         }
         return null;
     }
@@ -77,6 +66,28 @@ public class AidlClass {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * @return 接口的 Stub 内部类，其中的 onTransact 分发 Binder 调用。
+     */
+    public ClassNode getStubClass() {
+        return findInner(interfaceClass.getClassNode(), AIDL_STUB);
+    }
+
+    /**
+     * 只读取方法信息，不反编译。
+     * @return 实现类中实现 AIDL 接口方法的方法，找不到实现类时返回空列表。
+     */
+    public List<MethodNode> getImplMethods(IClassSearch classSearcher) {
+        JavaClass impl = findImpl(classSearcher, false);
+        if (impl == null) return Collections.emptyList();
+        Set<String> aidlMethods = interfaceClass.getClassNode().getMethods().stream()
+                .map(method -> method.getMethodInfo().getShortId())
+                .collect(Collectors.toSet());
+        return impl.getClassNode().getMethods().stream()
+                .filter(method -> aidlMethods.contains(method.getMethodInfo().getShortId()))
+                .collect(Collectors.toList());
+    }
+
     public JavaClass findImpl(IClassSearch classSearcher, boolean force) {
         if (implClass != null && !force) {
             return implClass;
@@ -0,0 +1,259 @@
+package com.wrlus.jadx.cache;
+
+import jadx.api.ICodeInfo;
+import jadx.api.impl.AnnotatedCodeInfo;
+import jadx.api.metadata.ICodeAnnotation;
+import jadx.api.metadata.ICodeNodeRef;
+import jadx.api.metadata.annotations.InsnCodeOffset;
+import jadx.api.metadata.annotations.NodeDeclareRef;
+import jadx.api.metadata.annotations.NodeEnd;
+import jadx.api.metadata.annotations.VarNode;
+import jadx.api.metadata.annotations.VarRef;
+import jadx.core.dex.instructions.args.ArgType;
+import jadx.core.dex.nodes.ClassNode;
+import jadx.core.dex.nodes.FieldNode;
+import jadx.core.dex.nodes.MethodNode;
+import jadx.core.dex.nodes.PackageNode;
+import jadx.core.dex.nodes.RootNode;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 与 RootNode 无关的反编译代码：代码文本和行号映射不变，元数据中引用的类、方法、字段和变量换成按名称的符号引用。
+ * 不持有任何节点，可以在实例卸载后保留；附加到另一个 RootNode 时按名称找回对应的节点，
+ * 并和 jadx 生成代码时一样记录声明的位置。
+ * 代码中 loaded from 注释里的输入文件名换成另一个实例中的文件名，其后的元数据位置随之移动。
+ */
+public class DetachedCode {
+    private static final String LOADED_FROM = "/* loaded from: ";
+
+    private final String code;
+    private final Map<Integer, Integer> lineMapping;
+    /* 类和内部类的原始类名到输入文件名 */
+    private final Map<String, String> inputFileNames;
+    private final int[] positions;
+    /* 符号引用，或者与节点无关、可以直接共用的元数据（指令偏移、结束标记） */
+    private final Object[] annotations;
+
+    private sealed interface NodeRef permits ClassRef, MethodRef, FieldRef, VarDecl, PkgRef {
+    }
+
+    private record ClassRef(String rawName) implements NodeRef {
+    }
+
+    private record MethodRef(String clsRawName, String shortId) implements NodeRef {
+    }
+
+    private record FieldRef(String clsRawName, String shortId) implements NodeRef {
+    }
+
+    /* 同一个变量的所有引用共用一个对象，附加时按对象对应到同一个 VarNode */
+    private record VarDecl(MethodRef method, int reg, int ssa, ArgType type, String name) implements NodeRef {
+    }
+
+    private record PkgRef(String fullName) implements NodeRef {
+    }
+
+    private record Declaration(NodeRef node) {
+    }
+
+    private record VarPos(int pos) {
+    }
+
+    private DetachedCode(String code, Map<Integer, Integer> lineMapping, Map<String, String> inputFileNames,
+                         int[] positions, Object[] annotations) {
+        this.code = code;
+        this.lineMapping = lineMapping;
+        this.inputFileNames = inputFileNames;
+        this.positions = positions;
+        this.annotations = annotations;
+    }
+
+    /**
+     * @param topClass 代码所属的顶层类。
+     * @return 元数据中有不认识的类型时返回 null。
+     */
+    public static DetachedCode detach(ClassNode topClass, ICodeInfo codeInfo) {
+        if (!codeInfo.hasMetadata()) return null;
+        Map<Integer, ICodeAnnotation> metadata = codeInfo.getCodeMetadata().getAsMap();
+        int[] positions = new int[metadata.size()];
+        Object[] annotations = new Object[metadata.size()];
+        Map<VarNode, VarDecl> vars = new IdentityHashMap<>();
+        int index = 0;
+        for (Map.Entry<Integer, ICodeAnnotation> entry : metadata.entrySet()) {
+            Object annotation = detachAnnotation(entry.getValue(), vars);
+            if (annotation == null) return null;
+            positions[index] = entry.getKey();
+            annotations[index] = annotation;
+            index++;
+        }
+        Map<String, String> inputFileNames = new HashMap<>();
+        collectInputFileNames(topClass, inputFileNames);
+        return new DetachedCode(codeInfo.getCodeStr(), Map.copyOf(codeInfo.getCodeMetadata().getLineMapping()),
+                Map.copyOf(inputFileNames), positions, annotations);
+    }
+
+    private static void collectInputFileNames(ClassNode cls, Map<String, String> names) {
+        names.put(cls.getRawName(), cls.getClsData().getInputFileName());
+        for (ClassNode inner : cls.getInnerClasses()) {
+            collectInputFileNames(inner, names);
+        }
+    }
+
+    private static Object detachAnnotation(ICodeAnnotation annotation, Map<VarNode, VarDecl> vars) {
+        if (annotation instanceof NodeDeclareRef declareRef) {
+            NodeRef node = detachNode(declareRef.getNode(), vars);
+            return node != null ? new Declaration(node) : null;
+        }
+        if (annotation instanceof ICodeNodeRef node) {
+            return detachNode(node, vars);
+        }
+        if (annotation instanceof VarRef varRef) {
+            // 引用变量声明的位置，代码文本相同，位置也相同
+            return new VarPos(varRef.getRefPos());
+        }
+        if (annotation instanceof InsnCodeOffset || annotation instanceof NodeEnd) {
+            return annotation;
+        }
+        return null;
+    }
+
+    private static NodeRef detachNode(ICodeNodeRef node, Map<VarNode, VarDecl> vars) {
+        if (node instanceof ClassNode cls) {
+            return new ClassRef(cls.getRawName());
+        }
+        if (node instanceof MethodNode method) {
+            return methodRef(method);
+        }
+        if (node instanceof FieldNode field) {
+            return new FieldRef(field.getParentClass().getRawName(), field.getFieldInfo().getShortId());
+        }
+        if (node instanceof VarNode var) {
+            return vars.computeIfAbsent(var, it ->
+                    new VarDecl(methodRef(it.getMth()), it.getReg(), it.getSsa(), it.getType(), it.getName()));
+        }
+        if (node instanceof PackageNode pkg) {
+            return new PkgRef(pkg.getPkgInfo().getFullName());
+        }
+        return null;
+    }
+
+    private static MethodRef methodRef(MethodNode method) {
+        return new MethodRef(method.getParentClass().getRawName(), method.getMethodInfo().getShortId());
+    }
+
+    /**
+     * @param root 使用代码的 RootNode。
+     * @return 引用 root 中节点的代码，有节点找不到时返回 null，调用者重新反编译。
+     */
+    public ICodeInfo attach(RootNode root) {
+        // 替换输入文件名的位置和长度变化，按位置排序
+        TreeMap<Integer, String[]> renames = new TreeMap<>();
+        for (Map.Entry<String, String> entry : inputFileNames.entrySet()) {
+            ClassNode cls = root.resolveRawClass(entry.getKey());
+            if (cls == null) return null;
+            String newName = cls.getClsData().getInputFileName();
+            if (newName.equals(entry.getValue())) continue;
+            String comment = LOADED_FROM + entry.getValue() + " */";
+            for (int pos = code.indexOf(comment); pos != -1; pos = code.indexOf(comment, pos + 1)) {
+                renames.put(pos + LOADED_FROM.length(), new String[]{entry.getValue(), newName});
+            }
+        }
+        String attachedCode = code;
+        int[] shifts = new int[renames.size()];
+        int[] renamePositions = new int[renames.size()];
+        if (!renames.isEmpty()) {
+            StringBuilder sb = new StringBuilder(code.length() + 64);
+            int last = 0;
+            int shift = 0;
+            int index = 0;
+            for (Map.Entry<Integer, String[]> rename : renames.entrySet()) {
+                int pos = rename.getKey();
+                sb.append(code, last, pos).append(rename.getValue()[1]);
+                last = pos + rename.getValue()[0].length();
+                shift += rename.getValue()[1].length() - rename.getValue()[0].length();
+                renamePositions[index] = pos;
+                shifts[index++] = shift;
+            }
+            sb.append(code, last, code.length());
+            attachedCode = sb.toString();
+        }
+
+        Map<VarDecl, VarNode> vars = new IdentityHashMap<>();
+        Map<Integer, ICodeAnnotation> metadata = new HashMap<>();
+        for (int i = 0; i < positions.length; i++) {
+            ICodeAnnotation annotation = attachAnnotation(annotations[i], root, vars);
+            if (annotation == null) return null;
+            metadata.put(shiftPosition(positions[i], renamePositions, shifts), annotation);
+        }
+        for (Map.Entry<Integer, ICodeAnnotation> entry : metadata.entrySet()) {
+            if (entry.getValue() instanceof NodeDeclareRef declareRef) {
+                declareRef.setDefPos(entry.getKey());
+                declareRef.getNode().setDefPosition(entry.getKey());
+            }
+        }
+        return new AnnotatedCodeInfo(attachedCode, lineMapping, metadata);
+    }
+
+    /**
+     * 注释不包含元数据，位置只会在替换的文件名之后。
+     */
+    private static int shiftPosition(int pos, int[] renamePositions, int[] shifts) {
+        int shift = 0;
+        for (int i = 0; i < renamePositions.length && renamePositions[i] < pos; i++) {
+            shift = shifts[i];
+        }
+        return pos + shift;
+    }
+
+    private static ICodeAnnotation attachAnnotation(Object annotation, RootNode root, Map<VarDecl, VarNode> vars) {
+        if (annotation instanceof Declaration declaration) {
+            ICodeNodeRef node = attachNode(declaration.node(), root, vars);
+            return node != null ? new NodeDeclareRef(node) : null;
+        }
+        if (annotation instanceof NodeRef ref) {
+            return attachNode(ref, root, vars);
+        }
+        if (annotation instanceof VarPos varPos) {
+            return VarRef.fromPos(varPos.pos());
+        }
+        return (ICodeAnnotation) annotation;
+    }
+
+    private static ICodeNodeRef attachNode(NodeRef ref, RootNode root, Map<VarDecl, VarNode> vars) {
+        return switch (ref) {
+            case ClassRef cls -> root.resolveRawClass(cls.rawName());
+            case MethodRef method -> attachMethod(method, root);
+            case FieldRef field -> {
+                ClassNode cls = root.resolveRawClass(field.clsRawName());
+                yield cls != null ? cls.searchFieldByShortId(field.shortId()) : null;
+            }
+            case VarDecl var -> {
+                VarNode node = vars.get(var);
+                if (node == null) {
+                    MethodNode method = attachMethod(var.method(), root);
+                    if (method == null) yield null;
+                    node = new VarNode(method, var.reg(), var.ssa(), var.type(), var.name());
+                    vars.put(var, node);
+                }
+                yield node;
+            }
+            case PkgRef pkg -> root.resolvePackage(pkg.fullName());
+        };
+    }
+
+    private static MethodNode attachMethod(MethodRef method, RootNode root) {
+        ClassNode cls = root.resolveRawClass(method.clsRawName());
+        return cls != null ? cls.searchMethodByShortId(method.shortId()) : null;
+    }
+
+    /**
+     * @return 估算的堆占用：代码文本和每条元数据的引用对象。
+     */
+    public long estimateBytes() {
+        return 64 + (long) code.length() * 2 + positions.length * 56L;
+    }
+}
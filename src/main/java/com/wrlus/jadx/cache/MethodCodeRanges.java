@@ -0,0 +1,137 @@
+package com.wrlus.jadx.cache;
+
+import jadx.api.ICodeInfo;
+import jadx.api.metadata.ICodeAnnotation;
+import jadx.api.metadata.ICodeNodeRef;
+import jadx.api.metadata.annotations.NodeDeclareRef;
+import jadx.core.dex.nodes.ClassNode;
+import jadx.core.dex.nodes.MethodNode;
+
+import java.lang.ref.WeakReference;
+import java.nio.CharBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 顶层类代码中每个方法（包括内部类的方法）的代码范围，遍历一次代码元数据得到。
+ * 方法代码是类代码的切片，不需要像 {@link jadx.api.JavaMethod#getCodeStr()} 那样为每个方法重新搜索元数据和复制字符串。
+ * 范围只对计算时的代码有效，类重新反编译后重新计算；不持有代码本身，不影响代码缓存的释放。
+ */
+public class MethodCodeRanges {
+    private final WeakReference<ICodeInfo> source;
+    private final MethodNode[] methods;
+    private final int[] starts;
+    private final int[] ends;
+
+    private MethodCodeRanges(ICodeInfo source, MethodNode[] methods, int[] starts, int[] ends) {
+        this.source = new WeakReference<>(source);
+        this.methods = methods;
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    /**
+     * 与 jadx 的 CodeUtils.extractMethodCode 相同的范围：从方法声明前的空行之后开始，到方法声明对应的结束位置为止。
+     */
+    public static MethodCodeRanges build(ClassNode topClass, ICodeInfo codeInfo) {
+        String code = codeInfo.getCodeStr();
+        String newLine = topClass.root().getArgs().getCodeNewLineStr();
+        String emptyLine = newLine + newLine;
+        List<MethodNode> methods = new ArrayList<>();
+        List<int[]> ranges = new ArrayList<>();
+        if (codeInfo.hasMetadata()) {
+            // 元数据按位置倒序保存，按正序遍历；类和方法的声明与结束标记成对出现，用栈匹配
+            Deque<Object> declarations = new ArrayDeque<>();
+            Map<Integer, ICodeAnnotation> annotations = new TreeMap<>(codeInfo.getCodeMetadata().getAsMap());
+            for (Map.Entry<Integer, ICodeAnnotation> entry : annotations.entrySet()) {
+                ICodeAnnotation annotation = entry.getValue();
+                if (annotation.getAnnType() == ICodeAnnotation.AnnType.DECLARATION) {
+                    ICodeNodeRef node = ((NodeDeclareRef) annotation).getNode();
+                    if (node instanceof MethodNode || node.getAnnType() == ICodeAnnotation.AnnType.CLASS) {
+                        declarations.push(node);
+                    }
+                } else if (annotation.getAnnType() == ICodeAnnotation.AnnType.END && !declarations.isEmpty()) {
+                    if (declarations.pop() instanceof MethodNode method) {
+                        int defPos = method.getDefPosition();
+                        int emptyLinePos = code.lastIndexOf(emptyLine, defPos);
+                        int start = emptyLinePos == -1 ? defPos : emptyLinePos + emptyLine.length();
+                        int end = entry.getKey();
+                        if (start <= end) {
+                            methods.add(method);
+                            ranges.add(new int[]{start, end});
+                        }
+                    }
+                }
+            }
+        }
+        int[] starts = new int[ranges.size()];
+        int[] ends = new int[ranges.size()];
+        for (int i = 0; i < ranges.size(); i++) {
+            starts[i] = ranges.get(i)[0];
+            ends[i] = ranges.get(i)[1];
+        }
+        return new MethodCodeRanges(codeInfo, methods.toArray(new MethodNode[0]), starts, ends);
+    }
+
+    public boolean isFor(ICodeInfo codeInfo) {
+        return source.get() == codeInfo;
+    }
+
+    /**
+     * @return 方法在范围数组中的下标，方法不在这段代码中时返回 -1。
+     */
+    public int indexOf(MethodNode method) {
+        for (int i = 0; i < methods.length; i++) {
+            if (methods[i] == method) return i;
+        }
+        return -1;
+    }
+
+    public int getStart(int index) {
+        return starts[index];
+    }
+
+    public int getEnd(int index) {
+        return ends[index];
+    }
+
+    /**
+     * @param code 计算范围时的类代码。
+     * @return 方法代码的只读视图，不复制字符串；方法不在这段代码中时返回 null。
+     */
+    public CharSequence slice(String code, MethodNode method) {
+        int index = indexOf(method);
+        return index >= 0 ? CharBuffer.wrap(code, starts[index], ends[index]) : null;
+    }
+
+    /**
+     * 一个实例的方法范围缓存，按顶层类保存。
+     */
+    public static class Cache {
+        private final Map<ClassNode, MethodCodeRanges> ranges = new ConcurrentHashMap<>();
+
+        /**
+         * @param codeInfo 顶层类当前的代码，缓存的范围不是这段代码的时重新计算。
+         */
+        public MethodCodeRanges get(ClassNode topClass, ICodeInfo codeInfo) {
+            MethodCodeRanges cached = ranges.get(topClass);
+            if (cached != null && cached.isFor(codeInfo)) return cached;
+            MethodCodeRanges built = build(topClass, codeInfo);
+            ranges.put(topClass, built);
+            return built;
+        }
+
+        public void remove(ClassNode topClass) {
+            ranges.remove(topClass);
+        }
+
+        public void clear() {
+            ranges.clear();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.wrlus.jadx.cache;
+
+import com.wrlus.jadx.scheduler.Cancellation;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 每个 JadxInstance 的查询结果缓存。
+ * 按估算的字节数做 LRU 淘汰；相同的查询同时到达时只计算一次，其余请求等待并共享结果（single-flight）；
+ * 重新加载或卸载实例时整体失效，失效前已经开始的计算结果不会再写入缓存，也不会共享给失效后到达的请求。
+ */
+public class QueryCache {
+    public static final String ENV_QUERY_CACHE_MB = "JADX_DAEMON_MCP_QUERY_CACHE_MB";
+    private static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+    private static final long WAIT_POLL_MS = 200;
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    /* 键包括开始计算时的代数 */
+    private final ConcurrentHashMap<String, CompletableFuture<Result<?>>> inFlight = new ConcurrentHashMap<>();
+    private long totalBytes = 0;
+    private long generation = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong sharedHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public QueryCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public static QueryCache fromEnv() {
+        String value = System.getenv(ENV_QUERY_CACHE_MB);
+        long maxBytes = DEFAULT_MAX_BYTES;
+        if (value != null && !value.isBlank()) {
+            try {
+                maxBytes = Long.parseLong(value.trim()) * 1024 * 1024;
+            } catch (NumberFormatException ignored) {
+                // 使用默认值
+            }
+        }
+        return new QueryCache(maxBytes);
+    }
+
+    /**
+     * 计算结果，complete 为 false 的结果（例如请求被取消得到的部分结果）不会被缓存，也不会共享给等待的请求。
+     */
+    public static class Result<V> {
+        public final V value;
+        public final boolean complete;
+
+        public Result(V value, boolean complete) {
+            this.value = value;
+            this.complete = complete;
+        }
+    }
+
+    private record Entry(Object value, long bytes) {
+    }
+
+    /**
+     * 查询缓存，未命中时执行 loader。
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V get(String key, Supplier<Result<V>> loader) {
+        while (true) {
+            long startGeneration;
+            synchronized (this) {
+                Entry entry = entries.get(key);
+                if (entry != null) {
+                    hits.incrementAndGet();
+                    return (V) entry.value;
+                }
+                startGeneration = generation;
+            }
+
+            String flightKey = startGeneration + ":" + key;
+            CompletableFuture<Result<?>> mine = new CompletableFuture<>();
+            CompletableFuture<Result<?>> leader = inFlight.putIfAbsent(flightKey, mine);
+            if (leader != null) {
+                Result<?> shared = awaitLeader(leader);
+                if (shared != null && shared.complete) {
+                    sharedHits.incrementAndGet();
+                    return (V) shared.value;
+                }
+                // 领头的计算失败或只得到部分结果，重新查询，必要时由自己计算
+                continue;
+            }
+
+            misses.incrementAndGet();
+            try {
+                Result<V> result = loader.get();
+                if (result.complete) {
+                    put(key, result.value, startGeneration);
+                }
+                mine.complete(result);
+                return result.value;
+            } catch (RuntimeException | Error e) {
+                mine.complete(null);
+                throw e;
+            } finally {
+                inFlight.remove(flightKey, mine);
+            }
+        }
+    }
+
+    private static Result<?> awaitLeader(CompletableFuture<Result<?>> leader) {
+        Cancellation cancellation = Cancellation.current();
+        try {
+            while (true) {
+                try {
+                    return leader.get(WAIT_POLL_MS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    if (cancellation.isCancelled()) return null;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    private synchronized void put(String key, Object value, long startGeneration) {
+        if (startGeneration != generation) return;
+        long bytes = estimateBytes(value) + estimateBytes(key);
+        if (bytes > maxBytes) return;
+
+        Entry old = entries.put(key, new Entry(value, bytes));
+        if (old != null) totalBytes -= old.bytes;
+        totalBytes += bytes;
+
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            totalBytes -= eldest.getValue().bytes;
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        totalBytes = 0;
+        generation++;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        long hitCount = hits.get() + sharedHits.get();
+        long total = hitCount + misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("bytes", totalBytes);
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hits.get());
+        stats.put("sharedHits", sharedHits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("hitRate", total > 0 ? (double) hitCount / total : 0.0);
+        stats.put("inFlight", inFlight.size());
+        return stats;
+    }
+
+    /**
+     * 粗略估算结果占用的堆大小，只处理查询结果中出现的字符串、集合和 Map。
+     */
+    public static long estimateBytes(Object value) {
+        if (value == null) return 0;
+        if (value instanceof String str) {
+            return 40 + 2L * str.length();
+        }
+        if (value instanceof Map<?, ?> map) {
+            long bytes = 48;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                bytes += 32 + estimateBytes(entry.getKey()) + estimateBytes(entry.getValue());
+            }
+            return bytes;
+        }
+        if (value instanceof Map.Entry<?, ?> entry) {
+            return 32 + estimateBytes(entry.getKey()) + estimateBytes(entry.getValue());
+        }
+        if (value instanceof Collection<?> collection) {
+            long bytes = 40;
+            for (Object item : collection) {
+                bytes += 8 + estimateBytes(item);
+            }
+            return bytes;
+        }
+        if (value instanceof Sized sized) {
+            return sized.estimateBytes();
+        }
+        return 16;
+    }
+
+    /**
+     * 自定义结果类型实现此接口提供自己的大小估算。
+     */
+    public interface Sized {
+        long estimateBytes();
+    }
+}
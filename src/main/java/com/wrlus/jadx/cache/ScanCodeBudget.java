@@ -0,0 +1,93 @@
+package com.wrlus.jadx.cache;
+
+import jadx.api.ICodeInfo;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 全量扫描反编译的代码在 jadx 代码缓存中最多保留的字节数（估算值）。
+ * 预算内的类保留代码，之后的查询不需要重新反编译；超出预算后，类在提取完结果后立即从缓存中释放，
+ * 扫描的堆占用不再随类的数量增长。扫描开始前已经在缓存中的类（交互式查询或预热反编译的）不计入预算，也不会被释放。
+ * 默认不限制预算，扫描不释放任何内存，与 jadx 默认的行为相同，重复的扫描直接使用缓存的代码；
+ * 内存紧张时通过环境变量设置预算，以重复扫描需要重新反编译为代价限制扫描的堆占用。
+ */
+public class ScanCodeBudget {
+    public static final String ENV_SCAN_CACHE_MB = "JADX_DAEMON_MCP_SCAN_CACHE_MB";
+    private static final long DEFAULT_MAX_BYTES = -1;
+    /* 代码元数据中每个注解的 TreeMap 节点和注解对象 */
+    private static final long ANNOTATION_BYTES = 72;
+
+    private final long maxBytes;
+    private final AtomicLong retainedBytes = new AtomicLong();
+    private final AtomicLong retainedClasses = new AtomicLong();
+    private final AtomicLong releasedClasses = new AtomicLong();
+
+    /**
+     * @param maxBytes 小于 0 表示不限制，扫描反编译的代码全部保留；0 表示全部释放。
+     */
+    public ScanCodeBudget(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public static ScanCodeBudget fromEnv() {
+        String value = System.getenv(ENV_SCAN_CACHE_MB);
+        long maxBytes = DEFAULT_MAX_BYTES;
+        if (value != null && !value.isBlank()) {
+            try {
+                long mb = Long.parseLong(value.trim());
+                maxBytes = mb < 0 ? -1 : mb * 1024 * 1024;
+            } catch (NumberFormatException ignored) {
+                // 使用默认值
+            }
+        }
+        return new ScanCodeBudget(maxBytes);
+    }
+
+    /**
+     * @return 为 true 时扫描保留反编译的全部代码和中间表示。
+     */
+    public boolean isUnlimited() {
+        return maxBytes < 0;
+    }
+
+    public static long estimateBytes(ICodeInfo code) {
+        return 40 + (long) code.getCodeStr().length() * 2 +
+                code.getCodeMetadata().getAsMap().size() * ANNOTATION_BYTES;
+    }
+
+    /**
+     * 预算足够时计入预算并返回 true，否则记录一次释放并返回 false，调用者负责释放代码。不限制预算时不需要调用。
+     */
+    public boolean retain(long bytes) {
+        long current;
+        do {
+            current = retainedBytes.get();
+            if (current + bytes > maxBytes) {
+                releasedClasses.incrementAndGet();
+                return false;
+            }
+        } while (!retainedBytes.compareAndSet(current, current + bytes));
+        retainedClasses.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * 实例重新加载或卸载时代码缓存随之清空。
+     */
+    public void reset() {
+        retainedBytes.set(0);
+        retainedClasses.set(0);
+        releasedClasses.set(0);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("retainedClasses", retainedClasses.get());
+        stats.put("retainedBytes", retainedBytes.get());
+        stats.put("maxBytes", maxBytes);
+        stats.put("releasedClasses", releasedClasses.get());
+        return stats;
+    }
+}
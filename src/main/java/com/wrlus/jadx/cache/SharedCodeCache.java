@@ -0,0 +1,201 @@
+package com.wrlus.jadx.cache;
+
+import com.wrlus.jadx.reload.ClassHasher;
+import jadx.api.ICodeCache;
+import jadx.api.ICodeInfo;
+import jadx.api.impl.InMemoryCodeCache;
+import jadx.core.dex.instructions.args.ArgType;
+import jadx.core.dex.nodes.ClassNode;
+import jadx.core.dex.nodes.PackageNode;
+import jadx.core.dex.nodes.RootNode;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 一个实例的 jadx 代码缓存，本地没有的类先到 {@link SharedCodeStore} 中按内容哈希查找，反编译的代码也保存到其中。
+ * 内容哈希包括类（和内部类）的字节码、它依赖的类和所有父类型的字节码，以及同一个包中的类名：
+ * 反编译结果会内联依赖的类中的常量、使用父类型中的声明，同一个包中有同名的类时导入的写法也不同。
+ * 查找时比较完整的类名、类的哈希和其余内容的哈希，不只比较合并后的哈希。
+ * 加载方式不同（关闭的处理、是否加载资源表）的实例反编译的代码不同，内容哈希也包括加载方式。
+ */
+public class SharedCodeCache implements ICodeCache {
+    private final ICodeCache local = new InMemoryCodeCache();
+    private final SharedCodeStore store;
+    private final long optionsHash;
+    private final Map<String, Long> treeHashes = new ConcurrentHashMap<>();
+    private final Map<String, Long> packageHashes = new ConcurrentHashMap<>();
+    /* 类的查找键，输入不变，计算一次 */
+    private final Map<String, SharedCodeStore.Key> keys = new ConcurrentHashMap<>();
+    private volatile RootNode root;
+
+    /**
+     * @param optionsHash 实例加载方式的哈希（见 {@link com.wrlus.jadx.load.LoadOptions#codeHash}）。
+     */
+    public SharedCodeCache(SharedCodeStore store, long optionsHash) {
+        this.store = store;
+        this.optionsHash = optionsHash;
+    }
+
+    /**
+     * 加载完成后调用，之前的查找和保存只使用本地缓存。
+     */
+    public void bind(RootNode root) {
+        this.root = root;
+    }
+
+    /**
+     * @param hashes 已经计算的顶层类哈希（见 {@link ClassHasher#hashTree}），计算失败的类为 null。
+     */
+    public void putTreeHashes(Map<String, Long> hashes) {
+        hashes.forEach((name, hash) -> {
+            if (hash != null) treeHashes.put(name, hash);
+        });
+    }
+
+    @Override
+    public void add(String clsRawName, ICodeInfo codeInfo) {
+        local.add(clsRawName, codeInfo);
+        RootNode current = root;
+        SharedCodeStore.Key key = keyOf(current, clsRawName);
+        if (key == null || store.contains(key)) return;
+        DetachedCode detached = DetachedCode.detach(current.resolveRawClass(clsRawName), codeInfo);
+        if (detached != null) store.put(key, detached);
+    }
+
+    @Override
+    public ICodeInfo get(String clsRawName) {
+        ICodeInfo code = local.get(clsRawName);
+        if (code != ICodeInfo.EMPTY) return code;
+        RootNode current = root;
+        SharedCodeStore.Key key = keyOf(current, clsRawName);
+        DetachedCode detached = key != null ? store.get(key) : null;
+        ICodeInfo attached = detached != null ? detached.attach(current) : null;
+        if (attached == null) return ICodeInfo.EMPTY;
+        local.add(clsRawName, attached);
+        return attached;
+    }
+
+    @Override
+    public String getCode(String clsRawName) {
+        ICodeInfo code = get(clsRawName);
+        return code != ICodeInfo.EMPTY ? code.getCodeStr() : null;
+    }
+
+    @Override
+    public boolean contains(String clsRawName) {
+        return local.contains(clsRawName);
+    }
+
+    @Override
+    public void remove(String clsRawName) {
+        local.remove(clsRawName);
+    }
+
+    @Override
+    public void close() throws IOException {
+        local.close();
+        treeHashes.clear();
+        packageHashes.clear();
+        keys.clear();
+    }
+
+    /**
+     * @return 类的查找键，没有绑定 RootNode、类不存在或者字节码无法读取时返回 null。
+     */
+    private SharedCodeStore.Key keyOf(RootNode current, String clsRawName) {
+        if (current == null) return null;
+        SharedCodeStore.Key cached = keys.get(clsRawName);
+        if (cached != null) return cached;
+        ClassNode cls = current.resolveRawClass(clsRawName);
+        if (cls == null || cls.isInner()) return null;
+        try {
+            ClassHasher context = new ClassHasher();
+            // 依赖在加载时确定，按类名排序，结果与依赖列表的顺序无关
+            Map<String, ClassNode> dependencies = new TreeMap<>();
+            List<ClassNode> roots = new ArrayList<>();
+            addTree(cls, roots);
+            for (ClassNode dependency : cls.getDependencies()) {
+                dependencies.put(dependency.getTopParentClass().getRawName(), dependency.getTopParentClass());
+                roots.add(dependency);
+            }
+            for (ClassNode dependency : cls.getCodegenDeps()) {
+                dependencies.put(dependency.getTopParentClass().getRawName(), dependency.getTopParentClass());
+                roots.add(dependency);
+            }
+            addSupertypes(current, roots, dependencies);
+            dependencies.remove(cls.getRawName());
+            for (Map.Entry<String, ClassNode> entry : dependencies.entrySet()) {
+                context.add(entry.getKey());
+                context.add(treeHash(entry.getValue()));
+            }
+            context.add(packageHash(cls.getPackageNode()));
+            context.add(optionsHash);
+            SharedCodeStore.Key key = new SharedCodeStore.Key(clsRawName, treeHash(cls), context.finish());
+            keys.put(clsRawName, key);
+            return key;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void addTree(ClassNode cls, List<ClassNode> classes) {
+        classes.add(cls);
+        for (ClassNode inner : cls.getInnerClasses()) {
+            addTree(inner, classes);
+        }
+    }
+
+    /**
+     * 加入类和依赖的类的所有父类和接口（传递闭包）。覆盖方法的注解、泛型参数的推断和方法调用的解析
+     * 都依赖父类型中的声明，不只是直接父类型。
+     */
+    private static void addSupertypes(RootNode current, List<ClassNode> classes, Map<String, ClassNode> dependencies) {
+        Set<ClassNode> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<ClassNode> pending = new ArrayDeque<>(classes);
+        while (!pending.isEmpty()) {
+            ClassNode next = pending.poll();
+            if (!visited.add(next)) continue;
+            List<ArgType> supertypes = new ArrayList<>(next.getInterfaces());
+            if (next.getSuperClass() != null) supertypes.add(next.getSuperClass());
+            for (ArgType supertype : supertypes) {
+                ClassNode resolved = current.resolveClass(supertype);
+                if (resolved == null) continue;
+                dependencies.put(resolved.getTopParentClass().getRawName(), resolved.getTopParentClass());
+                pending.add(resolved);
+            }
+        }
+    }
+
+    private long treeHash(ClassNode cls) {
+        // 不使用 computeIfAbsent：计算时读取其他类的数据，不在 map 的锁内进行
+        Long hash = treeHashes.get(cls.getRawName());
+        if (hash == null) {
+            hash = ClassHasher.hashTree(cls);
+            treeHashes.put(cls.getRawName(), hash);
+        }
+        return hash;
+    }
+
+    private long packageHash(PackageNode pkg) {
+        if (pkg == null) return 0;
+        String name = pkg.getPkgInfo().getFullName();
+        Long hash = packageHashes.get(name);
+        if (hash == null) {
+            ClassHasher hasher = new ClassHasher();
+            pkg.getClasses().stream().map(ClassNode::getRawName).sorted().forEach(hasher::add);
+            hash = hasher.finish();
+            packageHashes.put(name, hash);
+        }
+        return hash;
+    }
+}
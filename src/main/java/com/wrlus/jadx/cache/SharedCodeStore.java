@@ -0,0 +1,97 @@
+package com.wrlus.jadx.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 进程内所有实例共用的反编译代码，按类名和类的内容哈希保存（见 {@link SharedCodeCache}）。
+ * 同时加载的多个版本中相同的类（AndroidX、框架 jar、第三方库）只反编译一次，代码文本只保存一份；
+ * 保存的代码不引用任何实例的节点，实例卸载后仍然保留，超过上限时淘汰最久未使用的。
+ */
+public class SharedCodeStore {
+    public static final String ENV_SHARED_CODE_MB = "JADX_DAEMON_MCP_SHARED_CODE_MB";
+    private static final long DEFAULT_MAX_BYTES = 128L * 1024 * 1024;
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, DetachedCode> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * 查找代码的键，比较完整的类名和哈希，不同的类或内容不会因为合并后的哈希相同而共用代码。
+     * @param rawName     顶层类的原始类名。
+     * @param treeHash    类和内部类的字节码哈希（见 {@link com.wrlus.jadx.reload.ClassHasher#hashTree}）。
+     * @param contextHash 依赖的类、父类型、同一个包中的类名和加载方式的哈希。
+     */
+    public record Key(String rawName, long treeHash, long contextHash) {
+    }
+
+    /**
+     * @param maxBytes 保存的代码最多占用的字节数（估算值），0 表示不共用。
+     */
+    public SharedCodeStore(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+    }
+
+    public static SharedCodeStore fromEnv() {
+        String value = System.getenv(ENV_SHARED_CODE_MB);
+        long maxBytes = DEFAULT_MAX_BYTES;
+        if (value != null && !value.isBlank()) {
+            try {
+                maxBytes = Long.parseLong(value.trim()) * 1024 * 1024;
+            } catch (NumberFormatException ignored) {
+                // 使用默认值
+            }
+        }
+        return new SharedCodeStore(maxBytes);
+    }
+
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    /**
+     * @return 类名和内容哈希对应的代码，没有时返回 null。
+     */
+    public synchronized DetachedCode get(Key key) {
+        DetachedCode code = entries.get(key);
+        if (code != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return code;
+    }
+
+    public synchronized boolean contains(Key key) {
+        return entries.containsKey(key);
+    }
+
+    public synchronized void put(Key key, DetachedCode code) {
+        long size = code.estimateBytes();
+        if (size > maxBytes) return;
+        DetachedCode previous = entries.put(key, code);
+        if (previous != null) bytes -= previous.estimateBytes();
+        bytes += size;
+        Iterator<DetachedCode> iterator = entries.values().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            bytes -= iterator.next().estimateBytes();
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("classes", entries.size());
+        stats.put("bytes", bytes);
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("evictions", evictions);
+        return stats;
+    }
+}
@@ -0,0 +1,122 @@
+package com.wrlus.jadx.diff;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * 按字节码哈希比较两个实例：新增、删除和有变化的类，以及有变化的类中新增、删除和有变化的方法。
+ * 类按原始类名对应，方法按 shortId 对应，只比较哈希，不需要反编译。
+ * 方法使用 smali 格式的签名（`Lcom/example/A;->run(I)V`），不依赖反编译时得到的泛型信息，两个实例中相同。
+ */
+public class BytecodeDiff {
+    private static final String LOADED_FROM = "/* loaded from: ";
+
+    private final List<String> addedClasses = new ArrayList<>();
+    private final List<String> removedClasses = new ArrayList<>();
+    private final List<ChangedClass> changedClasses = new ArrayList<>();
+    private int unchangedClasses = 0;
+
+    /**
+     * 一个有变化的类。只有字段、访问标志或者类的属性变化时三个方法列表都为空。
+     */
+    public record ChangedClass(String name, List<String> addedMethods, List<String> removedMethods,
+                               List<String> changedMethods) {
+    }
+
+    /**
+     * @param base   原始类名到基准实例中的哈希。
+     * @param target 原始类名到比较实例中的哈希。
+     */
+    public static BytecodeDiff compare(Map<String, ClassHashes> base, Map<String, ClassHashes> target) {
+        BytecodeDiff diff = new BytecodeDiff();
+        TreeSet<String> names = new TreeSet<>(base.keySet());
+        names.addAll(target.keySet());
+        for (String rawName : names) {
+            ClassHashes baseClass = base.get(rawName);
+            ClassHashes targetClass = target.get(rawName);
+            if (baseClass == null) {
+                diff.addedClasses.add(targetClass.name());
+            } else if (targetClass == null) {
+                diff.removedClasses.add(baseClass.name());
+            } else if (baseClass.hash() != null && Objects.equals(baseClass.hash(), targetClass.hash())) {
+                diff.unchangedClasses++;
+            } else {
+                diff.changedClasses.add(compareMethods(rawName, baseClass, targetClass));
+            }
+        }
+        return diff;
+    }
+
+    private static ChangedClass compareMethods(String rawName, ClassHashes base, ClassHashes target) {
+        List<String> added = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        List<String> changed = new ArrayList<>();
+        TreeSet<String> shortIds = new TreeSet<>(base.methods().keySet());
+        shortIds.addAll(target.methods().keySet());
+        for (String shortId : shortIds) {
+            Long baseHash = base.methods().get(shortId);
+            Long targetHash = target.methods().get(shortId);
+            String method = methodId(rawName, shortId);
+            if (baseHash == null) {
+                added.add(method);
+            } else if (targetHash == null) {
+                removed.add(method);
+            } else if (!baseHash.equals(targetHash)) {
+                changed.add(method);
+            }
+        }
+        return new ChangedClass(target.name(), added, removed, changed);
+    }
+
+    /**
+     * @return smali 格式的方法签名，例如 `Lcom/example/A$B;->run(I)V`。
+     */
+    public static String methodId(String clsRawName, String shortId) {
+        return "L" + clsRawName.replace('.', '/') + ";->" + shortId;
+    }
+
+    /**
+     * @return 方法签名中的原始类名和 shortId，格式无效时返回 null。
+     */
+    public static String[] parseMethodId(String methodId) {
+        int arrow = methodId.indexOf(";->");
+        if (!methodId.startsWith("L") || arrow == -1) return null;
+        return new String[]{methodId.substring(1, arrow).replace('/', '.'), methodId.substring(arrow + 3)};
+    }
+
+    /**
+     * 去掉代码中 loaded from 注释所在的行：注释中是输入文件名，两个实例通常不同，不是代码的差异。
+     * 类中第一个方法的代码从类声明之前开始，包括这个注释。
+     */
+    public static String stripInputNames(String code) {
+        if (!code.contains(LOADED_FROM)) return code;
+        StringBuilder sb = new StringBuilder(code.length());
+        for (String line : code.split("\n", -1)) {
+            if (line.trim().startsWith(LOADED_FROM)) continue;
+            if (!sb.isEmpty()) sb.append('\n');
+            sb.append(line);
+        }
+        return sb.toString();
+    }
+
+    public List<String> getChangedMethods() {
+        List<String> methods = new ArrayList<>();
+        for (ChangedClass cls : changedClasses) {
+            methods.addAll(cls.changedMethods());
+        }
+        return methods;
+    }
+
+    public Map<String, Object> toJson() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("addedClasses", addedClasses);
+        json.put("removedClasses", removedClasses);
+        json.put("changedClasses", changedClasses);
+        json.put("unchangedClassCount", unchangedClasses);
+        return json;
+    }
+}
@@ -0,0 +1,39 @@
+package com.wrlus.jadx.diff;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 一个类（不包括内部类）的字节码哈希和其中每个方法的哈希，见 {@link com.wrlus.jadx.reload.ClassHasher}。
+ * 实例在子进程中时以 JSON 传回，64 位哈希写成十六进制字符串，避免转换成浮点数丢失精度。
+ *
+ * @param name    类的完整 Java 名称，内部类用 `.` 分隔。
+ * @param hash    类的哈希，计算失败时为 null，比较时总是当作有变化。
+ * @param methods 方法的 shortId（名称和描述符）到哈希。
+ */
+public record ClassHashes(String name, Long hash, Map<String, Long> methods) {
+
+    public Map<String, Object> toJson() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("name", name);
+        json.put("hash", hash != null ? Long.toHexString(hash) : null);
+        Map<String, String> methodsJson = new LinkedHashMap<>();
+        methods.forEach((shortId, methodHash) -> methodsJson.put(shortId, Long.toHexString(methodHash)));
+        json.put("methods", methodsJson);
+        return json;
+    }
+
+    public static ClassHashes fromJson(JsonObject json) {
+        JsonElement hash = json.get("hash");
+        Map<String, Long> methods = new HashMap<>();
+        for (Map.Entry<String, JsonElement> entry : json.getAsJsonObject("methods").entrySet()) {
+            methods.put(entry.getKey(), Long.parseUnsignedLong(entry.getValue().getAsString(), 16));
+        }
+        return new ClassHashes(json.get("name").getAsString(),
+                hash == null || hash.isJsonNull() ? null : Long.parseUnsignedLong(hash.getAsString(), 16), methods);
+    }
+}
@@ -0,0 +1,64 @@
+package com.wrlus.jadx.diff;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 比较两个实例的响应：按字节码哈希得到有变化的类和方法，再对前几个有变化的方法比较反编译代码。
+ * 实例可能在本进程、子进程或路由模式下的不同后端中，方法代码由调用方按实例获取。
+ */
+public final class InstanceDiff {
+    public static final int DEFAULT_CODE_DIFFS = 20;
+    public static final int MAX_CODE_DIFFS = 200;
+    /* 从其他进程获取方法代码时每次的方法数，签名放在查询参数中 */
+    public static final int CODE_BATCH_SIZE = 16;
+
+    private InstanceDiff() {
+    }
+
+    /**
+     * @param base         基准实例的字节码哈希。
+     * @param target       比较实例的字节码哈希。
+     * @param hashMs       获取两个实例的字节码哈希的时间。
+     * @param maxCodeDiffs 最多比较代码的方法数。
+     * @param baseCode     按方法签名获取基准实例中方法的反编译代码。
+     * @param targetCode   按方法签名获取比较实例中方法的反编译代码。
+     * @return 响应内容，包括 `result`、`truncated`、`hashMs` 和 `codeMs`。
+     */
+    public static Map<String, Object> compare(Map<String, ClassHashes> base, Map<String, ClassHashes> target,
+                                              long hashMs, int maxCodeDiffs,
+                                              Function<List<String>, Map<String, String>> baseCode,
+                                              Function<List<String>, Map<String, String>> targetCode) {
+        BytecodeDiff diff = BytecodeDiff.compare(base, target);
+
+        long start = System.currentTimeMillis();
+        List<String> changedMethods = diff.getChangedMethods();
+        List<String> methods = changedMethods.subList(0, Math.min(maxCodeDiffs, changedMethods.size()));
+        Map<String, String> baseCodes = methods.isEmpty() ? Map.of() : baseCode.apply(methods);
+        Map<String, String> targetCodes = methods.isEmpty() ? Map.of() : targetCode.apply(methods);
+        List<Map<String, Object>> codeDiffs = new ArrayList<>();
+        for (String method : methods) {
+            String baseMethodCode = baseCodes.get(method);
+            String targetMethodCode = targetCodes.get(method);
+            Map<String, Object> codeDiff = new LinkedHashMap<>();
+            codeDiff.put("method", method);
+            // 只有寄存器分配等不影响反编译结果的变化时差异为空
+            codeDiff.put("diff", baseMethodCode != null && targetMethodCode != null ?
+                    UnifiedDiff.diff("base", "target", BytecodeDiff.stripInputNames(baseMethodCode),
+                            BytecodeDiff.stripInputNames(targetMethodCode)) : null);
+            codeDiffs.add(codeDiff);
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        Map<String, Object> result = diff.toJson();
+        result.put("codeDiffs", codeDiffs);
+        response.put("result", result);
+        if (methods.size() < changedMethods.size()) response.put("truncated", true);
+        response.put("hashMs", hashMs);
+        response.put("codeMs", System.currentTimeMillis() - start);
+        return response;
+    }
+}
@@ -0,0 +1,116 @@
+package com.wrlus.jadx.diff;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按行比较两段代码，输出统一格式（unified diff）的差异，用于比较方法的反编译代码。
+ * 使用最长公共子序列，方法代码通常只有几十到几百行；超过 {@link #MAX_CELLS} 时不再逐行对齐，整段作为替换输出。
+ */
+public final class UnifiedDiff {
+    private static final int MAX_CELLS = 4_000_000;
+    private static final int CONTEXT_LINES = 3;
+
+    private UnifiedDiff() {
+    }
+
+    /**
+     * @return 差异文本，代码相同时返回空字符串。
+     */
+    public static String diff(String baseName, String targetName, String base, String target) {
+        if (base.equals(target)) return "";
+        String[] a = base.split("\n", -1);
+        String[] b = target.split("\n", -1);
+        // ops 中 0 表示相同，-1 表示只在 a 中，1 表示只在 b 中
+        List<int[]> ops = (long) a.length * b.length <= MAX_CELLS ? align(a, b) : replaceAll(a, b);
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("--- ").append(baseName).append('\n');
+        sb.append("+++ ").append(targetName).append('\n');
+        int i = 0;
+        while (i < ops.size()) {
+            if (ops.get(i)[0] == 0) {
+                i++;
+                continue;
+            }
+            // 一个块从第一处差异前的上下文开始，到与下一处差异的间隔超过两倍上下文为止
+            int start = Math.max(0, i - CONTEXT_LINES);
+            int end = i;
+            int lastChange = i;
+            while (end < ops.size() && end - lastChange <= CONTEXT_LINES * 2) {
+                if (ops.get(end)[0] != 0) lastChange = end;
+                end++;
+            }
+            end = Math.min(ops.size(), lastChange + CONTEXT_LINES + 1);
+            appendHunk(sb, ops.subList(start, end), a, b);
+            i = end;
+        }
+        return sb.toString();
+    }
+
+    private static void appendHunk(StringBuilder sb, List<int[]> hunk, String[] a, String[] b) {
+        int aStart = -1;
+        int bStart = -1;
+        int aCount = 0;
+        int bCount = 0;
+        for (int[] op : hunk) {
+            if (op[0] <= 0) {
+                if (aStart < 0) aStart = op[1];
+                aCount++;
+            }
+            if (op[0] >= 0) {
+                if (bStart < 0) bStart = op[2];
+                bCount++;
+            }
+        }
+        // 没有对应行时按 unified diff 的约定使用前一行的行号
+        int aFirst = aStart >= 0 ? aStart + 1 : hunk.get(0)[1];
+        int bFirst = bStart >= 0 ? bStart + 1 : hunk.get(0)[2];
+        sb.append("@@ -").append(aFirst).append(',').append(aCount)
+                .append(" +").append(bFirst).append(',').append(bCount).append(" @@\n");
+        for (int[] op : hunk) {
+            switch (op[0]) {
+                case 0 -> sb.append(' ').append(a[op[1]]);
+                case -1 -> sb.append('-').append(a[op[1]]);
+                default -> sb.append('+').append(b[op[2]]);
+            }
+            sb.append('\n');
+        }
+    }
+
+    /**
+     * @return 每一行的操作 {类型, a 中的行号, b 中的行号}，行号从 0 开始，没有对应行时是下一行的行号。
+     */
+    private static List<int[]> align(String[] a, String[] b) {
+        int[][] lcs = new int[a.length + 1][b.length + 1];
+        for (int i = a.length - 1; i >= 0; i--) {
+            for (int j = b.length - 1; j >= 0; j--) {
+                lcs[i][j] = a[i].equals(b[j]) ? lcs[i + 1][j + 1] + 1 : Math.max(lcs[i + 1][j], lcs[i][j + 1]);
+            }
+        }
+        List<int[]> ops = new ArrayList<>(a.length + b.length);
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            if (i < a.length && j < b.length && a[i].equals(b[j])) {
+                ops.add(new int[]{0, i++, j++});
+            } else if (j >= b.length || (i < a.length && lcs[i + 1][j] >= lcs[i][j + 1])) {
+                ops.add(new int[]{-1, i++, j});
+            } else {
+                ops.add(new int[]{1, i, j++});
+            }
+        }
+        return ops;
+    }
+
+    private static List<int[]> replaceAll(String[] a, String[] b) {
+        List<int[]> ops = new ArrayList<>(a.length + b.length);
+        for (int i = 0; i < a.length; i++) {
+            ops.add(new int[]{-1, i, 0});
+        }
+        for (int j = 0; j < b.length; j++) {
+            ops.add(new int[]{1, a.length, j});
+        }
+        return ops;
+    }
+}
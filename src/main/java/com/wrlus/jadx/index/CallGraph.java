@@ -0,0 +1,337 @@
+package com.wrlus.jadx.index;
+
+import com.wrlus.jadx.scheduler.Cancellation;
+import jadx.core.dex.attributes.AType;
+import jadx.core.dex.attributes.nodes.MethodOverrideAttr;
+import jadx.core.dex.info.MethodInfo;
+import jadx.core.dex.instructions.InvokeNode;
+import jadx.core.dex.nodes.IMethodDetails;
+import jadx.core.dex.nodes.InsnNode;
+import jadx.core.dex.nodes.MethodNode;
+import jadx.core.dex.nodes.RootNode;
+import jadx.core.utils.Utils;
+
+import java.util.*;
+import java.util.concurrent.CancellationException;
+
+/**
+ * 内存中的方法调用图：调用指令的边和覆盖方法的虚分派边（调用父类方法时可能执行子类的覆盖方法）。
+ * 应用中没有定义的方法（例如 Android SDK 的方法）也是图中的节点，但是没有出边。
+ * 边按 CSR 格式保存为 `目标 << 1 | 是否为分派边`。
+ */
+public class CallGraph {
+    public static final int DEFAULT_MAX_DEPTH = 12;
+    public static final int MAX_DEPTH = 50;
+    public static final int DEFAULT_LIMIT = 10;
+    public static final int MAX_LIMIT = 100;
+    /* 一次搜索最多访问的节点数 */
+    private static final int MAX_VISITED = 500_000;
+
+    private final MethodInfo[] methods;
+    private final String[] names;
+    private final int[] outStart;
+    private final int[] outEdges;
+    private final int[] inStart;
+    private final int[] inEdges;
+    /* `完整类名.方法名` 到节点 */
+    private final Map<String, int[]> byMember;
+
+    /**
+     * 一个方法调用的方法，按第一次调用的顺序排列。
+     */
+    public record MethodCalls(MethodNode method, List<MethodInfo> callees) {
+    }
+
+    /**
+     * 搜索结果。
+     * @param paths 按长度排序的路径，每一步是 `{"method", "edge"}`，edge 为 `call` 或 `override`，第一步没有 edge。
+     * @param visited 访问的节点数。
+     * @param truncated 超过访问节点数的限制提前结束，可能还有没有找到的路径。
+     */
+    public record Paths(List<List<Map<String, String>>> paths, int visited, boolean truncated) {
+    }
+
+    private CallGraph(MethodInfo[] methods, String[] names, int[] outStart, int[] outEdges,
+                      int[] inStart, int[] inEdges, Map<String, int[]> byMember) {
+        this.methods = methods;
+        this.names = names;
+        this.outStart = outStart;
+        this.outEdges = outEdges;
+        this.inStart = inStart;
+        this.inEdges = inEdges;
+        this.byMember = byMember;
+    }
+
+    /**
+     * 在工作线程中扫描一个方法的调用指令，能在应用中找到的方法解析到定义它的类。
+     */
+    public static MethodCalls scanMethod(RootNode root, MethodNode method, InsnNode[] instructions) {
+        Set<MethodInfo> callees = new LinkedHashSet<>();
+        for (InsnNode insn : instructions) {
+            if (!(insn instanceof InvokeNode invoke)) continue;
+            MethodInfo callMth = invoke.getCallMth();
+            MethodNode resolved = root.resolveMethod(callMth);
+            callees.add(resolved != null ? resolved.getMethodInfo() : callMth);
+        }
+        return new MethodCalls(method, callees.isEmpty() ? Collections.emptyList() : List.copyOf(callees));
+    }
+
+    /**
+     * 按类的顺序合并各个方法的扫描结果，不是线程安全的。
+     */
+    public static class Builder {
+        private final Map<MethodInfo, Integer> ids = new HashMap<>();
+        private final List<MethodInfo> methods = new ArrayList<>();
+        private final List<String> names = new ArrayList<>();
+        private final List<long[]> edgeChunks = new ArrayList<>();
+        private long[] edges = new long[4096];
+        private int edgeCount = 0;
+        private int totalEdges = 0;
+
+        public void add(MethodCalls calls) {
+            int caller = id(calls.method().getMethodInfo(), calls.method().toString());
+            for (MethodInfo callee : calls.callees()) {
+                addEdge(caller, id(callee, null), false);
+            }
+            // 父类或接口的方法被调用时可能分派到这个方法
+            MethodOverrideAttr overrideAttr = calls.method().get(AType.METHOD_OVERRIDE);
+            if (overrideAttr != null) {
+                int override = ids.get(calls.method().getMethodInfo());
+                for (IMethodDetails base : overrideAttr.getOverrideList()) {
+                    addEdge(id(base.getMethodInfo(), null), override, true);
+                }
+            }
+        }
+
+        private int id(MethodInfo method, String name) {
+            Integer id = ids.get(method);
+            if (id != null) {
+                if (name != null) names.set(id, name);
+                return id;
+            }
+            id = methods.size();
+            ids.put(method, id);
+            methods.add(method);
+            names.add(name);
+            return id;
+        }
+
+        private void addEdge(int from, int to, boolean dispatch) {
+            if (edgeCount == edges.length) {
+                edgeChunks.add(edges);
+                edges = new long[edges.length];
+                edgeCount = 0;
+            }
+            edges[edgeCount++] = ((long) from << 32) | ((long) to << 1) | (dispatch ? 1 : 0);
+            totalEdges++;
+        }
+
+        public CallGraph build() {
+            int count = methods.size();
+            String[] nameArray = new String[count];
+            Map<String, List<Integer>> members = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                MethodInfo method = methods.get(i);
+                String name = names.get(i);
+                nameArray[i] = name != null ? name : formatMethod(method);
+                members.computeIfAbsent(memberName(method), k -> new ArrayList<>(1)).add(i);
+            }
+            Map<String, int[]> byMember = new HashMap<>();
+            members.forEach((member, list) -> byMember.put(member, list.stream().mapToInt(Integer::intValue).toArray()));
+
+            edgeChunks.add(Arrays.copyOf(edges, edgeCount));
+            int[] outStart = new int[count + 1];
+            int[] inStart = new int[count + 1];
+            for (long[] chunk : edgeChunks) {
+                for (long edge : chunk) {
+                    outStart[(int) (edge >>> 32) + 1]++;
+                    inStart[((int) edge >>> 1) + 1]++;
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                outStart[i + 1] += outStart[i];
+                inStart[i + 1] += inStart[i];
+            }
+            int[] outEdges = new int[totalEdges];
+            int[] inEdges = new int[totalEdges];
+            int[] outPos = Arrays.copyOf(outStart, count);
+            int[] inPos = Arrays.copyOf(inStart, count);
+            for (long[] chunk : edgeChunks) {
+                for (long edge : chunk) {
+                    int from = (int) (edge >>> 32);
+                    int to = (int) edge >>> 1;
+                    int dispatch = (int) edge & 1;
+                    outEdges[outPos[from]++] = to << 1 | dispatch;
+                    inEdges[inPos[to]++] = from << 1 | dispatch;
+                }
+            }
+            return new CallGraph(methods.toArray(new MethodInfo[0]), nameArray, outStart, outEdges,
+                    inStart, inEdges, byMember);
+        }
+    }
+
+    /**
+     * 与 get_class_methods 相同的 `完整类名.方法名(参数类型):返回类型` 格式，用于应用中没有定义的方法。
+     */
+    private static String formatMethod(MethodInfo method) {
+        return memberName(method) + "(" + Utils.listToString(method.getArgumentsTypes()) + "):" + method.getReturnType();
+    }
+
+    private static String memberName(MethodInfo method) {
+        return method.getDeclClass().getFullName() + "." + method.getName();
+    }
+
+    /**
+     * @param method `完整类名.方法名(参数类型):返回类型` 格式的方法签名，或者 `完整类名.方法名` 表示所有重载。
+     * @return 匹配的节点，找不到时返回空数组。
+     */
+    private int[] findMethods(String method) {
+        int argsStart = method.indexOf('(');
+        int[] candidates = byMember.get(argsStart >= 0 ? method.substring(0, argsStart) : method);
+        if (candidates == null) return new int[0];
+        if (argsStart < 0) return candidates;
+        return Arrays.stream(candidates)
+                .filter(id -> names[id].equals(method) || formatMethod(methods[id]).equals(method))
+                .toArray();
+    }
+
+    public boolean hasMethod(String method) {
+        return findMethods(method).length > 0;
+    }
+
+    private int[] findAll(List<String> methodNames, String role) {
+        Set<Integer> ids = new LinkedHashSet<>();
+        for (String methodName : methodNames) {
+            int[] found = findMethods(methodName.trim());
+            if (found.length == 0) {
+                throw new IllegalArgumentException("Cannot find " + role + " method in call graph: " + methodName);
+            }
+            for (int id : found) ids.add(id);
+        }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * 从源方法向前、从汇方法向后同时进行 BFS，每次展开较小的一侧，两侧相遇的节点给出一条路径。
+     * 找到 limit 条不同的路径或者两侧深度之和达到 maxDepth 时结束。
+     * @param sources 源方法，格式同 {@link #findMethods}。
+     * @param sinks 汇方法。
+     * @param maxDepth 路径最多包含的边数。
+     * @param limit 最多返回的路径数。
+     * @throws IllegalArgumentException 找不到源方法或汇方法。
+     * @throws CancellationException 请求已经取消。
+     */
+    public Paths findPaths(List<String> sources, List<String> sinks, int maxDepth, int limit) {
+        int[] sourceIds = findAll(sources, "source");
+        int[] sinkIds = findAll(sinks, "sink");
+        Cancellation cancellation = Cancellation.current();
+
+        // 距离为 -1 表示未访问，parent 保存编码后的边（指向 BFS 树中的上一个节点）
+        int count = methods.length;
+        int[] forwardDist = new int[count];
+        int[] backwardDist = new int[count];
+        int[] forwardParent = new int[count];
+        int[] backwardParent = new int[count];
+        Arrays.fill(forwardDist, -1);
+        Arrays.fill(backwardDist, -1);
+
+        List<Integer> meetings = new ArrayList<>();
+        int[] forwardFrontier = start(sourceIds, forwardDist, forwardParent);
+        int[] backwardFrontier = start(sinkIds, backwardDist, backwardParent);
+        int visited = forwardFrontier.length + backwardFrontier.length;
+        for (int id : forwardFrontier) {
+            if (backwardDist[id] >= 0) meetings.add(id);
+        }
+
+        int forwardDepth = 0;
+        int backwardDepth = 0;
+        boolean truncated = false;
+        while (meetings.size() < limit && forwardDepth + backwardDepth < maxDepth &&
+                (forwardFrontier.length > 0 || backwardFrontier.length > 0)) {
+            if (cancellation.isCancelled()) {
+                throw new CancellationException("Request cancelled: " + cancellation.getReason());
+            }
+            if (visited > MAX_VISITED) {
+                truncated = true;
+                break;
+            }
+            boolean forward = backwardFrontier.length == 0 ||
+                    (forwardFrontier.length > 0 && forwardFrontier.length <= backwardFrontier.length);
+            List<Integer> next = new ArrayList<>();
+            if (forward) {
+                expand(forwardFrontier, outStart, outEdges, forwardDist, forwardParent, backwardDist, next, meetings);
+                forwardFrontier = next.stream().mapToInt(Integer::intValue).toArray();
+                forwardDepth++;
+            } else {
+                expand(backwardFrontier, inStart, inEdges, backwardDist, backwardParent, forwardDist, next, meetings);
+                backwardFrontier = next.stream().mapToInt(Integer::intValue).toArray();
+                backwardDepth++;
+            }
+            visited += next.size();
+        }
+
+        meetings.sort(Comparator.comparingInt(id -> forwardDist[id] + backwardDist[id]));
+        Set<List<Map<String, String>>> paths = new LinkedHashSet<>();
+        for (int meeting : meetings) {
+            if (paths.size() >= limit) break;
+            paths.add(buildPath(meeting, forwardParent, backwardParent));
+        }
+        return new Paths(new ArrayList<>(paths), visited, truncated);
+    }
+
+    private static int[] start(int[] ids, int[] dist, int[] parent) {
+        for (int id : ids) {
+            dist[id] = 0;
+            parent[id] = -1;
+        }
+        return ids;
+    }
+
+    private static void expand(int[] frontier, int[] start, int[] edges, int[] dist, int[] parent, int[] otherDist,
+                               List<Integer> next, List<Integer> meetings) {
+        for (int node : frontier) {
+            for (int i = start[node]; i < start[node + 1]; i++) {
+                int target = edges[i] >>> 1;
+                if (dist[target] >= 0) continue;
+                dist[target] = dist[node] + 1;
+                parent[target] = node << 1 | (edges[i] & 1);
+                next.add(target);
+                if (otherDist[target] >= 0) meetings.add(target);
+            }
+        }
+    }
+
+    /**
+     * 从相遇节点分别沿两侧的 BFS 树回到源方法和汇方法，源方法和汇方法的 parent 为 -1。
+     */
+    private List<Map<String, String>> buildPath(int meeting, int[] forwardParent, int[] backwardParent) {
+        // 正向部分：从相遇节点回溯到源方法，每一步记录到达它的边
+        Deque<Map<String, String>> head = new ArrayDeque<>();
+        for (int node = meeting; ; ) {
+            int parent = forwardParent[node];
+            head.addFirst(step(node, parent >= 0 ? parent & 1 : -1));
+            if (parent < 0) break;
+            node = parent >>> 1;
+        }
+        List<Map<String, String>> path = new ArrayList<>(head);
+        // 反向部分：backwardParent 指向离汇方法更近的节点，边的方向与调用方向相同
+        for (int parent = backwardParent[meeting]; parent >= 0; parent = backwardParent[parent >>> 1]) {
+            path.add(step(parent >>> 1, parent & 1));
+        }
+        return path;
+    }
+
+    private Map<String, String> step(int node, int dispatch) {
+        Map<String, String> step = new LinkedHashMap<>();
+        step.put("method", names[node]);
+        if (dispatch >= 0) step.put("edge", dispatch == 1 ? "override" : "call");
+        return step;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("methods", methods.length);
+        stats.put("edges", outEdges.length);
+        return stats;
+    }
+}
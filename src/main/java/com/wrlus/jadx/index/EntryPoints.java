@@ -0,0 +1,180 @@
+package com.wrlus.jadx.index;
+
+import com.wrlus.jadx.aidl.AidlClass;
+import com.wrlus.jadx.aidl.ClassSearch;
+import com.wrlus.jadx.manifest.ManifestComponent;
+import com.wrlus.jadx.manifest.ManifestModel;
+import jadx.api.JavaClass;
+import jadx.core.dex.instructions.args.ArgType;
+import jadx.core.dex.nodes.ClassNode;
+import jadx.core.dex.nodes.MethodNode;
+import jadx.core.dex.nodes.RootNode;
+
+import java.util.*;
+
+/**
+ * 攻击面入口：导出组件的生命周期方法、动态注册的广播接收器、AIDL Stub 的 onTransact 和 AIDL 接口的实现方法。
+ * 方法使用与 get_class_methods 相同的格式，可以直接作为 find_call_paths 的源方法。
+ */
+public class EntryPoints {
+    public static final String KIND_DYNAMIC_RECEIVER = "dynamic-receiver";
+    public static final String KIND_AIDL_STUB = "aidl-stub";
+    public static final String KIND_AIDL_IMPL = "aidl-impl";
+    public static final List<String> KINDS = List.of("activity", "service", "receiver", "provider",
+            KIND_DYNAMIC_RECEIVER, KIND_AIDL_STUB, KIND_AIDL_IMPL);
+
+    private static final String BROADCAST_RECEIVER = "android.content.BroadcastReceiver";
+    /* 各类组件由系统调用、参数可能来自其他应用的方法 */
+    private static final Map<String, Set<String>> LIFECYCLE_METHODS = Map.of(
+            "activity", Set.of("onCreate", "onStart", "onRestart", "onResume", "onPostCreate", "onNewIntent",
+                    "onActivityResult"),
+            "service", Set.of("onCreate", "onStartCommand", "onStart", "onBind", "onRebind", "onUnbind",
+                    "onHandleIntent", "onHandleWork"),
+            "receiver", Set.of("onReceive"),
+            "provider", Set.of("query", "insert", "bulkInsert", "update", "delete", "getType", "call", "openFile",
+                    "openAssetFile", "openTypedAssetFile", "applyBatch"));
+
+    /**
+     * @param kind 入口类型，见 {@link #KINDS}。
+     * @param component 组件名、接收器类名或 AIDL 接口名。
+     * @param method 入口方法，可能定义在组件的父类中。
+     */
+    public record Entry(String kind, String component, String method) {
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("kind", kind);
+            map.put("component", component);
+            map.put("method", method);
+            return map;
+        }
+    }
+
+    private final List<Entry> entries;
+    /* 入口方法所在的顶层类，预热时优先反编译 */
+    private final Set<String> classNames;
+
+    private EntryPoints(List<Entry> entries, Set<String> classNames) {
+        this.entries = entries;
+        this.classNames = classNames;
+    }
+
+    /**
+     * 只读取类和方法的信息，不需要反编译（JavaClass 的方法和内部类列表会触发反编译，这里只使用 ClassNode）。
+     * @param manifest 没有 Manifest 时为 null，只计算动态接收器和 AIDL 入口。
+     */
+    public static EntryPoints build(RootNode root, List<JavaClass> classes, ManifestModel manifest) {
+        List<Entry> entries = new ArrayList<>();
+        Set<String> classNames = new HashSet<>();
+        Set<String> manifestReceivers = new HashSet<>();
+        if (manifest != null) {
+            for (ManifestComponent component : manifest.getComponents()) {
+                if (component.type().equals("receiver")) manifestReceivers.add(component.name());
+                if (!component.exported() || !component.enabled()) continue;
+
+                boolean alias = component.type().equals("activity-alias");
+                String kind = alias ? "activity" : component.type();
+                String className = alias ? component.targetActivity() : component.name();
+                if (className == null) continue;
+                ClassNode cls = root.resolveClass(className);
+                if (cls == null) continue;
+                for (MethodNode method : findInherited(root, cls, LIFECYCLE_METHODS.get(kind))) {
+                    entries.add(new Entry(kind, component.name(), method.toString()));
+                    classNames.add(topClassName(method));
+                }
+            }
+        }
+
+        ClassSearch classSearch = new ClassSearch(classes);
+        for (JavaClass cls : classes) {
+            ClassNode clsNode = cls.getClassNode();
+            if (!manifestReceivers.contains(cls.getFullName()) && !clsNode.getAccessFlags().isAbstract() &&
+                    isSubclassOf(root, clsNode, BROADCAST_RECEIVER)) {
+                for (MethodNode method : findInherited(root, clsNode, LIFECYCLE_METHODS.get("receiver"))) {
+                    entries.add(new Entry(KIND_DYNAMIC_RECEIVER, cls.getFullName(), method.toString()));
+                    classNames.add(topClassName(method));
+                }
+            }
+
+            AidlClass aidlClass = AidlClass.fromInterface(cls);
+            if (aidlClass == null) continue;
+            ClassNode stub = aidlClass.getStubClass();
+            for (MethodNode method : stub.getMethods()) {
+                if (method.getName().equals("onTransact")) {
+                    entries.add(new Entry(KIND_AIDL_STUB, aidlClass.interfaceClassName, method.toString()));
+                    classNames.add(topClassName(method));
+                }
+            }
+            for (MethodNode method : aidlClass.getImplMethods(classSearch)) {
+                entries.add(new Entry(KIND_AIDL_IMPL, aidlClass.interfaceClassName, method.toString()));
+                classNames.add(topClassName(method));
+            }
+        }
+        return new EntryPoints(List.copyOf(entries), Set.copyOf(classNames));
+    }
+
+    private static String topClassName(MethodNode method) {
+        return method.getParentClass().getTopParentClass().getFullName();
+    }
+
+    /**
+     * 在类和应用中的父类里查找给定名称的方法，子类覆盖的方法只返回子类中的。
+     */
+    private static List<MethodNode> findInherited(RootNode root, ClassNode cls, Set<String> names) {
+        List<MethodNode> methods = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (ClassNode current = cls; current != null; current = superClassOf(root, current)) {
+            for (MethodNode method : current.getMethods()) {
+                if (!names.contains(method.getName()) || method.getAccessFlags().isAbstract()) continue;
+                if (seen.add(method.getMethodInfo().getShortId())) methods.add(method);
+            }
+        }
+        return methods;
+    }
+
+    private static boolean isSubclassOf(RootNode root, ClassNode cls, String className) {
+        for (ClassNode current = cls; current != null; current = superClassOf(root, current)) {
+            ArgType superClass = current.getSuperClass();
+            if (superClass != null && className.equals(superClass.getObject())) return true;
+        }
+        return false;
+    }
+
+    private static ClassNode superClassOf(RootNode root, ClassNode cls) {
+        ArgType superClass = cls.getSuperClass();
+        return superClass != null ? root.resolveClass(superClass) : null;
+    }
+
+    /**
+     * @param kind 只返回这种类型的入口，为 null 时返回全部。
+     * @throws IllegalArgumentException 类型无效。
+     */
+    public List<Entry> getEntries(String kind) {
+        if (kind == null || kind.isEmpty()) return entries;
+        if (!KINDS.contains(kind)) {
+            throw new IllegalArgumentException("Unknown entry point kind: " + kind + ", expected one of " + KINDS);
+        }
+        return entries.stream().filter(entry -> entry.kind().equals(kind)).toList();
+    }
+
+    /**
+     * @return 所有入口方法，去掉重复的方法。
+     */
+    public List<String> getMethods() {
+        return entries.stream().map(Entry::method).distinct().toList();
+    }
+
+    /**
+     * @return 入口方法所在的顶层类的完整类名。
+     */
+    public Set<String> getClassNames() {
+        return classNames;
+    }
+
+    public Map<String, Integer> getCounts() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (Entry entry : entries) {
+            counts.merge(entry.kind(), 1, Integer::sum);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,14 @@
+package com.wrlus.jadx.index;
+
+import com.wrlus.jadx.scheduler.SchedulerBusyException;
+
+/**
+ * 实例的索引还在后台创建，HTTP 层转换为 503 并带上 Retry-After。
+ */
+public class IndexingException extends SchedulerBusyException {
+    private static final long serialVersionUID = 1L;
+
+    public IndexingException(String message, int retryAfterSeconds) {
+        super(message, STATUS_SERVICE_UNAVAILABLE, retryAfterSeconds);
+    }
+}
@@ -0,0 +1,376 @@
+package com.wrlus.jadx.index;
+
+import com.wrlus.jadx.scheduler.Cancellation;
+import jadx.api.JavaClass;
+import jadx.core.dex.nodes.ClassNode;
+import jadx.core.dex.nodes.FieldNode;
+import jadx.core.dex.nodes.MethodNode;
+
+import java.util.*;
+import java.util.concurrent.CancellationException;
+
+/**
+ * 类、方法和字段名称的内存索引，加载实例时创建，只引用 jadx 已有的节点和名称字符串。
+ * 名称按不区分大小写的顺序排序，前缀查询二分查找起点后只扫描相同前缀的区间；子串、驼峰和编辑距离查询线性扫描名称数组，
+ * 只保留得分最好的 K 个结果。
+ */
+public class NameIndex {
+    public enum Kind {
+        CLASS, METHOD, FIELD;
+
+        public static Kind parse(String value) {
+            return value == null ? null : parseEnum(Kind.class, "kind", value);
+        }
+    }
+
+    public enum Mode {
+        PREFIX, SUBSTRING, CAMEL, FUZZY;
+
+        public static Mode parse(String value) {
+            return value == null ? PREFIX : parseEnum(Mode.class, "mode", value);
+        }
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String name, String value) {
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown " + name + ": " + value + ", expected one of " +
+                    Arrays.toString(type.getEnumConstants()).toLowerCase(Locale.ROOT));
+        }
+    }
+
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 1000;
+    private static final int CANCEL_CHECK_INTERVAL = 4096;
+    /* 不同匹配位置之间的得分间隔，同一位置内按名称长度排序 */
+    private static final int SCORE_STEP = 1 << 16;
+
+    /* 类、方法和字段的简单名称，下标与 nodes 对应 */
+    private final String[] names;
+    private final Object[] nodes;
+    /* 按简单名称排序的下标 */
+    private final int[] byName;
+    /* 类的下标，按完整类名排序，用于带包名的前缀查询 */
+    private final int[] classesByFullName;
+
+    private NameIndex(String[] names, Object[] nodes, int[] byName, int[] classesByFullName) {
+        this.names = names;
+        this.nodes = nodes;
+        this.byName = byName;
+        this.classesByFullName = classesByFullName;
+    }
+
+    /**
+     * 只读取类节点中已有的方法和字段列表，不会反编译。
+     */
+    public static NameIndex build(List<JavaClass> classes) {
+        List<String> nameList = new ArrayList<>();
+        List<Object> nodeList = new ArrayList<>();
+        int classCount = 0;
+        for (JavaClass cls : classes) {
+            ClassNode clsNode = cls.getClassNode();
+            nameList.add(clsNode.getAlias());
+            nodeList.add(clsNode);
+            classCount++;
+            for (MethodNode mthNode : clsNode.getMethods()) {
+                String name = mthNode.getName();
+                if (name.startsWith("<")) continue; // <init> 和 <clinit>
+                nameList.add(name);
+                nodeList.add(mthNode);
+            }
+            for (FieldNode fieldNode : clsNode.getFields()) {
+                nameList.add(fieldNode.getName());
+                nodeList.add(fieldNode);
+            }
+        }
+        String[] names = nameList.toArray(new String[0]);
+        Object[] nodes = nodeList.toArray();
+
+        int[] byName = sortedIndexes(names.length, i -> names[i]);
+        int[] classIndexes = new int[classCount];
+        for (int i = 0, j = 0; i < nodes.length; i++) {
+            if (nodes[i] instanceof ClassNode) classIndexes[j++] = i;
+        }
+        int[] classesByFullName = sortedIndexes(classCount, j -> ((ClassNode) nodes[classIndexes[j]]).getFullName());
+        for (int j = 0; j < classesByFullName.length; j++) {
+            classesByFullName[j] = classIndexes[classesByFullName[j]];
+        }
+        return new NameIndex(names, nodes, byName, classesByFullName);
+    }
+
+    private interface KeyFunction {
+        String key(int index);
+    }
+
+    private static int[] sortedIndexes(int size, KeyFunction key) {
+        Integer[] indexes = new Integer[size];
+        for (int i = 0; i < size; i++) indexes[i] = i;
+        Arrays.sort(indexes, (a, b) -> {
+            int result = String.CASE_INSENSITIVE_ORDER.compare(key.key(a), key.key(b));
+            return result != 0 ? result : Integer.compare(a, b);
+        });
+        int[] sorted = new int[size];
+        for (int i = 0; i < size; i++) sorted[i] = indexes[i];
+        return sorted;
+    }
+
+    /**
+     * 查询名称，结果按匹配程度排序，最多返回 limit 个。
+     * 查询中含有 `.` 时匹配完整类名（只返回类），否则匹配类、方法和字段的简单名称。
+     * @param kind 只返回该类型的名称，为 null 时返回全部。
+     * @param maxDistance 编辑距离查询允许的最大距离，小于 0 时按查询长度选择。
+     * @throws CancellationException 请求已经取消。
+     */
+    public List<Map<String, Object>> search(String query, Mode mode, Kind kind, int limit, int maxDistance) {
+        boolean qualified = query.indexOf('.') >= 0;
+        if (qualified && kind != null && kind != Kind.CLASS) return Collections.emptyList();
+        Kind targetKind = qualified ? Kind.CLASS : kind;
+        TopK topK = new TopK(Math.max(1, Math.min(limit, MAX_LIMIT)));
+
+        if (mode == Mode.PREFIX) {
+            int[] order = qualified ? classesByFullName : byName;
+            int from = lowerBound(order, query, qualified);
+            for (int i = from; i < order.length; i++) {
+                String name = getKey(order[i], qualified);
+                if (!name.regionMatches(true, 0, query, 0, query.length())) break;
+                if (i % CANCEL_CHECK_INTERVAL == 0) checkCancelled();
+                if (matchesKind(order[i], targetKind)) {
+                    topK.offer(name.length() - query.length(), order[i]);
+                }
+            }
+        } else {
+            int distance = maxDistance >= 0 ? maxDistance : defaultDistance(query);
+            for (int i = 0; i < names.length; i++) {
+                if (i % CANCEL_CHECK_INTERVAL == 0) checkCancelled();
+                if (!matchesKind(i, targetKind)) continue;
+                String name = getKey(i, qualified);
+                int score = switch (mode) {
+                    case SUBSTRING -> substringScore(name, query);
+                    case CAMEL -> camelScore(name, query);
+                    default -> fuzzyScore(name, query, distance);
+                };
+                if (score >= 0) topK.offer(score, i);
+            }
+        }
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (int index : topK.sorted()) {
+            results.add(toMap(index));
+        }
+        return results;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    private String getKey(int index, boolean qualified) {
+        return qualified ? ((ClassNode) nodes[index]).getFullName() : names[index];
+    }
+
+    private boolean matchesKind(int index, Kind kind) {
+        return kind == null || kind == getKind(index);
+    }
+
+    private Kind getKind(int index) {
+        Object node = nodes[index];
+        if (node instanceof ClassNode) return Kind.CLASS;
+        return node instanceof MethodNode ? Kind.METHOD : Kind.FIELD;
+    }
+
+    private Map<String, Object> toMap(int index) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        Object node = nodes[index];
+        result.put("kind", getKind(index).name().toLowerCase(Locale.ROOT));
+        result.put("name", node instanceof ClassNode clsNode ? clsNode.getFullName() : node.toString());
+        return result;
+    }
+
+    private int lowerBound(int[] order, String query, boolean qualified) {
+        int low = 0;
+        int high = order.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (String.CASE_INSENSITIVE_ORDER.compare(getKey(order[mid], qualified), query) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static void checkCancelled() {
+        Cancellation cancellation = Cancellation.current();
+        if (cancellation.isCancelled()) {
+            throw new CancellationException("Request cancelled: " + cancellation.getReason());
+        }
+    }
+
+    /**
+     * 越靠前的匹配得分越好，同一位置的匹配中名称越短越好。
+     */
+    private static int substringScore(String name, String query) {
+        int max = name.length() - query.length();
+        for (int i = 0; i <= max; i++) {
+            if (name.regionMatches(true, i, query, 0, query.length())) {
+                return (i == 0 ? 0 : SCORE_STEP) + Math.min(max, SCORE_STEP - 1);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 驼峰查询：查询中的每个字符要么接着上一个字符匹配，要么匹配之后某个单词的首字母，
+     * 例如 `gPN`、`getPN` 和 `gpn` 都匹配 `getPackageName`。从名称开头匹配的结果优先。
+     */
+    private static int camelScore(String name, String query) {
+        if (query.isEmpty()) return -1;
+        int extra = Math.min(name.length() - query.length(), SCORE_STEP - 1);
+        if (extra < 0) return -1;
+        byte[] memo = null;
+        for (int start = 0; start < name.length(); start++) {
+            if (!isHumpStart(name, start) || !equalsIgnoreCase(name.charAt(start), query.charAt(0))) continue;
+            if (memo == null) memo = new byte[(name.length() + 1) * query.length()];
+            if (camelMatch(name, start + 1, query, 1, memo)) {
+                return (start == 0 ? 0 : SCORE_STEP) + extra;
+            }
+        }
+        return -1;
+    }
+
+    /* memo 记录 (nameIndex, queryIndex) 的结果，1 为匹配，2 为不匹配，避免交替大小写的名称上回溯过多 */
+    private static boolean camelMatch(String name, int nameIndex, String query, int queryIndex, byte[] memo) {
+        if (queryIndex == query.length()) return true;
+        int key = nameIndex * query.length() + queryIndex;
+        if (memo[key] != 0) return memo[key] == 1;
+
+        char c = query.charAt(queryIndex);
+        boolean matched = nameIndex < name.length() && equalsIgnoreCase(name.charAt(nameIndex), c) &&
+                camelMatch(name, nameIndex + 1, query, queryIndex + 1, memo);
+        for (int i = nameIndex + 1; !matched && i < name.length(); i++) {
+            matched = isHumpStart(name, i) && equalsIgnoreCase(name.charAt(i), c) &&
+                    camelMatch(name, i + 1, query, queryIndex + 1, memo);
+        }
+        memo[key] = (byte) (matched ? 1 : 2);
+        return matched;
+    }
+
+    /**
+     * 单词的首字母：名称开头、小写字母或数字后的大写字母、连续大写字母中最后一个（`URLConnection` 的 `C`）、
+     * `_` `$` `.` 之后的字符以及数字串的开头。
+     */
+    private static boolean isHumpStart(String name, int index) {
+        if (index == 0) return true;
+        char c = name.charAt(index);
+        char prev = name.charAt(index - 1);
+        if (prev == '_' || prev == '$' || prev == '.') return c != '_' && c != '$' && c != '.';
+        if (Character.isDigit(c)) return !Character.isDigit(prev);
+        if (!Character.isUpperCase(c)) return false;
+        if (!Character.isUpperCase(prev)) return true;
+        return index + 1 < name.length() && Character.isLowerCase(name.charAt(index + 1));
+    }
+
+    private static boolean equalsIgnoreCase(char a, char b) {
+        return a == b || Character.toLowerCase(a) == Character.toLowerCase(b);
+    }
+
+    private static int defaultDistance(String query) {
+        if (query.length() <= 4) return 1;
+        return query.length() <= 8 ? 2 : 3;
+    }
+
+    /**
+     * 编辑距离不超过 maxDistance 时返回距离乘以 SCORE_STEP 再加上长度差，否则返回 -1。
+     */
+    private static int fuzzyScore(String name, String query, int maxDistance) {
+        int lengthDiff = Math.abs(name.length() - query.length());
+        if (lengthDiff > maxDistance) return -1;
+        int distance = editDistance(name, query, maxDistance);
+        return distance <= maxDistance ? distance * SCORE_STEP + lengthDiff : -1;
+    }
+
+    /**
+     * 不区分大小写的 Levenshtein 距离，某一行的最小值超过 maxDistance 时提前结束并返回 maxDistance + 1。
+     */
+    private static int editDistance(String a, String b, int maxDistance) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) previous[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            char c = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = equalsIgnoreCase(c, b.charAt(j - 1)) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxDistance) return maxDistance + 1;
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    /**
+     * 保留得分最小的 K 个下标的大顶堆，得分相同时下标小的优先（类在前，按加载顺序）。
+     */
+    private static class TopK {
+        private final long[] heap;
+        private int size = 0;
+
+        TopK(int capacity) {
+            this.heap = new long[capacity];
+        }
+
+        void offer(int score, int index) {
+            long key = ((long) score << 32) | index;
+            if (size < heap.length) {
+                heap[size] = key;
+                siftUp(size++);
+            } else if (key < heap[0]) {
+                heap[0] = key;
+                siftDown(0);
+            }
+        }
+
+        int[] sorted() {
+            long[] keys = Arrays.copyOf(heap, size);
+            Arrays.sort(keys);
+            int[] indexes = new int[size];
+            for (int i = 0; i < size; i++) indexes[i] = (int) keys[i];
+            return indexes;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (heap[parent] >= heap[i]) break;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int largest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && heap[left] > heap[largest]) largest = left;
+                if (right < size && heap[right] > heap[largest]) largest = right;
+                if (largest == i) return;
+                swap(i, largest);
+                i = largest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            long tmp = heap[a];
+            heap[a] = heap[b];
+            heap[b] = tmp;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.wrlus.jadx.index;
+
+import jadx.core.dex.info.FieldInfo;
+import jadx.core.dex.instructions.IndexInsnNode;
+import jadx.core.dex.nodes.FieldNode;
+import jadx.core.dex.nodes.InsnNode;
+import jadx.core.dex.nodes.MethodNode;
+import jadx.core.dex.nodes.RootNode;
+
+import java.util.*;
+
+/**
+ * 字段读写交叉引用：每个方法中 IGET/SGET（读）和 IPUT/SPUT（写）指令访问的字段及指令偏移。
+ * 加载实例时扫描一次所有方法的原始指令创建，查询只读取索引，不需要反编译。
+ */
+public class XrefIndex {
+    /**
+     * 方法中访问某个字段的指令偏移。
+     */
+    public record Site(MethodNode method, int[] offsets) {
+        public Map<String, Object> toMap() {
+            List<String> offsetList = new ArrayList<>(offsets.length);
+            for (int offset : offsets) offsetList.add(String.format("0x%04x", offset));
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("method", method.toString());
+            map.put("offsets", offsetList);
+            return map;
+        }
+    }
+
+    /**
+     * 一个方法读写的字段，字段按第一次访问的顺序排列。
+     */
+    public record MethodXrefs(MethodNode method, Map<FieldInfo, int[]> reads, Map<FieldInfo, int[]> writes) {
+        public boolean isEmpty() {
+            return reads.isEmpty() && writes.isEmpty();
+        }
+    }
+
+    private final Map<FieldInfo, List<Site>> readers;
+    private final Map<FieldInfo, List<Site>> writers;
+    private final Map<MethodNode, MethodXrefs> methods;
+    /* 字段名到字段，用于按参数查找没有在应用中定义的字段 */
+    private final Map<String, List<FieldInfo>> fieldsByName;
+
+    private XrefIndex(Map<FieldInfo, List<Site>> readers, Map<FieldInfo, List<Site>> writers,
+                      Map<MethodNode, MethodXrefs> methods, Map<String, List<FieldInfo>> fieldsByName) {
+        this.readers = readers;
+        this.writers = writers;
+        this.methods = methods;
+        this.fieldsByName = fieldsByName;
+    }
+
+    /**
+     * 在工作线程中扫描一个方法的指令，通过父类访问的字段解析到定义它的类。
+     */
+    public static MethodXrefs scanMethod(RootNode root, MethodNode method, InsnNode[] instructions) {
+        Map<FieldInfo, List<Integer>> reads = new LinkedHashMap<>();
+        Map<FieldInfo, List<Integer>> writes = new LinkedHashMap<>();
+        for (InsnNode insn : instructions) {
+            if (insn == null) continue;
+            Map<FieldInfo, List<Integer>> target = switch (insn.getType()) {
+                case IGET, SGET -> reads;
+                case IPUT, SPUT -> writes;
+                default -> null;
+            };
+            if (target == null || !(insn instanceof IndexInsnNode indexInsn) ||
+                    !(indexInsn.getIndex() instanceof FieldInfo fieldInfo)) {
+                continue;
+            }
+            FieldNode fieldNode = root.resolveField(fieldInfo);
+            FieldInfo resolved = fieldNode != null ? fieldNode.getFieldInfo() : fieldInfo;
+            target.computeIfAbsent(resolved, k -> new ArrayList<>(2)).add(insn.getOffset());
+        }
+        return new MethodXrefs(method, toOffsets(reads), toOffsets(writes));
+    }
+
+    private static Map<FieldInfo, int[]> toOffsets(Map<FieldInfo, List<Integer>> accesses) {
+        if (accesses.isEmpty()) return Collections.emptyMap();
+        Map<FieldInfo, int[]> result = new LinkedHashMap<>();
+        accesses.forEach((field, offsets) -> result.put(field, offsets.stream().mapToInt(Integer::intValue).toArray()));
+        return result;
+    }
+
+    /**
+     * 按类的顺序合并各个方法的扫描结果，不是线程安全的。
+     */
+    public static class Builder {
+        private final Map<FieldInfo, List<Site>> readers = new HashMap<>();
+        private final Map<FieldInfo, List<Site>> writers = new HashMap<>();
+        private final Map<MethodNode, MethodXrefs> methods = new HashMap<>();
+        private final Map<String, List<FieldInfo>> fieldsByName = new HashMap<>();
+
+        public void add(MethodXrefs xrefs) {
+            if (xrefs.isEmpty()) return;
+            methods.put(xrefs.method(), xrefs);
+            addSites(readers, xrefs.method(), xrefs.reads());
+            addSites(writers, xrefs.method(), xrefs.writes());
+        }
+
+        private void addSites(Map<FieldInfo, List<Site>> sites, MethodNode method, Map<FieldInfo, int[]> accesses) {
+            accesses.forEach((field, offsets) -> {
+                List<Site> fieldSites = sites.get(field);
+                if (fieldSites == null) {
+                    fieldSites = new ArrayList<>(2);
+                    sites.put(field, fieldSites);
+                    List<FieldInfo> sameName = fieldsByName.computeIfAbsent(field.getName(), k -> new ArrayList<>(1));
+                    if (!sameName.contains(field)) sameName.add(field);
+                }
+                fieldSites.add(new Site(method, offsets));
+            });
+        }
+
+        public XrefIndex build() {
+            return new XrefIndex(readers, writers, methods, fieldsByName);
+        }
+    }
+
+    /**
+     * 按类名和字段名查找，忽略签名中的类型（索引中的字段类型不带泛型参数）。
+     * @param className 字段所在类的完整类名。
+     * @param fieldName `完整类名.字段名 :类型` 格式的字段签名或者只有字段名。
+     * @return 匹配的字段，没有被任何方法读写时返回 null。
+     */
+    public FieldInfo findField(String className, String fieldName) {
+        String name = fieldName;
+        int typeStart = name.indexOf(" :");
+        if (typeStart >= 0) name = name.substring(0, typeStart);
+        name = name.substring(name.lastIndexOf('.') + 1).trim();
+
+        for (FieldInfo field : fieldsByName.getOrDefault(name, Collections.emptyList())) {
+            if (field.getDeclClass().getFullName().equals(className)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 与 get_class_fields 相同的 `完整类名.字段名 :类型` 格式，应用中没有定义的字段使用引用中的类型。
+     */
+    public static String formatField(RootNode root, FieldInfo field) {
+        FieldNode fieldNode = root.resolveField(field);
+        if (fieldNode != null) return fieldNode.toString();
+        return field.getDeclClass().getFullName() + "." + field.getName() + " :" + field.getType();
+    }
+
+    public List<Site> getReaders(FieldInfo field) {
+        return readers.getOrDefault(field, Collections.emptyList());
+    }
+
+    public List<Site> getWriters(FieldInfo field) {
+        return writers.getOrDefault(field, Collections.emptyList());
+    }
+
+    /**
+     * @return 方法读写的字段，没有访问任何字段时返回 null。
+     */
+    public MethodXrefs getMethodXrefs(MethodNode method) {
+        return methods.get(method);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("fields", readers.size() + writers.size() - countBoth());
+        stats.put("methods", methods.size());
+        return stats;
+    }
+
+    private int countBoth() {
+        int both = 0;
+        for (FieldInfo field : readers.keySet()) {
+            if (writers.containsKey(field)) both++;
+        }
+        return both;
+    }
+}
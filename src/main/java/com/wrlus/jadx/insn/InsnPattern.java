@@ -0,0 +1,146 @@
+package com.wrlus.jadx.insn;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import jadx.core.dex.instructions.ConstClassNode;
+import jadx.core.dex.instructions.ConstStringNode;
+import jadx.core.dex.instructions.InsnType;
+import jadx.core.dex.instructions.args.InsnArg;
+import jadx.core.dex.instructions.args.LiteralArg;
+import jadx.core.dex.instructions.args.RegisterArg;
+import jadx.core.dex.nodes.InsnNode;
+
+import java.util.*;
+
+/**
+ * 在方法的原始指令（未经反编译处理）上匹配的指令序列，每一步按顺序匹配一条指令，中间可以有其他指令。
+ */
+public class InsnPattern {
+    public static final int MAX_STEPS = 32;
+
+    private final List<InsnStep> steps;
+    private final boolean trackConsts;
+
+    private InsnPattern(List<InsnStep> steps) {
+        this.steps = steps;
+        this.trackConsts = steps.stream().anyMatch(InsnStep::constArg);
+    }
+
+    /**
+     * @param json 步骤的 JSON 数组，例如 `[{"string": "AES"}, {"invoke": "javax.crypto.Cipher.getInstance"}]`。
+     * @throws IllegalArgumentException 格式无效。
+     */
+    public static InsnPattern parse(String json) {
+        List<Map<String, Object>> items;
+        try {
+            items = new Gson().fromJson(json, new TypeToken<List<Map<String, Object>>>(){}.getType());
+        } catch (JsonParseException e) {
+            throw new IllegalArgumentException("Invalid pattern format. Expected JSON array of objects: " + e.getMessage());
+        }
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("Pattern is empty");
+        }
+        if (items.size() > MAX_STEPS) {
+            throw new IllegalArgumentException("Pattern has more than " + MAX_STEPS + " steps");
+        }
+        List<InsnStep> steps = new ArrayList<>();
+        for (Map<String, Object> item : items) {
+            if (item == null) throw new IllegalArgumentException("Pattern step must be an object");
+            steps.add(InsnStep.parse(item));
+        }
+        return new InsnPattern(List.copyOf(steps));
+    }
+
+    /**
+     * @param instructions 方法按偏移排列的指令数组，可以包含 null。
+     * @return 第一次完整匹配时每一步匹配到的指令，不匹配时返回 null。
+     */
+    public List<String> match(InsnNode[] instructions) {
+        List<InsnNode> insns = new ArrayList<>();
+        for (InsnNode insn : instructions) {
+            if (insn != null) insns.add(insn);
+        }
+        List<List<String>> consts = trackConsts ? trackConsts(insns) : null;
+
+        int[] positions = new int[steps.size()];
+        BitSet failed = new BitSet();
+        if (!matchStep(insns, consts, 0, 0, positions, failed)) return null;
+
+        List<String> matched = new ArrayList<>();
+        for (int i = 0; i < positions.length; i++) {
+            String text = insns.get(positions[i]).toString();
+            if (steps.get(i).constArg()) text += " consts=" + consts.get(positions[i]);
+            matched.add(text);
+        }
+        return matched;
+    }
+
+    /**
+     * 从 start 开始匹配第 stepIndex 步，失败的 (stepIndex, start) 记录在 failed 中，避免 within 条件下重复回溯。
+     */
+    private boolean matchStep(List<InsnNode> insns, List<List<String>> consts, int stepIndex, int start,
+                              int[] positions, BitSet failed) {
+        if (stepIndex == steps.size()) return true;
+        int key = stepIndex * (insns.size() + 1) + start;
+        if (failed.get(key)) return false;
+
+        InsnStep step = steps.get(stepIndex);
+        int end = insns.size();
+        if (stepIndex > 0 && step.within() != null) {
+            end = (int) Math.min(end, (long) start + step.within());
+        }
+        for (int i = start; i < end; i++) {
+            if (!step.matches(insns.get(i), consts != null ? consts.get(i) : null)) continue;
+            positions[stepIndex] = i;
+            if (matchStep(insns, consts, stepIndex + 1, i + 1, positions, failed)) return true;
+        }
+        failed.set(key);
+        return false;
+    }
+
+    /**
+     * 按指令顺序记录每个寄存器最近一次写入的常量，忽略分支，得到每条指令的参数中来自常量的值。
+     */
+    private static List<List<String>> trackConsts(List<InsnNode> insns) {
+        Map<Integer, String> registers = new HashMap<>();
+        List<List<String>> result = new ArrayList<>(insns.size());
+        for (InsnNode insn : insns) {
+            List<String> consts = new ArrayList<>();
+            for (InsnArg arg : insn.getArguments()) {
+                if (arg instanceof RegisterArg register) {
+                    String value = registers.get(register.getRegNum());
+                    if (value != null) consts.add(value);
+                } else if (arg instanceof LiteralArg literal && insn.getType() != InsnType.CONST) {
+                    consts.add(String.valueOf(literal.getLiteral()));
+                }
+            }
+            result.add(consts);
+
+            if (insn.getType() == InsnType.FILL_ARRAY && insn.getArgsCount() > 0 &&
+                    insn.getArg(0) instanceof RegisterArg array) {
+                registers.put(array.getRegNum(), "array");
+            }
+            RegisterArg resultArg = insn.getResult();
+            if (resultArg == null) continue;
+            String value = null;
+            if (insn instanceof ConstStringNode constString) {
+                value = "\"" + constString.getString() + "\"";
+            } else if (insn instanceof ConstClassNode constClass) {
+                value = constClass.getClsType() + ".class";
+            } else if (insn.getType() == InsnType.CONST && insn.getArgsCount() > 0 &&
+                    insn.getArg(0) instanceof LiteralArg literal) {
+                value = String.valueOf(literal.getLiteral());
+            } else if (insn.getType() == InsnType.MOVE && insn.getArgsCount() > 0 &&
+                    insn.getArg(0) instanceof RegisterArg source) {
+                value = registers.get(source.getRegNum());
+            }
+            if (value != null) {
+                registers.put(resultArg.getRegNum(), value);
+            } else {
+                registers.remove(resultArg.getRegNum());
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,153 @@
+package com.wrlus.jadx.insn;
+
+import jadx.core.dex.info.FieldInfo;
+import jadx.core.dex.info.MethodInfo;
+import jadx.core.dex.instructions.ConstClassNode;
+import jadx.core.dex.instructions.ConstStringNode;
+import jadx.core.dex.instructions.IndexInsnNode;
+import jadx.core.dex.instructions.InsnType;
+import jadx.core.dex.instructions.InvokeNode;
+import jadx.core.dex.instructions.NewArrayNode;
+import jadx.core.dex.instructions.args.ArgType;
+import jadx.core.dex.instructions.args.InsnArg;
+import jadx.core.dex.instructions.args.LiteralArg;
+import jadx.core.dex.nodes.InsnNode;
+
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * 指令模式中的一步，给出的条件都满足时匹配一条指令。
+ * @param opcode jadx 的指令类型，例如 `INVOKE`、`CONST_STR`、`IF`、`SGET`。
+ * @param invoke 被调用的方法，`方法名` 或 `完整类名.方法名`。
+ * @param field 读写的字段，`字段名` 或 `完整类名.字段名`。
+ * @param type `NEW_INSTANCE`、`NEW_ARRAY`、`CHECK_CAST`、`INSTANCE_OF` 和 `CONST_CLASS` 使用的类型。
+ * @param string 字符串常量包含的内容。
+ * @param stringPattern 字符串常量匹配的正则表达式（find）。
+ * @param literal 数值常量，包括指令的字面量参数。
+ * @param constArg 至少一个参数来自常量（字符串、数值、类或填充的数组）。
+ * @param within 与上一步匹配的指令之间最多相隔的指令数，为 null 时不限制。
+ */
+public record InsnStep(InsnType opcode, String invoke, String field, String type, String string,
+                       Pattern stringPattern, Long literal, boolean constArg, Integer within) {
+    private static final Set<String> KEYS = Set.of("opcode", "invoke", "field", "type", "string", "stringRegex",
+            "literal", "constArg", "within");
+    private static final Set<InsnType> TYPE_INSNS = EnumSet.of(InsnType.NEW_INSTANCE, InsnType.NEW_ARRAY,
+            InsnType.CHECK_CAST, InsnType.INSTANCE_OF, InsnType.CONST_CLASS);
+
+    /**
+     * @throws IllegalArgumentException 参数名、指令类型或正则表达式无效，或者没有任何条件。
+     */
+    public static InsnStep parse(Map<String, Object> step) {
+        for (String key : step.keySet()) {
+            if (!KEYS.contains(key)) {
+                throw new IllegalArgumentException("Unknown pattern key: " + key + ", expected one of " + KEYS);
+            }
+        }
+        InsnType opcode = null;
+        String opcodeValue = getString(step, "opcode");
+        if (opcodeValue != null) {
+            try {
+                opcode = InsnType.valueOf(opcodeValue.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown opcode: " + opcodeValue);
+            }
+        }
+        Pattern stringPattern = null;
+        String regex = getString(step, "stringRegex");
+        if (regex != null) {
+            try {
+                stringPattern = Pattern.compile(regex);
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException("Invalid stringRegex: " + e.getMessage());
+            }
+        }
+        Number literal = getNumber(step, "literal");
+        Number within = getNumber(step, "within");
+        if (within != null && within.intValue() < 1) {
+            throw new IllegalArgumentException("within must be positive");
+        }
+        Object constArg = step.get("constArg");
+
+        InsnStep parsed = new InsnStep(opcode, getString(step, "invoke"), getString(step, "field"),
+                getString(step, "type"), getString(step, "string"), stringPattern,
+                literal != null ? literal.longValue() : null, Boolean.TRUE.equals(constArg) || "true".equals(constArg),
+                within != null ? within.intValue() : null);
+        if (parsed.opcode == null && parsed.invoke == null && parsed.field == null && parsed.type == null &&
+                parsed.string == null && parsed.stringPattern == null && parsed.literal == null && !parsed.constArg) {
+            throw new IllegalArgumentException("Pattern step has no condition: " + step);
+        }
+        return parsed;
+    }
+
+    private static String getString(Map<String, Object> step, String key) {
+        Object value = step.get(key);
+        return value != null ? value.toString() : null;
+    }
+
+    private static Number getNumber(Map<String, Object> step, String key) {
+        Object value = step.get(key);
+        if (value == null || value instanceof Number) return (Number) value;
+        try {
+            String text = value.toString().trim();
+            return text.startsWith("0x") || text.startsWith("0X") ?
+                    Long.parseLong(text.substring(2), 16) : Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " must be a number: " + value);
+        }
+    }
+
+    /**
+     * @param consts 指令参数来自的常量，只在 constArg 为 true 时使用。
+     */
+    boolean matches(InsnNode insn, List<String> consts) {
+        if (opcode != null && insn.getType() != opcode) return false;
+        if (invoke != null) {
+            if (!(insn instanceof InvokeNode invokeNode)) return false;
+            MethodInfo callMth = invokeNode.getCallMth();
+            if (!matchesMember(invoke, callMth.getDeclClass().getFullName(), callMth.getName())) return false;
+        }
+        if (field != null) {
+            if (!(insn instanceof IndexInsnNode indexInsn) || !(indexInsn.getIndex() instanceof FieldInfo fieldInfo)) {
+                return false;
+            }
+            if (!matchesMember(field, fieldInfo.getDeclClass().getFullName(), fieldInfo.getName())) return false;
+        }
+        if (type != null && !type.equals(getTypeName(insn))) return false;
+        if (string != null || stringPattern != null) {
+            if (!(insn instanceof ConstStringNode constString)) return false;
+            if (string != null && !constString.getString().contains(string)) return false;
+            if (stringPattern != null && !stringPattern.matcher(constString.getString()).find()) return false;
+        }
+        if (literal != null && !hasLiteral(insn, literal)) return false;
+        return !constArg || (consts != null && !consts.isEmpty());
+    }
+
+    private static boolean matchesMember(String expected, String declClass, String name) {
+        int dot = expected.lastIndexOf('.');
+        if (dot < 0) return expected.equals(name);
+        return expected.substring(dot + 1).equals(name) && expected.substring(0, dot).equals(declClass);
+    }
+
+    private static String getTypeName(InsnNode insn) {
+        if (!TYPE_INSNS.contains(insn.getType())) return null;
+        ArgType argType = null;
+        if (insn instanceof ConstClassNode constClass) {
+            argType = constClass.getClsType();
+        } else if (insn instanceof NewArrayNode newArray) {
+            argType = newArray.getArrayType();
+        } else if (insn instanceof IndexInsnNode indexInsn && indexInsn.getIndex() instanceof ArgType indexType) {
+            argType = indexType;
+        }
+        if (argType == null) return null;
+        return argType.isObject() && !argType.isArray() ? argType.getObject() : argType.toString();
+    }
+
+    private static boolean hasLiteral(InsnNode insn, long value) {
+        for (InsnArg arg : insn.getArguments()) {
+            if (arg instanceof LiteralArg literalArg && literalArg.getLiteral() == value) return true;
+        }
+        return false;
+    }
+}
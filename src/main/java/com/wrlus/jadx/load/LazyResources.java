@@ -0,0 +1,89 @@
+package com.wrlus.jadx.load;
+
+import jadx.api.JadxDecompiler;
+import jadx.api.ResourceFile;
+import jadx.api.ResourceType;
+import jadx.api.ResourcesLoader;
+import jadx.api.plugins.CustomResourcesLoader;
+import jadx.core.dex.nodes.RootNode;
+import jadx.core.utils.exceptions.JadxException;
+import jadx.core.xmlgen.IResTableParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 只加载代码时的资源。加载时 jadx 列出每个输入文件中的资源并解码 resources.arsc，
+ * 注册这个加载器后 jadx 看到的资源列表为空；第一次查询 Manifest 或资源时再列出资源、解码资源表，
+ * 并设置 XML 解码需要的资源名称和 Manifest 属性。
+ * <p>
+ * 代码已经在没有资源表的情况下反编译，延迟解码不再修改 R 类和代码中的资源 ID，也不应用资源文件的反混淆名称。
+ */
+public class LazyResources implements CustomResourcesLoader {
+    private static final Logger logger = LoggerFactory.getLogger(LazyResources.class);
+
+    private volatile List<ResourceFile> resources;
+    private volatile long loadMs = -1;
+
+    @Override
+    public boolean load(ResourcesLoader loader, List<ResourceFile> list, File file) {
+        // 跳过所有输入文件，jadx 的资源列表保持为空
+        return true;
+    }
+
+    /**
+     * @return 输入文件中的资源，第一次调用时列出资源并解码资源表。
+     */
+    public synchronized List<ResourceFile> get(JadxDecompiler decompiler) {
+        if (resources != null) return resources;
+
+        long start = System.currentTimeMillis();
+        ResourcesLoader loader = decompiler.getResourcesLoader();
+        List<ResourceFile> list = new ArrayList<>();
+        for (File file : decompiler.getArgs().getInputFiles()) {
+            if (file != null && !file.isDirectory()) loader.defaultLoadFile(list, file, "");
+        }
+        for (ResourceFile resource : list) {
+            if (resource.getType() == ResourceType.ARSC) {
+                decodeTable(decompiler.getRoot(), loader, resource);
+                break;
+            }
+        }
+        resources = Collections.unmodifiableList(list);
+        loadMs = System.currentTimeMillis() - start;
+        logger.info("Loaded {} resources on demand in {} ms", list.size(), loadMs);
+        return resources;
+    }
+
+    private static void decodeTable(RootNode root, ResourcesLoader loader, ResourceFile table) {
+        try {
+            IResTableParser parser = ResourcesLoader.decodeStream(table, (size, is) -> loader.decodeTable(table, is));
+            if (parser == null) return;
+            root.getConstValues().setResourcesNames(parser.getResStorage().getResourcesNames());
+            root.initManifestAttributes().updateAttributes(parser);
+        } catch (JadxException e) {
+            // 与 jadx 加载时相同，资源表无法解码时 XML 中保留资源 ID
+            logger.error("Failed to decode resource table {}", table.getOriginalName(), e);
+        }
+    }
+
+    public boolean isLoaded() {
+        return resources != null;
+    }
+
+    /**
+     * @return 延迟加载资源的时间，还没有加载时返回 -1。
+     */
+    public long getLoadMs() {
+        return loadMs;
+    }
+
+    @Override
+    public void close() {
+        resources = null;
+    }
+}
@@ -0,0 +1,114 @@
+package com.wrlus.jadx.load;
+
+import com.wrlus.jadx.reload.ClassHasher;
+import jadx.api.JadxArgs;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.BiConsumer;
+
+/**
+ * 实例的加载方式：只加载代码时不在加载时列出和解码资源（见 {@link LazyResources}）；
+ * 可以关闭 jadx 的一些可选处理，反编译更快、占用更少，代码与默认设置下不同。
+ *
+ * @param codeOnly       加载时跳过资源，第一次查询 Manifest 或资源时再解码。
+ * @param disabledPasses 关闭的可选处理，名称见 {@link #PASSES}。
+ */
+public record LoadOptions(boolean codeOnly, Set<String> disabledPasses) {
+    private static final Logger logger = LoggerFactory.getLogger(LoadOptions.class);
+
+    public static final String ENV_CODE_ONLY = "JADX_DAEMON_MCP_CODE_ONLY";
+    public static final String ENV_DISABLED_PASSES = "JADX_DAEMON_MCP_DISABLED_PASSES";
+
+    /* 可以关闭的处理和关闭它的 JadxArgs 设置，默认都开启 */
+    private static final Map<String, BiConsumer<JadxArgs, Boolean>> PASSES = new LinkedHashMap<>();
+
+    static {
+        PASSES.put("inlineAnonymousClasses", JadxArgs::setInlineAnonymousClasses);
+        PASSES.put("inlineMethods", JadxArgs::setInlineMethods);
+        PASSES.put("inlineKotlinLambda", JadxArgs::setAllowInlineKotlinLambda);
+        PASSES.put("moveInnerClasses", JadxArgs::setMoveInnerClasses);
+        PASSES.put("extractFinally", JadxArgs::setExtractFinally);
+        PASSES.put("restoreSwitchOverString", JadxArgs::setRestoreSwitchOverString);
+        PASSES.put("replaceConsts", JadxArgs::setReplaceConsts);
+        PASSES.put("debugInfo", JadxArgs::setDebugInfo);
+    }
+
+    public static LoadOptions fromEnv() {
+        boolean codeOnly = Boolean.parseBoolean(System.getenv(ENV_CODE_ONLY));
+        Set<String> disabledPasses = Set.of();
+        String value = System.getenv(ENV_DISABLED_PASSES);
+        if (value != null && !value.isBlank()) {
+            try {
+                disabledPasses = parsePasses(value);
+            } catch (IllegalArgumentException e) {
+                logger.error("Invalid value of {}: {}", ENV_DISABLED_PASSES, e.getMessage());
+            }
+        }
+        return new LoadOptions(codeOnly, disabledPasses);
+    }
+
+    /**
+     * 用加载请求的 `codeOnly` 和 `disabledPasses` 参数覆盖默认值，参数为 null 时使用默认值。
+     * @param disabledPasses 逗号分隔的处理名称，空字符串表示全部开启。
+     * @throws IllegalArgumentException 处理名称不存在。
+     */
+    public LoadOptions override(Boolean codeOnly, String disabledPasses) {
+        return new LoadOptions(codeOnly != null ? codeOnly : this.codeOnly,
+                disabledPasses != null ? parsePasses(disabledPasses) : this.disabledPasses);
+    }
+
+    private static Set<String> parsePasses(String value) {
+        Set<String> passes = new TreeSet<>();
+        for (String name : value.split(",")) {
+            name = name.trim();
+            if (name.isEmpty()) continue;
+            if (!PASSES.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown pass `" + name + "`, available passes: " +
+                        String.join(", ", PASSES.keySet()));
+            }
+            passes.add(name);
+        }
+        return Set.copyOf(passes);
+    }
+
+    public void apply(JadxArgs jadxArgs) {
+        for (String pass : disabledPasses) {
+            PASSES.get(pass).accept(jadxArgs, false);
+        }
+    }
+
+    /**
+     * 关闭的处理改变反编译的代码，只加载代码时 jadx 也不会用资源表中的名称替换资源 ID，
+     * 共用代码时不同设置的实例不能使用彼此的代码。
+     * @return 计入共用代码内容哈希的值。
+     */
+    public long codeHash() {
+        ClassHasher hasher = new ClassHasher();
+        hasher.add(codeOnly ? 1 : 0);
+        new TreeSet<>(disabledPasses).forEach(hasher::add);
+        return hasher.finish();
+    }
+
+    /**
+     * @return 转发给子进程加载请求的参数，以 `&` 开头。
+     */
+    public String toQuery() {
+        return "&codeOnly=" + codeOnly + "&disabledPasses=" +
+                URLEncoder.encode(String.join(",", new TreeSet<>(disabledPasses)), StandardCharsets.UTF_8);
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("mode", codeOnly ? "codeOnly" : "full");
+        map.put("disabledPasses", Arrays.asList(new TreeSet<>(disabledPasses).toArray(new String[0])));
+        return map;
+    }
+}
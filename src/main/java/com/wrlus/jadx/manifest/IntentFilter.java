@@ -0,0 +1,22 @@
+package com.wrlus.jadx.manifest;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 组件声明的一个 intent-filter。
+ * @param data 每个 `data` 标签的属性（去掉 `android:` 前缀）。
+ */
+public record IntentFilter(List<String> actions, List<String> categories, List<Map<String, String>> data,
+                           Integer priority) {
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("actions", actions);
+        map.put("categories", categories);
+        map.put("data", data);
+        if (priority != null) map.put("priority", priority);
+        return map;
+    }
+}
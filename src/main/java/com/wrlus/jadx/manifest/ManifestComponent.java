@@ -0,0 +1,42 @@
+package com.wrlus.jadx.manifest;
+
+import java.util.*;
+
+/**
+ * Manifest 中声明的一个四大组件（或 activity-alias）。
+ * @param name 补全包名后的类名。
+ * @param declaredName Manifest 中声明的原始名称。
+ * @param exported 是否导出：`android:exported` 为 true，或者未声明但包含 intent-filter。
+ * @param exportedDeclared Manifest 是否显式声明了 `android:exported`。
+ * @param targetActivity activity-alias 指向的 activity，其他组件为 null。
+ */
+public record ManifestComponent(String type, String name, String declaredName, boolean exported,
+                                boolean exportedDeclared, boolean enabled, String permission, String process,
+                                String authorities, String targetActivity, List<IntentFilter> intentFilters) {
+
+    public boolean hasAction(String action) {
+        for (IntentFilter filter : intentFilters) {
+            if (filter.actions().contains(action)) return true;
+        }
+        return false;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("type", type);
+        map.put("name", name);
+        map.put("exported", exported);
+        map.put("exportedDeclared", exportedDeclared);
+        map.put("enabled", enabled);
+        if (permission != null) map.put("permission", permission);
+        if (process != null) map.put("process", process);
+        if (authorities != null) map.put("authorities", authorities);
+        if (targetActivity != null) map.put("targetActivity", targetActivity);
+        List<Map<String, Object>> filters = new ArrayList<>();
+        for (IntentFilter filter : intentFilters) {
+            filters.add(filter.toMap());
+        }
+        map.put("intentFilters", filters);
+        return map;
+    }
+}
@@ -0,0 +1,272 @@
+package com.wrlus.jadx.manifest;
+
+import jadx.core.utils.android.ApplicationParams;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.StringReader;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * 解析后的 AndroidManifest.xml，每个实例只解析一次，组件查询不再重复解码和解析 XML。
+ */
+public class ManifestModel {
+    public static final String ANDROID_NS = "http://schemas.android.com/apk/res/android";
+    public static final List<String> COMPONENT_TYPES = List.of("activity", "activity-alias", "service", "receiver", "provider");
+    private static final Pattern META_DATA_PATTERN = Pattern.compile("<\\s*meta-data[^>]*?/>");
+
+    private final String text;
+    private final String packageName;
+    private final Map<String, Object> applicationInfo;
+    private final List<String> usesPermissions;
+    private final List<Map<String, String>> declaredPermissions;
+    private final List<ManifestComponent> components;
+
+    private ManifestModel(String text, String packageName, Map<String, Object> applicationInfo,
+                          List<String> usesPermissions, List<Map<String, String>> declaredPermissions,
+                          List<ManifestComponent> components) {
+        this.text = text;
+        this.packageName = packageName;
+        this.applicationInfo = applicationInfo;
+        this.usesPermissions = usesPermissions;
+        this.declaredPermissions = declaredPermissions;
+        this.components = components;
+    }
+
+    /**
+     * @param text jadx 解码得到的 Manifest 文本。
+     * @param params jadx 的 {@link jadx.core.utils.android.AndroidManifestParser} 解析出的应用信息，可以为 null。
+     * @throws IllegalStateException Manifest 无法解析或缺少 application 节点。
+     */
+    public static ManifestModel parse(String text, ApplicationParams params) {
+        Element root = parseXml(text).getDocumentElement();
+        String packageName = root.getAttribute("package").trim();
+
+        Element application = firstChild(root, "application");
+        if (application == null) {
+            throw new IllegalStateException("Cannot find application node.");
+        }
+
+        List<String> usesPermissions = new ArrayList<>();
+        for (String tag : List.of("uses-permission", "uses-permission-sdk-23")) {
+            for (Element permission : children(root, tag)) {
+                String name = getAndroidAttribute(permission, "name");
+                if (name != null) usesPermissions.add(name);
+            }
+        }
+        List<Map<String, String>> declaredPermissions = new ArrayList<>();
+        for (Element permission : children(root, "permission")) {
+            String name = getAndroidAttribute(permission, "name");
+            if (name == null) continue;
+            Map<String, String> declared = new LinkedHashMap<>();
+            declared.put("name", name);
+            String protectionLevel = getAndroidAttribute(permission, "protectionLevel");
+            if (protectionLevel != null) declared.put("protectionLevel", protectionLevel);
+            declaredPermissions.add(declared);
+        }
+
+        List<ManifestComponent> components = new ArrayList<>();
+        for (Node node = application.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element element && COMPONENT_TYPES.contains(element.getTagName())) {
+                ManifestComponent component = parseComponent(element, packageName);
+                if (component != null) components.add(component);
+            }
+        }
+
+        return new ManifestModel(text, packageName, getApplicationInfo(application, params),
+                List.copyOf(usesPermissions), List.copyOf(declaredPermissions), List.copyOf(components));
+    }
+
+    private static ManifestComponent parseComponent(Element element, String packageName) {
+        String declaredName = getAndroidAttribute(element, "name");
+        if (declaredName == null) return null;
+
+        List<IntentFilter> intentFilters = new ArrayList<>();
+        for (Element filter : children(element, "intent-filter")) {
+            intentFilters.add(parseIntentFilter(filter));
+        }
+        String exportedValue = getAndroidAttribute(element, "exported");
+        boolean exported = exportedValue != null ? exportedValue.equals("true") : !intentFilters.isEmpty();
+        String targetActivity = getAndroidAttribute(element, "targetActivity");
+
+        return new ManifestComponent(element.getTagName(), qualify(packageName, declaredName), declaredName,
+                exported, exportedValue != null, !"false".equals(getAndroidAttribute(element, "enabled")),
+                getAndroidAttribute(element, "permission"), getAndroidAttribute(element, "process"),
+                getAndroidAttribute(element, "authorities"),
+                targetActivity != null ? qualify(packageName, targetActivity) : null,
+                List.copyOf(intentFilters));
+    }
+
+    private static IntentFilter parseIntentFilter(Element filter) {
+        List<String> actions = new ArrayList<>();
+        for (Element action : children(filter, "action")) {
+            String name = getAndroidAttribute(action, "name");
+            if (name != null) actions.add(name);
+        }
+        List<String> categories = new ArrayList<>();
+        for (Element category : children(filter, "category")) {
+            String name = getAndroidAttribute(category, "name");
+            if (name != null) categories.add(name);
+        }
+        List<Map<String, String>> data = new ArrayList<>();
+        for (Element dataElement : children(filter, "data")) {
+            Map<String, String> attributes = new LinkedHashMap<>();
+            for (int i = 0; i < dataElement.getAttributes().getLength(); i++) {
+                Node attribute = dataElement.getAttributes().item(i);
+                String name = attribute.getLocalName() != null ? attribute.getLocalName() : attribute.getNodeName();
+                attributes.put(name, attribute.getNodeValue());
+            }
+            data.add(attributes);
+        }
+        Integer priority = null;
+        String priorityValue = getAndroidAttribute(filter, "priority");
+        if (priorityValue != null) {
+            try {
+                priority = Integer.parseInt(priorityValue);
+            } catch (NumberFormatException ignored) {
+                // 资源引用等无法解析的值
+            }
+        }
+        return new IntentFilter(List.copyOf(actions), List.copyOf(categories), List.copyOf(data), priority);
+    }
+
+    private static Map<String, Object> getApplicationInfo(Element application, ApplicationParams params) {
+        Map<String, Object> info = new LinkedHashMap<>();
+        if (params != null) {
+            info.put("label", params.getApplicationName());
+            info.put("minSdkVersion", params.getMinSdkVersion());
+            info.put("targetSdkVersion", params.getTargetSdkVersion());
+            info.put("compileSdkVersion", params.getCompileSdkVersion());
+            info.put("versionCode", params.getVersionCode());
+            info.put("versionName", params.getVersionName());
+            info.put("mainActivity", params.getMainActivity());
+            info.put("application", params.getApplication());
+        }
+        for (String attribute : List.of("debuggable", "allowBackup", "usesCleartextTraffic", "networkSecurityConfig",
+                "permission", "process")) {
+            String value = getAndroidAttribute(application, attribute);
+            if (value != null) info.put(attribute, value);
+        }
+        info.values().removeIf(Objects::isNull);
+        return info;
+    }
+
+    /**
+     * 以 `.` 开头的名称和不含 `.` 的名称都相对于包名。
+     */
+    private static String qualify(String packageName, String name) {
+        if (name.startsWith(".")) return packageName + name;
+        if (!name.contains(".") && !packageName.isEmpty()) return packageName + "." + name;
+        return name;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public List<ManifestComponent> getComponents() {
+        return components;
+    }
+
+    /**
+     * 查找组件，名称可以是补全包名后的类名或 Manifest 中声明的原始名称。
+     */
+    public ManifestComponent findComponent(String name) {
+        for (ManifestComponent component : components) {
+            if (component.name().equals(name) || component.declaredName().equals(name)) {
+                return component;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 与原来 server.py 的结果相同：不含 `.` 的名称同时返回原名和补全包名后的名称。
+     */
+    public List<String> getExportedNames(String type) {
+        List<String> names = new ArrayList<>();
+        for (ManifestComponent component : components) {
+            if (!component.type().equals(type) || !component.exported()) continue;
+            String declaredName = component.declaredName();
+            if (!declaredName.contains(".") && !declaredName.equals(component.name())) {
+                names.add(declaredName);
+            }
+            names.add(component.name());
+        }
+        return names;
+    }
+
+    public Map<String, Object> getInfo() {
+        Map<String, Integer> componentCounts = new LinkedHashMap<>();
+        Map<String, Integer> exportedCounts = new LinkedHashMap<>();
+        for (ManifestComponent component : components) {
+            componentCounts.merge(component.type(), 1, Integer::sum);
+            if (component.exported()) exportedCounts.merge(component.type(), 1, Integer::sum);
+        }
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("package", packageName);
+        info.put("application", applicationInfo);
+        info.put("usesPermissions", usesPermissions);
+        info.put("declaredPermissions", declaredPermissions);
+        info.put("componentCounts", componentCounts);
+        info.put("exportedCounts", exportedCounts);
+        return info;
+    }
+
+    /**
+     * 清理 XML 中的非法字符，并移除所有 meta-data 标签（其中的资源值常常导致解析失败）。
+     */
+    static String preprocess(String manifest) {
+        StringBuilder cleaned = new StringBuilder(manifest.length());
+        manifest.codePoints().filter(ManifestModel::isXmlChar).forEach(cleaned::appendCodePoint);
+        return META_DATA_PATTERN.matcher(cleaned).replaceAll("");
+    }
+
+    private static boolean isXmlChar(int codePoint) {
+        return codePoint == 0x9 || codePoint == 0xA || codePoint == 0xD ||
+                (codePoint >= 0x20 && codePoint <= 0xD7FF) ||
+                (codePoint >= 0xE000 && codePoint <= 0xFFFD) ||
+                (codePoint >= 0x10000 && codePoint <= 0x10FFFF);
+    }
+
+    private static org.w3c.dom.Document parseXml(String manifest) {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            return factory.newDocumentBuilder().parse(new InputSource(new StringReader(preprocess(manifest))));
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to parse AndroidManifest.xml: " + e.getMessage(), e);
+        }
+    }
+
+    private static String getAndroidAttribute(Element element, String name) {
+        return element.hasAttributeNS(ANDROID_NS, name) ? element.getAttributeNS(ANDROID_NS, name) : null;
+    }
+
+    private static Element firstChild(Element parent, String tag) {
+        List<Element> children = children(parent, tag);
+        return children.isEmpty() ? null : children.get(0);
+    }
+
+    private static List<Element> children(Element parent, String tag) {
+        List<Element> result = new ArrayList<>();
+        NodeList nodes = parent.getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            if (nodes.item(i) instanceof Element element && tag.equals(element.getTagName())) {
+                result.add(element);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,231 @@
+package com.wrlus.jadx.mcp;
+
+import com.google.gson.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * MCP 的 JSON-RPC 消息处理，与传输方式（stdio 或 streamable HTTP）无关。
+ * 工具调用直接交给守护进程的处理器，结果只序列化一次，不再经过 server.py 和额外的 HTTP 请求。
+ */
+public class McpProtocol {
+    private static final Logger logger = LoggerFactory.getLogger(McpProtocol.class);
+
+    public static final String LATEST_PROTOCOL_VERSION = "2025-06-18";
+    private static final Set<String> SUPPORTED_PROTOCOL_VERSIONS = Set.of("2024-11-05", "2025-03-26", "2025-06-18");
+    private static final String SERVER_NAME = "jadx-daemon-mcp";
+
+    private static final int PARSE_ERROR = -32700;
+    private static final int INVALID_REQUEST = -32600;
+    private static final int METHOD_NOT_FOUND = -32601;
+    private static final int INVALID_PARAMS = -32602;
+    private static final int INTERNAL_ERROR = -32603;
+
+    /**
+     * 执行工具对应的处理器。
+     */
+    public interface ToolInvoker {
+        ToolCallContext invoke(String path, Map<String, List<String>> params, String clientId, BooleanSupplier cancelled);
+    }
+
+    private final ToolInvoker invoker;
+    private final String version;
+    /* 正在执行的请求，按客户端 ID 和请求 ID 区分（请求 ID 只在一个客户端内唯一），收到 notifications/cancelled 后标记取消 */
+    private final Map<String, Set<AtomicBoolean>> inFlight = new ConcurrentHashMap<>();
+
+    public McpProtocol(ToolInvoker invoker) {
+        this.invoker = invoker;
+        String implVersion = McpProtocol.class.getPackage().getImplementationVersion();
+        this.version = implVersion != null ? implVersion : "dev";
+    }
+
+    /**
+     * 处理一条消息（或一批消息）。
+     * @return 需要返回的响应，消息都是通知或响应时返回 null。
+     */
+    public JsonElement handle(String text, String clientId) {
+        JsonElement message;
+        try {
+            message = JsonParser.parseString(text);
+        } catch (JsonParseException e) {
+            return error(JsonNull.INSTANCE, PARSE_ERROR, "Parse error: " + e.getMessage());
+        }
+        if (message.isJsonArray()) {
+            JsonArray responses = new JsonArray();
+            for (JsonElement item : message.getAsJsonArray()) {
+                JsonElement response = handleMessage(item, clientId);
+                if (response != null) responses.add(response);
+            }
+            return responses.isEmpty() ? null : responses;
+        }
+        return handleMessage(message, clientId);
+    }
+
+    private JsonElement handleMessage(JsonElement element, String clientId) {
+        if (!element.isJsonObject()) {
+            return error(JsonNull.INSTANCE, INVALID_REQUEST, "Invalid request");
+        }
+        JsonObject message = element.getAsJsonObject();
+        JsonElement id = message.get("id");
+        JsonElement methodElement = message.get("method");
+        if (methodElement == null) {
+            // 客户端发来的响应，服务端不会发起请求，忽略
+            return null;
+        }
+        String method = methodElement.getAsString();
+        JsonObject params = message.has("params") && message.get("params").isJsonObject() ?
+                message.getAsJsonObject("params") : new JsonObject();
+
+        if (id == null) {
+            handleNotification(method, params, clientId);
+            return null;
+        }
+
+        try {
+            return switch (method) {
+                case "initialize" -> result(id, initialize(params));
+                case "ping" -> result(id, new JsonObject());
+                case "tools/list" -> result(id, listTools());
+                case "tools/call" -> callTool(id, params, clientId);
+                default -> error(id, METHOD_NOT_FOUND, "Method not found: " + method);
+            };
+        } catch (RuntimeException e) {
+            logger.error("MCP request {} failed", method, e);
+            return error(id, INTERNAL_ERROR, e.getMessage());
+        }
+    }
+
+    private void handleNotification(String method, JsonObject params, String clientId) {
+        if (method.equals("notifications/cancelled") && params.has("requestId")) {
+            Set<AtomicBoolean> requests = inFlight.get(requestKey(clientId, params.get("requestId")));
+            if (requests != null) requests.forEach(cancelled -> cancelled.set(true));
+        }
+    }
+
+    private static String requestKey(String clientId, JsonElement id) {
+        return clientId + "\n" + id;
+    }
+
+    private JsonObject initialize(JsonObject params) {
+        String requested = params.has("protocolVersion") ? params.get("protocolVersion").getAsString() : null;
+
+        JsonObject tools = new JsonObject();
+        tools.addProperty("listChanged", false);
+        JsonObject capabilities = new JsonObject();
+        capabilities.add("tools", tools);
+
+        JsonObject serverInfo = new JsonObject();
+        serverInfo.addProperty("name", SERVER_NAME);
+        serverInfo.addProperty("version", version);
+
+        JsonObject result = new JsonObject();
+        result.addProperty("protocolVersion", requested != null && SUPPORTED_PROTOCOL_VERSIONS.contains(requested) ?
+                requested : LATEST_PROTOCOL_VERSION);
+        result.add("capabilities", capabilities);
+        result.add("serverInfo", serverInfo);
+        return result;
+    }
+
+    private JsonObject listTools() {
+        JsonArray tools = new JsonArray();
+        for (McpTool tool : McpTools.all()) {
+            tools.add(tool.toJson());
+        }
+        JsonObject result = new JsonObject();
+        result.add("tools", tools);
+        return result;
+    }
+
+    private JsonObject callTool(JsonElement id, JsonObject params, String clientId) {
+        String name = params.has("name") ? params.get("name").getAsString() : null;
+        McpTool tool = name != null ? McpTools.get(name) : null;
+        if (tool == null) {
+            return error(id, INVALID_PARAMS, "Unknown tool: " + name);
+        }
+        JsonObject arguments = params.has("arguments") && params.get("arguments").isJsonObject() ?
+                params.getAsJsonObject("arguments") : new JsonObject();
+
+        Map<String, List<String>> queryParams = new LinkedHashMap<>();
+        for (McpTool.Param param : tool.params()) {
+            JsonElement value = arguments.get(param.name());
+            if (value != null && !value.isJsonNull()) {
+                queryParams.put(param.name(), List.of(toParamValue(value)));
+            } else if (param.defaultValue() != null) {
+                queryParams.put(param.name(), List.of(param.defaultValue().toString()));
+            } else if (param.required()) {
+                return error(id, INVALID_PARAMS, "Missing required argument `" + param.name() + "` of " + name);
+            }
+        }
+
+        String requestKey = requestKey(clientId, id);
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        // 同一个客户端重复使用了请求 ID 时不覆盖之前请求的取消标记
+        inFlight.compute(requestKey, (key, requests) -> {
+            Set<AtomicBoolean> updated = requests != null ? requests : ConcurrentHashMap.newKeySet();
+            updated.add(cancelled);
+            return updated;
+        });
+        ToolCallContext ctx;
+        try {
+            ctx = invoker.invoke(tool.path(), queryParams, clientId, cancelled::get);
+        } finally {
+            inFlight.computeIfPresent(requestKey, (key, requests) -> {
+                requests.remove(cancelled);
+                return requests.isEmpty() ? null : requests;
+            });
+        }
+
+        JsonObject content = new JsonObject();
+        content.addProperty("type", "text");
+        content.addProperty("text", ctx.getResultText());
+        JsonArray contents = new JsonArray();
+        contents.add(content);
+
+        JsonObject result = new JsonObject();
+        result.add("content", contents);
+        result.addProperty("isError", ctx.isError());
+        return result(id, result);
+    }
+
+    /**
+     * 工具参数转换为处理器的查询参数，数组和对象与 HTTP 接口一样使用 JSON 字符串。
+     */
+    private static String toParamValue(JsonElement value) {
+        if (value.isJsonPrimitive()) {
+            JsonPrimitive primitive = value.getAsJsonPrimitive();
+            if (primitive.isNumber()) {
+                double number = primitive.getAsDouble();
+                if (number == Math.rint(number) && !Double.isInfinite(number)) {
+                    return String.valueOf((long) number);
+                }
+            }
+            return primitive.getAsString();
+        }
+        return value.toString();
+    }
+
+    private static JsonObject result(JsonElement id, JsonObject result) {
+        JsonObject response = new JsonObject();
+        response.addProperty("jsonrpc", "2.0");
+        response.add("id", id);
+        response.add("result", result);
+        return response;
+    }
+
+    private static JsonObject error(JsonElement id, int code, String message) {
+        JsonObject error = new JsonObject();
+        error.addProperty("code", code);
+        error.addProperty("message", message);
+
+        JsonObject response = new JsonObject();
+        response.addProperty("jsonrpc", "2.0");
+        response.add("id", id);
+        response.add("error", error);
+        return response;
+    }
+}
@@ -0,0 +1,56 @@
+package com.wrlus.jadx.mcp;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.util.List;
+
+/**
+ * 一个 MCP 工具，调用时参数作为查询参数交给 {@link #path()} 对应的处理器。
+ */
+public record McpTool(String name, String description, String path, List<Param> params) {
+
+    public record Param(String name, String type, String description, boolean required, Object defaultValue) {
+    }
+
+    static Param required(String name, String type, String description) {
+        return new Param(name, type, description, true, null);
+    }
+
+    static Param optional(String name, String type, String description, Object defaultValue) {
+        return new Param(name, type, description, false, defaultValue);
+    }
+
+    JsonObject toJson() {
+        JsonObject properties = new JsonObject();
+        JsonArray required = new JsonArray();
+        for (Param param : params) {
+            JsonObject property = new JsonObject();
+            property.addProperty("type", param.type());
+            property.addProperty("description", param.description());
+            if (param.type().equals("array")) {
+                JsonObject items = new JsonObject();
+                items.addProperty("type", "string");
+                property.add("items", items);
+            }
+            if (param.defaultValue() instanceof Number number) {
+                property.addProperty("default", number);
+            } else if (param.defaultValue() != null) {
+                property.addProperty("default", param.defaultValue().toString());
+            }
+            properties.add(param.name(), property);
+            if (param.required()) required.add(param.name());
+        }
+
+        JsonObject inputSchema = new JsonObject();
+        inputSchema.addProperty("type", "object");
+        inputSchema.add("properties", properties);
+        inputSchema.add("required", required);
+
+        JsonObject tool = new JsonObject();
+        tool.addProperty("name", name);
+        tool.addProperty("description", description);
+        tool.add("inputSchema", inputSchema);
+        return tool;
+    }
+}
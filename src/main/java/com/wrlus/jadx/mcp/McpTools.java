@@ -0,0 +1,201 @@
+package com.wrlus.jadx.mcp;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.wrlus.jadx.mcp.McpTool.optional;
+import static com.wrlus.jadx.mcp.McpTool.required;
+
+/**
+ * 原生 MCP 传输提供的工具，与 server.py 中的工具同名、同参数、同说明。
+ */
+public final class McpTools {
+    private static final String INSTANCE_ID_ANNOTATED_STR = "An unique string type id to identify this jadx instance.";
+    private static final String FILEPATH_ANNOTATED_STR = "Full path of the file or a the directory.";
+    private static final String CLASS_ANNOTATED_STR = "The class name needs to be a Java FQN, e.g. `com.example.abc.AClass`.";
+    private static final String METHOD_ANNOTATED_STR = "The method name must be a Java signature with the parent class's Java FQN. " +
+            "e.g. `com.example.abc.AClass.testMethod(java.lang.String, java.lang.String[], int):java.util.List<java.lang.String>`.";
+    private static final String FIELD_ANNOTATED_STR = "The field name must be a Java signature with the parent class's Java FQN, be careful the blank." +
+            "e.g. `com.example.abc.AClass.testField :java.util.List<java.lang.String>`.";
+    private static final String MAX_INSTANCE_COUNT_ANNOTATED_STR = "The new max instance count must be at least 1.";
+    private static final String COMPONENT_TYPE_ANNOTATED_STR = "One of `activity`, `activity-alias`, `service`, " +
+            "`receiver` and `provider`, leave empty for all types.";
+    private static final String CALL_PATH_METHODS_ANNOTATED_STR = "JSON array of method signatures, e.g. " +
+            "`[\"com.example.MainActivity.onCreate(android.os.Bundle):void\"]`. A signature without arguments " +
+            "like `java.lang.Runtime.exec` matches all overloads. Framework methods can be used as sinks.";
+    private static final String INSN_PATTERN_ANNOTATED_STR = "JSON array of steps matched in order, other " +
+            "instructions may lie between them. Each step is an object with any of: `opcode` (jadx instruction type, " +
+            "e.g. `INVOKE`, `CONST_STR`, `IF`, `SGET`), `invoke` (`method` or `full.Class.method`), `field` " +
+            "(`field` or `full.Class.field`), `type` (class of `NEW_INSTANCE`, `CHECK_CAST`, `INSTANCE_OF`, " +
+            "`CONST_CLASS`), `string` (constant string contains), `stringRegex`, `literal` (number), " +
+            "`constArg` (true: an argument comes from a constant) and `within` (max instructions after the previous " +
+            "step). Example: `[{\"string\": \"AES\"}, {\"invoke\": \"javax.crypto.Cipher.getInstance\", \"within\": 5}]`.";
+    private static final String CURSOR_ANNOTATED_STR = "The `nextCursor` returned by the previous page, leave empty to get the first page.";
+    private static final String LIMIT_ANNOTATED_STR = "Max result count of one page.";
+    private static final String WARM_UP_ANNOTATED_STR = "Decompile classes in the background after loading, " +
+            "entry point classes and app packages first. Leave empty to use the daemon default.";
+    private static final String WARM_UP_CLASSES_ANNOTATED_STR = "Max class count to warm up, 0 for all classes. " +
+            "Leave empty to use the daemon default.";
+    private static final String CODE_ONLY_ANNOTATED_STR = "Only load code and decode resources on the first manifest or resource query. " +
+            "Leave empty to use the daemon default.";
+    private static final String DISABLED_PASSES_ANNOTATED_STR = "Comma-separated optional jadx passes to disable: inlineAnonymousClasses, inlineMethods, " +
+            "inlineKotlinLambda, moveInnerClasses, extractFinally, restoreSwitchOverString, replaceConsts, debugInfo. " +
+            "Leave empty to use the daemon default.";
+    private static final int DEFAULT_PAGE_LIMIT = 50;
+
+    private static final McpTool.Param INSTANCE_ID = required("instanceId", "string", INSTANCE_ID_ANNOTATED_STR);
+    private static final McpTool.Param CLASS_NAME = required("className", "string", CLASS_ANNOTATED_STR);
+    private static final McpTool.Param METHOD_NAME = required("methodName", "string", METHOD_ANNOTATED_STR);
+    private static final McpTool.Param CURSOR = optional("cursor", "string", CURSOR_ANNOTATED_STR, "");
+    private static final McpTool.Param LIMIT = optional("limit", "integer", LIMIT_ANNOTATED_STR, DEFAULT_PAGE_LIMIT);
+    private static final McpTool.Param WARM_UP = optional("warmUp", "boolean", WARM_UP_ANNOTATED_STR, null);
+    private static final McpTool.Param WARM_UP_CLASSES = optional("warmUpClasses", "integer",
+            WARM_UP_CLASSES_ANNOTATED_STR, null);
+    private static final McpTool.Param CODE_ONLY = optional("codeOnly", "boolean", CODE_ONLY_ANNOTATED_STR, null);
+    private static final McpTool.Param DISABLED_PASSES = optional("disabledPasses", "string",
+            DISABLED_PASSES_ANNOTATED_STR, null);
+
+    private static final Map<String, McpTool> TOOLS = new LinkedHashMap<>();
+
+    static {
+        add("health", "Health check.", "/health");
+        add("load", "Load a single apk or dex file to jadx decomplier.", "/load",
+                required("filePath", "string", FILEPATH_ANNOTATED_STR), WARM_UP, WARM_UP_CLASSES,
+                CODE_ONLY, DISABLED_PASSES);
+        add("load_dir", "Load a dir which contains many apks and dexs to jadx decomplier.", "/load_dir",
+                required("dirPath", "string", FILEPATH_ANNOTATED_STR), WARM_UP, WARM_UP_CLASSES,
+                CODE_ONLY, DISABLED_PASSES);
+        add("lookup_instance_id", "Lookup jadx decomplier instance id by a file path. " +
+                        "If you forget your instance id please use this method.", "/lookup_instance_id",
+                required("path", "string", FILEPATH_ANNOTATED_STR));
+        add("unload", "Unload jadx decomplier by instance id.", "/unload", INSTANCE_ID);
+        add("unload_all", "Unload all instances from jadx decomplier.", "/unload_all");
+        add("reload", "Reload an instance after its input files changed, classes whose bytecode did not change " +
+                "keep their decompiled code.", "/reload", INSTANCE_ID);
+
+        add("get_manifest", "Get the AndroidManifest.xml file content.", "/get_manifest", INSTANCE_ID);
+        add("get_all_classes", "Get all class names from the APK page by page, use `nextCursor` to get the next page.",
+                "/get_all_classes", INSTANCE_ID, CURSOR, LIMIT);
+        add("search_names", "Search class, method and field names by prefix, substring, camel humps (`gPN` for " +
+                        "`getPackageName`) or edit distance, return the best `limit` matches. A query containing `.` " +
+                        "matches full class names.", "/search_names",
+                INSTANCE_ID, required("query", "string", "The name or part of the name to search for."),
+                optional("mode", "string", "One of `prefix`, `substring`, `camel`, `fuzzy`.", "prefix"),
+                optional("kind", "string", "Only return `class`, `method` or `field` names.", null),
+                optional("limit", "integer", "The maximum number of names to return.", 20),
+                optional("maxDistance", "integer", "The maximum edit distance of `fuzzy` matches, " +
+                        "chosen by query length if not set.", null));
+        add("search_string_from_all_classes", "Search for a string in all classes, ignore case, return method full name. " +
+                        "Use `nextCursor` to get more results.", "/search_string_from_all_classes",
+                INSTANCE_ID, required("searchString", "string", "The string to search for."), CURSOR, LIMIT);
+        add("search_regex_from_all_classes", "Search for a regex string in all classes, return method full name. " +
+                        "Use `nextCursor` to get more results.", "/search_regex_from_all_classes",
+                INSTANCE_ID, required("searchRegex", "string", "The regex string to search for."), CURSOR, LIMIT);
+        add("search_instructions", "Search methods whose bytecode instructions match a pattern, without decompiling. " +
+                        "Return method full names with the matched instructions. Use `nextCursor` to get more results.",
+                "/search_instructions", INSTANCE_ID, required("pattern", "string", INSN_PATTERN_ANNOTATED_STR),
+                CURSOR, LIMIT);
+        add("get_all_exported_activities", "Get all exported activity names from the APK manifest.",
+                "/get_all_exported_activities", INSTANCE_ID);
+        add("get_all_exported_services", "Get all exported service names from the APK manifest.",
+                "/get_all_exported_services", INSTANCE_ID);
+        add("get_entry_points", "Get the attack surface entry points: lifecycle methods of exported components, " +
+                        "dynamically registered broadcast receivers, AIDL Stub `onTransact` and AIDL implementation " +
+                        "methods. Computed once in the background after loading.", "/get_entry_points",
+                INSTANCE_ID, optional("kind", "string", "One of `activity`, `service`, `receiver`, `provider`, " +
+                        "`dynamic-receiver`, `aidl-stub` and `aidl-impl`, leave empty for all kinds.", ""),
+                CURSOR, LIMIT);
+        add("get_manifest_info", "Get the package name, application attributes, permissions " +
+                "and component counts from the APK manifest.", "/get_manifest_info", INSTANCE_ID);
+        add("get_manifest_components", "Get the components declared in the APK manifest with their intent filters, " +
+                        "optionally filtered by type, exported flag and intent action.", "/get_manifest_components",
+                INSTANCE_ID,
+                optional("type", "string", COMPONENT_TYPE_ANNOTATED_STR, null),
+                optional("exported", "boolean", "Only return exported or not exported components.", null),
+                optional("action", "string", "Only return components with this action in an intent filter.", null));
+        add("get_manifest_component", "Get a component declared in the APK manifest with its intent filters.",
+                "/get_manifest_component", INSTANCE_ID,
+                required("name", "string", "The component class name, full or as declared in the manifest."));
+        add("search_resources", "Search resource names, values, file names and the content of text resources, " +
+                        "ignore case unless `regex` is set. Use `nextCursor` to get more results.", "/search_resources",
+                INSTANCE_ID, required("query", "string", "The string or regex to search for."),
+                optional("regex", "boolean", "Treat the query as a regex.", false),
+                optional("type", "string", "Only search this resource type, e.g. `string`, `layout`.", null),
+                CURSOR, LIMIT);
+        add("get_resource_files", "Get all resource file names from the APK page by page, " +
+                "use `nextCursor` to get the next page.", "/get_resource_files", INSTANCE_ID, CURSOR, LIMIT);
+        add("get_resource_file", "Get the decoded content of a text or XML resource file.", "/get_resource_file",
+                INSTANCE_ID, required("file", "string", "The resource file name, e.g. `res/layout/main.xml`."));
+        add("get_resource", "Get a resource by id or `type/name` with its values and the methods referencing it.",
+                "/get_resource", INSTANCE_ID,
+                optional("id", "string", "The resource id, hex (`0x7f010000`) or decimal.", null),
+                optional("name", "string", "The resource name, e.g. `string/app_name`.", null));
+
+        add("get_method_decompiled_code", "Get the decompiled code of the given java method.",
+                "/get_method_decompiled_code", INSTANCE_ID, METHOD_NAME);
+        add("get_superclass", "Get the superclass of the given java class.", "/get_superclass", INSTANCE_ID, CLASS_NAME);
+        add("get_interfaces", "Get the interfaces of the given java class.", "/get_interfaces", INSTANCE_ID, CLASS_NAME);
+        add("get_class_methods", "Get the method list of the given java class.", "/get_class_methods", INSTANCE_ID, CLASS_NAME);
+        add("get_class_fields", "Get the field list of the given java class.", "/get_class_fields", INSTANCE_ID, CLASS_NAME);
+
+        add("get_method_callers", "Get the caller list of the given java method.", "/get_method_callers",
+                INSTANCE_ID, METHOD_NAME);
+        add("get_class_callers", "Get the caller list of the given java class.", "/get_class_callers",
+                INSTANCE_ID, CLASS_NAME);
+        add("get_field_callers", "Get the caller list of the given java class.", "/get_field_callers",
+                INSTANCE_ID, required("fieldName", "string", FIELD_ANNOTATED_STR));
+        add("get_method_overrides", "Get the override list of the given java method.", "/get_method_overrides",
+                INSTANCE_ID, METHOD_NAME);
+        add("get_field_readers", "Get the methods that read the given java field, with instruction offsets. " +
+                        "Answered from an index built at load time, without decompiling.", "/get_field_readers",
+                INSTANCE_ID, required("fieldName", "string", FIELD_ANNOTATED_STR), CURSOR, LIMIT);
+        add("get_field_writers", "Get the methods that write the given java field, with instruction offsets. " +
+                        "Answered from an index built at load time, without decompiling.", "/get_field_writers",
+                INSTANCE_ID, required("fieldName", "string", FIELD_ANNOTATED_STR), CURSOR, LIMIT);
+        add("get_method_fields", "Get the fields read and written by the given java method.", "/get_method_fields",
+                INSTANCE_ID, METHOD_NAME);
+        add("find_call_paths", "Find the shortest call paths from source methods to sink methods, including " +
+                        "virtual dispatch to overriding methods. Each step is a method and the `call` or `override` " +
+                        "edge that reached it.", "/find_call_paths",
+                INSTANCE_ID, optional("sources", "string", CALL_PATH_METHODS_ANNOTATED_STR +
+                        " Leave empty to start from all entry points of `get_entry_points`.", ""),
+                required("sinks", "string", CALL_PATH_METHODS_ANNOTATED_STR),
+                optional("maxDepth", "integer", "The maximum number of calls in a path.", 12),
+                optional("limit", "integer", "The maximum number of paths to return.", 10));
+
+        add("diff_instances", "Compare two loaded instances, e.g. two versions of an app or a framework, " +
+                        "by bytecode hashes. Reports added, removed and changed classes, the added, removed and " +
+                        "changed methods of changed classes in smali signatures, and a unified diff of the decompiled " +
+                        "code of the first changed methods. Only the changed methods are decompiled.", "/diff_instances",
+                required("baseInstanceId", "string", "The instance id of the old version."),
+                required("targetInstanceId", "string", "The instance id of the new version."),
+                optional("maxCodeDiffs", "integer",
+                        "Max count of changed methods to decompile and diff, 0 to compare hashes only.", 20));
+
+        add("search_aidl_classes", "Search for all AIDL classes.", "/search_aidl_classes", INSTANCE_ID);
+        add("get_aidl_methods", "Get the AIDL methods of the given aidl class.", "/get_aidl_methods",
+                INSTANCE_ID, CLASS_NAME);
+        add("get_aidl_impl_class", "Get the implementation of the given aidl class.", "/get_aidl_impl_class",
+                INSTANCE_ID, CLASS_NAME);
+
+        add("update_max_instance_count", "Update the max parallel jadx decomplier instance count, " +
+                        "if you set a large value, this will use lots of memory and may get a OOM error.",
+                "/update_max_instance_count", required("count", "integer", MAX_INSTANCE_COUNT_ANNOTATED_STR));
+    }
+
+    private McpTools() {
+    }
+
+    private static void add(String name, String description, String path, McpTool.Param... params) {
+        TOOLS.put(name, new McpTool(name, description, path, List.of(params)));
+    }
+
+    public static McpTool get(String name) {
+        return TOOLS.get(name);
+    }
+
+    public static Iterable<McpTool> all() {
+        return TOOLS.values();
+    }
+}
@@ -0,0 +1,77 @@
+package com.wrlus.jadx.mcp;
+
+import com.google.gson.JsonElement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * MCP stdio 传输：标准输入每行一条 JSON-RPC 消息，响应每行一条写到标准输出。
+ * 每条消息在单独的虚拟线程中处理，长时间的工具调用不会阻塞 ping 和取消通知。
+ */
+public class StdioTransport {
+    private static final Logger logger = LoggerFactory.getLogger(StdioTransport.class);
+    private static final String CLIENT_ID = "stdio";
+
+    private final McpProtocol protocol;
+
+    public StdioTransport(McpProtocol protocol) {
+        this.protocol = protocol;
+    }
+
+    /**
+     * 处理消息直到标准输入关闭，然后等待正在处理的消息写完响应再返回。
+     */
+    public void run() throws IOException {
+        // 标准输出只用于协议消息，其他输出改到标准错误
+        PrintStream stdout = System.out;
+        System.setOut(System.err);
+        Writer out = new BufferedWriter(new OutputStreamWriter(stdout, StandardCharsets.UTF_8));
+
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        logger.info("Jadx daemon MCP stdio transport started");
+        Set<Thread> handlers = ConcurrentHashMap.newKeySet();
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.isBlank()) continue;
+            String message = line;
+            Thread handler = Thread.ofVirtual().unstarted(() -> {
+                try {
+                    JsonElement response = protocol.handle(message, CLIENT_ID);
+                    if (response != null) write(out, response.toString());
+                } finally {
+                    handlers.remove(Thread.currentThread());
+                }
+            });
+            handlers.add(handler);
+            handler.start();
+        }
+        logger.info("Standard input closed, waiting for {} in-flight messages", handlers.size());
+        for (Thread handler : handlers) {
+            try {
+                handler.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("Interrupted while waiting for in-flight messages, their responses are dropped");
+                return;
+            }
+        }
+        logger.info("Stopping stdio transport");
+    }
+
+    private static void write(Writer out, String message) {
+        synchronized (out) {
+            try {
+                out.write(message);
+                out.write('\n');
+                out.flush();
+            } catch (IOException e) {
+                logger.error("Failed to write MCP response", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.wrlus.jadx.mcp;
+
+import com.google.gson.Gson;
+import com.wrlus.jadx.ApiContext;
+import io.javalin.validation.Validation;
+import io.javalin.validation.Validator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * MCP 工具调用的 {@link ApiContext}，工具参数作为查询参数，处理器的响应直接序列化一次作为工具结果。
+ */
+public class ToolCallContext implements ApiContext {
+    private static final Validation VALIDATION = new Validation();
+
+    private final String path;
+    private final Map<String, List<String>> params;
+    private final String clientId;
+    private final Gson gson;
+    private int status = 200;
+    private String resultText = null;
+    private ByteArrayOutputStream stream = null;
+
+    public ToolCallContext(String path, Map<String, List<String>> params, String clientId, Gson gson) {
+        this.path = path;
+        this.params = params;
+        this.clientId = clientId;
+        this.gson = gson;
+    }
+
+    @Override
+    public String path() {
+        return path;
+    }
+
+    @Override
+    public String queryParam(String key) {
+        List<String> values = params.get(key);
+        return values != null && !values.isEmpty() ? values.get(0) : null;
+    }
+
+    @Override
+    public Map<String, List<String>> queryParamMap() {
+        return params;
+    }
+
+    @Override
+    public <T> Validator<T> queryParamAsClass(String key, Class<T> clazz) {
+        return VALIDATION.validator(key, clazz, queryParam(key));
+    }
+
+    @Override
+    public String header(String name) {
+        return null;
+    }
+
+    @Override
+    public String ip() {
+        return clientId;
+    }
+
+    @Override
+    public ApiContext header(String name, String value) {
+        return this;
+    }
+
+    @Override
+    public ApiContext status(int status) {
+        this.status = status;
+        return this;
+    }
+
+    @Override
+    public void json(Object obj) {
+        resultText = gson.toJson(obj);
+    }
+
+    /**
+     * 流式结果（NDJSON）在工具调用中整体作为文本结果返回。
+     */
+    @Override
+    public OutputStream openStream(String contentType) {
+        stream = new ByteArrayOutputStream();
+        return stream;
+    }
+
+    /**
+     * 直接使用已经序列化好的结果，例如 worker 子进程返回的响应。
+     */
+    public void setRawResult(int status, String text) {
+        this.status = status;
+        this.resultText = text;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getResultText() {
+        if (stream != null) return stream.toString(StandardCharsets.UTF_8);
+        return resultText != null ? resultText : "{}";
+    }
+
+    public boolean isError() {
+        return status >= 400;
+    }
+}
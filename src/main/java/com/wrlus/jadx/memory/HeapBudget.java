@@ -0,0 +1,341 @@
+package com.wrlus.jadx.memory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.*;
+import java.util.function.LongConsumer;
+
+/**
+ * 加载准入：加载前把估算的堆占用和剩余堆、已加载实例的占用比较，
+ * 放得下时预留后开始加载，放不下时按配置淘汰最久未使用的实例、排队等待其他加载完成，或直接拒绝。
+ * 加载完成后记录估算值和实际占用，用于校准 {@link HeapEstimator}。
+ * <p>
+ * 堆占用使用每个内存池最近一次 GC 后的占用，不主动触发 GC。之后加载完成和淘汰的实例，
+ * 在覆盖所有内存池的 GC 执行前按估算值计入，实际占用在这次 GC 后测量。
+ */
+public class HeapBudget {
+    private static final Logger logger = LoggerFactory.getLogger(HeapBudget.class);
+
+    public static final String ENV_HEAP_LIMIT_PERCENT = "JADX_DAEMON_MCP_HEAP_LIMIT_PERCENT";
+    public static final String ENV_LOAD_QUEUE_TIMEOUT_MS = "JADX_DAEMON_MCP_LOAD_QUEUE_TIMEOUT_MS";
+    public static final String ENV_LOAD_EVICT = "JADX_DAEMON_MCP_LOAD_EVICT";
+
+    private static final int DEFAULT_HEAP_LIMIT_PERCENT = 85;
+    private static final long DEFAULT_LOAD_QUEUE_TIMEOUT_MS = 60_000;
+    private static final int HISTORY_SIZE = 20;
+    private static final int RETRY_AFTER_SECONDS = 10;
+
+    /**
+     * 由持有实例的一方实现，准入需要腾出内存时调用。
+     */
+    public interface Evictor {
+        /**
+         * @return 所有可以淘汰的实例的占用之和。
+         */
+        long getEvictableBytes();
+
+        /**
+         * 淘汰一个没有正在执行的请求、最久未使用的实例，调用时不持有 HeapBudget 的锁。
+         * @return 淘汰的实例的占用，没有可以淘汰的实例时返回 -1。
+         */
+        long evictOne();
+    }
+
+    /**
+     * 还没有反映在 GC 后占用中的变化，collections 中的 GC 次数之后每个内存池都被收集过时失效。
+     */
+    private record PendingChange(long bytes, Map<String, Long> collections) {
+    }
+
+    private final HeapEstimator estimator = new HeapEstimator();
+    private final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+    private final long maxHeapBytes;
+    private final long limitBytes;
+    private final long queueTimeoutMs;
+    private final boolean evictEnabled;
+
+    private final Set<Reservation> active = new HashSet<>();
+    private final Deque<Map<String, Object>> history = new ArrayDeque<>();
+    private final List<PendingChange> pendingChanges = new ArrayList<>();
+    /* 加载完成、等待 GC 后测量实际占用的预留 */
+    private final List<Reservation> measuring = new ArrayList<>();
+    private long reservedBytes = 0;
+    private int queuedLoads = 0;
+    private long rejectedLoads = 0;
+    private long evictedInstances = 0;
+
+    public HeapBudget(int limitPercent, long queueTimeoutMs, boolean evictEnabled) {
+        this.maxHeapBytes = Runtime.getRuntime().maxMemory();
+        this.limitBytes = maxHeapBytes / 100 * limitPercent;
+        this.queueTimeoutMs = queueTimeoutMs;
+        this.evictEnabled = evictEnabled;
+    }
+
+    public static HeapBudget fromEnv() {
+        int limitPercent = (int) getEnvLong(ENV_HEAP_LIMIT_PERCENT, DEFAULT_HEAP_LIMIT_PERCENT);
+        if (limitPercent > 100) limitPercent = DEFAULT_HEAP_LIMIT_PERCENT;
+        long queueTimeoutMs = getEnvLong(ENV_LOAD_QUEUE_TIMEOUT_MS, DEFAULT_LOAD_QUEUE_TIMEOUT_MS);
+        boolean evictEnabled = Boolean.parseBoolean(System.getenv(ENV_LOAD_EVICT));
+        logger.info("Heap budget: {}% of {} MB, evict {}", limitPercent,
+                Runtime.getRuntime().maxMemory() / 1024 / 1024, evictEnabled);
+        return new HeapBudget(limitPercent, queueTimeoutMs, evictEnabled);
+    }
+
+    public LoadEstimate estimate(List<File> inputFiles) {
+        return estimator.estimate(inputFiles);
+    }
+
+    /**
+     * 为一次加载预留堆内存，放不下时淘汰实例或等待，直到超时。淘汰实例时不持有锁。
+     * @throws HeapLimitException 估算超过可用上限，或等待超时。
+     */
+    public Reservation reserve(String path, LoadEstimate estimate, Evictor evictor) {
+        long deadline = System.currentTimeMillis() + queueTimeoutMs;
+
+        while (true) {
+            if (evictEnabled) {
+                synchronized (this) {
+                    Reservation reservation = tryReserve(path, estimate, evictor);
+                    if (reservation != null) return reservation;
+                }
+                long freed = evictor.evictOne();
+                if (freed >= 0) {
+                    synchronized (this) {
+                        evictedInstances++;
+                        pendingChanges.add(new PendingChange(-freed, getCollectionCounts()));
+                    }
+                    continue;
+                }
+            }
+
+            synchronized (this) {
+                Reservation reservation = tryReserve(path, estimate, evictor);
+                if (reservation != null) return reservation;
+                if (active.isEmpty()) {
+                    rejectedLoads++;
+                    throw new HeapLimitException(String.format("Loading `%s` needs about %d MB heap but only %d MB " +
+                                    "is free, please unload some instances first.",
+                            path, toMegabytes(estimate.getEstimatedBytes()), toMegabytes(limitBytes - getUsedHeap())),
+                            HeapLimitException.STATUS_INSUFFICIENT_STORAGE, RETRY_AFTER_SECONDS);
+                }
+
+                // 其他加载正在进行，等待它们完成后重新计算
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    rejectedLoads++;
+                    throw new HeapLimitException(String.format("Timed out waiting for heap to load `%s`, " +
+                            "other loads are still in progress.", path),
+                            HeapLimitException.STATUS_SERVICE_UNAVAILABLE, RETRY_AFTER_SECONDS);
+                }
+                queuedLoads++;
+                try {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    rejectedLoads++;
+                    throw new HeapLimitException("Interrupted while waiting for heap to load `" + path + "`.",
+                            HeapLimitException.STATUS_SERVICE_UNAVAILABLE, RETRY_AFTER_SECONDS);
+                } finally {
+                    queuedLoads--;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return 放得下时返回预留，否则返回 null。
+     * @throws HeapLimitException 卸载所有实例后也放不下。
+     */
+    private Reservation tryReserve(String path, LoadEstimate estimate, Evictor evictor) {
+        long need = estimate.getEstimatedBytes();
+        long used = getUsedHeap();
+        if (need <= limitBytes - used - reservedBytes) {
+            Reservation reservation = new Reservation(path, estimate, used);
+            if (!active.isEmpty() || !measuring.isEmpty()) {
+                reservation.concurrent = true;
+                active.forEach(other -> other.concurrent = true);
+                measuring.forEach(other -> other.concurrent = true);
+            }
+            active.add(reservation);
+            reservedBytes += need;
+            return reservation;
+        }
+
+        long baseline = Math.max(0, used - evictor.getEvictableBytes());
+        if (need > limitBytes - baseline) {
+            rejectedLoads++;
+            throw new HeapLimitException(String.format("Loading `%s` needs about %d MB heap, " +
+                            "more than the %d MB available even after unloading all instances.",
+                    path, toMegabytes(need), toMegabytes(limitBytes - baseline)),
+                    HeapLimitException.STATUS_INSUFFICIENT_STORAGE, RETRY_AFTER_SECONDS);
+        }
+        return null;
+    }
+
+    /**
+     * 一次加载的堆预留，加载结束后关闭。
+     */
+    public class Reservation implements AutoCloseable {
+        private final String path;
+        private final LoadEstimate estimate;
+        private final long usedBefore;
+        private boolean concurrent = false;
+        private boolean closed = false;
+        /* 加载成功后设置，之后覆盖所有内存池的 GC 执行后测量 */
+        private Map<String, Long> finishCollections;
+        private LongConsumer onMeasured;
+
+        private Reservation(String path, LoadEstimate estimate, long usedBefore) {
+            this.path = path;
+            this.estimate = estimate;
+            this.usedBefore = usedBefore;
+        }
+
+        /**
+         * 加载成功后调用。不主动触发 GC，下一次覆盖所有内存池的 GC 之后测量实际堆占用并记录；
+         * 测量前有其他加载同时进行时测量不准确，不用于校准。
+         * @param onMeasured 测量后接收实际占用的字节数，在持有 HeapBudget 的锁时调用。
+         */
+        public void finish(LongConsumer onMeasured) {
+            synchronized (HeapBudget.this) {
+                this.onMeasured = onMeasured;
+                finishCollections = getCollectionCounts();
+                // 同时进行的加载在预留时已经标记
+                if (!measuring.isEmpty()) concurrent = true;
+                measuring.forEach(other -> other.concurrent = true);
+                measuring.add(this);
+            }
+        }
+
+        private void measure(long used) {
+            long actual = Math.max(0, used - usedBefore);
+            if (!concurrent) {
+                estimator.calibrate(estimate, actual);
+            }
+            Map<String, Object> record = new LinkedHashMap<>();
+            record.put("path", path);
+            record.putAll(estimate.toMap());
+            record.put("actualBytes", actual);
+            record.put("concurrent", concurrent);
+            history.addLast(record);
+            while (history.size() > HISTORY_SIZE) history.removeFirst();
+            logger.info("Loaded {}: estimated {} MB, actual {} MB", path,
+                    toMegabytes(estimate.getEstimatedBytes()), toMegabytes(actual));
+            onMeasured.accept(actual);
+        }
+
+        @Override
+        public void close() {
+            synchronized (HeapBudget.this) {
+                if (closed) return;
+                closed = true;
+                active.remove(this);
+                reservedBytes -= estimate.getEstimatedBytes();
+                // 加载的实例在下一次覆盖所有内存池的 GC 之前按估算值计入
+                if (finishCollections != null) {
+                    pendingChanges.add(new PendingChange(estimate.getEstimatedBytes(), finishCollections));
+                }
+                HeapBudget.this.notifyAll();
+            }
+        }
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxHeapBytes", maxHeapBytes);
+        stats.put("limitBytes", limitBytes);
+        stats.put("usedHeapBytes", memoryBean.getHeapMemoryUsage().getUsed());
+        stats.put("usedHeapAfterGcBytes", getUsedHeap());
+        stats.put("reservedBytes", reservedBytes);
+        stats.put("loadingCount", active.size());
+        stats.put("measuringLoads", measuring.size());
+        stats.put("queuedLoads", queuedLoads);
+        stats.put("rejectedLoads", rejectedLoads);
+        stats.put("evictEnabled", evictEnabled);
+        stats.put("evictedInstances", evictedInstances);
+        stats.put("calibration", estimator.getCalibration());
+        stats.put("calibrationSamples", estimator.getCalibrationSamples());
+        stats.put("recentLoads", new ArrayList<>(history));
+        return stats;
+    }
+
+    /**
+     * 同时测量 GC 后可以测量的加载。
+     * @return 最近一次 GC 后的堆占用，加上之后加载完成和淘汰的实例的占用变化。
+     */
+    private long getUsedHeap() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP || !pool.isValid()) continue;
+            MemoryUsage usage = pool.getCollectionUsage();
+            used += (usage != null ? usage : pool.getUsage()).getUsed();
+        }
+        pendingChanges.removeIf(change -> collectedSince(change.collections()));
+        for (PendingChange change : pendingChanges) {
+            used += change.bytes();
+        }
+        used = Math.max(0, used);
+
+        Iterator<Reservation> iterator = measuring.iterator();
+        while (iterator.hasNext()) {
+            Reservation reservation = iterator.next();
+            if (!collectedSince(reservation.finishCollections)) continue;
+            iterator.remove();
+            reservation.measure(used);
+        }
+        return used;
+    }
+
+    /**
+     * @return 每个 GC 的执行次数。
+     */
+    private static Map<String, Long> getCollectionCounts() {
+        Map<String, Long> counts = new HashMap<>();
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            counts.put(collector.getName(), collector.getCollectionCount());
+        }
+        return counts;
+    }
+
+    /**
+     * @return 记录的次数之后每个堆内存池都被收集过，GC 后的占用已经包括之前分配和释放的对象。
+     */
+    private static boolean collectedSince(Map<String, Long> counts) {
+        Set<String> collectedPools = new HashSet<>();
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector.getCollectionCount() > counts.getOrDefault(collector.getName(), 0L)) {
+                collectedPools.addAll(Arrays.asList(collector.getMemoryPoolNames()));
+            }
+        }
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid() && !collectedPools.contains(pool.getName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long toMegabytes(long bytes) {
+        return bytes / 1024 / 1024;
+    }
+
+    private static long getEnvLong(String name, long defaultValue) {
+        String value = System.getenv(name);
+        if (value == null || value.isBlank()) return defaultValue;
+        try {
+            long parsed = Long.parseLong(value.trim());
+            return parsed > 0 ? parsed : defaultValue;
+        } catch (NumberFormatException e) {
+            logger.error("Invalid value of {}: {}", name, value);
+            return defaultValue;
+        }
+    }
+}
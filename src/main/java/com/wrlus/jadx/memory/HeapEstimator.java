@@ -0,0 +1,127 @@
+package com.wrlus.jadx.memory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 根据输入中 dex/class 文件的数量和大小估算加载后的堆占用。
+ * 每次加载后用实际占用校准系数，估算会逐渐接近当前 jadx 版本和输入类型的真实开销。
+ */
+public class HeapEstimator {
+    private static final Logger logger = LoggerFactory.getLogger(HeapEstimator.class);
+
+    /* 加载时 jadx 为每个 dex 字节、每个类建立的节点和索引的大致开销 */
+    private static final double DEX_BYTE_FACTOR = 8.0;
+    private static final double CLASS_BYTE_FACTOR = 10.0;
+    private static final long PER_CLASS_BYTES = 4 * 1024;
+    private static final double OTHER_BYTE_FACTOR = 0.5;
+    private static final long BASE_BYTES = 16L * 1024 * 1024;
+
+    private static final double CALIBRATION_WEIGHT = 0.3;
+    private static final double MIN_CALIBRATION = 0.25;
+    private static final double MAX_CALIBRATION = 8.0;
+
+    private volatile double calibration = 1.0;
+    private int calibrationSamples = 0;
+
+    public LoadEstimate estimate(List<File> inputFiles) {
+        Counter counter = new Counter();
+        for (File file : inputFiles) {
+            counter.inputBytes += file.length();
+            String name = file.getName().toLowerCase();
+            if (name.endsWith(".dex")) {
+                counter.addDex(file.length());
+            } else if (name.endsWith(".class")) {
+                counter.addClass(file.length());
+            } else if (isArchive(name)) {
+                countArchive(file, counter);
+            } else {
+                counter.otherBytes += file.length();
+            }
+        }
+
+        long raw = BASE_BYTES
+                + (long) (counter.dexBytes * DEX_BYTE_FACTOR)
+                + (long) (counter.classBytes * CLASS_BYTE_FACTOR)
+                + counter.classCount * PER_CLASS_BYTES
+                + (long) (counter.otherBytes * OTHER_BYTE_FACTOR);
+        return new LoadEstimate(counter.inputBytes, counter.dexCount, counter.dexBytes, counter.classCount,
+                counter.classBytes, counter.otherBytes, raw, (long) (raw * calibration));
+    }
+
+    /**
+     * 用一次加载的实际堆占用更新校准系数（指数滑动平均）。
+     */
+    public synchronized void calibrate(LoadEstimate estimate, long actualBytes) {
+        if (actualBytes <= 0 || estimate.getRawBytes() <= 0) return;
+        double ratio = (double) actualBytes / estimate.getRawBytes();
+        double updated = calibrationSamples == 0 ? ratio :
+                calibration * (1 - CALIBRATION_WEIGHT) + ratio * CALIBRATION_WEIGHT;
+        calibration = Math.max(MIN_CALIBRATION, Math.min(MAX_CALIBRATION, updated));
+        calibrationSamples++;
+    }
+
+    public double getCalibration() {
+        return calibration;
+    }
+
+    public synchronized int getCalibrationSamples() {
+        return calibrationSamples;
+    }
+
+    private static boolean isArchive(String name) {
+        return name.endsWith(".apk") || name.endsWith(".jar") || name.endsWith(".zip") ||
+                name.endsWith(".aar") || name.endsWith(".apks") || name.endsWith(".xapk");
+    }
+
+    private static void countArchive(File file, Counter counter) {
+        try (ZipFile zipFile = new ZipFile(file)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory()) continue;
+                String name = entry.getName().toLowerCase();
+                long size = entry.getSize() >= 0 ? entry.getSize() : entry.getCompressedSize();
+                if (name.endsWith(".dex")) {
+                    counter.addDex(size);
+                } else if (name.endsWith(".class")) {
+                    counter.addClass(size);
+                } else if (name.endsWith(".apk") || name.endsWith(".jar")) {
+                    // 嵌套的安装包按压缩后的大小近似为 dex
+                    counter.dexBytes += Math.max(0, entry.getCompressedSize());
+                } else {
+                    counter.otherBytes += Math.max(0, size);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Cannot read {} for heap estimation: {}", file.getAbsolutePath(), e.getMessage());
+            counter.dexBytes += file.length();
+        }
+    }
+
+    private static class Counter {
+        long inputBytes = 0;
+        int dexCount = 0;
+        long dexBytes = 0;
+        int classCount = 0;
+        long classBytes = 0;
+        long otherBytes = 0;
+
+        void addDex(long size) {
+            dexCount++;
+            dexBytes += Math.max(0, size);
+        }
+
+        void addClass(long size) {
+            classCount++;
+            classBytes += Math.max(0, size);
+        }
+    }
+}
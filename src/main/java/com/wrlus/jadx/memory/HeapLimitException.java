@@ -0,0 +1,16 @@
+package com.wrlus.jadx.memory;
+
+import com.wrlus.jadx.scheduler.SchedulerBusyException;
+
+/**
+ * 堆内存不足以加载新的实例时抛出，等待超时返回 503，估算超过可用上限返回 507。
+ */
+public class HeapLimitException extends SchedulerBusyException {
+    private static final long serialVersionUID = 1L;
+
+    public static final int STATUS_INSUFFICIENT_STORAGE = 507;
+
+    public HeapLimitException(String message, int status, int retryAfterSeconds) {
+        super(message, status, retryAfterSeconds);
+    }
+}
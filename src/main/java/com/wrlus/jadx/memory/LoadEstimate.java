@@ -0,0 +1,60 @@
+package com.wrlus.jadx.memory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 加载前统计的输入规模和估算的堆占用。
+ */
+public class LoadEstimate {
+    private final long inputBytes;
+    private final int dexCount;
+    private final long dexBytes;
+    private final int classCount;
+    private final long classBytes;
+    private final long otherBytes;
+    private final long rawBytes;
+    private final long estimatedBytes;
+
+    LoadEstimate(long inputBytes, int dexCount, long dexBytes, int classCount, long classBytes,
+                 long otherBytes, long rawBytes, long estimatedBytes) {
+        this.inputBytes = inputBytes;
+        this.dexCount = dexCount;
+        this.dexBytes = dexBytes;
+        this.classCount = classCount;
+        this.classBytes = classBytes;
+        this.otherBytes = otherBytes;
+        this.rawBytes = rawBytes;
+        this.estimatedBytes = estimatedBytes;
+    }
+
+    public long getInputBytes() {
+        return inputBytes;
+    }
+
+    /**
+     * @return 按固定系数计算、未经校准的估算值。
+     */
+    public long getRawBytes() {
+        return rawBytes;
+    }
+
+    /**
+     * @return 乘以校准系数后的估算值，用于准入判断。
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("inputBytes", inputBytes);
+        map.put("dexCount", dexCount);
+        map.put("dexBytes", dexBytes);
+        map.put("classCount", classCount);
+        map.put("classBytes", classBytes);
+        map.put("otherBytes", otherBytes);
+        map.put("estimatedBytes", estimatedBytes);
+        return map;
+    }
+}
@@ -0,0 +1,40 @@
+package com.wrlus.jadx.paging;
+
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 逐行写出 NDJSON，每写一行立即 flush，客户端断开后 write 返回 false。
+ */
+public class NdjsonWriter {
+    public static final String CONTENT_TYPE = "application/x-ndjson";
+
+    private final OutputStream out;
+    private final Gson gson;
+    private boolean closed = false;
+
+    public NdjsonWriter(OutputStream out, Gson gson) {
+        this.out = out;
+        this.gson = gson;
+    }
+
+    public boolean write(Object line) {
+        if (closed) return false;
+        try {
+            out.write(gson.toJson(line).getBytes(StandardCharsets.UTF_8));
+            out.write('\n');
+            out.flush();
+            return true;
+        } catch (IOException e) {
+            closed = true;
+            return false;
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+}
@@ -0,0 +1,25 @@
+package com.wrlus.jadx.paging;
+
+public class PageRequest {
+    public static final PageRequest ALL = new PageRequest(ScanCursor.START, Integer.MAX_VALUE);
+
+    private final ScanCursor cursor;
+    private final int limit;
+
+    public PageRequest(ScanCursor cursor, int limit) {
+        this.cursor = cursor;
+        this.limit = limit;
+    }
+
+    public static PageRequest of(String cursor, Integer limit) {
+        return new PageRequest(ScanCursor.parse(cursor), limit != null ? limit : Integer.MAX_VALUE);
+    }
+
+    public ScanCursor getCursor() {
+        return cursor;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+}
@@ -0,0 +1,13 @@
+package com.wrlus.jadx.paging;
+
+/**
+ * 接收扫描结果的回调，扫描会在返回 false 后立即停止。
+ */
+@FunctionalInterface
+public interface ResultSink<T> {
+    /**
+     * @param item 新产生的结果。
+     * @return 是否继续扫描，返回 false 时该结果已被消费。
+     */
+    boolean accept(T item);
+}
@@ -0,0 +1,69 @@
+package com.wrlus.jadx.paging;
+
+/**
+ * 分页游标，格式为 `classIndex:skip@generation`。
+ * classIndex 为扫描顺序中继续扫描的位置：反编译的扫描是缓存的反编译计划（jadx 的反编译批次，内部类在外部类之后）中的下标，
+ * 其他扫描是类或结果列表中的下标；skip 为该位置已经返回过的结果数。
+ * generation 为返回游标时实例的加载代数，实例重新加载后扫描顺序可能不同，旧的游标被拒绝；没有代数时不检查。
+ */
+public class ScanCursor {
+    public static final ScanCursor START = new ScanCursor(0, 0);
+
+    private final int index;
+    private final int skip;
+    private final long generation;
+
+    public ScanCursor(int index, int skip) {
+        this(index, skip, 0);
+    }
+
+    private ScanCursor(int index, int skip, long generation) {
+        this.index = index;
+        this.skip = skip;
+        this.generation = generation;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getSkip() {
+        return skip;
+    }
+
+    /**
+     * @return 返回游标时实例的加载代数，0 表示不检查。
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    public ScanCursor withGeneration(long generation) {
+        return new ScanCursor(index, skip, generation);
+    }
+
+    public static ScanCursor parse(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return START;
+        }
+        String[] position = cursor.trim().split("@", 2);
+        String[] parts = position[0].split(":", 2);
+        try {
+            int index = Integer.parseInt(parts[0]);
+            int skip = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+            long generation = position.length > 1 ? Long.parseLong(position[1]) : 0;
+            if (index < 0 || skip < 0 || generation < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            return new ScanCursor(index, skip, generation);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    @Override
+    public String toString() {
+        String position = skip == 0 ? String.valueOf(index) : index + ":" + skip;
+        return generation == 0 ? position : position + "@" + generation;
+    }
+}
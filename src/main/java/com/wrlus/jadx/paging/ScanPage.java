@@ -0,0 +1,31 @@
+package com.wrlus.jadx.paging;
+
+import com.wrlus.jadx.cache.QueryCache;
+
+import java.util.List;
+
+/**
+ * 一页扫描结果，用于缓存和重放。
+ */
+public class ScanPage<T> implements QueryCache.Sized {
+    private final List<T> items;
+    private final ScanCursor nextCursor;
+
+    public ScanPage(List<T> items, ScanCursor nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public ScanCursor getNextCursor() {
+        return nextCursor;
+    }
+
+    @Override
+    public long estimateBytes() {
+        return 32 + QueryCache.estimateBytes(items);
+    }
+}
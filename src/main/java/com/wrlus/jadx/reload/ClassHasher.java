@@ -0,0 +1,188 @@
+package com.wrlus.jadx.reload;
+
+import jadx.api.plugins.input.data.ICallSite;
+import jadx.api.plugins.input.data.ICatch;
+import jadx.api.plugins.input.data.IClassData;
+import jadx.api.plugins.input.data.ICodeReader;
+import jadx.api.plugins.input.data.IFieldData;
+import jadx.api.plugins.input.data.IFieldRef;
+import jadx.api.plugins.input.data.IMethodData;
+import jadx.api.plugins.input.data.IMethodRef;
+import jadx.api.plugins.input.data.ITry;
+import jadx.api.plugins.input.data.attributes.IJadxAttribute;
+import jadx.api.plugins.input.insns.InsnData;
+import jadx.api.plugins.input.insns.custom.IArrayPayload;
+import jadx.api.plugins.input.insns.custom.ICustomPayload;
+import jadx.api.plugins.input.insns.custom.ISwitchPayload;
+import jadx.core.dex.nodes.ClassNode;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一个类的字节码哈希（64 位 FNV-1a），从 jadx 保留的输入数据计算：类、字段和方法的声明和属性，以及每条指令。
+ * 指令引用的类型、字符串、字段和方法使用解析后的文本而不是常量池下标，输入文件重新打包、常量池顺序变化时哈希不变。
+ * 不依赖 ClassNode 的处理状态，已经反编译的类也得到与加载时相同的结果。
+ * 输入文件名只出现在代码的 loaded from 注释中，不计入哈希，共用代码时替换（见 {@link com.wrlus.jadx.cache.DetachedCode}）；
+ * 只记录内部类是否与外部类来自同一个输入文件，这决定了内部类是否有这个注释。
+ */
+public class ClassHasher {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private long hash = FNV_OFFSET;
+
+    /**
+     * 组合多个值的哈希，例如类的哈希和它依赖的类的哈希。
+     */
+    public ClassHasher() {
+    }
+
+    /**
+     * @return 顶层类和它所有内部类的哈希，内部类的顺序不影响结果。
+     */
+    public static long hashTree(ClassNode cls) {
+        long hash = hash(cls);
+        for (ClassNode inner : cls.getInnerClasses()) {
+            hash += hashTree(inner);
+        }
+        return hash;
+    }
+
+    /**
+     * 读取输入数据的副本，不修改类的状态，可以与反编译同时进行，也不需要持有类的锁。
+     */
+    public static long hash(ClassNode cls) {
+        return hash(cls, null);
+    }
+
+    /**
+     * @param methodHashes 不为 null 时同时记录每个方法的哈希（方法自己的声明、属性和指令），
+     *                     按方法的 shortId（名称和描述符）索引。
+     */
+    public static long hash(ClassNode cls, Map<String, Long> methodHashes) {
+        ClassHasher hasher = new ClassHasher();
+        IClassData clsData = cls.getClsData().copy();
+        hasher.add(clsData.getType());
+        ClassNode declaring = cls.getDeclaringClass();
+        if (declaring != null) {
+            hasher.add(clsData.getInputFileName().equals(declaring.getClsData().getInputFileName()) ? 1 : 0);
+        }
+        hasher.add(clsData.getAccessFlags());
+        hasher.add(clsData.getSuperType());
+        hasher.add(clsData.getInterfacesTypes());
+        hasher.addAttributes(clsData.getAttributes());
+        clsData.visitFieldsAndMethods(hasher::addField, method -> {
+            ClassHasher methodHasher = new ClassHasher();
+            methodHasher.addMethod(method);
+            hasher.add(methodHasher.hash);
+            if (methodHashes != null) {
+                IMethodRef ref = method.getMethodRef();
+                methodHashes.put(ref.getName() + "(" + String.join("", ref.getArgTypes()) + ")" +
+                        ref.getReturnType(), methodHasher.hash);
+            }
+        });
+        return hasher.hash;
+    }
+
+    private void addField(IFieldData field) {
+        add(field.getName());
+        add(field.getType());
+        add(field.getAccessFlags());
+        addAttributes(field.getAttributes());
+    }
+
+    private void addMethod(IMethodData method) {
+        IMethodRef ref = method.getMethodRef();
+        ref.load();
+        add(ref.getName());
+        add(ref.getArgTypes());
+        add(ref.getReturnType());
+        add(method.getAccessFlags());
+        addAttributes(method.getAttributes());
+        ICodeReader codeReader = method.getCodeReader();
+        if (codeReader == null) return;
+        add(codeReader.getRegistersCount());
+        codeReader.visitInstructions(this::addInsn);
+        for (ITry tryData : codeReader.getTries()) {
+            add(tryData.getStartOffset());
+            add(tryData.getEndOffset());
+            ICatch catchData = tryData.getCatch();
+            add(Arrays.toString(catchData.getTypes()));
+            add(Arrays.toString(catchData.getHandlers()));
+            add(catchData.getCatchAllHandler());
+        }
+    }
+
+    private void addInsn(InsnData insn) {
+        insn.decode();
+        add(insn.getOffset());
+        add(insn.getOpcode().ordinal());
+        int regsCount = insn.getRegsCount();
+        for (int i = 0; i < regsCount; i++) {
+            add(insn.getReg(i));
+        }
+        add(insn.getLiteral());
+        add(insn.getTarget());
+        switch (insn.getIndexType()) {
+            case TYPE_REF -> add(insn.getIndexAsType());
+            case STRING_REF -> add(insn.getIndexAsString());
+            case FIELD_REF -> {
+                IFieldRef field = insn.getIndexAsField();
+                add(field.getParentClassType());
+                add(field.getName());
+                add(field.getType());
+            }
+            case METHOD_REF -> {
+                IMethodRef mth = insn.getIndexAsMethod();
+                mth.load();
+                add(mth.getParentClassType());
+                add(mth.getName());
+                add(mth.getArgTypes());
+                add(mth.getReturnType());
+            }
+            case CALL_SITE -> {
+                ICallSite callSite = insn.getIndexAsCallSite();
+                callSite.load();
+                add(callSite.getValues());
+            }
+            default -> {
+            }
+        }
+        ICustomPayload payload = insn.getPayload();
+        if (payload instanceof ISwitchPayload switchPayload) {
+            add(Arrays.toString(switchPayload.getKeys()));
+            add(Arrays.toString(switchPayload.getTargets()));
+        } else if (payload instanceof IArrayPayload arrayPayload) {
+            add(arrayPayload.getElementSize());
+            add(Arrays.deepToString(new Object[]{arrayPayload.getData()}));
+        }
+    }
+
+    private void addAttributes(List<IJadxAttribute> attributes) {
+        for (IJadxAttribute attribute : attributes) {
+            add(attribute);
+        }
+    }
+
+    public long finish() {
+        return hash;
+    }
+
+    public void add(long value) {
+        for (int i = 0; i < 8; i++) {
+            hash = (hash ^ (value & 0xff)) * FNV_PRIME;
+            value >>>= 8;
+        }
+    }
+
+    public void add(Object value) {
+        String str = String.valueOf(value);
+        for (int i = 0; i < str.length(); i++) {
+            hash = (hash ^ str.charAt(i)) * FNV_PRIME;
+        }
+        // 分隔相邻的值
+        hash = (hash ^ 0xffff) * FNV_PRIME;
+    }
+}
@@ -0,0 +1,46 @@
+package com.wrlus.jadx.reload;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * 加载时一个输入文件的状态：大小、修改时间和内容的 SHA-256。
+ * 大小和修改时间都没有变化时认为文件没有变化，不需要重新计算哈希；只有修改时间变化、内容相同的文件也不算变化。
+ */
+public record InputFingerprint(String path, long size, long lastModified, String sha256) {
+
+    public static InputFingerprint of(File file) {
+        return new InputFingerprint(file.getAbsolutePath(), file.length(), file.lastModified(), sha256(file));
+    }
+
+    /**
+     * @return 文件和记录的状态相同时返回 true，只在大小和修改时间变化时读取文件内容。
+     */
+    public boolean matches(File file) {
+        if (!file.isFile()) return false;
+        if (file.length() == size && file.lastModified() == lastModified) return true;
+        return file.length() == size && sha256(file).equals(sha256);
+    }
+
+    private static String sha256(File file) {
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + file, e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
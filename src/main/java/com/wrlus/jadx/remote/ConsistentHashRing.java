@@ -0,0 +1,59 @@
+package com.wrlus.jadx.remote;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * 一致性哈希环，每个节点放置多个虚拟节点，增删节点时只有少量 key 改变归属。
+ */
+public class ConsistentHashRing {
+    private static final int VIRTUAL_NODES = 128;
+
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+    private final List<String> nodes;
+
+    public ConsistentHashRing(List<String> nodes) {
+        if (nodes.isEmpty()) throw new IllegalArgumentException("No nodes for consistent hash ring");
+        this.nodes = List.copyOf(nodes);
+        for (String node : nodes) {
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        }
+    }
+
+    /**
+     * @return key 的归属节点在前，之后按环上的顺序排列其余节点，归属节点不可用时依次尝试。
+     */
+    public List<String> locate(String key) {
+        Set<String> ordered = new LinkedHashSet<>();
+        long hash = hash(key);
+        for (String node : ring.tailMap(hash, true).values()) {
+            if (ordered.add(node) && ordered.size() == nodes.size()) break;
+        }
+        for (String node : ring.headMap(hash, false).values()) {
+            if (ordered.size() == nodes.size()) break;
+            ordered.add(node);
+        }
+        return new ArrayList<>(ordered);
+    }
+
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    private static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < Long.BYTES; i++) {
+                hash = (hash << 8) | (digest[i] & 0xff);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
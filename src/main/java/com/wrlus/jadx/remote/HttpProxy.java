@@ -0,0 +1,145 @@
+package com.wrlus.jadx.remote;
+
+import io.javalin.http.Context;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * 把前端收到的请求原样转发给其他 jadx-daemon-mcp 进程，可以替换部分查询参数（例如 instanceId），
+ * 响应按块转发并立即 flush，NDJSON 流式响应不会被缓冲。
+ */
+public class HttpProxy {
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    private static final List<String> FORWARDED_REQUEST_HEADERS = List.of("Accept", "Content-Type");
+    private static final List<String> FORWARDED_RESPONSE_HEADERS = List.of("Retry-After");
+    private static final int BUFFER_SIZE = 8192;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(CONNECT_TIMEOUT)
+            .version(HttpClient.Version.HTTP_1_1)
+            .build();
+
+    /**
+     * 向后端发送请求，返回时只读取了响应头。
+     * @param paramOverrides 需要替换或追加的查询参数。
+     * @throws IOException 无法连接后端或后端在响应前断开。
+     */
+    public HttpResponse<InputStream> open(Context ctx, String baseUrl, Map<String, String> paramOverrides,
+                                          Map<String, String> extraHeaders) throws IOException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + ctx.path() +
+                buildQuery(ctx.queryString(), paramOverrides)));
+        for (String name : FORWARDED_REQUEST_HEADERS) {
+            String value = ctx.header(name);
+            if (value != null) builder.header(name, value);
+        }
+        extraHeaders.forEach(builder::header);
+
+        byte[] body = ctx.bodyAsBytes();
+        builder.method(ctx.method().name(), body.length > 0 ?
+                HttpRequest.BodyPublishers.ofByteArray(body) : HttpRequest.BodyPublishers.noBody());
+        return send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    /**
+     * 把后端的响应写回客户端，客户端断开时关闭后端连接，后端随之停止处理。
+     */
+    public void relay(Context ctx, HttpResponse<InputStream> response) throws IOException {
+        ctx.disableCompression();
+        copyResponseHeaders(ctx, response);
+
+        try (InputStream in = response.body()) {
+            OutputStream out = ctx.outputStream();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                out.flush();
+            }
+        }
+    }
+
+    /**
+     * 读取完整的响应后写回客户端，用于需要解析响应内容的请求。
+     * @return 响应内容。
+     */
+    public String relayBuffered(Context ctx, HttpResponse<InputStream> response) throws IOException {
+        byte[] body;
+        try (InputStream in = response.body()) {
+            body = in.readAllBytes();
+        }
+        copyResponseHeaders(ctx, response);
+        ctx.result(body);
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    private static void copyResponseHeaders(Context ctx, HttpResponse<InputStream> response) {
+        ctx.status(response.statusCode());
+        response.headers().firstValue("Content-Type").ifPresent(ctx::contentType);
+        for (String name : FORWARDED_RESPONSE_HEADERS) {
+            response.headers().firstValue(name).ifPresent(value -> ctx.header(name, value));
+        }
+    }
+
+    public HttpResponse<String> get(String url) throws IOException {
+        return get(url, Collections.emptyMap());
+    }
+
+    public HttpResponse<String> get(String url, Map<String, String> headers) throws IOException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url)).GET();
+        headers.forEach(builder::header);
+        return send(builder.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * 把参数表编码为查询字符串，包含开头的 `?`，没有参数时返回空字符串。
+     */
+    public static String toQuery(Map<String, List<String>> params) {
+        List<String> encoded = new ArrayList<>();
+        params.forEach((name, values) -> values.forEach(value -> encoded.add(encode(name, value))));
+        return encoded.isEmpty() ? "" : "?" + String.join("&", encoded);
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException {
+        try {
+            return client.send(request, handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for " + request.uri(), e);
+        }
+    }
+
+    private static String buildQuery(String rawQuery, Map<String, String> paramOverrides) {
+        List<String> params = new ArrayList<>();
+        Set<String> overridden = new HashSet<>();
+        if (rawQuery != null && !rawQuery.isEmpty()) {
+            for (String param : rawQuery.split("&")) {
+                int index = param.indexOf('=');
+                String name = URLDecoder.decode(index >= 0 ? param.substring(0, index) : param, StandardCharsets.UTF_8);
+                if (paramOverrides.containsKey(name)) {
+                    if (overridden.add(name)) params.add(encode(name, paramOverrides.get(name)));
+                } else {
+                    params.add(param);
+                }
+            }
+        }
+        paramOverrides.forEach((name, value) -> {
+            if (!overridden.contains(name)) params.add(encode(name, value));
+        });
+        return params.isEmpty() ? "" : "?" + String.join("&", params);
+    }
+
+    private static String encode(String name, String value) {
+        return URLEncoder.encode(name, StandardCharsets.UTF_8) + "=" + URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
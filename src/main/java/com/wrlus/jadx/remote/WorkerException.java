@@ -0,0 +1,18 @@
+package com.wrlus.jadx.remote;
+
+/**
+ * 子进程或后端无法启动、崩溃或无法连接时抛出，HTTP 层转换为 502。
+ */
+public class WorkerException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public static final int STATUS_BAD_GATEWAY = 502;
+
+    public WorkerException(String message) {
+        super(message);
+    }
+
+    public WorkerException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
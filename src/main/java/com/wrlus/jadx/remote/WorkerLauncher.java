@@ -0,0 +1,188 @@
+package com.wrlus.jadx.remote;
+
+import com.wrlus.jadx.McpServerMain;
+import com.wrlus.jadx.load.LoadOptions;
+import com.wrlus.jadx.memory.LoadEstimate;
+import com.wrlus.jadx.warmup.WarmUp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程隔离模式的配置，为需要隔离的实例启动独立的子 JVM（worker），每个 worker 有自己的堆和 GC 参数，
+ * 只在本机回环地址上监听，由前端 McpServer 转发请求。
+ */
+public class WorkerLauncher {
+    private static final Logger logger = LoggerFactory.getLogger(WorkerLauncher.class);
+
+    public static final String ENV_WORKER_MODE = "JADX_DAEMON_MCP_WORKER_MODE";
+    public static final String ENV_WORKER_JVM_ARGS = "JADX_DAEMON_MCP_WORKER_JVM_ARGS";
+    public static final String ENV_WORKER_AUTO_MB = "JADX_DAEMON_MCP_WORKER_AUTO_MB";
+    public static final String ENV_WORKER_START_TIMEOUT_MS = "JADX_DAEMON_MCP_WORKER_START_TIMEOUT_MS";
+
+    static final String WORKER_HOST = "127.0.0.1";
+    private static final long DEFAULT_AUTO_MB = 512;
+    private static final long DEFAULT_START_TIMEOUT_MS = 60_000;
+    private static final long MIN_WORKER_HEAP_MB = 512;
+    private static final int WORKER_HEAP_FACTOR = 2;
+
+    public enum Mode {
+        /** 所有实例在前端进程内加载 */
+        OFF,
+        /** 所有实例在子进程中加载 */
+        PROCESS,
+        /** 估算堆占用超过阈值的实例在子进程中加载 */
+        AUTO
+    }
+
+    private final Mode mode;
+    private final List<String> jvmArgs;
+    private final long autoBytes;
+    private final long startTimeoutMs;
+    private final HttpProxy proxy = new HttpProxy();
+    private final Set<WorkerProcess> workers = ConcurrentHashMap.newKeySet();
+    private volatile boolean discardStdout = false;
+
+    public WorkerLauncher(Mode mode, List<String> jvmArgs, long autoBytes, long startTimeoutMs) {
+        this.mode = mode;
+        this.jvmArgs = jvmArgs;
+        this.autoBytes = autoBytes;
+        this.startTimeoutMs = startTimeoutMs;
+        if (mode != Mode.OFF) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> workers.forEach(WorkerProcess::close)));
+        }
+    }
+
+    public static WorkerLauncher fromEnv() {
+        Mode mode = Mode.OFF;
+        String modeValue = System.getenv(ENV_WORKER_MODE);
+        if (modeValue != null && !modeValue.isBlank()) {
+            try {
+                mode = Mode.valueOf(modeValue.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                logger.error("Invalid value of {}: {}", ENV_WORKER_MODE, modeValue);
+            }
+        }
+        String argsValue = System.getenv(ENV_WORKER_JVM_ARGS);
+        List<String> jvmArgs = argsValue != null && !argsValue.isBlank() ?
+                List.of(argsValue.trim().split("\\s+")) : Collections.emptyList();
+        long autoMb = getEnvLong(ENV_WORKER_AUTO_MB, DEFAULT_AUTO_MB);
+        long startTimeoutMs = getEnvLong(ENV_WORKER_START_TIMEOUT_MS, DEFAULT_START_TIMEOUT_MS);
+        if (mode != Mode.OFF) {
+            logger.info("Worker mode: {}, JVM args: {}", mode.name().toLowerCase(), jvmArgs);
+        }
+        return new WorkerLauncher(mode, jvmArgs, autoMb * 1024 * 1024, startTimeoutMs);
+    }
+
+    /**
+     * @param requested 加载请求的 `isolate` 参数，为 null 时按配置的模式决定。
+     */
+    public boolean shouldIsolate(LoadEstimate estimate, Boolean requested) {
+        if (requested != null) return requested;
+        return switch (mode) {
+            case OFF -> false;
+            case PROCESS -> true;
+            case AUTO -> estimate.getEstimatedBytes() >= autoBytes;
+        };
+    }
+
+    /**
+     * 启动 worker 并在其中加载实例，返回时实例已经加载完成。
+     * @param heapMb worker 的最大堆，为 null 时使用 JVM 参数中的设置或按估算值计算。
+     * @param warmUp worker 加载后的预热设置。
+     * @param loadOptions worker 加载实例的方式。
+     * @throws WorkerException worker 启动或加载失败。
+     */
+    public WorkerProcess launch(String path, boolean isDir, LoadEstimate estimate, Integer heapMb,
+                                WarmUp.Options warmUp, LoadOptions loadOptions) {
+        List<String> args = new ArrayList<>(jvmArgs);
+        if (heapMb != null) {
+            args.removeIf(arg -> arg.startsWith("-Xmx"));
+            args.add("-Xmx" + heapMb + "m");
+        } else if (args.stream().noneMatch(arg -> arg.startsWith("-Xmx"))) {
+            long estimatedMb = estimate.getEstimatedBytes() / 1024 / 1024;
+            args.add("-Xmx" + Math.max(MIN_WORKER_HEAP_MB, estimatedMb * WORKER_HEAP_FACTOR) + "m");
+        }
+        // 堆耗尽时直接退出，由前端重启，而不是留下一个不可用的进程
+        args.add("-XX:+ExitOnOutOfMemoryError");
+
+        WorkerProcess worker = new WorkerProcess(this, path, isDir, List.copyOf(args), warmUp, loadOptions);
+        workers.add(worker);
+        try {
+            worker.start();
+        } catch (WorkerException e) {
+            worker.close();
+            throw e;
+        }
+        return worker;
+    }
+
+    ProcessBuilder newProcessBuilder(List<String> args, int port) {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(args);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(McpServerMain.class.getName());
+
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.environment().put("JADX_DAEMON_MCP_HOST", WORKER_HOST);
+        builder.environment().put("JADX_DAEMON_MCP_PORT", String.valueOf(port));
+        builder.environment().put(ENV_WORKER_MODE, Mode.OFF.name().toLowerCase());
+        // worker 总是提供 HTTP 服务
+        builder.environment().remove(McpServerMain.ENV_TRANSPORT);
+        builder.inheritIO();
+        if (discardStdout) {
+            builder.redirectInput(ProcessBuilder.Redirect.PIPE);
+            builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        }
+        return builder;
+    }
+
+    /**
+     * 标准输入输出用于 MCP stdio 传输时，worker 不能继承它们，日志仍然输出到标准错误。
+     */
+    public void discardWorkerStdout() {
+        discardStdout = true;
+    }
+
+    static int findFreePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getByName(WORKER_HOST))) {
+            return socket.getLocalPort();
+        }
+    }
+
+    void removeWorker(WorkerProcess worker) {
+        workers.remove(worker);
+    }
+
+    HttpProxy getProxy() {
+        return proxy;
+    }
+
+    long getStartTimeoutMs() {
+        return startTimeoutMs;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    private static long getEnvLong(String name, long defaultValue) {
+        String value = System.getenv(name);
+        if (value == null || value.isBlank()) return defaultValue;
+        try {
+            long parsed = Long.parseLong(value.trim());
+            return parsed > 0 ? parsed : defaultValue;
+        } catch (NumberFormatException e) {
+            logger.error("Invalid value of {}: {}", name, value);
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.wrlus.jadx.remote;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.wrlus.jadx.load.LoadOptions;
+import com.wrlus.jadx.warmup.WarmUp;
+import io.javalin.http.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一个实例对应的子 JVM。子进程意外退出后自动重启并重新加载，短时间内反复崩溃则放弃。
+ */
+public class WorkerProcess implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(WorkerProcess.class);
+
+    private static final int MAX_RESTARTS = 3;
+    private static final long RESTART_WINDOW_MS = TimeUnit.MINUTES.toMillis(10);
+    private static final long HEALTH_POLL_MS = 200;
+    private static final long STOP_TIMEOUT_MS = 5000;
+
+    private final WorkerLauncher launcher;
+    private final String path;
+    private final boolean isDir;
+    private final List<String> jvmArgs;
+    /* 重启后重新加载时也使用相同的预热设置 */
+    private final WarmUp.Options warmUp;
+    private final LoadOptions loadOptions;
+    private final Deque<Long> restartTimes = new ArrayDeque<>();
+
+    private Process process;
+    private int port;
+    private String remoteInstanceId;
+    private int restartCount = 0;
+    private String lastExit;
+    private volatile boolean closed = false;
+
+    WorkerProcess(WorkerLauncher launcher, String path, boolean isDir, List<String> jvmArgs, WarmUp.Options warmUp,
+                  LoadOptions loadOptions) {
+        this.launcher = launcher;
+        this.path = path;
+        this.isDir = isDir;
+        this.jvmArgs = jvmArgs;
+        this.warmUp = warmUp;
+        this.loadOptions = loadOptions;
+    }
+
+    /**
+     * 启动子进程，等待其就绪后加载实例。
+     */
+    synchronized void start() {
+        try {
+            port = WorkerLauncher.findFreePort();
+            Process started = launcher.newProcessBuilder(jvmArgs, port).start();
+            process = started;
+            started.onExit().thenRun(() -> onExit(started));
+            logger.info("Started worker pid {} on port {} for {}", started.pid(), port, path);
+
+            waitUntilReady(started);
+            remoteInstanceId = load();
+        } catch (IOException e) {
+            Process failed = process;
+            process = null;
+            if (failed != null) failed.destroyForcibly();
+            throw new WorkerException("Cannot start worker for `" + path + "`: " + e.getMessage(), e);
+        }
+    }
+
+    private void waitUntilReady(Process started) throws IOException {
+        long deadline = System.currentTimeMillis() + launcher.getStartTimeoutMs();
+        while (true) {
+            if (!started.isAlive()) {
+                throw new IOException("worker exited with code " + started.exitValue());
+            }
+            try {
+                if (launcher.getProxy().get(getBaseUrl() + "/health").statusCode() == 200) return;
+            } catch (IOException ignored) {
+                // 还没有开始监听
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new IOException("worker is not ready after " + launcher.getStartTimeoutMs() + " ms");
+            }
+            try {
+                Thread.sleep(HEALTH_POLL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while waiting for worker", e);
+            }
+        }
+    }
+
+    private String load() throws IOException {
+        String url = getBaseUrl() + (isDir ? "/load_dir?dirPath=" : "/load?filePath=") +
+                URLEncoder.encode(path, StandardCharsets.UTF_8) + warmUp.toQuery() +
+                loadOptions.toQuery();
+        HttpResponse<String> response = launcher.getProxy().get(url);
+        JsonObject json;
+        try {
+            json = JsonParser.parseString(response.body()).getAsJsonObject();
+        } catch (RuntimeException e) {
+            throw new IOException("unexpected load response with status " + response.statusCode());
+        }
+        JsonElement result = json.get("result");
+        if (response.statusCode() != 200 || result == null) {
+            JsonElement error = json.get("error");
+            throw new IOException(error != null ? error.getAsString() : "load failed with status " + response.statusCode());
+        }
+        return result.getAsString();
+    }
+
+    private void onExit(Process exited) {
+        synchronized (this) {
+            if (closed || exited != process) return;
+            lastExit = "exit code " + exited.exitValue();
+        }
+        logger.error("Worker pid {} for {} exited unexpectedly ({})", exited.pid(), path, lastExit);
+        Thread.startVirtualThread(() -> {
+            try {
+                ensureRunning();
+            } catch (WorkerException e) {
+                logger.error(e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 子进程已退出时重启，10 分钟内重启超过 3 次不再重启。
+     */
+    private synchronized void ensureRunning() {
+        if (closed) throw new WorkerException("Worker for `" + path + "` is closed.");
+        if (process != null && process.isAlive()) return;
+
+        long now = System.currentTimeMillis();
+        while (!restartTimes.isEmpty() && now - restartTimes.peekFirst() > RESTART_WINDOW_MS) {
+            restartTimes.removeFirst();
+        }
+        if (restartTimes.size() >= MAX_RESTARTS) {
+            throw new WorkerException("Worker for `" + path + "` crashed " + restartTimes.size() +
+                    " times recently (" + lastExit + "), please unload and load it again.");
+        }
+        restartTimes.addLast(now);
+        restartCount++;
+        logger.info("Restarting worker for {}", path);
+        start();
+    }
+
+    /**
+     * 把请求转发给子进程，instanceId 替换为子进程中的实例 ID。子进程已经崩溃时先重启再转发。
+     * @throws WorkerException 子进程无法重启或连接失败。
+     */
+    public void forward(Context ctx, String clientId) {
+        for (int attempt = 0; ; attempt++) {
+            String baseUrl;
+            String instanceId;
+            Process current;
+            synchronized (this) {
+                ensureRunning();
+                baseUrl = getBaseUrl();
+                instanceId = remoteInstanceId;
+                current = process;
+            }
+
+            HttpResponse<InputStream> response;
+            try {
+                response = launcher.getProxy().open(ctx, baseUrl,
+                        Map.of("instanceId", instanceId), Map.of("X-Client-Id", clientId));
+            } catch (IOException e) {
+                if (attempt == 0 && waitForExit(current)) continue;
+                throw new WorkerException("Cannot reach worker for `" + path + "`: " + e.getMessage(), e);
+            }
+            try {
+                launcher.getProxy().relay(ctx, response);
+            } catch (IOException e) {
+                // 客户端断开或子进程在响应中途退出，响应已经开始，无法再返回错误
+                logger.debug("Relay from worker for {} stopped: {}", path, e.getMessage());
+            }
+            return;
+        }
+    }
+
+    /**
+     * 以普通调用的方式把请求发送给子进程并读取完整响应，用于 MCP 工具调用。
+     * @throws WorkerException 子进程无法重启或连接失败。
+     */
+    public HttpResponse<String> call(String path, Map<String, List<String>> params, String clientId) {
+        for (int attempt = 0; ; attempt++) {
+            String baseUrl;
+            Map<String, List<String>> remoteParams = new LinkedHashMap<>(params);
+            Process current;
+            synchronized (this) {
+                ensureRunning();
+                baseUrl = getBaseUrl();
+                remoteParams.put("instanceId", List.of(remoteInstanceId));
+                current = process;
+            }
+            try {
+                return launcher.getProxy().get(baseUrl + path + HttpProxy.toQuery(remoteParams),
+                        Map.of("X-Client-Id", clientId));
+            } catch (IOException e) {
+                if (attempt == 0 && waitForExit(current)) continue;
+                throw new WorkerException("Cannot reach worker for `" + path + "`: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private static boolean waitForExit(Process current) {
+        try {
+            return current.waitFor(HEALTH_POLL_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    private String getBaseUrl() {
+        return "http://" + WorkerLauncher.WORKER_HOST + ":" + port;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("path", path);
+        stats.put("pid", process != null ? process.pid() : null);
+        stats.put("port", port);
+        stats.put("alive", process != null && process.isAlive());
+        stats.put("restartCount", restartCount);
+        stats.put("lastExit", lastExit);
+        stats.put("jvmArgs", jvmArgs);
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        Process current;
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            current = process;
+        }
+        launcher.removeWorker(this);
+        if (current == null) return;
+        current.destroy();
+        try {
+            if (!current.waitFor(STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                current.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            current.destroyForcibly();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.wrlus.jadx.resource;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * resources.arsc 中的一个值，例如 `res/values/strings.xml` 中的一个 string。
+ * @param file 值所在的文件（按配置区分，例如 `res/values-zh/strings.xml`）。
+ * @param type 资源类型，例如 `string`、`color`、`array`。
+ */
+public record ResourceEntry(String file, String type, String name, String value) {
+
+    public String getFullName() {
+        return type + "/" + name;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("file", file);
+        map.put("type", type);
+        map.put("name", name);
+        map.put("value", value);
+        return map;
+    }
+}
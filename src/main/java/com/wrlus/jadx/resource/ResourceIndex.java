@@ -0,0 +1,305 @@
+package com.wrlus.jadx.resource;
+
+import com.wrlus.jadx.paging.ResultSink;
+import com.wrlus.jadx.paging.ScanCursor;
+import com.wrlus.jadx.scheduler.Cancellation;
+import com.wrlus.jadx.scheduler.Priority;
+import com.wrlus.jadx.scheduler.WorkScheduler;
+import jadx.api.ResourceFile;
+import jadx.api.ResourceType;
+import jadx.api.resources.ResourceContentType;
+import jadx.core.xmlgen.ResContainer;
+import jadx.zip.IZipEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.regex.Pattern;
+
+/**
+ * 实例的资源索引：资源文件列表、resources.arsc 中的值、文本资源的内容以及资源 ID 和名称的映射。
+ * 资源在第一次查询时并行解码一次，之后的查询只读取索引。
+ */
+public class ResourceIndex {
+    private static final Logger logger = LoggerFactory.getLogger(ResourceIndex.class);
+    /* 超过这个大小的文本资源只索引文件名 */
+    private static final long MAX_TEXT_BYTES = 4 * 1024 * 1024;
+    private static final int MAX_LINE_LENGTH = 300;
+
+    private final List<ResourceEntry> entries;
+    /* 资源文件名到类型，按解码顺序 */
+    private final Map<String, ResourceType> files;
+    /* 解码后的文本资源，包括二进制 XML 和 resources.arsc 生成的 values 文件 */
+    private final Map<String, String> texts;
+    private final Map<Integer, String> idToName;
+    private final Map<String, Integer> nameToId;
+    private final List<String> documents;
+    private final long textBytes;
+
+    private ResourceIndex(List<ResourceEntry> entries, Map<String, ResourceType> files, Map<String, String> texts,
+                          Map<Integer, String> idToName) {
+        this.entries = entries;
+        this.files = files;
+        this.texts = texts;
+        this.idToName = idToName;
+        this.nameToId = new HashMap<>();
+        idToName.forEach((id, name) -> nameToId.put(name, id));
+        this.documents = new ArrayList<>(files.keySet());
+        for (String file : texts.keySet()) {
+            if (!files.containsKey(file)) documents.add(file);
+        }
+        long bytes = 0;
+        for (String text : texts.values()) {
+            bytes += 2L * text.length();
+        }
+        this.textBytes = bytes;
+    }
+
+    /**
+     * 每个资源文件一个任务并行解码，请求取消后未开始的文件直接跳过，索引不会被创建。
+     * @param resourceNames jadx 加载 resources.arsc 时得到的资源 ID 到 `type/name` 的映射。
+     * @throws CancellationException 请求已经取消。
+     */
+    public static ResourceIndex build(List<ResourceFile> resources, Map<Integer, String> resourceNames,
+                                      WorkScheduler scheduler) {
+        Cancellation cancellation = Cancellation.current();
+        List<Callable<Decoded>> tasks = new ArrayList<>();
+        for (ResourceFile resource : resources) {
+            tasks.add(() -> cancellation.isCancelled() ? null : decode(resource));
+        }
+        List<Decoded> decodedList = scheduler.callAll(Priority.NORMAL, tasks);
+
+        List<ResourceEntry> entries = new ArrayList<>();
+        Map<String, ResourceType> files = new LinkedHashMap<>();
+        Map<String, String> texts = new LinkedHashMap<>();
+        for (Decoded decoded : decodedList) {
+            if (decoded == null) {
+                throw new CancellationException("Request cancelled: " + cancellation.getReason());
+            }
+            files.put(decoded.file(), decoded.type());
+            entries.addAll(decoded.entries());
+            texts.putAll(decoded.texts());
+        }
+        logger.info("Indexed {} resource files, {} values, {} text files", files.size(), entries.size(), texts.size());
+        return new ResourceIndex(List.copyOf(entries), files, texts, Map.copyOf(resourceNames));
+    }
+
+    private record Decoded(String file, ResourceType type, List<ResourceEntry> entries, Map<String, String> texts) {
+    }
+
+    private static Decoded decode(ResourceFile resource) {
+        String file = resource.getDeobfName();
+        List<ResourceEntry> entries = new ArrayList<>();
+        Map<String, String> texts = new LinkedHashMap<>();
+        try {
+            if (resource.getType() == ResourceType.ARSC) {
+                ResContainer container = resource.loadContent();
+                for (ResContainer subFile : container.getSubFiles()) {
+                    if (subFile.getDataType() != ResContainer.DataType.TEXT) continue;
+                    String text = subFile.getText().getCodeStr();
+                    texts.put(subFile.getName(), text);
+                    entries.addAll(parseValues(subFile.getName(), text));
+                }
+            } else if (resource.getType() == ResourceType.XML || resource.getType() == ResourceType.MANIFEST) {
+                ResContainer container = resource.loadContent();
+                if (container.getDataType() == ResContainer.DataType.TEXT) {
+                    texts.put(file, container.getText().getCodeStr());
+                }
+            } else if (resource.getType().getContentType() == ResourceContentType.CONTENT_TEXT) {
+                IZipEntry zipEntry = resource.getZipEntry();
+                if (zipEntry != null && zipEntry.getUncompressedSize() <= MAX_TEXT_BYTES) {
+                    texts.put(file, new String(zipEntry.getBytes(), StandardCharsets.UTF_8));
+                }
+            }
+        } catch (Exception e) {
+            // 单个资源解码失败不影响其他资源
+            logger.warn("Failed to decode resource {}: {}", file, e.getMessage());
+        }
+        return new Decoded(file, resource.getType(), entries, texts);
+    }
+
+    /**
+     * 解析 jadx 从 resources.arsc 生成的 values XML，数组、样式等复合值合并为一行。
+     */
+    private static List<ResourceEntry> parseValues(String file, String text) {
+        List<ResourceEntry> entries = new ArrayList<>();
+        Element root;
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            root = factory.newDocumentBuilder().parse(new InputSource(new StringReader(text))).getDocumentElement();
+        } catch (Exception e) {
+            logger.debug("Cannot parse values file {}: {}", file, e.getMessage());
+            return entries;
+        }
+        NodeList nodes = root.getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            if (!(nodes.item(i) instanceof Element element) || !element.hasAttribute("name")) continue;
+            String type = element.getTagName();
+            if (type.equals("public")) continue;
+            if (type.equals("item") && element.hasAttribute("type")) {
+                type = element.getAttribute("type");
+            } else if (type.endsWith("-array")) {
+                type = "array";
+            } else if (type.equals("declare-styleable")) {
+                type = "styleable";
+            }
+            entries.add(new ResourceEntry(file, type, element.getAttribute("name"), getValue(element)));
+        }
+        return entries;
+    }
+
+    private static String getValue(Element element) {
+        List<String> items = new ArrayList<>();
+        NodeList children = element.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            if (children.item(i) instanceof Element child) {
+                String value = child.getTextContent().trim();
+                items.add(child.hasAttribute("name") ? child.getAttribute("name") + "=" + value :
+                        child.hasAttribute("quantity") ? child.getAttribute("quantity") + "=" + value : value);
+            }
+        }
+        return items.isEmpty() ? element.getTextContent().trim() : String.join(", ", items);
+    }
+
+    /**
+     * 在资源名称、值、文件名和文本资源内容中搜索，先返回匹配的值，再按文件返回匹配的文件名和行。
+     * 游标的 index 是值和文件的序号，skip 是同一文件中已经返回的结果数。
+     * @param type 只搜索该类型的值和 `res/<type>*` 目录下的文件，为 null 时搜索全部。
+     */
+    public ScanCursor search(String query, boolean regex, String type, ScanCursor start,
+                             ResultSink<Map<String, Object>> sink) {
+        Pattern pattern = regex ? Pattern.compile(query) : Pattern.compile(Pattern.quote(query), Pattern.CASE_INSENSITIVE);
+        Cancellation cancellation = Cancellation.current();
+        int total = entries.size() + documents.size();
+        int skip = start.getSkip();
+
+        for (int index = start.getIndex(); index < total; index++) {
+            if (cancellation.isCancelled()) {
+                return new ScanCursor(index, skip);
+            }
+            List<Map<String, Object>> matches = index < entries.size() ?
+                    matchEntry(entries.get(index), pattern, type) :
+                    matchDocument(documents.get(index - entries.size()), pattern, type);
+            for (int j = skip; j < matches.size(); j++) {
+                if (!sink.accept(matches.get(j))) {
+                    if (j + 1 < matches.size()) return new ScanCursor(index, j + 1);
+                    return index + 1 < total ? new ScanCursor(index + 1, 0) : null;
+                }
+            }
+            skip = 0;
+        }
+        return null;
+    }
+
+    private static List<Map<String, Object>> matchEntry(ResourceEntry entry, Pattern pattern, String type) {
+        if (type != null && !entry.type().equals(type)) return Collections.emptyList();
+        if (pattern.matcher(entry.getFullName()).find() || pattern.matcher(entry.value()).find()) {
+            return Collections.singletonList(entry.toMap());
+        }
+        return Collections.emptyList();
+    }
+
+    private List<Map<String, Object>> matchDocument(String file, Pattern pattern, String type) {
+        if (type != null && !type.equals(getResDirType(file))) return Collections.emptyList();
+
+        List<Map<String, Object>> matches = new ArrayList<>();
+        if (pattern.matcher(file).find()) {
+            Map<String, Object> match = new LinkedHashMap<>();
+            match.put("file", file);
+            ResourceType resourceType = files.get(file);
+            match.put("fileType", resourceType != null ? resourceType.name().toLowerCase() : "xml");
+            matches.add(match);
+        }
+        String text = texts.get(file);
+        if (text == null) return matches;
+
+        int lineNumber = 0;
+        for (String line : text.split("\n", -1)) {
+            lineNumber++;
+            if (!pattern.matcher(line).find()) continue;
+            String trimmed = line.strip();
+            Map<String, Object> match = new LinkedHashMap<>();
+            match.put("file", file);
+            match.put("line", lineNumber);
+            match.put("text", trimmed.length() > MAX_LINE_LENGTH ? trimmed.substring(0, MAX_LINE_LENGTH) + "..." : trimmed);
+            matches.add(match);
+        }
+        return matches;
+    }
+
+    /**
+     * `res/layout-land/main.xml` 的类型是 `layout`，不在 res 目录下的文件没有类型。
+     */
+    private static String getResDirType(String file) {
+        if (!file.startsWith("res/")) return null;
+        int end = file.indexOf('/', 4);
+        if (end < 0) return null;
+        String dir = file.substring(4, end);
+        int dash = dir.indexOf('-');
+        return dash >= 0 ? dir.substring(0, dash) : dir;
+    }
+
+    public Set<String> getFiles() {
+        return Collections.unmodifiableSet(files.keySet());
+    }
+
+    /**
+     * @return 文件的解码文本，二进制文件或不存在时返回 null。
+     */
+    public String getText(String file) {
+        return texts.get(file);
+    }
+
+    public boolean hasFile(String file) {
+        return files.containsKey(file) || texts.containsKey(file);
+    }
+
+    public String getName(int id) {
+        return idToName.get(id);
+    }
+
+    public Integer getId(String name) {
+        return nameToId.get(name);
+    }
+
+    public Set<Integer> getIds() {
+        return idToName.keySet();
+    }
+
+    /**
+     * @param name `type/name` 格式的资源名称。
+     * @return 该资源在各个配置下的值。
+     */
+    public List<ResourceEntry> getValues(String name) {
+        List<ResourceEntry> values = new ArrayList<>();
+        for (ResourceEntry entry : entries) {
+            if (entry.getFullName().equals(name)) values.add(entry);
+        }
+        return values;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("files", files.size());
+        stats.put("values", entries.size());
+        stats.put("textFiles", texts.size());
+        stats.put("textBytes", textBytes);
+        stats.put("resourceIds", idToName.size());
+        return stats;
+    }
+
+    public static String formatId(int id) {
+        return String.format("0x%08x", id);
+    }
+}
@@ -0,0 +1,85 @@
+package com.wrlus.jadx.scheduler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 请求的截止时间和取消状态，扫描循环在类与类之间检查，取消后返回已经得到的部分结果。
+ */
+public class Cancellation {
+    public static final Cancellation NONE = new Cancellation(Long.MAX_VALUE, () -> false);
+
+    public static final String REASON_DEADLINE = "deadline exceeded";
+    public static final String REASON_DISCONNECTED = "client disconnected";
+
+    private static final long PROBE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final long deadlineNanos;
+    private final BooleanSupplier disconnectProbe;
+    private volatile String reason = null;
+    private volatile long nextProbeNanos;
+
+    private Cancellation(long deadlineNanos, BooleanSupplier disconnectProbe) {
+        this.deadlineNanos = deadlineNanos;
+        this.disconnectProbe = disconnectProbe;
+        this.nextProbeNanos = System.nanoTime();
+    }
+
+    /**
+     * @param timeoutMs 从现在开始计算的时间预算，为 null 时没有截止时间。
+     * @param disconnectProbe 客户端是否已经断开。
+     */
+    public static Cancellation create(Long timeoutMs, BooleanSupplier disconnectProbe) {
+        long deadlineNanos = timeoutMs != null ?
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs) : Long.MAX_VALUE;
+        return new Cancellation(deadlineNanos, disconnectProbe);
+    }
+
+    /**
+     * @return 当前线程正在处理的作业的取消状态，没有作业时返回 {@link #NONE}。
+     */
+    public static Cancellation current() {
+        Job job = Job.current();
+        return job != null ? job.getCancellation() : NONE;
+    }
+
+    public boolean isCancelled() {
+        if (reason != null) return true;
+        if (this == NONE) return false;
+
+        long now = System.nanoTime();
+        if (deadlineNanos != Long.MAX_VALUE && now - deadlineNanos >= 0) {
+            cancel(REASON_DEADLINE);
+            return true;
+        }
+        if (now - nextProbeNanos >= 0) {
+            nextProbeNanos = now + PROBE_INTERVAL_NANOS;
+            if (disconnectProbe.getAsBoolean()) {
+                cancel(REASON_DISCONNECTED);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void cancel(String reason) {
+        if (this.reason == null) {
+            this.reason = reason;
+        }
+    }
+
+    /**
+     * @return 取消的原因，未被取消时返回 null。
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * @return 距离截止时间的毫秒数，没有截止时间时返回 Long.MAX_VALUE。
+     */
+    public long getRemainingMillis() {
+        if (deadlineNanos == Long.MAX_VALUE) return Long.MAX_VALUE;
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+}
@@ -0,0 +1,79 @@
+package com.wrlus.jadx.scheduler;
+
+import java.util.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 按优先级出队的任务队列，同一优先级内按客户端轮转，避免单个客户端的大量任务独占工作线程。
+ */
+class FairTaskQueue {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Map<Priority, LinkedHashMap<String, ArrayDeque<Runnable>>> queues = new EnumMap<>(Priority.class);
+    private final Map<Priority, Integer> depths = new EnumMap<>(Priority.class);
+
+    FairTaskQueue() {
+        for (Priority priority : Priority.values()) {
+            queues.put(priority, new LinkedHashMap<>());
+            depths.put(priority, 0);
+        }
+    }
+
+    void add(Priority priority, String clientId, Runnable task) {
+        lock.lock();
+        try {
+            queues.get(priority).computeIfAbsent(clientId, key -> new ArrayDeque<>()).add(task);
+            depths.merge(priority, 1, Integer::sum);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Runnable take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                for (Priority priority : Priority.values()) {
+                    LinkedHashMap<String, ArrayDeque<Runnable>> clientQueues = queues.get(priority);
+                    if (clientQueues.isEmpty()) continue;
+
+                    // 取出队首客户端的一个任务，再把该客户端移到队尾
+                    Iterator<Map.Entry<String, ArrayDeque<Runnable>>> iterator = clientQueues.entrySet().iterator();
+                    Map.Entry<String, ArrayDeque<Runnable>> first = iterator.next();
+                    iterator.remove();
+                    Runnable task = first.getValue().poll();
+                    if (!first.getValue().isEmpty()) {
+                        clientQueues.put(first.getKey(), first.getValue());
+                    }
+                    depths.merge(priority, -1, Integer::sum);
+                    return task;
+                }
+                notEmpty.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Map<Priority, Integer> getDepths() {
+        lock.lock();
+        try {
+            return new EnumMap<>(depths);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Map<String, Integer> getClientDepths(Priority priority) {
+        lock.lock();
+        try {
+            Map<String, Integer> clientDepths = new LinkedHashMap<>();
+            queues.get(priority).forEach((clientId, tasks) -> clientDepths.put(clientId, tasks.size()));
+            return clientDepths;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.wrlus.jadx.scheduler;
+
+/**
+ * 一个已经获得准入许可的请求，在处理请求的线程上有效，关闭时释放许可。
+ */
+public class Job implements AutoCloseable {
+    public static final String ANONYMOUS_CLIENT = "anonymous";
+
+    private static final ThreadLocal<Job> CURRENT = new ThreadLocal<>();
+
+    private final Priority priority;
+    private final String clientId;
+    private final Cancellation cancellation;
+    private final Runnable release;
+    private boolean closed = false;
+
+    Job(Priority priority, String clientId, Cancellation cancellation, Runnable release) {
+        this.priority = priority;
+        this.clientId = clientId;
+        this.cancellation = cancellation;
+        this.release = release;
+        CURRENT.set(this);
+    }
+
+    /**
+     * @return 当前线程正在处理的作业，没有时返回 null。
+     */
+    public static Job current() {
+        return CURRENT.get();
+    }
+
+    public Priority getPriority() {
+        return priority;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public Cancellation getCancellation() {
+        return cancellation;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            CURRENT.remove();
+            release.run();
+        }
+    }
+}
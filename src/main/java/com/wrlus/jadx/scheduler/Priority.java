@@ -0,0 +1,15 @@
+package com.wrlus.jadx.scheduler;
+
+/**
+ * 工作优先级，数值越小越先执行。
+ */
+public enum Priority {
+    /** 单个方法/类的反编译等交互式查询 */
+    INTERACTIVE,
+    /** 调用树、AIDL 查询等中等开销的请求 */
+    NORMAL,
+    /** 遍历全部类的搜索 */
+    BULK,
+    /** 加载后的预热，只在没有其他任务时执行 */
+    BACKGROUND
+}
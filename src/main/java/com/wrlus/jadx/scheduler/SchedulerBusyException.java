@@ -0,0 +1,28 @@
+package com.wrlus.jadx.scheduler;
+
+/**
+ * 调度器饱和时抛出，HTTP 层转换为 429/503 并带上 Retry-After。
+ */
+public class SchedulerBusyException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public static final int STATUS_TOO_MANY_REQUESTS = 429;
+    public static final int STATUS_SERVICE_UNAVAILABLE = 503;
+
+    private final int status;
+    private final int retryAfterSeconds;
+
+    public SchedulerBusyException(String message, int status, int retryAfterSeconds) {
+        super(message);
+        this.status = status;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
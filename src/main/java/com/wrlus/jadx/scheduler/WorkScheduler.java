@@ -0,0 +1,249 @@
+package com.wrlus.jadx.scheduler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 反编译和扫描专用的线程池，带有作业准入控制和优先级调度。
+ * 每个重量级请求先通过 {@link #admit(Priority, String)} 获取对应优先级的作业许可，正在运行的作业数达到上限时
+ * 最多排队 maxQueuedJobs 个，排队已满立即返回 429，排队超时返回 503，避免请求挂起直到客户端超时。
+ * 工作线程总是先执行优先级最高的任务，同一优先级内按客户端轮转；全量扫描按类拆成小任务，
+ * 交互式查询只需要等待一个类的反编译完成就能获得工作线程。
+ */
+public class WorkScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(WorkScheduler.class);
+
+    public static final String ENV_WORKER_THREADS = "JADX_DAEMON_MCP_WORKER_THREADS";
+    public static final String ENV_MAX_JOBS = "JADX_DAEMON_MCP_MAX_JOBS";
+    public static final String ENV_MAX_INTERACTIVE_JOBS = "JADX_DAEMON_MCP_MAX_INTERACTIVE_JOBS";
+    public static final String ENV_MAX_QUEUED_JOBS = "JADX_DAEMON_MCP_MAX_QUEUED_JOBS";
+    public static final String ENV_QUEUE_TIMEOUT_MS = "JADX_DAEMON_MCP_QUEUE_TIMEOUT_MS";
+
+    private static final int DEFAULT_MAX_QUEUED_JOBS = 16;
+    private static final long DEFAULT_QUEUE_TIMEOUT_MS = 10_000;
+    private static final int RETRY_AFTER_SECONDS = 5;
+    private static final long CANCELLATION_POLL_MS = 200;
+
+    private final int workerThreads;
+    private final int maxQueuedJobs;
+    private final long queueTimeoutMs;
+
+    private final FairTaskQueue taskQueue = new FairTaskQueue();
+    private final List<Thread> workers = new ArrayList<>();
+    private final Map<Priority, Integer> maxJobs = new EnumMap<>(Priority.class);
+    private final Map<Priority, Semaphore> jobPermits = new EnumMap<>(Priority.class);
+    private final Map<Priority, AtomicInteger> queuedJobs = new EnumMap<>(Priority.class);
+    private final Map<Priority, AtomicInteger> rejectedJobs = new EnumMap<>(Priority.class);
+    private volatile boolean shutdown = false;
+
+    public WorkScheduler(int workerThreads, int maxJobs, int maxInteractiveJobs, int maxQueuedJobs, long queueTimeoutMs) {
+        this.workerThreads = workerThreads;
+        this.maxQueuedJobs = maxQueuedJobs;
+        this.queueTimeoutMs = queueTimeoutMs;
+
+        for (Priority priority : Priority.values()) {
+            int permits = priority == Priority.INTERACTIVE ? maxInteractiveJobs : maxJobs;
+            this.maxJobs.put(priority, permits);
+            this.jobPermits.put(priority, new Semaphore(permits, true));
+            this.queuedJobs.put(priority, new AtomicInteger());
+            this.rejectedJobs.put(priority, new AtomicInteger());
+        }
+
+        for (int i = 0; i < workerThreads; i++) {
+            Thread thread = new Thread(this::runWorker, "jadx-worker-" + (i + 1));
+            thread.setDaemon(true);
+            thread.start();
+            workers.add(thread);
+        }
+    }
+
+    public static WorkScheduler fromEnv() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int workerThreads = getEnvInt(ENV_WORKER_THREADS, processors);
+        int maxJobs = getEnvInt(ENV_MAX_JOBS, Math.max(2, workerThreads));
+        int maxInteractiveJobs = getEnvInt(ENV_MAX_INTERACTIVE_JOBS, Math.max(8, workerThreads * 4));
+        int maxQueuedJobs = getEnvInt(ENV_MAX_QUEUED_JOBS, DEFAULT_MAX_QUEUED_JOBS);
+        long queueTimeoutMs = getEnvInt(ENV_QUEUE_TIMEOUT_MS, (int) DEFAULT_QUEUE_TIMEOUT_MS);
+        logger.info("Work scheduler: {} worker threads, {} max jobs, {} max interactive jobs, {} max queued jobs",
+                workerThreads, maxJobs, maxInteractiveJobs, maxQueuedJobs);
+        return new WorkScheduler(workerThreads, maxJobs, maxInteractiveJobs, maxQueuedJobs, queueTimeoutMs);
+    }
+
+    private void runWorker() {
+        while (!shutdown) {
+            Runnable task;
+            try {
+                task = taskQueue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            task.run();
+            // 清除任务取消时留下的中断标记，避免影响下一个任务
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * 为一个请求申请作业许可，使用 try-with-resources 在请求结束时释放。
+     * 返回的作业绑定到当前线程，之后提交的任务使用它的客户端 id 做公平调度，并响应它的取消状态。
+     */
+    public Job admit(Priority priority, String clientId, Cancellation cancellation) {
+        if (shutdown) {
+            throw new SchedulerBusyException("Work scheduler is shutting down.",
+                    SchedulerBusyException.STATUS_SERVICE_UNAVAILABLE, RETRY_AFTER_SECONDS);
+        }
+        String client = clientId != null && !clientId.isBlank() ? clientId : Job.ANONYMOUS_CLIENT;
+        Semaphore permits = jobPermits.get(priority);
+        if (permits.tryAcquire()) {
+            return new Job(priority, client, cancellation, permits::release);
+        }
+        AtomicInteger queued = queuedJobs.get(priority);
+        if (queued.incrementAndGet() > maxQueuedJobs) {
+            queued.decrementAndGet();
+            rejectedJobs.get(priority).incrementAndGet();
+            throw new SchedulerBusyException("Too many running jobs, please retry later.",
+                    SchedulerBusyException.STATUS_TOO_MANY_REQUESTS, RETRY_AFTER_SECONDS);
+        }
+        try {
+            long timeoutMs = Math.min(queueTimeoutMs, cancellation.getRemainingMillis());
+            if (permits.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+                return new Job(priority, client, cancellation, permits::release);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            queued.decrementAndGet();
+        }
+        rejectedJobs.get(priority).incrementAndGet();
+        throw new SchedulerBusyException("Timed out waiting for a free worker, please retry later.",
+                SchedulerBusyException.STATUS_SERVICE_UNAVAILABLE, RETRY_AFTER_SECONDS);
+    }
+
+    /**
+     * 在工作线程上执行任务并等待结果，当前作业被取消时放弃等待并抛出 {@link CancellationException}。
+     */
+    public <T> T call(Priority priority, Callable<T> task) {
+        Future<T> future = submit(priority, task);
+        Cancellation cancellation = Cancellation.current();
+        if (cancellation != Cancellation.NONE) {
+            try {
+                while (!future.isDone()) {
+                    if (cancellation.isCancelled()) {
+                        future.cancel(true);
+                        throw new CancellationException("Request cancelled: " + cancellation.getReason());
+                    }
+                    try {
+                        future.get(CANCELLATION_POLL_MS, TimeUnit.MILLISECONDS);
+                    } catch (TimeoutException ignored) {
+                        // 继续检查取消状态
+                    } catch (ExecutionException ignored) {
+                        // 由下面的 await 处理
+                    }
+                }
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while waiting for worker.");
+            }
+        }
+        return await(future);
+    }
+
+    /**
+     * 并行执行一组任务，按提交顺序返回结果。
+     * 任务需要自己检查取消状态，尚未开始的任务在取消后应尽快返回。
+     */
+    public <T> List<T> callAll(Priority priority, List<Callable<T>> tasks) {
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            futures.add(submit(priority, task));
+        }
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(await(future));
+            }
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return results;
+    }
+
+    private <T> Future<T> submit(Priority priority, Callable<T> task) {
+        if (shutdown) {
+            throw new SchedulerBusyException("Work scheduler is shutting down.",
+                    SchedulerBusyException.STATUS_SERVICE_UNAVAILABLE, RETRY_AFTER_SECONDS);
+        }
+        Job job = Job.current();
+        String clientId = job != null ? job.getClientId() : Job.ANONYMOUS_CLIENT;
+        FutureTask<T> future = new FutureTask<>(task);
+        taskQueue.add(priority, clientId, future);
+        return future;
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for worker.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) throw runtimeException;
+            if (cause instanceof Error error) throw error;
+            throw new CompletionException(cause);
+        }
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("workerThreads", workerThreads);
+        stats.put("maxQueuedJobs", maxQueuedJobs);
+
+        Map<Priority, Integer> taskDepths = taskQueue.getDepths();
+        Map<String, Object> priorities = new LinkedHashMap<>();
+        for (Priority priority : Priority.values()) {
+            Map<String, Object> priorityStats = new LinkedHashMap<>();
+            int permits = maxJobs.get(priority);
+            priorityStats.put("maxJobs", permits);
+            priorityStats.put("runningJobs", permits - jobPermits.get(priority).availablePermits());
+            priorityStats.put("queuedJobs", queuedJobs.get(priority).get());
+            priorityStats.put("rejectedJobs", rejectedJobs.get(priority).get());
+            priorityStats.put("queuedTasks", taskDepths.get(priority));
+            priorityStats.put("queuedTasksByClient", taskQueue.getClientDepths(priority));
+            priorities.put(priority.name().toLowerCase(), priorityStats);
+        }
+        stats.put("priorities", priorities);
+        return stats;
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+
+    private static int getEnvInt(String name, int defaultValue) {
+        String value = System.getenv(name);
+        if (value == null || value.isBlank()) return defaultValue;
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            return parsed > 0 ? parsed : defaultValue;
+        } catch (NumberFormatException e) {
+            logger.error("Invalid value of {}: {}", name, value);
+            return defaultValue;
+        }
+    }
+}
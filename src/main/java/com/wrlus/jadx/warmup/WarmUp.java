@@ -0,0 +1,102 @@
+package com.wrlus.jadx.warmup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 加载后的后台预热进度：按关注程度依次反编译类并填充 jadx 的代码缓存，第一次搜索不需要等待反编译。
+ * 预热任务使用最低的 BACKGROUND 优先级，工作线程总是先执行请求提交的任务。
+ */
+public class WarmUp {
+    private static final Logger logger = LoggerFactory.getLogger(WarmUp.class);
+
+    public static final String ENV_WARM_UP = "JADX_DAEMON_MCP_WARM_UP";
+    public static final String ENV_WARM_UP_CLASSES = "JADX_DAEMON_MCP_WARM_UP_CLASSES";
+
+    public static final String STATE_RUNNING = "running";
+    public static final String STATE_DONE = "done";
+    public static final String STATE_STOPPED = "stopped";
+    public static final String STATE_FAILED = "failed";
+
+    /**
+     * @param enabled 加载后是否预热。
+     * @param maxClasses 最多预热的类数（包括内部类），0 表示不限制。
+     */
+    public record Options(boolean enabled, int maxClasses) {
+        public static Options fromEnv() {
+            boolean enabled = Boolean.parseBoolean(System.getenv(ENV_WARM_UP));
+            int maxClasses = 0;
+            String value = System.getenv(ENV_WARM_UP_CLASSES);
+            if (value != null && !value.isBlank()) {
+                try {
+                    maxClasses = Math.max(0, Integer.parseInt(value.trim()));
+                } catch (NumberFormatException e) {
+                    logger.error("Invalid value of {}: {}", ENV_WARM_UP_CLASSES, value);
+                }
+            }
+            return new Options(enabled, maxClasses);
+        }
+
+        /**
+         * 用加载请求的 `warmUp` 和 `warmUpClasses` 参数覆盖默认值，参数为 null 时使用默认值。
+         */
+        public Options override(Boolean enabled, Integer maxClasses) {
+            return new Options(enabled != null ? enabled : this.enabled,
+                    maxClasses != null ? maxClasses : this.maxClasses);
+        }
+
+        /**
+         * @return 转发给子进程加载请求的参数，以 `&` 开头。
+         */
+        public String toQuery() {
+            return "&warmUp=" + enabled + "&warmUpClasses=" + maxClasses;
+        }
+    }
+
+    private final long startTime = System.currentTimeMillis();
+    private final AtomicInteger decompiled = new AtomicInteger();
+    private volatile int total = -1;
+    private volatile String state = STATE_RUNNING;
+    private volatile String error;
+    private volatile long endTime;
+    private volatile boolean stopRequested = false;
+
+    /**
+     * 实例关闭或重新加载时停止，正在执行的批次完成后不再提交新的批次。
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    public boolean isStopRequested() {
+        return stopRequested;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public void addDecompiled(int count) {
+        decompiled.addAndGet(count);
+    }
+
+    public void finish(String state, String error) {
+        this.state = state;
+        this.error = error;
+        this.endTime = System.currentTimeMillis();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", state);
+        stats.put("decompiledClasses", decompiled.get());
+        if (total >= 0) stats.put("totalClasses", total);
+        stats.put("elapsedMs", (endTime > 0 ? endTime : System.currentTimeMillis()) - startTime);
+        if (error != null) stats.put("error", error);
+        return stats;
+    }
+}
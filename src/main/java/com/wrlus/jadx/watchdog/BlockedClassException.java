@@ -0,0 +1,15 @@
+package com.wrlus.jadx.watchdog;
+
+import com.wrlus.jadx.scheduler.SchedulerBusyException;
+
+/**
+ * 类的反编译在等待超时后仍在运行的线程（持有依赖的锁或占满反编译线程池），类本身没有进入隔离，
+ * HTTP 层转换为 503 并带上 Retry-After。
+ */
+public class BlockedClassException extends SchedulerBusyException {
+    private static final long serialVersionUID = 1L;
+
+    public BlockedClassException(String message, int retryAfterSeconds) {
+        super(message, STATUS_SERVICE_UNAVAILABLE, retryAfterSeconds);
+    }
+}
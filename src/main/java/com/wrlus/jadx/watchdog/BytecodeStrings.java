@@ -0,0 +1,75 @@
+package com.wrlus.jadx.watchdog;
+
+import jadx.api.plugins.input.data.ICodeReader;
+import jadx.api.plugins.input.data.IFieldRef;
+import jadx.api.plugins.input.data.IMethodRef;
+import jadx.api.plugins.input.insns.InsnData;
+import jadx.core.dex.nodes.ClassNode;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 隔离的类不再反编译，字符串搜索只在字节码中查找：每个方法的字符串常量，以及引用的类型、字段和方法的名称。
+ * 读取输入数据的副本，不需要持有类的锁（卡住的反编译线程可能一直持有）。
+ */
+public final class BytecodeStrings {
+
+    private BytecodeStrings() {
+    }
+
+    /**
+     * @return 方法的 shortId（名称和描述符）到方法中出现的字符串，按出现的顺序去重。
+     */
+    public static Map<String, List<String>> collect(ClassNode cls) {
+        Map<String, List<String>> methods = new LinkedHashMap<>();
+        cls.getClsData().copy().visitFieldsAndMethods(field -> {
+        }, method -> {
+            IMethodRef ref = method.getMethodRef();
+            ref.load();
+            ICodeReader codeReader = method.getCodeReader();
+            if (codeReader == null) return;
+            Set<String> strings = new LinkedHashSet<>();
+            codeReader.visitInstructions(insn -> addInsnStrings(insn, strings));
+            methods.put(ref.getName() + "(" + String.join("", ref.getArgTypes()) + ")" + ref.getReturnType(),
+                    new ArrayList<>(strings));
+        });
+        return methods;
+    }
+
+    private static void addInsnStrings(InsnData insn, Set<String> strings) {
+        insn.decode();
+        switch (insn.getIndexType()) {
+            case STRING_REF -> strings.add(insn.getIndexAsString());
+            case TYPE_REF -> strings.add(simpleName(insn.getIndexAsType()));
+            case FIELD_REF -> {
+                IFieldRef field = insn.getIndexAsField();
+                strings.add(simpleName(field.getParentClassType()) + "." + field.getName());
+            }
+            case METHOD_REF -> {
+                IMethodRef mth = insn.getIndexAsMethod();
+                mth.load();
+                strings.add(simpleName(mth.getParentClassType()) + "." + mth.getName());
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * 反编译的代码在方法中通常使用导入后的短名称：`[Lcom/example/A$B;` 转换为 `A.B`，基本类型保持不变。
+     */
+    private static String simpleName(String descriptor) {
+        int start = 0;
+        while (start < descriptor.length() && descriptor.charAt(start) == '[') start++;
+        if (descriptor.startsWith("L", start) && descriptor.endsWith(";")) {
+            String name = descriptor.substring(start + 1, descriptor.length() - 1);
+            return name.substring(name.lastIndexOf('/') + 1).replace('$', '.');
+        }
+        return descriptor.substring(start);
+    }
+}
@@ -0,0 +1,341 @@
+package com.wrlus.jadx.watchdog;
+
+import jadx.api.ICodeInfo;
+import jadx.core.dex.nodes.ClassNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按类的时间预算反编译顶层类。jadx 的反编译过程不响应中断，卡住的类无法停止：
+ * 反编译在单独的守护线程中进行，调用者（工作线程）等待它用完预算的 CPU 时间，超时后类进入 {@link Quarantine}，
+ * 调用者继续处理其他类，卡住的线程留在后台直到反编译结束。按 CPU 时间计算，线程池繁忙或等待锁时不计入预算，
+ * 并发扫描时只是变慢的类不会被隔离。反编译抛出异常时重试一次，再次失败才隔离，之后不再重试。
+ * <p>
+ * 后台的线程仍然持有顶层类的锁，需要它作为依赖的类会一直等待：等待超时线程持有的锁时不隔离，
+ * 抛出 {@link BlockedClassException}，稍后重试。反编译线程池的大小有限，超时的线程占满时拒绝新的反编译。
+ * 已经在代码缓存中的类直接读取，不切换线程。
+ */
+public class DecompileWatchdog {
+    private static final Logger logger = LoggerFactory.getLogger(DecompileWatchdog.class);
+
+    public static final String ENV_DECOMPILE_TIMEOUT_MS = "JADX_DAEMON_MCP_DECOMPILE_TIMEOUT_MS";
+    private static final long DEFAULT_TIMEOUT_MS = 60_000;
+    private static final int MAX_LISTED_ENTRIES = 100;
+    private static final long POLL_MS = 50;
+    private static final int RETRY_AFTER_SECONDS = 5;
+    /* 留给超时后仍在运行的线程的最少线程数 */
+    private static final int MIN_SPARE_THREADS = 4;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME = THREADS.isThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+
+    /* 进程内所有实例共用，第一次创建时按工作线程数确定大小，空闲线程 60 秒后退出 */
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static ThreadPoolExecutor executor;
+
+    private final long timeoutMs;
+    private final ThreadPoolExecutor pool;
+    private final Quarantine quarantine = new Quarantine();
+    /* 超时或等待超时线程后仍在后台反编译的顶层类，反编译线程持有类的锁 */
+    private final Map<String, Task> abandoned = new ConcurrentHashMap<>();
+    /* 正在反编译的顶层类和同时进行的次数，包括超时后仍在后台的 */
+    private final Map<ClassNode, Integer> running = new ConcurrentHashMap<>();
+
+    /**
+     * @param timeoutMs 每个类的时间预算，小于等于 0 表示不限制，在调用者的线程中反编译，只隔离抛出异常的类。
+     * @param workerThreads 调用者的工作线程数，反编译线程池在此之外留出同样多（至少 4 个）线程给超时后仍在运行的线程。
+     */
+    public DecompileWatchdog(long timeoutMs, int workerThreads) {
+        this.timeoutMs = timeoutMs;
+        this.pool = getExecutor(workerThreads);
+    }
+
+    public static DecompileWatchdog fromEnv(int workerThreads) {
+        String value = System.getenv(ENV_DECOMPILE_TIMEOUT_MS);
+        long timeoutMs = DEFAULT_TIMEOUT_MS;
+        if (value != null && !value.isBlank()) {
+            try {
+                timeoutMs = Long.parseLong(value.trim());
+            } catch (NumberFormatException ignored) {
+                // 使用默认值
+            }
+        }
+        return new DecompileWatchdog(timeoutMs, workerThreads);
+    }
+
+    private static synchronized ThreadPoolExecutor getExecutor(int workerThreads) {
+        if (executor == null) {
+            int threads = workerThreads + Math.max(workerThreads, MIN_SPARE_THREADS);
+            executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "jadx-decompile-" + THREAD_COUNT.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    /**
+     * 在反编译线程中执行的一次反编译，开始运行后才开始计时。
+     */
+    private static final class Task implements Callable<ICodeInfo> {
+        private final ClassNode topClass;
+        private final AtomicInteger state = new AtomicInteger(STATE_RUNNING);
+        private volatile Thread thread;
+        private volatile long startNanos;
+        private volatile long startCpuNanos;
+
+        private Task(ClassNode topClass) {
+            this.topClass = topClass;
+        }
+
+        @Override
+        public ICodeInfo call() {
+            startCpuNanos = CPU_TIME ? THREADS.getCurrentThreadCpuTime() : 0;
+            startNanos = System.nanoTime();
+            thread = Thread.currentThread();
+            return decompile(topClass);
+        }
+
+        /**
+         * @return 反编译线程使用的 CPU 时间，不支持时使用开始运行后的时间，还没有开始时为 0。
+         */
+        private long usedMs() {
+            Thread current = thread;
+            if (current == null) return 0;
+            if (CPU_TIME) {
+                long cpuNanos = THREADS.getThreadCpuTime(current.threadId());
+                if (cpuNanos >= 0) return TimeUnit.NANOSECONDS.toMillis(cpuNanos - startCpuNanos);
+            }
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        }
+    }
+
+    private static final int STATE_RUNNING = 0;
+    private static final int STATE_DONE = 1;
+    private static final int STATE_ABANDONED = 2;
+
+    /**
+     * 反编译抛出的异常可能来自同时进行的卸载等偶发情况，重新反编译一次，再次失败时抛出。
+     */
+    private static ICodeInfo decompile(ClassNode topClass) {
+        try {
+            return topClass.getCode();
+        } catch (CancellationException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            logger.debug("Decompilation of {} failed, retrying: {}", topClass.getRawName(), e.toString());
+            return topClass.reloadCode();
+        }
+    }
+
+    /**
+     * @param cls 类或内部类，反编译它的顶层类。
+     * @return 顶层类的代码。
+     * @throws QuarantinedClassException 类已经在隔离中，或者这次反编译失败或超时。
+     * @throws BlockedClassException 反编译等待超时后仍在运行的线程，或者反编译线程池已满。
+     */
+    public ICodeInfo getCode(ClassNode cls) {
+        ClassNode topClass = cls.getTopParentClass();
+        String rawName = topClass.getRawName();
+        Quarantine.Entry entry = quarantine.hit(rawName);
+        if (entry != null) throw new QuarantinedClassException(entry);
+
+        long start = System.nanoTime();
+        if (topClass.root().getCodeCache().contains(rawName)) {
+            try {
+                return topClass.getCode();
+            } catch (CancellationException e) {
+                throw e;
+            } catch (RuntimeException | StackOverflowError e) {
+                throw failed(rawName, e, start);
+            }
+        }
+        if (timeoutMs <= 0) {
+            enter(topClass);
+            try {
+                return decompile(topClass);
+            } catch (CancellationException e) {
+                throw e;
+            } catch (RuntimeException | StackOverflowError e) {
+                throw failed(rawName, e, start);
+            } finally {
+                exit(topClass);
+            }
+        }
+
+        Task task = new Task(topClass);
+        Future<ICodeInfo> future;
+        // 在提交前登记，调用者返回前其他线程已经能看到
+        enter(topClass);
+        try {
+            future = pool.submit(() -> {
+                try {
+                    return task.call();
+                } finally {
+                    exit(topClass);
+                    if (!task.state.compareAndSet(STATE_RUNNING, STATE_DONE)) {
+                        abandoned.remove(rawName, task);
+                        logger.info("Abandoned decompilation of {} finished after {} ms", rawName, elapsedMs(start));
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            exit(topClass);
+            throw new BlockedClassException("Decompile threads are busy with " + pool.getActiveCount() +
+                    " decompilations, including timed out ones, retry " + rawName + " later", RETRY_AFTER_SECONDS);
+        }
+        try {
+            while (true) {
+                try {
+                    return future.get(POLL_MS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    String blocker = getAbandonedLockOwner(task);
+                    if (blocker != null) {
+                        if (!abandon(task, rawName)) return getDone(future, rawName, start);
+                        logger.info("Decompilation of {} is waiting for timed out {}, not quarantined", rawName, blocker);
+                        throw new BlockedClassException("Class " + rawName + " depends on " + blocker +
+                                " whose decompilation timed out and is still running, retry later", RETRY_AFTER_SECONDS);
+                    }
+                    if (task.usedMs() >= timeoutMs) {
+                        if (!abandon(task, rawName)) return getDone(future, rawName, start);
+                        throw timedOut(rawName, start);
+                    }
+                }
+            }
+        } catch (ExecutionException e) {
+            throw failed(rawName, e.getCause(), start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while decompiling " + rawName);
+        }
+    }
+
+    /**
+     * @return 是否放弃了等待，反编译恰好在此时完成时返回 false。
+     */
+    private boolean abandon(Task task, String rawName) {
+        // 先登记再切换状态，反编译线程结束时一定能看到登记
+        abandoned.put(rawName, task);
+        if (task.state.compareAndSet(STATE_RUNNING, STATE_ABANDONED)) return true;
+        abandoned.remove(rawName, task);
+        return false;
+    }
+
+    /**
+     * @return 反编译线程正在等待的锁被超时后仍在运行的线程持有时，返回那个线程反编译的类。
+     */
+    private String getAbandonedLockOwner(Task task) {
+        Thread thread = task.thread;
+        if (thread == null || abandoned.isEmpty() || thread.getState() != Thread.State.BLOCKED) return null;
+        ThreadInfo info = THREADS.getThreadInfo(thread.threadId());
+        if (info == null || info.getLockOwnerId() < 0) return null;
+        for (Map.Entry<String, Task> entry : abandoned.entrySet()) {
+            Thread owner = entry.getValue().thread;
+            if (owner != null && owner.threadId() == info.getLockOwnerId()) return entry.getKey();
+        }
+        return null;
+    }
+
+    private QuarantinedClassException timedOut(String rawName, long start) {
+        Quarantine.Entry added = quarantine.add(rawName, Quarantine.REASON_TIMEOUT,
+                "no result within " + timeoutMs + " ms of " + (CPU_TIME ? "CPU time" : "running time"),
+                elapsedMs(start));
+        if (added != null) {
+            logger.warn("Quarantined {}: decompilation did not finish within {} ms", rawName, timeoutMs);
+        }
+        return new QuarantinedClassException(added != null ? added : quarantine.hit(rawName));
+    }
+
+    private ICodeInfo getDone(Future<ICodeInfo> future, String rawName, long start) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw failed(rawName, e.getCause(), start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while decompiling " + rawName);
+        }
+    }
+
+    private RuntimeException failed(String rawName, Throwable e, long start) {
+        if (e instanceof CancellationException cancellation) return cancellation;
+        Quarantine.Entry added = quarantine.add(rawName, Quarantine.REASON_ERROR, e.toString(), elapsedMs(start));
+        if (added != null) {
+            // 只在第一次失败时记录异常，之后的查询直接跳过
+            logger.error("Quarantined {}: decompilation failed", rawName, e);
+            return new QuarantinedClassException(added);
+        }
+        return new QuarantinedClassException(quarantine.hit(rawName));
+    }
+
+    private void enter(ClassNode topClass) {
+        running.merge(topClass, 1, Integer::sum);
+    }
+
+    private void exit(ClassNode topClass) {
+        running.computeIfPresent(topClass, (cls, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * 反编译一个类时 jadx 先处理它的依赖，生成代码时还会读取依赖的中间表示，这期间依赖不能被卸载。
+     * 调用者持有类的锁时检查，之后开始的反编译处理依赖时会等待这个锁，看到卸载后的状态会重新处理。
+     * @param cls 顶层类。
+     * @return 类正在反编译，或者是正在反编译的类的依赖。
+     */
+    public boolean isInUse(ClassNode cls) {
+        if (running.containsKey(cls)) return true;
+        for (ClassNode topClass : running.keySet()) {
+            if (topClass.getDependencies().contains(cls) || topClass.getCodegenDeps().contains(cls)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * jadx 反编译时持有顶层类的锁，超时的反编译结束前，需要这个锁的操作（例如读取方法指令）会一直等待。
+     * @return 类的顶层类超时后仍在后台反编译。
+     */
+    public boolean isAbandoned(ClassNode cls) {
+        ClassNode topClass = cls.getTopParentClass();
+        Task task = abandoned.get(topClass.getRawName());
+        return task != null && task.topClass == topClass;
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    public Quarantine getQuarantine() {
+        return quarantine;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("timeoutMs", timeoutMs);
+        stats.put("cpuTime", CPU_TIME);
+        stats.put("poolThreads", pool.getMaximumPoolSize());
+        stats.put("activeThreads", pool.getActiveCount());
+        stats.put("abandonedThreads", abandoned.size());
+        stats.putAll(quarantine.getStats(MAX_LISTED_ENTRIES));
+        return stats;
+    }
+}
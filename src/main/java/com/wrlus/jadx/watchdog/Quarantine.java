@@ -0,0 +1,91 @@
+package com.wrlus.jadx.watchdog;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * 一个实例中反编译失败或超时的顶层类。隔离的类不再反编译，扫描时跳过或者只在字节码中查找，
+ * 同一个类的异常只在第一次失败时记录日志。隔离只保存在内存中，在实例的生命周期内有效：
+ * 实例卸载时清空，重新加载时只释放字节码变化的类。
+ */
+public class Quarantine {
+    public static final String REASON_TIMEOUT = "timeout";
+    public static final String REASON_ERROR = "error";
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param rawName   顶层类的原始类名。
+     * @param reason    {@link #REASON_TIMEOUT} 或 {@link #REASON_ERROR}。
+     * @param message   超时的时间预算或者异常信息。
+     * @param elapsedMs 隔离前反编译的时间。
+     */
+    public record Entry(String rawName, String reason, String message, long elapsedMs, long time, AtomicLong hits) {
+        public Map<String, Object> toJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("class", rawName);
+            json.put("reason", reason);
+            json.put("message", message);
+            json.put("elapsedMs", elapsedMs);
+            json.put("time", time);
+            json.put("hits", hits.get());
+            return json;
+        }
+    }
+
+    /**
+     * @return 新加入的记录，类已经在隔离中时返回 null。
+     */
+    public Entry add(String rawName, String reason, String message, long elapsedMs) {
+        Entry entry = new Entry(rawName, reason, message, elapsedMs, System.currentTimeMillis(), new AtomicLong());
+        return entries.putIfAbsent(rawName, entry) == null ? entry : null;
+    }
+
+    /**
+     * @return 类的隔离记录并记录一次跳过，没有隔离时返回 null。
+     */
+    public Entry hit(String rawName) {
+        Entry entry = entries.get(rawName);
+        if (entry != null) entry.hits().incrementAndGet();
+        return entry;
+    }
+
+    /**
+     * @return 释放的类数。
+     */
+    public int removeIf(Predicate<String> filter) {
+        int removed = 0;
+        for (String rawName : entries.keySet()) {
+            if (filter.test(rawName) && entries.remove(rawName) != null) removed++;
+        }
+        return removed;
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @param maxEntries 最多列出的类数，按隔离时间排序。
+     */
+    public Map<String, Object> getStats(int maxEntries) {
+        List<Entry> sorted = new ArrayList<>(entries.values());
+        sorted.sort(Comparator.comparingLong(Entry::time));
+        long timeouts = sorted.stream().filter(entry -> entry.reason().equals(REASON_TIMEOUT)).count();
+        long hits = sorted.stream().mapToLong(entry -> entry.hits().get()).sum();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("classes", sorted.size());
+        stats.put("timeouts", timeouts);
+        stats.put("errors", sorted.size() - timeouts);
+        stats.put("hits", hits);
+        stats.put("entries", sorted.stream().limit(maxEntries).map(Entry::toJson).toList());
+        return stats;
+    }
+}
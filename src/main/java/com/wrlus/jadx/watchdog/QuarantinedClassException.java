@@ -0,0 +1,22 @@
+package com.wrlus.jadx.watchdog;
+
+/**
+ * 请求的类在隔离中（反编译失败或超时），HTTP 层转换为 422。
+ */
+public class QuarantinedClassException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public static final int STATUS_UNPROCESSABLE = 422;
+
+    private final transient Quarantine.Entry entry;
+
+    public QuarantinedClassException(Quarantine.Entry entry) {
+        super("Class " + entry.rawName() + " is quarantined after decompilation " +
+                (entry.reason().equals(Quarantine.REASON_TIMEOUT) ? "timed out" : "failed") + ": " + entry.message());
+        this.entry = entry;
+    }
+
+    public Quarantine.Entry getEntry() {
+        return entry;
+    }
+}